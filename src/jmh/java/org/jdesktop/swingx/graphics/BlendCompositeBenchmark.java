@@ -0,0 +1,104 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jdesktop.swingx.graphics;
+
+import org.jdesktop.swingx.graphics.BlendComposite.BlendingMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.CompositeContext;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.WritableRaster;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+
+/**
+ * Compares the optimized int array code path of {@link BlendComposite}
+ * with the original per-pixel code path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BlendCompositeBenchmark {
+    @Param({"MULTIPLY", "SCREEN", "OVERLAY", "SOFT_LIGHT", "HUE"})
+    private BlendingMode mode;
+
+    @Param({"1.0", "0.5"})
+    private float opacity;
+
+    @Param({"512", "2048"})
+    private int size;
+
+    private BufferedImage src;
+    private BufferedImage dst;
+    private WritableRaster out;
+    private CompositeContext referenceContext;
+    private CompositeContext intDataContext;
+
+    @Setup
+    public void setup() {
+        src = createRandomImage(size, 1);
+        dst = createRandomImage(size, 2);
+        out = dst.copyData(null);
+
+        BlendComposite composite = BlendComposite.getInstance(mode, opacity);
+        ColorModel cm = src.getColorModel();
+        referenceContext = composite.createReferenceContext();
+        intDataContext = composite.createContext(cm, cm, null);
+    }
+
+    @Benchmark
+    public WritableRaster reference() {
+        referenceContext.compose(src.getRaster(), dst.getRaster(), out);
+        return out;
+    }
+
+    @Benchmark
+    public WritableRaster intData() {
+        intDataContext.compose(src.getRaster(), dst.getRaster(), out);
+        return out;
+    }
+
+    private static BufferedImage createRandomImage(int size, long seed) {
+        Random random = new Random(seed);
+        BufferedImage img = new BufferedImage(size, size, TYPE_INT_ARGB);
+        int[] pixels = new int[size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                pixels[x] = random.nextInt();
+            }
+            img.getRaster().setDataElements(0, y, size, 1, pixels);
+        }
+        return img;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor;
+
+import pixelitor.gui.View;
+import pixelitor.layers.BlendingMode;
+import pixelitor.layers.ImageLayer;
+
+import java.awt.Cursor;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+
+/**
+ * Shared input generation for the JMH benchmarks
+ */
+public class BenchmarkUtils {
+    private BenchmarkUtils() {
+    }
+
+    /**
+     * Creates an image with smooth gradients and some noise, so that
+     * it is neither trivially compressible nor pure noise
+     */
+    public static BufferedImage createTestImage(int width, int height, long seed) {
+        Random random = new Random(seed);
+        BufferedImage img = new BufferedImage(width, height, TYPE_INT_ARGB);
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + random.nextInt(16)) & 0xFF;
+                int g = (y * 255 / height + random.nextInt(16)) & 0xFF;
+                int b = ((x + y) * 127 / (width + height) + random.nextInt(16)) & 0xFF;
+                row[x] = 0xFF_00_00_00 | r << 16 | g << 8 | b;
+            }
+            img.getRaster().setDataElements(0, y, width, 1, row);
+        }
+        return img;
+    }
+
+    /**
+     * Creates a composition with the given number of image layers.
+     * All the layers above the first one use the given blending mode.
+     */
+    public static Composition createComposition(int width, int height, int numLayers,
+                                                BlendingMode blendingMode) {
+        Composition comp = Composition.createEmpty(width, height);
+        comp.setName("Benchmark");
+        for (int i = 0; i < numLayers; i++) {
+            BufferedImage img = createTestImage(width, height, i);
+            ImageLayer layer = new ImageLayer(comp, img, "layer " + i, null);
+            if (i > 0) {
+                layer.setBlendingMode(blendingMode, false, false, false);
+            }
+            comp.addLayerInInitMode(layer);
+        }
+        comp.setActiveLayer(comp.getLayer(numLayers - 1));
+        return comp;
+    }
+
+    /**
+     * A {@link View} where the component space is the same as the image space
+     */
+    public static class IdentityView implements View {
+        @Override
+        public double componentXToImageSpace(double coX) {
+            return coX;
+        }
+
+        @Override
+        public double componentYToImageSpace(double coY) {
+            return coY;
+        }
+
+        @Override
+        public Point2D componentToImageSpace(Point2D co) {
+            return co;
+        }
+
+        @Override
+        public double imageXToComponentSpace(double imX) {
+            return imX;
+        }
+
+        @Override
+        public double imageYToComponentSpace(double imY) {
+            return imY;
+        }
+
+        @Override
+        public Point2D imageToComponentSpace(Point2D im) {
+            return im;
+        }
+
+        @Override
+        public Rectangle2D componentToImageSpace(Rectangle2D co) {
+            return co;
+        }
+
+        @Override
+        public Rectangle imageToComponentSpace(Rectangle2D im) {
+            return im.getBounds();
+        }
+
+        @Override
+        public AffineTransform getImageToComponentTransform() {
+            return new AffineTransform();
+        }
+
+        @Override
+        public AffineTransform getComponentToImageTransform() {
+            return new AffineTransform();
+        }
+
+        @Override
+        public void repaint() {
+        }
+
+        @Override
+        public Cursor getCursor() {
+            return Cursor.getDefaultCursor();
+        }
+
+        @Override
+        public void setCursor(Cursor cursor) {
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pixelitor.BenchmarkUtils;
+import pixelitor.filters.jhlabsproxies.JHGaussianBlur;
+import pixelitor.filters.jhlabsproxies.JHMedian;
+import pixelitor.filters.jhlabsproxies.JHPolarCoordinates;
+import pixelitor.filters.jhlabsproxies.JHSwirlPinchBulge;
+import pixelitor.filters.lookup.ColorBalance;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Filter#transformImage(BufferedImage)} with the
+ * default settings of some representative filters
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterBenchmark {
+    @Param({"GaussianBlur", "Median", "SwirlPinchBulge", "PolarCoordinates",
+            "Invert", "Posterize", "ColorBalance"})
+    private String filterName;
+
+    @Param({"1000", "3000"})
+    private int size;
+
+    private Filter filter;
+    private BufferedImage src;
+
+    @Setup
+    public void setup() {
+        filter = createFilter(filterName);
+        src = BenchmarkUtils.createTestImage(size, size, 1);
+    }
+
+    @Benchmark
+    public BufferedImage transformImage() {
+        return filter.transformImage(src);
+    }
+
+    private static Filter createFilter(String name) {
+        switch (name) {
+            case "GaussianBlur":
+                return new JHGaussianBlur();
+            case "Median":
+                return new JHMedian();
+            case "SwirlPinchBulge":
+                return new JHSwirlPinchBulge();
+            case "PolarCoordinates":
+                return new JHPolarCoordinates();
+            case "Invert":
+                return new Invert();
+            case "Posterize":
+                return new Posterize();
+            case "ColorBalance":
+                return new ColorBalance();
+            default:
+                throw new IllegalStateException("name = " + name);
+        }
+    }
+}
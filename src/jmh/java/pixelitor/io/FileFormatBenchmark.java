@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.io;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pixelitor.BenchmarkUtils;
+import pixelitor.Build;
+import pixelitor.Composition;
+import pixelitor.layers.BlendingMode;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing and reading back multi-layer images in the
+ * pxc and OpenRaster formats. Every write goes to a new file,
+ * so that the incremental saving doesn't kick in.
+ *
+ * The testing mode is used because it doesn't require the status bar,
+ * and it needs enabled assertions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-ea")
+@State(Scope.Benchmark)
+public class FileFormatBenchmark {
+    @Param({"pxc", "ora"})
+    private String format;
+
+    @Param({"1", "5"})
+    private int numLayers;
+
+    @Param({"1000", "3000"})
+    private int size;
+
+    private Composition comp;
+    private File dir;
+    private File savedFile;
+    private int fileCounter = 0;
+
+    @Setup
+    public void setup() throws IOException {
+        Build.setTestingMode();
+        comp = BenchmarkUtils.createComposition(size, size, numLayers, BlendingMode.NORMAL);
+        dir = File.createTempFile("pixelitor-bench", "");
+        dir.delete();
+        dir.mkdir();
+        savedFile = write();
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Benchmark
+    public File writeFile() throws IOException {
+        File file = write();
+        file.delete();
+        return file;
+    }
+
+    @Benchmark
+    public Composition readFile() throws Exception {
+        if (format.equals("pxc")) {
+            return PXCFormat.read(savedFile);
+        }
+        return OpenRaster.read(savedFile);
+    }
+
+    private File write() throws IOException {
+        File file = new File(dir, "bench" + fileCounter++ + "." + format);
+        if (format.equals("pxc")) {
+            PXCFormat.write(comp, file);
+        } else {
+            OpenRaster.write(comp, file, false);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.tools;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pixelitor.BenchmarkUtils;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the local and global flood fill of the
+ * {@link PaintBucketTool} starting from the center of the image
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FloodFillBenchmark {
+    // with 0 only a few pixels are filled, with
+    // 255 the whole image is filled
+    @Param({"0", "20", "255"})
+    private int tolerance;
+
+    @Param({"1000", "3000"})
+    private int size;
+
+    @Param({"local", "global"})
+    private String action;
+
+    private BufferedImage original;
+    private BufferedImage img;
+
+    @Setup
+    public void setup() {
+        original = BenchmarkUtils.createTestImage(size, size, 1);
+        img = new BufferedImage(size, size, original.getType());
+    }
+
+    @Benchmark
+    public Rectangle floodFill() {
+        // the fill modifies the image, so it has to start from a fresh copy
+        img.setData(original.getRaster());
+        int x = size / 2;
+        int y = size / 2;
+        int rgbAtMouse = img.getRGB(x, y);
+        int[] pixels = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        FloodFill fill;
+        if (action.equals("local")) {
+            fill = FloodFill.local(pixels, size, size, x, y, tolerance, rgbAtMouse);
+        } else {
+            fill = FloodFill.global(pixels, size, size, tolerance, rgbAtMouse);
+        }
+        fill.apply(pixels, 0, 0, size, 0xFF_FF_00_00);
+        return fill.getBounds();
+    }
+}
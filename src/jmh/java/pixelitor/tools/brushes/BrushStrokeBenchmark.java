@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.tools.brushes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pixelitor.BenchmarkUtils;
+import pixelitor.Composition;
+import pixelitor.gui.View;
+import pixelitor.layers.BlendingMode;
+import pixelitor.layers.ImageLayer;
+import pixelitor.tools.shapes.ShapeType;
+import pixelitor.tools.util.PPoint;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a zig-zag brush stroke across the whole image
+ * with a {@link DabsBrush}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BrushStrokeBenchmark {
+    private static final int NUM_STROKE_POINTS = 200;
+
+    @Param({"5", "50"})
+    private double radius;
+
+    @Param({"1000", "3000"})
+    private int size;
+
+    private Composition comp;
+    private Graphics2D g;
+    private DabsBrush brush;
+    private final View view = new BenchmarkUtils.IdentityView();
+
+    @Setup
+    public void setup() {
+        comp = BenchmarkUtils.createComposition(size, size, 1, BlendingMode.NORMAL);
+        ImageLayer layer = (ImageLayer) comp.getActiveLayer();
+        g = layer.getImage().createGraphics();
+        g.setColor(Color.RED);
+
+        ShapeDabsBrushSettings settings = new ShapeDabsBrushSettings(
+                AngleSettings.NOT_ANGLE_AWARE,
+                new RadiusRatioSpacing(0.5),
+                ShapeType.RECTANGLE);
+        brush = new ShapeDabsBrush(radius, settings);
+        brush.setTarget(comp, g);
+    }
+
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public void stroke() {
+        brush.startAt(PPoint.eagerFromIm(0, 0, view));
+        double step = (double) size / NUM_STROKE_POINTS;
+        for (int i = 1; i <= NUM_STROKE_POINTS; i++) {
+            double x = i * step;
+            double y = (i % 2 == 0) ? 0 : size;
+            brush.continueTo(PPoint.eagerFromIm(x, y, view));
+        }
+        brush.finish();
+    }
+}
@@ -21,7 +21,6 @@ import pixelitor.ThreadPool;
 
 import java.awt.Rectangle;
 import java.util.Random;
-import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
@@ -247,14 +246,9 @@ public class CausticsFilter extends WholeImageFilter {
 
         pt = createProgressTracker(outHeight);
 
-        Future<?>[] futures = new Future[outHeight];
-        for (int y = 0; y < outHeight; y++) {
-            int finalY = y;
-            int finalV = v;
-            Runnable lineTask = () -> calculateLine(outWidth, outHeight, pixels, finalV, rs, d, finalY);
-            futures[y] = ThreadPool.submit(lineTask);
-        }
-        ThreadPool.waitForFutures(futures, pt);
+        int finalV = v;
+        ThreadPool.forEachRow(outHeight, outWidth * samples, pt, y ->
+                calculateLine(outWidth, outHeight, pixels, finalV, rs, d, y));
 
         finishProgressTracker();
 
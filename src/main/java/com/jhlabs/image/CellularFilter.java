@@ -23,7 +23,6 @@ import pixelitor.ThreadPool;
 import pixelitor.utils.CachedFloatRandom;
 
 import java.awt.Rectangle;
-import java.util.concurrent.Future;
 
 /**
  * A filter which produces an image with a cellular texture.
@@ -611,18 +610,14 @@ public class CellularFilter extends WholeImageFilter implements Function2D {
         pt = createProgressTracker(height);
         int[] outPixels = new int[width * height];
 
-        Future<?>[] futures = new Future[height];
-        for (int y = 0; y < height; y++) {
-            int finalY = y;
-            Runnable calculateLineTask = () -> {
-                int index = width * finalY;
+        ThreadPool.processRows(height, width, pt, (startY, endY) -> {
+            int index = width * startY;
+            for (int y = startY; y < endY; y++) {
                 for (int x = 0; x < width; x++) {
-                    outPixels[index++] = getPixel(x, finalY, inPixels, width, height);
+                    outPixels[index++] = getPixel(x, y, inPixels, width, height);
                 }
-            };
-            futures[y] = ThreadPool.submit(calculateLineTask);
-        }
-        ThreadPool.waitForFutures(futures, pt);
+            }
+        });
 
         finishProgressTracker();
 
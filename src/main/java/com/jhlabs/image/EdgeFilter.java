@@ -89,6 +89,11 @@ public class EdgeFilter extends WholeImageFilter {
 		return hEdgeMatrix;
 	}
 
+	@Override
+	protected int getNeighbourhoodRadius() {
+		return 1;
+	}
+
 	@Override
     protected int[] filterPixels( int width, int height, int[] inPixels, Rectangle transformedSpace ) {
         pt = createProgressTracker(height);
@@ -65,6 +65,12 @@ public class EmbossFilter extends WholeImageFilter {
         return emboss;
     }
 
+    @Override
+    protected int getNeighbourhoodRadius() {
+        // the normal of a pixel is calculated from the next two rows
+        return 2;
+    }
+
     @Override
     protected int[] filterPixels(int width, int height, int[] inPixels, Rectangle transformedSpace) {
         pt = createProgressTracker(height);
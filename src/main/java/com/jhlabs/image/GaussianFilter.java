@@ -21,7 +21,6 @@ import pixelitor.utils.ProgressTracker;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.Kernel;
-import java.util.concurrent.Future;
 
 /**
  * A filter which applies Gaussian blur to an image. This is a subclass of ConvolveFilter
@@ -129,14 +128,8 @@ public class GaussianFilter extends ConvolveFilter {
         int cols = kernel.getWidth();
         int cols2 = cols / 2;
 
-        Future<?>[] resultLines = new Future[height];
-        for (int y = 0; y < height; y++) {
-            int finalY = y;
-            Runnable lineTask = () -> convolveAndTransposeLine(inPixels, outPixels, width, height, alpha, premultiply, unpremultiply, edgeAction, matrix, cols2, finalY);
-            resultLines[y] = ThreadPool.submit(lineTask);
-        }
-
-        ThreadPool.waitForFutures(resultLines, pt);
+        ThreadPool.forEachRow(height, width * cols, pt, y ->
+                convolveAndTransposeLine(inPixels, outPixels, width, height, alpha, premultiply, unpremultiply, edgeAction, matrix, cols2, y));
     }
 
     private static void convolveAndTransposeLine(int[] inPixels, int[] outPixels, int width, int height, boolean alpha, boolean premultiply, boolean unpremultiply, int edgeAction, float[] matrix, int cols2, int y) {
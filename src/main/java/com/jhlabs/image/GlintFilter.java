@@ -19,7 +19,6 @@ package com.jhlabs.image;
 import pixelitor.ThreadPool;
 
 import java.awt.image.BufferedImage;
-import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
@@ -249,14 +248,14 @@ public class GlintFilter extends AbstractBufferedImageOp {
             dstPixels = getRGB(src, 0, 0, width, height, null);//FIXME - only need 2*length
         }
 
-        Future<?>[] futures = new Future[height];
-        for (int y = 0; y < height; y++) {
-            int finalY = y;
-            BufferedImage finalMask = mask;
-            Runnable lineTask = () -> calculateLine(width, height, pixels, length2, colors, colors2, finalMask, dstPixels, finalY);
-            futures[y] = ThreadPool.submit(lineTask);
-        }
-        ThreadPool.waitForFutures(futures, pt);
+        BufferedImage finalMask = mask;
+        ThreadPool.processRows(height, width, pt, (startY, endY) -> {
+            // each band needs its own line buffer
+            int[] linePixels = new int[width];
+            for (int y = startY; y < endY; y++) {
+                calculateLine(width, height, linePixels, length2, colors, colors2, finalMask, dstPixels, y);
+            }
+        });
 
         setRGB(dst, 0, 0, width, height, dstPixels);
 
@@ -68,6 +68,11 @@ public class MedianFilter extends WholeImageFilter {
 		return index;
 	}
 
+	@Override
+	protected int getNeighbourhoodRadius() {
+		return 1;
+	}
+
 	@Override
     protected int[] filterPixels( int width, int height, int[] inPixels, Rectangle transformedSpace ) {
 		int index = 0;
@@ -19,7 +19,6 @@ package com.jhlabs.image;
 import pixelitor.ThreadPool;
 
 import java.awt.Rectangle;
-import java.util.concurrent.Future;
 
 /**
  * A filter which produces a "oil-painting" effect.
@@ -71,14 +70,8 @@ public class OilFilter extends WholeImageFilter {
         int[] outPixels = new int[width * height];
 
         pt = createProgressTracker(height);
-        Future<?>[] futures = new Future[height];
-        for (int y = 0; y < height; y++) {
-            int finalY = y;
-            Runnable lineTask = () -> calculateLine(width, height, inPixels, outPixels, finalY);
-            futures[y] = ThreadPool.submit(lineTask);
-        }
-
-        ThreadPool.waitForFutures(futures, pt);
+        ThreadPool.forEachRow(height, width, pt, y ->
+                calculateLine(width, height, inPixels, outPixels, y));
         finishProgressTracker();
 
         return outPixels;
@@ -20,7 +20,6 @@ import pixelitor.ThreadPool;
 import pixelitor.utils.ImageUtils;
 
 import java.awt.image.BufferedImage;
-import java.util.concurrent.Future;
 
 /**
  * An abstract superclass for point filters. The interface is the same as the old RGBImageFilter.
@@ -48,19 +47,15 @@ public abstract class PointFilter extends AbstractBufferedImageOp {
         int[] outPixels = ImageUtils.getPixelsAsArray(dst);
 
         pt = createProgressTracker(height);
-        Future<?>[] futures = new Future[height];
-        for (int y = 0; y < height; y++) {
-            int finalY = y;
-            Runnable calculateLineTask = () -> {
+        ThreadPool.processRows(height, width, pt, (startY, endY) -> {
+            for (int y = startY; y < endY; y++) {
+                int index = y * width;
                 for (int x = 0; x < width; x++) {
-                    int index = finalY * width + x;
-                    outPixels[index] = filterRGB(x, finalY, inPixels[index]);
+                    outPixels[index] = filterRGB(x, y, inPixels[index]);
+                    index++;
                 }
-            };
-            futures[y] = ThreadPool.submit(calculateLineTask);
-        }
-
-        ThreadPool.waitForFutures(futures, pt);
+            }
+        });
         finishProgressTracker();
 
         return dst;
@@ -71,20 +66,16 @@ public abstract class PointFilter extends AbstractBufferedImageOp {
         int height = src.getHeight();
 
         pt = createProgressTracker(height);
-        Future<?>[] futures = new Future[height];
-        for (int y = 0; y < height; y++) {
-            int finalY = y;
-            Runnable calculateLineTask = () -> {
-                int[] inPixels = new int[width];
-                src.getRGB(0, finalY, width, 1, inPixels, 0, width);
+        ThreadPool.processRows(height, width, pt, (startY, endY) -> {
+            int[] linePixels = new int[width];
+            for (int y = startY; y < endY; y++) {
+                src.getRGB(0, y, width, 1, linePixels, 0, width);
                 for (int x = 0; x < width; x++) {
-                    inPixels[x] = filterRGB(x, finalY, inPixels[x]);
+                    linePixels[x] = filterRGB(x, y, linePixels[x]);
                 }
-                dst.setRGB(0, finalY, width, 1, inPixels, 0, width);
-            };
-            futures[y] = ThreadPool.submit(calculateLineTask);
-        }
-        ThreadPool.waitForFutures(futures, pt);
+                dst.setRGB(0, y, width, 1, linePixels, 0, width);
+            }
+        });
         finishProgressTracker();
 
         return dst;
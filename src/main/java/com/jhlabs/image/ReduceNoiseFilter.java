@@ -52,6 +52,11 @@ public class ReduceNoiseFilter extends WholeImageFilter {
         return v[4];
     }
 
+    @Override
+    protected int getNeighbourhoodRadius() {
+        return 1;
+    }
+
     @Override
     protected int[] filterPixels(int width, int height, int[] inPixels, Rectangle transformedSpace) {
         int index = 0;
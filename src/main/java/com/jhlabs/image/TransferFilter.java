@@ -60,6 +60,15 @@ public abstract class TransferFilter extends PointFilter {
         return 0;
     }
 
+    /**
+     * Returns the red, green and blue transfer tables
+     */
+    public int[][] getTables() {
+        if (!initialized)
+            initialize();
+        return new int[][] { rTable, gTable, bTable };
+    }
+
     public int[] getLUT() {
         if (!initialized)
             initialize();
@@ -16,15 +16,21 @@ limitations under the License.
 
 package com.jhlabs.image;
 
+import pixelitor.ThreadPool;
+import pixelitor.utils.ProgressTracker;
+import pixelitor.utils.SubtaskProgressTracker;
+
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
+import java.util.Arrays;
 
 /**
  * A filter which acts as a superclass for filters which need to have the whole image in memory
  * to do their stuff.
  */
 public abstract class WholeImageFilter extends AbstractBufferedImageOp {
+    private static final int MIN_BAND_HEIGHT = 16;
 
     /**
      * The output image bounds.
@@ -61,12 +67,70 @@ public abstract class WholeImageFilter extends AbstractBufferedImageOp {
 //		WritableRaster dstRaster = dst.getRaster();
 
         int[] inPixels = getRGB(src, 0, 0, width, height, null);
-        inPixels = filterPixels(width, height, inPixels, transformedSpace);
+        int radius = getNeighbourhoodRadius();
+        if (radius >= 0 && transformedSpace.equals(originalSpace)) {
+            inPixels = filterPixelsInBands(width, height, inPixels, radius);
+        } else {
+            inPixels = filterPixels(width, height, inPixels, transformedSpace);
+        }
         setRGB(dst, 0, 0, transformedSpace.width, transformedSpace.height, inPixels);
 
         return dst;
     }
 
+    /**
+     * Filters the image in parallel, in bands of rows. Each band is filtered
+     * by a clone of this filter, and it is extended with the given number of
+     * halo rows on both sides, so that the result is the same as filtering
+     * the whole image at once. The progress is reported in rows.
+     */
+    private int[] filterPixelsInBands(int width, int height, int[] inPixels, int radius) {
+        int maxBands = Runtime.getRuntime().availableProcessors() * 4;
+        // the halo rows are filtered more than once, so
+        // the bands should be much taller than the halo
+        int bandHeight = Math.max(Math.max(MIN_BAND_HEIGHT, 4 * radius),
+                (height + maxBands - 1) / maxBands);
+        int numBands = (height + bandHeight - 1) / bandHeight;
+        if (numBands == 1) {
+            return filterPixels(width, height, inPixels, transformedSpace);
+        }
+
+        int[] outPixels = new int[width * height];
+        pt = createProgressTracker(height);
+        ProgressTracker bandTracker = new SubtaskProgressTracker(bandHeight, pt);
+        ThreadPool.processRange(numBands, bandHeight * width, bandTracker, (start, end) -> {
+            WholeImageFilter worker = (WholeImageFilter) clone();
+            worker.setProgressTracker(ProgressTracker.NULL_TRACKER);
+            for (int band = start; band < end; band++) {
+                int bandStart = band * bandHeight;
+                int bandEnd = Math.min(height, bandStart + bandHeight);
+                int tileStart = Math.max(0, bandStart - radius);
+                int tileEnd = Math.min(height, bandEnd + radius);
+                int tileHeight = tileEnd - tileStart;
+
+                int[] tilePixels = Arrays.copyOfRange(inPixels, tileStart * width, tileEnd * width);
+                int[] tileResult = worker.filterPixels(width, tileHeight, tilePixels,
+                        new Rectangle(0, 0, width, tileHeight));
+                System.arraycopy(tileResult, (bandStart - tileStart) * width,
+                        outPixels, bandStart * width, (bandEnd - bandStart) * width);
+            }
+        });
+        finishProgressTracker();
+        return outPixels;
+    }
+
+    /**
+     * Returns the number of rows above and bellow an output pixel that
+     * are needed to calculate it. If it is not negative, then the filter
+     * runs in parallel bands of rows. The default -1 means that an output
+     * pixel can depend on the whole image, and the filter runs on one thread.
+     * Filters that don't change the image size, don't use the absolute
+     * y coordinates and don't keep state between rows can override this.
+     */
+    protected int getNeighbourhoodRadius() {
+        return -1;
+    }
+
     /**
      * Calculate output bounds for given input bounds.
      *
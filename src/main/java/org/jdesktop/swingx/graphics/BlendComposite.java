@@ -339,12 +339,32 @@ public final class BlendComposite implements Composite {
         }
     }
 
+    /**
+     * Returns a context that always uses the original, per-pixel
+     * {@link Blender} code path. Used for testing and benchmarking
+     * the optimized code path that works directly on the int arrays.
+     */
+    CompositeContext createReferenceContext() {
+        return new BlendingRgbContext(this, false);
+    }
+
     private static class BlendingRgbContext extends BlendingContext {
+        private final boolean useIntData;
+
         private BlendingRgbContext(BlendComposite composite) {
+            this(composite, true);
+        }
+
+        private BlendingRgbContext(BlendComposite composite, boolean useIntData) {
             super(composite);
+            this.useIntData = useIntData;
         }
 
         public void compose(Raster src, Raster dstIn, WritableRaster dstOut) {
+            if (useIntData && IntDataBlending.canCompose(src, dstIn, dstOut)) {
+                IntDataBlending.compose(composite, src, dstIn, dstOut);
+                return;
+            }
             int width = Math.min(src.getWidth(), dstIn.getWidth());
             int height = Math.min(src.getHeight(), dstIn.getHeight());
 
@@ -435,7 +455,7 @@ public final class BlendComposite implements Composite {
         }
     }
 
-    private static abstract class Blender {
+    static abstract class Blender {
         public abstract void blend(int[] src, int[] dst, int[] result);
 
         public static Blender getBlenderFor(BlendComposite composite) {
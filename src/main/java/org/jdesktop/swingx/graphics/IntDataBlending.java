@@ -0,0 +1,268 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jdesktop.swingx.graphics;
+
+import org.jdesktop.swingx.graphics.BlendComposite.Blender;
+import org.jdesktop.swingx.graphics.BlendComposite.BlendingMode;
+import pixelitor.ThreadPool;
+import pixelitor.utils.ProgressTracker;
+
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The fast code path of {@link BlendComposite} for rasters that store
+ * the packed pixels in an int array, as TYPE_INT_ARGB and
+ * TYPE_INT_ARGB_PRE images do.
+ *
+ * The pixels are read and written directly in the int arrays, without
+ * per-pixel allocations and virtual calls. In the blending modes where
+ * every channel of the result depends only on the same channel of the
+ * two pixels, the {@link Blender} is evaluated in advance for every
+ * possible pair of channel values, and the inner loop only looks up
+ * the results in these tables. The results are identical to the
+ * results of the per-pixel code path. The rows are processed in
+ * parallel bands.
+ */
+final class IntDataBlending {
+    // index: (srcValue << 8) | dstValue
+    private static final int TABLE_SIZE = 256 * 256;
+
+    private static final LookupTables[] tablesCache
+            = new LookupTables[BlendingMode.values().length];
+
+    // the distinct tables, so that equal tables are shared between the modes
+    private static final List<short[]> distinctTables = new ArrayList<>();
+
+    private IntDataBlending() {
+    }
+
+    static boolean canCompose(Raster src, Raster dstIn, Raster dstOut) {
+        return isIntData(src) && isIntData(dstIn) && isIntData(dstOut);
+    }
+
+    private static boolean isIntData(Raster raster) {
+        DataBuffer buffer = raster.getDataBuffer();
+        return buffer instanceof DataBufferInt
+                && buffer.getNumBanks() == 1
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel;
+    }
+
+    static void compose(BlendComposite composite, Raster src,
+                        Raster dstIn, WritableRaster dstOut) {
+        int width = Math.min(src.getWidth(), dstIn.getWidth());
+        int height = Math.min(src.getHeight(), dstIn.getHeight());
+
+        IntPixels srcPixels = new IntPixels(src);
+        IntPixels dstInPixels = new IntPixels(dstIn);
+        IntPixels dstOutPixels = new IntPixels(dstOut);
+        float alpha = composite.getAlpha();
+        BlendingMode mode = composite.getMode();
+
+        ThreadPool.RangeTask task;
+        if (isHSLMode(mode)) {
+            LookupTables unionTables = getTables(BlendingMode.MULTIPLY);
+            task = (startY, endY) -> blendHSL(mode, unionTables.alpha,
+                    srcPixels, dstInPixels, dstOutPixels, startY, endY, width, alpha);
+        } else {
+            LookupTables tables = getTables(mode);
+            task = (startY, endY) -> blendWithTables(tables,
+                    srcPixels, dstInPixels, dstOutPixels, startY, endY, width, alpha);
+        }
+
+        if (Thread.currentThread().isInterrupted()) {
+            // the thread pool would cancel the work, but
+            // compositing is expected to complete
+            task.process(0, height);
+        } else {
+            ThreadPool.processRows(height, width, ProgressTracker.NULL_TRACKER, task);
+        }
+    }
+
+    private static void blendWithTables(LookupTables tables,
+                                        IntPixels src, IntPixels dstIn, IntPixels dstOut,
+                                        int startY, int endY, int width, float alpha) {
+        short[] redTable = tables.red;
+        short[] greenTable = tables.green;
+        short[] blueTable = tables.blue;
+        short[] alphaTable = tables.alpha;
+        int[] srcData = src.data;
+        int[] dstInData = dstIn.data;
+        int[] dstOutData = dstOut.data;
+
+        for (int y = startY; y < endY; y++) {
+            int srcIndex = src.getRowStart(y);
+            int dstInIndex = dstIn.getRowStart(y);
+            int dstOutIndex = dstOut.getRowStart(y);
+            for (int x = 0; x < width; x++) {
+                int s = srcData[srcIndex + x];
+                int d = dstInData[dstInIndex + x];
+
+                int ra = alphaTable[(s >>> 16 & 0xFF00) | (d >>> 24)];
+                int rr = redTable[(s >> 8 & 0xFF00) | (d >> 16 & 0xFF)];
+                int rg = greenTable[(s & 0xFF00) | (d >> 8 & 0xFF)];
+                int rb = blueTable[(s << 8 & 0xFF00) | (d & 0xFF)];
+
+                dstOutData[dstOutIndex + x] = mix(d, ra, rr, rg, rb, alpha);
+            }
+        }
+    }
+
+    private static void blendHSL(BlendingMode mode, short[] alphaTable,
+                                 IntPixels src, IntPixels dstIn, IntPixels dstOut,
+                                 int startY, int endY, int width, float alpha) {
+        boolean hueFromSrc = mode == BlendingMode.HUE || mode == BlendingMode.COLOR;
+        boolean satFromSrc = mode == BlendingMode.SATURATION || mode == BlendingMode.COLOR;
+        boolean lumFromSrc = mode == BlendingMode.LUMINOSITY;
+
+        float[] srcHSL = new float[3];
+        float[] dstHSL = new float[3];
+        int[] result = new int[3];
+        int[] srcData = src.data;
+        int[] dstInData = dstIn.data;
+        int[] dstOutData = dstOut.data;
+
+        for (int y = startY; y < endY; y++) {
+            int srcIndex = src.getRowStart(y);
+            int dstInIndex = dstIn.getRowStart(y);
+            int dstOutIndex = dstOut.getRowStart(y);
+            for (int x = 0; x < width; x++) {
+                int s = srcData[srcIndex + x];
+                int d = dstInData[dstInIndex + x];
+
+                ColorUtilities.RGBtoHSL(s >> 16 & 0xFF, s >> 8 & 0xFF, s & 0xFF, srcHSL);
+                ColorUtilities.RGBtoHSL(d >> 16 & 0xFF, d >> 8 & 0xFF, d & 0xFF, dstHSL);
+                ColorUtilities.HSLtoRGB(
+                        hueFromSrc ? srcHSL[0] : dstHSL[0],
+                        satFromSrc ? srcHSL[1] : dstHSL[1],
+                        lumFromSrc ? srcHSL[2] : dstHSL[2], result);
+                int ra = alphaTable[(s >>> 16 & 0xFF00) | (d >>> 24)];
+
+                dstOutData[dstOutIndex + x] = mix(d, ra, result[0], result[1], result[2], alpha);
+            }
+        }
+    }
+
+    /**
+     * Mixes the blended result with the destination pixel according to the
+     * opacity, in the same way as the per-pixel code path
+     */
+    private static int mix(int d, int ra, int rr, int rg, int rb, float alpha) {
+        if (alpha == 1.0f) {
+            return (ra & 0xFF) << 24 | (rr & 0xFF) << 16 | (rg & 0xFF) << 8 | rb & 0xFF;
+        }
+        int da = d >>> 24;
+        int dr = d >> 16 & 0xFF;
+        int dg = d >> 8 & 0xFF;
+        int db = d & 0xFF;
+        return ((int) (da + (ra - da) * alpha) & 0xFF) << 24 |
+                ((int) (dr + (rr - dr) * alpha) & 0xFF) << 16 |
+                ((int) (dg + (rg - dg) * alpha) & 0xFF) << 8 |
+                (int) (db + (rb - db) * alpha) & 0xFF;
+    }
+
+    private static boolean isHSLMode(BlendingMode mode) {
+        return mode == BlendingMode.HUE || mode == BlendingMode.SATURATION
+                || mode == BlendingMode.COLOR || mode == BlendingMode.LUMINOSITY;
+    }
+
+    private static synchronized LookupTables getTables(BlendingMode mode) {
+        LookupTables tables = tablesCache[mode.ordinal()];
+        if (tables == null) {
+            tables = new LookupTables(mode);
+            tablesCache[mode.ordinal()] = tables;
+        }
+        return tables;
+    }
+
+    private static short[] shareTable(short[] table) {
+        for (short[] distinct : distinctTables) {
+            if (Arrays.equals(distinct, table)) {
+                return distinct;
+            }
+        }
+        distinctTables.add(table);
+        return table;
+    }
+
+    /**
+     * The results of a separable blending mode for
+     * every possible pair of channel values
+     */
+    private static class LookupTables {
+        private final short[] red;
+        private final short[] green;
+        private final short[] blue;
+        private final short[] alpha;
+
+        LookupTables(BlendingMode mode) {
+            Blender blender = Blender.getBlenderFor(BlendComposite.getInstance(mode));
+            short[][] tables = new short[4][TABLE_SIZE];
+            int[] srcPixel = new int[4];
+            int[] dstPixel = new int[4];
+            int[] result = new int[4];
+            for (int s = 0; s < 256; s++) {
+                Arrays.fill(srcPixel, s);
+                for (int d = 0; d < 256; d++) {
+                    Arrays.fill(dstPixel, d);
+                    blender.blend(srcPixel, dstPixel, result);
+                    int index = (s << 8) | d;
+                    for (int channel = 0; channel < 4; channel++) {
+                        // the results are not always in the 0..255 range,
+                        // and the opacity mixing works with the raw values
+                        tables[channel][index] = (short) result[channel];
+                    }
+                }
+            }
+            red = shareTable(tables[0]);
+            green = shareTable(tables[1]);
+            blue = shareTable(tables[2]);
+            alpha = shareTable(tables[3]);
+        }
+    }
+
+    /**
+     * Direct access to the int array of a raster
+     */
+    private static class IntPixels {
+        private final int[] data;
+        private final int offset;
+        private final int scanlineStride;
+
+        IntPixels(Raster raster) {
+            DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+            SinglePixelPackedSampleModel sampleModel
+                    = (SinglePixelPackedSampleModel) raster.getSampleModel();
+            data = buffer.getData();
+            scanlineStride = sampleModel.getScanlineStride();
+            offset = buffer.getOffset() + sampleModel.getOffset(
+                    raster.getMinX() - raster.getSampleModelTranslateX(),
+                    raster.getMinY() - raster.getSampleModelTranslateY());
+        }
+
+        int getRowStart(int y) {
+            return offset + y * scanlineStride;
+        }
+    }
+}
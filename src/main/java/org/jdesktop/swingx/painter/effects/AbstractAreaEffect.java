@@ -35,6 +35,7 @@ import java.awt.geom.Area;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
 
 /**
  * The abstract base class for path effects. It takes care
@@ -47,6 +48,9 @@ import java.awt.image.BufferedImage;
 public class AbstractAreaEffect implements AreaEffect {
     private static final boolean debug = false;
 
+    // above this width the effect is not drawn with strokes
+    private static final int FAST_RENDERING_MIN_WIDTH = 30;
+
     // for compatibility with pixelitor versions before 4.2.0
     private static final long serialVersionUID = -9104855683480422662L;
 
@@ -241,19 +245,134 @@ public class AbstractAreaEffect implements AreaEffect {
         } else {
             g2.setComposite(AlphaComposite.getInstance(AlphaComposite.DST_OVER, brushAlpha));
         }*/
-        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.DST_OVER, brushAlpha));
-
-        // draw the effect
-        for (float i = 0; i < steps; i = i + 1f) {
-            float brushWidth = i * effectWidth / steps;
-            g2.setStroke(new BasicStroke(brushWidth,
-                    BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-            g2.draw(clipShape);
+        if (effectWidth >= FAST_RENDERING_MIN_WIDTH) {
+            // the number of strokes grows with the width, so the wide
+            // effects are calculated from a distance transform instead
+            paintBorderGlowFast(g2, clipShape, steps);
+        } else {
+            g2.setComposite(AlphaComposite.getInstance(AlphaComposite.DST_OVER, brushAlpha));
+
+            // draw the effect
+            for (float i = 0; i < steps; i = i + 1f) {
+                float brushWidth = i * effectWidth / steps;
+                g2.setStroke(new BasicStroke(brushWidth,
+                        BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+                g2.draw(clipShape);
+            }
         }
         g2.translate(-offset.getX(), -offset.getY());
 
     }
 
+    /**
+     * Produces the same result as drawing the outline with the
+     * widening strokes, but the cost doesn't depend on the effect width:
+     * the number of strokes covering a pixel is calculated from
+     * its distance from the outline.
+     */
+    private void paintBorderGlowFast(Graphics2D g2, Shape clipShape, int steps) {
+        double reach = effectWidth / 2.0;
+        int margin = (int) Math.ceil(reach) + 2;
+        Rectangle bounds = clipShape.getBounds();
+        bounds.grow(margin, margin);
+        int w = bounds.width;
+        int h = bounds.height;
+
+        BufferedImage maskImage = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D mg = maskImage.createGraphics();
+        mg.translate(-bounds.x, -bounds.y);
+        mg.setColor(Color.WHITE);
+        mg.fill(clipShape);
+        mg.dispose();
+        byte[] mask = ((DataBufferByte) maskImage.getRaster().getDataBuffer()).getData();
+        float[] dist = calcDistanceFromOutline(mask, w, h);
+
+        // the alpha after n strokes, each drawn with the given alpha
+        Color color = getBrushColor();
+        double strokeAlpha = color.getAlpha() / (255.0 * steps);
+        int[] alphaAfter = new int[steps + 1];
+        for (int n = 0; n <= steps; n++) {
+            alphaAfter[n] = (int) Math.round(255 * (1 - Math.pow(1 - strokeAlpha, n)));
+        }
+
+        // the stroke with index i has the width i * effectWidth / steps,
+        // therefore it covers the pixels with d <= i * reach / steps
+        int rgb = color.getRGB() & 0x00FFFFFF;
+        int[] pixels = new int[w * h];
+        for (int i = 0; i < pixels.length; i++) {
+            int numStrokes = steps - (int) Math.ceil(dist[i] * steps / reach);
+            if (numStrokes > 0) {
+                pixels[i] = (alphaAfter[numStrokes] << 24) | rgb;
+            }
+        }
+
+        BufferedImage glow = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+        glow.getRaster().setDataElements(0, 0, w, h, pixels);
+        g2.setComposite(AlphaComposite.getInstance(AlphaComposite.DST_OVER, 1f));
+        g2.drawImage(glow, bounds.x, bounds.y, null);
+    }
+
+    /**
+     * Approximates the euclidean distance of each pixel from the
+     * outline of the given mask with a two-pass chamfer transform
+     */
+    private static float[] calcDistanceFromOutline(byte[] mask, int w, int h) {
+        float[] dist = new float[w * h];
+        float far = w + h;
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int i = y * w + x;
+                boolean inside = mask[i] != 0;
+                boolean outline = (x > 0 && (mask[i - 1] != 0) != inside)
+                        || (x < w - 1 && (mask[i + 1] != 0) != inside)
+                        || (y > 0 && (mask[i - w] != 0) != inside)
+                        || (y < h - 1 && (mask[i + w] != 0) != inside);
+                dist[i] = outline ? 0.5f : far;
+            }
+        }
+
+        float diagonal = (float) Math.sqrt(2);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int i = y * w + x;
+                float d = dist[i];
+                if (x > 0) {
+                    d = Math.min(d, dist[i - 1] + 1);
+                }
+                if (y > 0) {
+                    d = Math.min(d, dist[i - w] + 1);
+                    if (x > 0) {
+                        d = Math.min(d, dist[i - w - 1] + diagonal);
+                    }
+                    if (x < w - 1) {
+                        d = Math.min(d, dist[i - w + 1] + diagonal);
+                    }
+                }
+                dist[i] = d;
+            }
+        }
+        for (int y = h - 1; y >= 0; y--) {
+            for (int x = w - 1; x >= 0; x--) {
+                int i = y * w + x;
+                float d = dist[i];
+                if (x < w - 1) {
+                    d = Math.min(d, dist[i + 1] + 1);
+                }
+                if (y < h - 1) {
+                    d = Math.min(d, dist[i + w] + 1);
+                    if (x < w - 1) {
+                        d = Math.min(d, dist[i + w + 1] + diagonal);
+                    }
+                    if (x > 0) {
+                        d = Math.min(d, dist[i + w - 1] + diagonal);
+                    }
+                }
+                dist[i] = d;
+            }
+        }
+        return dist;
+    }
+
     /**
      * Holds value of property brushColor.
      */
@@ -3,6 +3,8 @@ package pd;
 import java.io.*;
 import java.awt.*;
 import java.awt.image.*;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Class AnimatedGifEncoder - Encodes a GIF file consisting of one or more
@@ -18,6 +20,10 @@ import java.awt.image.*;
  *     e.finish();
  * </pre>
  *
+ * The frames can also be prepared (quantized and compressed) in parallel
+ * with {@link #prepareFrame(BufferedImage)}, and then written out in order
+ * with {@link #addFrame(Frame)}.
+ *
  * No copyright asserted on the source code of this class. May be used for any
  * purpose, however, refer to the Unisys LZW patent for restrictions on use of
  * the associated LZWEncoder class. Please forward any corrections to
@@ -46,17 +52,13 @@ public class AnimatedGifEncoder {
 
     protected OutputStream out;
 
-    protected BufferedImage image; // current frame
-
-    protected byte[] pixels; // BGR byte array from frame
+    protected int colorDepth = 8; // number of bit planes
 
-    protected byte[] indexedPixels; // converted frame indexed to palette
+    protected byte[] colorTab; // RGB palette of the first frame, written as the global color table
 
-    protected int colorDepth; // number of bit planes
+    protected byte[] sharedColorTab; // RGB palette used for all frames, or null
 
-    protected byte[] colorTab; // RGB palette
-
-    protected boolean[] usedEntry = new boolean[256]; // active palette entries
+    private NeuQuant sharedQuantizer; // the quantizer of the shared palette
 
     protected int palSize = 7; // color table size (bits-1)
 
@@ -71,6 +73,27 @@ public class AnimatedGifEncoder {
     protected int sample = 10; // default sample interval for quantizer
     private File file;
 
+    // the maximal number of pixels used for learning the shared palette
+    private static final int MAX_PALETTE_SAMPLE_PIXELS = 1 << 20;
+
+    // the number of cached palette lookups while mapping a frame (power of 2)
+    private static final int MAP_CACHE_BITS = 12;
+
+    /**
+     * A quantized and compressed frame, which only has to be written out
+     */
+    public static class Frame {
+        private final byte[] colorTab;
+        private final int transIndex;
+        private final byte[] compressedPixels;
+
+        private Frame(byte[] colorTab, int transIndex, byte[] compressedPixels) {
+            this.colorTab = colorTab;
+            this.transIndex = transIndex;
+            this.compressedPixels = compressedPixels;
+        }
+    }
+
     /**
      * Sets the delay time between each frame, or changes it for subsequent frames
      * (applies to last frame added).
@@ -140,29 +163,81 @@ public class AnimatedGifEncoder {
         if ((im == null) || !started) {
             return false;
         }
+        if (!sizeSet) {
+            // use first frame's size
+            setSize(im.getWidth(), im.getHeight());
+        }
+        return addFrame(prepareFrame(im));
+    }
+
+    /**
+     * Quantizes and compresses the given image. This method doesn't change
+     * the state of the encoder, therefore it can be called for several frames
+     * in parallel, but the size must be already set.
+     *
+     * @param im
+     *          BufferedImage containing frame to prepare.
+     * @return the frame that can be written out by {@link #addFrame(Frame)}
+     */
+    public Frame prepareFrame(BufferedImage im) {
+        byte[] pixels = getImagePixels(im);
+        NeuQuant nq = sharedQuantizer;
+        byte[] tab = sharedColorTab;
+        if (nq == null) {
+            nq = new NeuQuant(pixels, pixels.length, sample);
+            tab = toRGB(nq.process());
+        }
+
+        boolean[] usedEntry = new boolean[256];
+        byte[] indexedPixels = mapPixels(nq, pixels, usedEntry);
+
+        // get closest match to transparent color if specified
+        int trans = 0;
+        if (transparent != null) {
+            trans = findClosest(transparent, tab, usedEntry);
+        }
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(indexedPixels.length / 2);
+        try {
+            new LZWEncoder(width, height, indexedPixels, colorDepth).encode(compressed);
+        } catch (IOException e) {
+            // can't happen with a ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        }
+        return new Frame(tab, trans, compressed.toByteArray());
+    }
+
+    /**
+     * Writes a frame prepared by {@link #prepareFrame(BufferedImage)}.
+     * The frames must be written in order, from one thread at a time.
+     *
+     * @param frame
+     *          the prepared frame.
+     * @return true if successful.
+     */
+    public boolean addFrame(Frame frame) {
+        if ((frame == null) || !started) {
+            return false;
+        }
         boolean ok = true;
         try {
-            if (!sizeSet) {
-                // use first frame's size
-                setSize(im.getWidth(), im.getHeight());
-            }
-            image = im;
-            getImagePixels(); // convert to correct format if necessary
-            analyzePixels(); // build color table & map pixels
             if (firstFrame) {
+                colorTab = frame.colorTab;
                 writeLSD(); // logical screen descriptior
-                writePalette(); // global color table
+                writePalette(colorTab); // global color table
                 if (repeat >= 0) {
                     // use NS app extension to indicate reps
                     writeNetscapeExt();
                 }
             }
+            transIndex = frame.transIndex;
             writeGraphicCtrlExt(); // write graphic control extension
-            writeImageDesc(); // image descriptor
-            if (!firstFrame) {
-                writePalette(); // local color table
+            boolean localColorTab = frame.colorTab != colorTab;
+            writeImageDesc(localColorTab); // image descriptor
+            if (localColorTab) {
+                writePalette(frame.colorTab); // local color table
             }
-            writePixels(); // encode and write pixel data
+            out.write(frame.compressedPixels); // encoded pixel data
             firstFrame = false;
         } catch (IOException e) {
             ok = false;
@@ -171,6 +246,38 @@ public class AnimatedGifEncoder {
         return ok;
     }
 
+    /**
+     * Learns one palette from the given images, which is then used for
+     * all the frames, instead of learning a separate palette for each frame.
+     * This is faster, and avoids flickering colors, but the colors of
+     * the individual frames might be less accurate.
+     * Must be called after the size is set and before the first frame.
+     *
+     * @param samples
+     *          the images representative for the animation.
+     */
+    public void setSharedPalette(List<BufferedImage> samples) {
+        long totalPixels = (long) width * height * samples.size();
+        int step = (int) Math.max(1,
+                (totalPixels + MAX_PALETTE_SAMPLE_PIXELS - 1) / MAX_PALETTE_SAMPLE_PIXELS);
+
+        int numSamplePixels = 0;
+        byte[] samplePixels = new byte[3 * (int) Math.min(totalPixels, MAX_PALETTE_SAMPLE_PIXELS + samples.size())];
+        for (BufferedImage sampleImage : samples) {
+            byte[] pixels = getImagePixels(sampleImage);
+            int nPix = pixels.length / 3;
+            for (int i = 0; i < nPix && numSamplePixels * 3 < samplePixels.length; i += step) {
+                System.arraycopy(pixels, 3 * i, samplePixels, 3 * numSamplePixels, 3);
+                numSamplePixels++;
+            }
+        }
+
+        NeuQuant nq = new NeuQuant(samplePixels, 3 * numSamplePixels, sample);
+        sharedColorTab = toRGB(nq.process());
+        nq.thepicture = null; // only the network is needed for the mapping
+        sharedQuantizer = nq;
+    }
+
     /**
      * Flushes any pending data and closes output file. If writing to an
      * OutputStream, the stream is not closed.
@@ -193,10 +300,9 @@ public class AnimatedGifEncoder {
         // reset for subsequent use
         transIndex = 0;
         out = null;
-        image = null;
-        pixels = null;
-        indexedPixels = null;
         colorTab = null;
+        sharedColorTab = null;
+        sharedQuantizer = null;
         closeStream = false;
         firstFrame = true;
 
@@ -303,43 +409,56 @@ public class AnimatedGifEncoder {
     }
 
     /**
-     * Analyzes image colors and creates color map.
+     * Converts a palette from BGR to RGB
      */
-    protected void analyzePixels() {
-        int len = pixels.length;
-        int nPix = len / 3;
-        indexedPixels = new byte[nPix];
-        NeuQuant nq = new NeuQuant(pixels, len, sample);
-        // initialize quantizer
-        colorTab = nq.process(); // create reduced palette
-        // convert map from BGR to RGB
-        for (int i = 0; i < colorTab.length; i += 3) {
-            byte temp = colorTab[i];
-            colorTab[i] = colorTab[i + 2];
-            colorTab[i + 2] = temp;
-            usedEntry[i / 3] = false;
+    private static byte[] toRGB(byte[] tab) {
+        for (int i = 0; i < tab.length; i += 3) {
+            byte temp = tab[i];
+            tab[i] = tab[i + 2];
+            tab[i + 2] = temp;
         }
-        // map image pixels to new palette
+        return tab;
+    }
+
+    /**
+     * Maps the image pixels to the palette of the given quantizer.
+     */
+    private static byte[] mapPixels(NeuQuant nq, byte[] pixels, boolean[] usedEntry) {
+        int nPix = pixels.length / 3;
+        byte[] indexedPixels = new byte[nPix];
+
+        // the same colors are repeated many times,
+        // so the results of the palette search are cached
+        int[] cacheKeys = new int[1 << MAP_CACHE_BITS];
+        byte[] cacheIndexes = new byte[1 << MAP_CACHE_BITS];
+        Arrays.fill(cacheKeys, -1);
+
         int k = 0;
         for (int i = 0; i < nPix; i++) {
-            int index = nq.map(pixels[k++] & 0xff, pixels[k++] & 0xff, pixels[k++] & 0xff);
+            int b = pixels[k++] & 0xff;
+            int g = pixels[k++] & 0xff;
+            int r = pixels[k++] & 0xff;
+            int key = (r << 16) | (g << 8) | b;
+            int slot = (key * 0x9E3779B1) >>> (32 - MAP_CACHE_BITS);
+            int index;
+            if (cacheKeys[slot] == key) {
+                index = cacheIndexes[slot] & 0xff;
+            } else {
+                index = nq.map(b, g, r);
+                cacheKeys[slot] = key;
+                cacheIndexes[slot] = (byte) index;
+            }
             usedEntry[index] = true;
             indexedPixels[i] = (byte) index;
         }
-        pixels = null;
-        colorDepth = 8;
-        palSize = 7;
-        // get closest match to transparent color if specified
-        if (transparent != null) {
-            transIndex = findClosest(transparent);
-        }
+        return indexedPixels;
     }
 
     /**
      * Returns index of palette color closest to c
      *
      */
-    protected int findClosest(Color c) {
+    protected static int findClosest(Color c, byte[] colorTab, boolean[] usedEntry) {
         if (colorTab == null)
             return -1;
         int r = c.getRed();
@@ -364,9 +483,10 @@ public class AnimatedGifEncoder {
     }
 
     /**
-     * Extracts image pixels into byte array "pixels"
+     * Returns the pixels of the image as a BGR byte array,
+     * converted to the frame size if necessary
      */
-    protected void getImagePixels() {
+    protected byte[] getImagePixels(BufferedImage image) {
         int w = image.getWidth();
         int h = image.getHeight();
         int type = image.getType();
@@ -375,9 +495,10 @@ public class AnimatedGifEncoder {
             BufferedImage temp = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
             Graphics2D g = temp.createGraphics();
             g.drawImage(image, 0, 0, null);
+            g.dispose();
             image = temp;
         }
-        pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
     }
 
     /**
@@ -414,15 +535,16 @@ public class AnimatedGifEncoder {
     /**
      * Writes Image Descriptor
      */
-    protected void writeImageDesc() throws IOException {
+    protected void writeImageDesc(boolean localColorTab) throws IOException {
         out.write(0x2c); // image separator
         writeShort(0); // image position x,y = 0,0
         writeShort(0);
         writeShort(width); // image size
         writeShort(height);
         // packed fields
-        if (firstFrame) {
-            // no LCT - GCT is used for first (or only) frame
+        if (!localColorTab) {
+            // no LCT - GCT is used for first (or only) frame,
+            // and for the frames sharing its palette
             out.write(0);
         } else {
             // specify normal LCT
@@ -468,22 +590,14 @@ public class AnimatedGifEncoder {
     /**
      * Writes color table
      */
-    protected void writePalette() throws IOException {
-        out.write(colorTab, 0, colorTab.length);
-        int n = (3 * 256) - colorTab.length;
+    protected void writePalette(byte[] tab) throws IOException {
+        out.write(tab, 0, tab.length);
+        int n = (3 * 256) - tab.length;
         for (int i = 0; i < n; i++) {
             out.write(0);
         }
     }
 
-    /**
-     * Encodes and writes pixel data
-     */
-    protected void writePixels() throws IOException {
-        LZWEncoder encoder = new LZWEncoder(width, height, indexedPixels, colorDepth);
-        encoder.encode(out);
-    }
-
     /**
      * Write 16-bit value to output stream, LSB first
      */
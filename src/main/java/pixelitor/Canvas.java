@@ -18,6 +18,7 @@
 package pixelitor;
 
 import pixelitor.gui.ImageComponent;
+import pixelitor.selection.SelectionMask;
 import pixelitor.tools.Symmetry;
 
 import java.awt.Dimension;
@@ -142,6 +143,9 @@ public class Canvas implements Serializable {
     }
 
     public Shape invertShape(Shape shape) {
+        if (shape instanceof SelectionMask) {
+            return ((SelectionMask) shape).invert(getImBounds());
+        }
         Area area = new Area(shape);
         Area fullArea = new Area(getImBounds());
         fullArea.subtract(area);
@@ -151,6 +155,10 @@ public class Canvas implements Serializable {
     public Shape clipShapeToBounds(Shape shape) {
         assert shape != null;
 
+        if (shape instanceof SelectionMask) {
+            return ((SelectionMask) shape).intersect(getImBounds());
+        }
+
         Rectangle2D canvasBounds = getImBoundsDouble();
         Area compBounds = new Area(canvasBounds);
         Area result = new Area(shape);
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor;
+
+import pixelitor.layers.Layer;
+import pixelitor.utils.Histogram;
+import pixelitor.utils.ImageUtils;
+import pixelitor.utils.TiledHistogram;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Caches the composite image of a {@link Composition}.
+ *
+ * Structural changes invalidate the whole cache, but local edits
+ * of the active layer (brush strokes) only mark the touched tiles
+ * as dirty, and only those tiles are re-composited. The layers
+ * bellow the active layer are pre-merged into a separate image,
+ * so that re-compositing a tile only needs the layers starting
+ * from the active one.
+ *
+ * It also maintains a {@link MipmapPyramid} for painting at low zoom
+ * levels, and the tile histograms of the composite image.
+ */
+class CompositeCache {
+    private static final int TILE_SIZE = 64;
+
+    private final Composition comp;
+
+    private BufferedImage image;
+
+    // the tiles of the image that must be re-composited
+    private boolean[] dirtyTiles;
+    private int numTilesX;
+    private int numTilesY;
+    private boolean hasDirtyTiles = false;
+
+    // the merged image of the layers bellow the active layer
+    // and the layers that were used to calculate it
+    private BufferedImage bellowActive;
+    private List<Layer> bellowActiveLayers;
+
+    private final MipmapPyramid mipmaps = new MipmapPyramid();
+    private final TiledHistogram histogram = new TiledHistogram();
+
+    CompositeCache(Composition comp) {
+        this.comp = comp;
+    }
+
+    /**
+     * Returns the up-to-date composite image.
+     * Local edits update the returned image in place, therefore callers
+     * that keep a reference to it after the current event must copy it.
+     */
+    public synchronized BufferedImage get() {
+        if (image == null) {
+            image = comp.calculateCompositeImage();
+            initTiles();
+            mipmaps.invalidate();
+            histogram.invalidate();
+        } else if (hasDirtyTiles) {
+            if (!updateDirtyTiles()) {
+                image = comp.calculateCompositeImage();
+                initTiles();
+                mipmaps.invalidate();
+                histogram.invalidate();
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Returns the histogram of the up-to-date composite image
+     */
+    public synchronized Histogram getHistogram() {
+        return histogram.get(get());
+    }
+
+    /**
+     * Paints the composite image on a graphics that is in image space,
+     * and is scaled by the given factor. At low zoom levels a
+     * downsampled version of the image is painted.
+     */
+    public synchronized void paint(Graphics2D g, double scale) {
+        BufferedImage fullImage = get();
+        int level = MipmapPyramid.getLevelFor(scale);
+        if (level == 0 || !MipmapPyramid.supports(fullImage)) {
+            ImageUtils.drawImageWithClipping(g, fullImage);
+        } else {
+            mipmaps.paint(g, fullImage, level);
+        }
+    }
+
+    /**
+     * Make sure that everything is re-calculated the next time
+     */
+    public synchronized void invalidate() {
+        image = null;
+        bellowActive = null;
+        bellowActiveLayers = null;
+        hasDirtyTiles = false;
+        mipmaps.invalidate();
+        histogram.invalidate();
+    }
+
+    /**
+     * Marks the given area (in image space) as changed
+     * in the active layer. The other layers must be unchanged.
+     */
+    public synchronized void invalidateRegion(Rectangle2D imArea) {
+        if (image == null) {
+            return; // everything will be re-calculated anyway
+        }
+        Rectangle area = imArea.getBounds();
+        area.grow(1, 1); // for antialiasing
+        area = area.intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        if (area.isEmpty()) {
+            return;
+        }
+
+        int firstTileX = area.x / TILE_SIZE;
+        int lastTileX = (area.x + area.width - 1) / TILE_SIZE;
+        int firstTileY = area.y / TILE_SIZE;
+        int lastTileY = (area.y + area.height - 1) / TILE_SIZE;
+        for (int ty = firstTileY; ty <= lastTileY; ty++) {
+            int rowStart = ty * numTilesX;
+            for (int tx = firstTileX; tx <= lastTileX; tx++) {
+                dirtyTiles[rowStart + tx] = true;
+            }
+        }
+        hasDirtyTiles = true;
+        mipmaps.invalidateRegion(area);
+        histogram.invalidateRegion(area);
+    }
+
+    private void initTiles() {
+        numTilesX = (image.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+        numTilesY = (image.getHeight() + TILE_SIZE - 1) / TILE_SIZE;
+        int numTiles = numTilesX * numTilesY;
+        if (dirtyTiles == null || dirtyTiles.length != numTiles) {
+            dirtyTiles = new boolean[numTiles];
+        } else {
+            Arrays.fill(dirtyTiles, false);
+        }
+        hasDirtyTiles = false;
+    }
+
+    /**
+     * Re-composites the dirty tiles in place.
+     * Returns false if this is not possible and everything
+     * must be re-calculated.
+     */
+    private boolean updateDirtyTiles() {
+        List<Layer> layers = comp.getLayers();
+        int activeIndex = comp.getActiveLayerIndex();
+        if (activeIndex < 0 || image.getWidth() != comp.getCanvasImWidth()
+                || image.getHeight() != comp.getCanvasImHeight()) {
+            return false;
+        }
+
+        // the layers above an adjustment layer can't be
+        // re-composited tile by tile
+        int numLayers = layers.size();
+        for (int i = activeIndex; i < numLayers; i++) {
+            Layer layer = layers.get(i);
+            if (layer.isVisible() && layer.isAdjustment()) {
+                return false;
+            }
+        }
+
+        List<Layer> bellow = layers.subList(0, activeIndex);
+        boolean hasVisibleBellow = false;
+        for (Layer layer : bellow) {
+            if (layer.isVisible()) {
+                hasVisibleBellow = true;
+                break;
+            }
+        }
+        if (hasVisibleBellow) {
+            if (bellowActive == null || !sameLayers(bellow, bellowActiveLayers)) {
+                bellowActive = comp.calculateCompositeImage(bellow);
+                bellowActiveLayers = new ArrayList<>(bellow);
+            }
+        } else {
+            bellowActive = null;
+            bellowActiveLayers = null;
+        }
+
+        Graphics2D g = image.createGraphics();
+        for (Rectangle r : collectDirtyRects()) {
+            g.setClip(r);
+            g.setComposite(AlphaComposite.Src);
+            if (bellowActive != null) {
+                g.drawImage(bellowActive, 0, 0, null);
+            } else {
+                g.setComposite(AlphaComposite.Clear);
+                g.fillRect(r.x, r.y, r.width, r.height);
+            }
+
+            boolean firstVisibleLayer = !hasVisibleBellow;
+            for (int i = activeIndex; i < numLayers; i++) {
+                Layer layer = layers.get(i);
+                if (layer.isVisible()) {
+                    layer.applyLayer(g, image, firstVisibleLayer);
+                    firstVisibleLayer = false;
+                }
+            }
+        }
+        g.dispose();
+
+        Arrays.fill(dirtyTiles, false);
+        hasDirtyTiles = false;
+        return true;
+    }
+
+    /**
+     * Coalesces the horizontal runs of dirty tiles into rectangles
+     */
+    private List<Rectangle> collectDirtyRects() {
+        List<Rectangle> rects = new ArrayList<>();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        for (int ty = 0; ty < numTilesY; ty++) {
+            int rowStart = ty * numTilesX;
+            int tx = 0;
+            while (tx < numTilesX) {
+                if (!dirtyTiles[rowStart + tx]) {
+                    tx++;
+                    continue;
+                }
+                int runStart = tx;
+                while (tx < numTilesX && dirtyTiles[rowStart + tx]) {
+                    tx++;
+                }
+                int x = runStart * TILE_SIZE;
+                int y = ty * TILE_SIZE;
+                int w = Math.min(tx * TILE_SIZE, width) - x;
+                int h = Math.min(y + TILE_SIZE, height) - y;
+                rects.add(new Rectangle(x, y, w, h));
+            }
+        }
+        return rects;
+    }
+
+    private static boolean sameLayers(List<Layer> a, List<Layer> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i) != b.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
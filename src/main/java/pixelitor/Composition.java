@@ -26,6 +26,7 @@ import pixelitor.history.*;
 import pixelitor.io.IOThread;
 import pixelitor.io.OutputFormat;
 import pixelitor.io.SaveSettings;
+import pixelitor.layers.AdjustmentLayer;
 import pixelitor.layers.ContentLayer;
 import pixelitor.layers.Drawable;
 import pixelitor.layers.ImageLayer;
@@ -38,13 +39,14 @@ import pixelitor.menus.file.RecentFilesMenu;
 import pixelitor.selection.Selection;
 import pixelitor.selection.SelectionActions;
 import pixelitor.selection.SelectionInteraction;
+import pixelitor.selection.SelectionMask;
 import pixelitor.tools.Tools;
 import pixelitor.tools.pen.Path;
 import pixelitor.tools.pen.Paths;
 import pixelitor.tools.util.PPoint;
 import pixelitor.tools.util.PRectangle;
+import pixelitor.utils.Histogram;
 import pixelitor.utils.ImageUtils;
-import pixelitor.utils.Lazy;
 import pixelitor.utils.Messages;
 import pixelitor.utils.VisibleForTesting;
 
@@ -100,8 +102,7 @@ public class Composition implements Serializable {
     private transient File file;
     private transient boolean dirty = false;
 
-    private transient Lazy<BufferedImage> compositeImage
-            = Lazy.of(this::calculateCompositeImage);
+    private transient CompositeCache compositeImage = new CompositeCache(this);
 
     private transient ImageComponent ic;
 
@@ -194,7 +195,7 @@ public class Composition implements Serializable {
 
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
         // init transient variables
-        compositeImage = Lazy.of(this::calculateCompositeImage);
+        compositeImage = new CompositeCache(this);
         file = null; // will be set later
         dirty = false;
         ic = null; // will be set later
@@ -598,7 +599,7 @@ public class Composition implements Serializable {
         }
 
         int numLayers = getNumLayers();
-        BufferedImage bi = getCompositeImage();
+        BufferedImage bi = ImageUtils.copyImage(getCompositeImage());
 
         Layer flattenedLayer = new ImageLayer(this, bi, "flattened", null);
         new LayerAdder(this)
@@ -719,14 +720,31 @@ public class Composition implements Serializable {
 
 //        BufferedImage imageSoFar = ImageUtils.createCompatibleImage(getCanvasWidth(), getCanvasHeight());
 
+        return calculateCompositeImage(layerList);
+    }
+
+    /**
+     * Composites the given layers of this composition into a new image
+     */
+    BufferedImage calculateCompositeImage(List<Layer> layers) {
         BufferedImage imageSoFar = new BufferedImage(
                 canvas.getImWidth(), canvas.getImHeight(), TYPE_INT_ARGB_PRE);
         Graphics2D g = imageSoFar.createGraphics();
 
         boolean firstVisibleLayer = true;
-        for (Layer layer : layerList) {
+        for (int i = 0; i < layers.size(); i++) {
+            Layer layer = layers.get(i);
             if (layer.isVisible()) {
-                BufferedImage result = layer.applyLayer(g, imageSoFar, firstVisibleLayer);
+                BufferedImage result;
+                int runEnd = firstVisibleLayer ? i : AdjustmentLayer.findFusibleRunEnd(layers, i);
+                if (runEnd > i) {
+                    // consecutive color adjustments are applied in one pass
+                    result = ((AdjustmentLayer) layer).applyFused(
+                            layers.subList(i, runEnd + 1), imageSoFar);
+                    i = runEnd;
+                } else {
+                    result = layer.applyLayer(g, imageSoFar, firstVisibleLayer);
+                }
                 if (result != null) { // adjustment layer or watermarking text layer
                     imageSoFar = result;
                     if (g != null) {
@@ -750,7 +768,13 @@ public class Composition implements Serializable {
     }
 
     public void updateRegion(PPoint start, PPoint end, double thickness) {
-        compositeImage.invalidate();
+        double minX = Math.min(start.getImX(), end.getImX());
+        double minY = Math.min(start.getImY(), end.getImY());
+        double maxX = Math.max(start.getImX(), end.getImX());
+        double maxY = Math.max(start.getImY(), end.getImY());
+        compositeImage.invalidateRegion(new Rectangle2D.Double(
+                minX - thickness, minY - thickness,
+                maxX - minX + 2 * thickness, maxY - minY + 2 * thickness));
         if (ic != null) { // during reload image it can be null
             ic.updateRegion(start, end, thickness);
             ic.updateNavigator(false);
@@ -758,7 +782,7 @@ public class Composition implements Serializable {
     }
 
     public void updateRegion(PRectangle area) {
-        compositeImage.invalidate();
+        compositeImage.invalidateRegion(area.getIm());
         if (ic != null) { // during reload image it can be null
             ic.updateRegion(area);
             ic.updateNavigator(false);
@@ -774,7 +798,7 @@ public class Composition implements Serializable {
 
     public void addNewLayerFromComposite() {
         ImageLayer newLayer = new ImageLayer(this,
-                getCompositeImage(), "Composite", null);
+                ImageUtils.copyImage(getCompositeImage()), "Composite", null);
 
         new LayerAdder(this)
                 .withHistory("New Layer from Composite")
@@ -1001,11 +1025,29 @@ public class Composition implements Serializable {
 
     /**
      * Returns the composite image, which has the same dimensions as the canvas.
+     * Brush strokes update the returned image in place, so callers
+     * that keep it for later must work with a copy.
      */
     public BufferedImage getCompositeImage() {
         return compositeImage.get();
     }
 
+    /**
+     * Returns the histogram of the composite image. After local
+     * edits only the changed tiles are counted again.
+     */
+    public Histogram getHistogram() {
+        return compositeImage.getHistogram();
+    }
+
+    /**
+     * Paints the composite image on a graphics that is in image space and
+     * scaled by the given view scale. Only the clip area is painted.
+     */
+    public void paintCompositeImage(Graphics2D g, double viewScale) {
+        compositeImage.paint(g, viewScale);
+    }
+
     public void imageChanged() {
         imageChanged(FULL);
     }
@@ -1021,6 +1063,20 @@ public class Composition implements Serializable {
     public void imageChanged(ImageChangeActions actions, boolean sizeChanged) {
         compositeImage.invalidate();
 
+        runImageChangeActions(actions, sizeChanged);
+    }
+
+    /**
+     * Only the given area (in image space) of the active layer has been changed,
+     * so the cached composite image and histogram can be updated incrementally
+     */
+    public void imageChanged(ImageChangeActions actions, Rectangle2D changedArea) {
+        compositeImage.invalidateRegion(changedArea);
+
+        runImageChangeActions(actions, false);
+    }
+
+    private void runImageChangeActions(ImageChangeActions actions, boolean sizeChanged) {
         if (actions.repaintNeeded()) {
             if (ic != null) {
                 ic.repaint();
@@ -1094,7 +1150,12 @@ public class Composition implements Serializable {
     public void intersectSelection(Rectangle2D cropRect) {
         if (selection != null) {
             Shape currentShape = selection.getShape();
-            Shape intersection = SelectionInteraction.INTERSECT.combine(currentShape, cropRect);
+            Shape intersection;
+            if (currentShape instanceof SelectionMask) {
+                intersection = ((SelectionMask) currentShape).intersect(cropRect);
+            } else {
+                intersection = SelectionInteraction.INTERSECT.combine(currentShape, cropRect);
+            }
             if (intersection.getBounds().isEmpty()) {
                 selection.die();
                 setSelectionRef(null);
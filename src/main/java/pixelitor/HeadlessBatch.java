@@ -0,0 +1,195 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor;
+
+import pixelitor.automate.BatchImageOp;
+import pixelitor.automate.BatchProcessor;
+import pixelitor.automate.BatchProcessor.OverwriteDecision;
+import pixelitor.automate.FilterChain;
+import pixelitor.filters.Filter;
+import pixelitor.filters.FilterAction;
+import pixelitor.filters.FilterUtils;
+import pixelitor.filters.ParametrizedFilter;
+import pixelitor.filters.gui.FilterParam;
+import pixelitor.io.FileUtils;
+import pixelitor.io.OutputFormat;
+import pixelitor.menus.MenuBar;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The headless command-line entry point for batch processing:
+ * it applies a chain of filters to image files without a display.
+ */
+public class HeadlessBatch {
+    private static final String USAGE = "Usage: java -cp Pixelitor.jar pixelitor.HeadlessBatch [options] <input files or directories>\n"
+            + "  --chain <file>        the filter chain file (without it the images are only converted)\n"
+            + "  --out <dir>           the output directory (required)\n"
+            + "  --format <ext>        the output format: jpg, png, tiff, gif or bmp (default: png)\n"
+            + "  --overwrite           overwrite the existing output files instead of skipping them\n"
+            + "  --list-filters        print the names of the available filters\n"
+            + "  --list-params <name>  print the parameters of a filter";
+
+    private HeadlessBatch() {
+    }
+
+    public static void main(String[] args) {
+        // must be set before anything touches AWT
+        System.setProperty("java.awt.headless", "true");
+
+        int exitCode;
+        try {
+            exitCode = run(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            exitCode = 2;
+        } catch (Exception e) {
+            e.printStackTrace();
+            exitCode = 1;
+        }
+        System.exit(exitCode);
+    }
+
+    private static int run(String[] args) throws Exception {
+        File chainFile = null;
+        File outDir = null;
+        OutputFormat outputFormat = OutputFormat.PNG;
+        boolean overwrite = false;
+        List<File> inputs = new ArrayList<>();
+
+        MenuBar.createFilterActions();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--chain":
+                    chainFile = new File(nextArg(args, ++i, arg));
+                    break;
+                case "--out":
+                    outDir = new File(nextArg(args, ++i, arg));
+                    break;
+                case "--format":
+                    outputFormat = OutputFormat.fromExtension(nextArg(args, ++i, arg));
+                    break;
+                case "--overwrite":
+                    overwrite = true;
+                    break;
+                case "--list-filters":
+                    listFilters();
+                    return 0;
+                case "--list-params":
+                    listParams(nextArg(args, ++i, arg));
+                    return 0;
+                case "--help":
+                    System.out.println(USAGE);
+                    return 0;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option " + arg + "\n" + USAGE);
+                    }
+                    addInputs(new File(arg), inputs);
+            }
+        }
+
+        if (outDir == null || inputs.isEmpty()) {
+            throw new IllegalArgumentException(USAGE);
+        }
+        if (outputFormat.supportsMultipleLayers()) {
+            throw new IllegalArgumentException("Layered output formats are not supported in batch mode");
+        }
+        if (!outDir.isDirectory() && !outDir.mkdirs()) {
+            throw new IllegalArgumentException("Could not create " + outDir.getAbsolutePath());
+        }
+
+        BatchImageOp op = img -> img;
+        if (chainFile != null) {
+            op = FilterChain.read(chainFile).asBatchOp();
+        }
+
+        AtomicInteger numFailed = new AtomicInteger();
+        boolean finalOverwrite = overwrite;
+        BatchProcessor processor = new BatchProcessor(op, outputFormat, outDir);
+        processor.processAll(inputs.toArray(new File[0]), new BatchProcessor.Listener() {
+            @Override
+            public boolean fileStarting(File file, int index, int numFiles) {
+                System.out.printf("[%d/%d] %s%n", index + 1, numFiles, file.getName());
+                return true;
+            }
+
+            @Override
+            public OverwriteDecision outputExists(File outputFile) {
+                if (finalOverwrite) {
+                    return OverwriteDecision.OVERWRITE;
+                }
+                System.out.println("Skipping, because " + outputFile.getName() + " exists");
+                return OverwriteDecision.SKIP;
+            }
+
+            @Override
+            public void fileFailed(File file, Throwable e) {
+                numFailed.incrementAndGet();
+                System.err.println("Failed to process " + file.getName() + ": " + e);
+            }
+        });
+
+        System.out.println(processor.getSummary());
+        return numFailed.get() == 0 ? 0 : 1;
+    }
+
+    private static String nextArg(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value after " + option);
+        }
+        return args[index];
+    }
+
+    private static void addInputs(File file, List<File> inputs) {
+        if (file.isDirectory()) {
+            File[] files = FileUtils.listSupportedInputFilesIn(file);
+            Arrays.sort(files);
+            inputs.addAll(Arrays.asList(files));
+        } else if (file.isFile() && FileUtils.hasSupportedInputExt(file)) {
+            inputs.add(file);
+        } else {
+            throw new IllegalArgumentException("Not a supported image file: " + file);
+        }
+    }
+
+    private static void listFilters() {
+        for (FilterAction fa : FilterUtils.getAllFiltersSorted()) {
+            System.out.println(fa.getName());
+        }
+    }
+
+    private static void listParams(String filterName) {
+        FilterAction fa = FilterUtils.findByName(filterName)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown filter " + filterName));
+        Filter filter = fa.getFilter();
+        if (!(filter instanceof ParametrizedFilter)) {
+            System.out.println(filter.getName() + " has no parameters");
+            return;
+        }
+        for (FilterParam param : ((ParametrizedFilter) filter).getParamSet().getParams()) {
+            System.out.println(param.getName() + " (" + param.getClass().getSimpleName() + ")");
+        }
+    }
+}
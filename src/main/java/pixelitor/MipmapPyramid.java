@@ -0,0 +1,224 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor;
+
+import pixelitor.utils.ProgressTracker;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
+
+/**
+ * Successively halved versions of the composite image, used for
+ * painting at low zoom levels, so that the painting cost is roughly
+ * proportional to the number of screen pixels instead of the
+ * number of image pixels.
+ *
+ * The levels are created lazily, and after local edits only the
+ * changed regions are downsampled again.
+ */
+class MipmapPyramid {
+    // the level 0 image is the composite image itself, it is not stored here
+    private final List<BufferedImage> levels = new ArrayList<>();
+
+    // the areas (in full-resolution image space) that changed
+    // since the corresponding level was last updated
+    private final List<Rectangle> dirtyAreas = new ArrayList<>();
+
+    /**
+     * Returns the level that should be painted at the given
+     * scale: the smallest image that is still not smaller
+     * than the image painted at that scale
+     */
+    static int getLevelFor(double scale) {
+        int level = 0;
+        while (scale <= 0.5) {
+            scale *= 2;
+            level++;
+        }
+        return level;
+    }
+
+    static boolean supports(BufferedImage fullImage) {
+        int type = fullImage.getType();
+        return type == TYPE_INT_ARGB_PRE || type == TYPE_INT_ARGB;
+    }
+
+    /**
+     * Marks the given area of the full-resolution image as changed
+     */
+    void invalidateRegion(Rectangle area) {
+        for (int i = 0; i < dirtyAreas.size(); i++) {
+            Rectangle dirty = dirtyAreas.get(i);
+            if (dirty == null) {
+                dirtyAreas.set(i, new Rectangle(area));
+            } else {
+                dirty.add(area);
+            }
+        }
+    }
+
+    void invalidate() {
+        levels.clear();
+        dirtyAreas.clear();
+    }
+
+    /**
+     * Paints the given level on a graphics that is in full-resolution image space
+     */
+    void paint(Graphics2D g, BufferedImage fullImage, int level) {
+        BufferedImage img = getLevel(fullImage, level);
+        int factor = 1 << level;
+
+        int sx1 = 0;
+        int sy1 = 0;
+        int sx2 = img.getWidth();
+        int sy2 = img.getHeight();
+        Rectangle clip = g.getClipBounds();
+        if (clip != null) {
+            sx1 = Math.max(sx1, Math.floorDiv(clip.x, factor));
+            sy1 = Math.max(sy1, Math.floorDiv(clip.y, factor));
+            sx2 = Math.min(sx2, ceilDiv(clip.x + clip.width, factor));
+            sy2 = Math.min(sy2, ceilDiv(clip.y + clip.height, factor));
+            if (sx1 >= sx2 || sy1 >= sy2) {
+                return;
+            }
+        }
+        g.drawImage(img, sx1 * factor, sy1 * factor, sx2 * factor, sy2 * factor,
+                sx1, sy1, sx2, sy2, null);
+    }
+
+    BufferedImage getLevel(BufferedImage fullImage, int level) {
+        BufferedImage prev = fullImage;
+        for (int i = 1; i <= level; i++) {
+            int index = i - 1;
+            BufferedImage current;
+            if (index >= levels.size()) {
+                current = new BufferedImage(
+                        ceilDiv(prev.getWidth(), 2),
+                        ceilDiv(prev.getHeight(), 2),
+                        fullImage.getType());
+                downsample(prev, current, new Rectangle(0, 0,
+                        current.getWidth(), current.getHeight()));
+                levels.add(current);
+                dirtyAreas.add(null);
+            } else {
+                current = levels.get(index);
+                Rectangle dirty = dirtyAreas.get(index);
+                if (dirty != null) {
+                    int factor = 1 << i;
+                    int x1 = Math.max(0, Math.floorDiv(dirty.x, factor));
+                    int y1 = Math.max(0, Math.floorDiv(dirty.y, factor));
+                    int x2 = Math.min(current.getWidth(), ceilDiv(dirty.x + dirty.width, factor));
+                    int y2 = Math.min(current.getHeight(), ceilDiv(dirty.y + dirty.height, factor));
+                    if (x1 < x2 && y1 < y2) {
+                        downsample(prev, current, new Rectangle(x1, y1, x2 - x1, y2 - y1));
+                    }
+                    dirtyAreas.set(index, null);
+                }
+            }
+            prev = current;
+        }
+        return prev;
+    }
+
+    /**
+     * Calculates the given area of the destination image by averaging
+     * 2x2 blocks of the source image, which is twice as large
+     */
+    private static void downsample(BufferedImage src, BufferedImage dst, Rectangle area) {
+        boolean premultiplied = src.isAlphaPremultiplied();
+        Raster srcRaster = src.getRaster();
+        WritableRaster dstRaster = dst.getRaster();
+        int srcWidth = src.getWidth();
+        int srcHeight = src.getHeight();
+        int srcX = 2 * area.x;
+        // the last source column might be missing
+        int srcRowWidth = Math.min(2 * area.width, srcWidth - srcX);
+
+        ThreadPool.processRows(area.height, 4 * area.width, ProgressTracker.NULL_TRACKER,
+                (start, end) -> {
+                    int[] row1 = new int[srcRowWidth];
+                    int[] row2 = new int[srcRowWidth];
+                    int[] dstRow = new int[area.width];
+                    for (int y = area.y + start; y < area.y + end; y++) {
+                        int srcY = 2 * y;
+                        srcRaster.getDataElements(srcX, srcY, srcRowWidth, 1, row1);
+                        if (srcY + 1 < srcHeight) {
+                            srcRaster.getDataElements(srcX, srcY + 1, srcRowWidth, 1, row2);
+                        } else {
+                            System.arraycopy(row1, 0, row2, 0, srcRowWidth);
+                        }
+                        for (int x = 0; x < area.width; x++) {
+                            int i1 = 2 * x;
+                            int i2 = Math.min(i1 + 1, srcRowWidth - 1);
+                            if (premultiplied) {
+                                dstRow[x] = average(row1[i1], row1[i2], row2[i1], row2[i2]);
+                            } else {
+                                dstRow[x] = averageByAlpha(row1[i1], row1[i2], row2[i1], row2[i2]);
+                            }
+                        }
+                        dstRaster.setDataElements(area.x, y, area.width, 1, dstRow);
+                    }
+                });
+    }
+
+    private static int average(int p1, int p2, int p3, int p4) {
+        int a = ((p1 >>> 24) + (p2 >>> 24) + (p3 >>> 24) + (p4 >>> 24) + 2) >> 2;
+        int r = ((p1 >> 16 & 0xFF) + (p2 >> 16 & 0xFF) + (p3 >> 16 & 0xFF) + (p4 >> 16 & 0xFF) + 2) >> 2;
+        int g = ((p1 >> 8 & 0xFF) + (p2 >> 8 & 0xFF) + (p3 >> 8 & 0xFF) + (p4 >> 8 & 0xFF) + 2) >> 2;
+        int b = ((p1 & 0xFF) + (p2 & 0xFF) + (p3 & 0xFF) + (p4 & 0xFF) + 2) >> 2;
+        return a << 24 | r << 16 | g << 8 | b;
+    }
+
+    /**
+     * Averages non-premultiplied pixels: the colors are weighted by
+     * their alpha, so that the colors of the transparent pixels
+     * don't darken the semi-transparent edges
+     */
+    private static int averageByAlpha(int p1, int p2, int p3, int p4) {
+        int a1 = p1 >>> 24;
+        int a2 = p2 >>> 24;
+        int a3 = p3 >>> 24;
+        int a4 = p4 >>> 24;
+        int sumA = a1 + a2 + a3 + a4;
+        if (sumA == 0) {
+            return 0;
+        }
+        int half = sumA >> 1;
+        int r = ((p1 >> 16 & 0xFF) * a1 + (p2 >> 16 & 0xFF) * a2
+                + (p3 >> 16 & 0xFF) * a3 + (p4 >> 16 & 0xFF) * a4 + half) / sumA;
+        int g = ((p1 >> 8 & 0xFF) * a1 + (p2 >> 8 & 0xFF) * a2
+                + (p3 >> 8 & 0xFF) * a3 + (p4 >> 8 & 0xFF) * a4 + half) / sumA;
+        int b = ((p1 & 0xFF) * a1 + (p2 & 0xFF) * a2
+                + (p3 & 0xFF) * a3 + (p4 & 0xFF) * a4 + half) / sumA;
+        int a = (sumA + 2) >> 2;
+        return a << 24 | r << 16 | g << 8 | b;
+    }
+
+    private static int ceilDiv(int a, int b) {
+        return -Math.floorDiv(-a, b);
+    }
+}
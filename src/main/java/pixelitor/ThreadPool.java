@@ -17,16 +17,22 @@
 
 package pixelitor;
 
-import com.jhlabs.image.AbstractBufferedImageOp;
 import pixelitor.utils.ProgressTracker;
 
-import java.awt.image.BufferedImage;
-import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 /**
  * A thread pool for parallel execution on multiple CPU cores
@@ -37,6 +43,20 @@ public class ThreadPool {
     private static final ExecutorService executorService =
             Executors.newFixedThreadPool(NUM_AVAILABLE_PROCESSORS);
 
+    // the pool used for the data-parallel work of the filters
+    private static final ForkJoinPool forkJoinPool =
+            new ForkJoinPool(NUM_AVAILABLE_PROCESSORS);
+
+    // the work is split into more tasks than threads so that
+    // work stealing can balance the uneven parts of an image
+    private static final int TASKS_PER_THREAD = 8;
+
+    // a task should have at least this much work (typically pixels),
+    // otherwise the scheduling overhead would dominate
+    private static final int MIN_COST_PER_TASK = 16_384;
+
+    private static final long PROGRESS_UPDATE_MILLIS = 50;
+
     private ThreadPool() {
     }
 
@@ -48,71 +68,180 @@ public class ThreadPool {
     }
 
     /**
-     * Submits a task that returns something, such as
-     * the calculated pixels in a line
+     * Processes a range of work units, split into
+     * contiguous subranges that run in parallel
      */
-    public static <T> Future<T> submit2(Callable<T> task) {
-        return executorService.submit(task);
+    @FunctionalInterface
+    public interface RangeTask {
+        /**
+         * Processes the units from start (inclusive) to end (exclusive)
+         */
+        void process(int start, int end);
     }
 
     /**
-     * Waits until all the given futures complete their
-     * computation, and updates the given
-     * {@link ProgressTracker} in the meantime.
+     * Processes the given rows of an image in parallel, in bands of
+     * adjacent rows. One row is one {@link ProgressTracker} unit.
+     * The method returns only after all the rows were processed.
      */
-    public static void waitForFutures(Iterable<Future<?>> futures, ProgressTracker pt) {
-        assert pt != null;
+    public static void processRows(int numRows, int rowWidth,
+                                   ProgressTracker pt, RangeTask task) {
+        processRange(numRows, rowWidth, pt, task);
+    }
 
-        for (Future<?> future : futures) {
-            try {
-                future.get();
-
-                // not completely accurate because the submit order is not
-                // necessarily the same as the finish order, but
-                // good enough in practice
-                pt.unitDone();
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
+    /**
+     * Same as processRows, but the task is called for each row
+     */
+    public static void forEachRow(int numRows, int rowWidth,
+                                  ProgressTracker pt, IntConsumer rowTask) {
+        processRange(numRows, rowWidth, pt, (start, end) -> {
+            for (int y = start; y < end; y++) {
+                rowTask.accept(y);
             }
-        }
+        });
     }
 
-    // same as the above, but with array argument
-    public static void waitForFutures(Future<?>[] futures, ProgressTracker pt) {
+    /**
+     * Processes the given number of work units in parallel.
+     * The unit cost is the estimated relative cost of a unit
+     * (for example the number of pixels in a row), it is used
+     * to determine the chunk sizes. The given {@link ProgressTracker}
+     * is updated only from the calling thread, therefore it
+     * doesn't have to be thread-safe.
+     *
+     * If the calling thread is interrupted, the chunks that
+     * didn't start yet are skipped, the tracker is finished,
+     * and a {@link CancellationException} is thrown.
+     */
+    public static void processRange(int numUnits, int unitCost,
+                                    ProgressTracker pt, RangeTask task) {
         assert pt != null;
 
-        for (Future<?> future : futures) {
+        if (numUnits <= 0) {
+            return;
+        }
+
+        boolean calledFromWorker = ForkJoinTask.getPool() == forkJoinPool;
+        if (!calledFromWorker && Thread.currentThread().isInterrupted()) {
+            throw cancel(pt);
+        }
+
+        int chunkSize = calcChunkSize(numUnits, unitCost);
+        if (chunkSize >= numUnits) {
+            // not worth splitting
+            task.process(0, numUnits);
+            pt.unitsDone(numUnits);
+            return;
+        }
+
+        RangeJob job = new RangeJob(task, chunkSize);
+        RangeAction action = new RangeAction(job, 0, numUnits);
+
+        if (calledFromWorker) {
+            // called from one of our own workers: join the
+            // computation instead of blocking the worker thread
+            action.invoke();
+            pt.unitsDone(numUnits);
+            return;
+        }
+
+        forkJoinPool.execute(action);
+        int reportedUnits = 0;
+        boolean interrupted = false;
+        while (true) {
             try {
-                future.get();
-                pt.unitDone();
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
+                action.get(PROGRESS_UPDATE_MILLIS, MILLISECONDS);
+                break;
+            } catch (TimeoutException e) {
+                int done = job.unitsDone.get();
+                if (done > reportedUnits) {
+                    pt.unitsDone(done - reportedUnits);
+                    reportedUnits = done;
+                }
+            } catch (InterruptedException e) {
+                job.cancelled = true;
+                interrupted = true;
+                break;
+            } catch (ExecutionException e) {
+                break;
             }
         }
+
+        // waits for the already started chunks and
+        // rethrows the exception of a failed task
+        action.join();
+
+        if (interrupted) {
+            // restore the flag so that the caller can also see it
+            Thread.currentThread().interrupt();
+            throw cancel(pt);
+        }
+
+        pt.unitsDone(numUnits - reportedUnits);
+    }
+
+    private static CancellationException cancel(ProgressTracker pt) {
+        // the filter will not get the chance to finish its tracker
+        pt.finish();
+        return new CancellationException();
+    }
+
+    private static int calcChunkSize(int numUnits, int unitCost) {
+        int maxTasks = NUM_AVAILABLE_PROCESSORS * TASKS_PER_THREAD;
+        int sizeForBalance = (numUnits + maxTasks - 1) / maxTasks;
+        int sizeForOverhead = (MIN_COST_PER_TASK + unitCost - 1) / Math.max(unitCost, 1);
+        return Math.max(1, Math.max(sizeForBalance, sizeForOverhead));
+    }
+
+    public static Executor getExecutor() {
+        return executorService;
     }
 
     /**
-     * Similar to waitForFutures, but works with futures
-     * that return an int array representing a line, and
-     * updates the given destination image with the new pixels.
+     * The state shared by all the subranges of a range
      */
-    public static void waitForFutures2(Future<int[]>[] futures, BufferedImage dst, int width, ProgressTracker pt) {
-        assert pt != null;
+    private static class RangeJob {
+        private final RangeTask task;
+        private final int chunkSize;
+        private final AtomicInteger unitsDone = new AtomicInteger();
+        private volatile boolean cancelled = false;
+
+        RangeJob(RangeTask task, int chunkSize) {
+            this.task = task;
+            this.chunkSize = chunkSize;
+        }
+    }
 
-        try {
-            for (int i = 0; i < futures.length; i++) {
-                Future<int[]> line = futures[i];
-                int[] linePixels = line.get();
-                AbstractBufferedImageOp.setRGB(dst, 0, i, width, 1, linePixels);
+    /**
+     * Recursively splits a range until the chunk size is reached.
+     * The idle workers of the {@link ForkJoinPool} steal the
+     * larger, not yet split halves from the busy ones.
+     */
+    private static class RangeAction extends RecursiveAction {
+        private final RangeJob job;
+        private final int start;
+        private final int end;
+
+        RangeAction(RangeJob job, int start, int end) {
+            this.job = job;
+            this.start = start;
+            this.end = end;
+        }
 
-                pt.unitDone();
+        @Override
+        protected void compute() {
+            if (job.cancelled) {
+                return;
             }
-        } catch (InterruptedException | ExecutionException e) {
-            e.printStackTrace();
+            int length = end - start;
+            if (length <= job.chunkSize) {
+                job.task.process(start, end);
+                job.unitsDone.addAndGet(length);
+                return;
+            }
+            int mid = start + length / 2;
+            invokeAll(new RangeAction(job, start, mid),
+                    new RangeAction(job, mid, end));
         }
     }
-
-    public static Executor getExecutor() {
-        return executorService;
-    }
 }
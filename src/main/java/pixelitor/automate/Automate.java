@@ -18,6 +18,7 @@
 package pixelitor.automate;
 
 import pixelitor.Composition;
+import pixelitor.automate.BatchProcessor.OverwriteDecision;
 import pixelitor.filters.comp.CompAction;
 import pixelitor.gui.ImageComponent;
 import pixelitor.gui.ImageComponents;
@@ -59,6 +60,17 @@ public class Automate {
      */
     public static void processEachFile(CompAction action,
                                        String dialogTitle) {
+        processEachFile(action, null, dialogTitle);
+    }
+
+    /**
+     * Processes each file in the input directory with the given
+     * {@link CompAction}, or with the given {@link BatchImageOp}
+     * if the files can be processed without opening them
+     */
+    public static void processEachFile(CompAction action,
+                                       BatchImageOp imageOp,
+                                       String dialogTitle) {
         File openDir = Dirs.getLastOpen();
         File saveDir = Dirs.getLastSave();
 
@@ -70,6 +82,12 @@ public class Automate {
 
         ProgressMonitor progressMonitor = GUIUtils.createPercentageProgressMonitor(
                 dialogTitle);
+        OutputFormat outputFormat = OutputFormat.getLastUsed();
+        if (imageOp != null && BatchProcessor.canProcess(inputFiles, outputFormat)) {
+            processWithoutOpening(inputFiles, imageOp, outputFormat, saveDir, progressMonitor);
+            return;
+        }
+
         SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
             @Override
             public Void doInBackground() {
@@ -99,6 +117,66 @@ public class Automate {
         worker.execute();
     }
 
+    private static void processWithoutOpening(File[] inputFiles,
+                                              BatchImageOp imageOp,
+                                              OutputFormat outputFormat,
+                                              File saveDir,
+                                              ProgressMonitor progressMonitor) {
+        BatchProcessor processor = new BatchProcessor(imageOp, outputFormat, saveDir);
+        BatchProcessor.Listener listener = new BatchProcessor.Listener() {
+            @Override
+            public boolean fileStarting(File file, int index, int numFiles) {
+                if (progressMonitor.isCanceled()) {
+                    return false;
+                }
+                progressMonitor.setProgress((int) ((float) index * 100 / numFiles));
+                progressMonitor.setNote("Processing " + file.getName());
+                return true;
+            }
+
+            @Override
+            public OverwriteDecision outputExists(File outputFile) {
+                if (overwriteAll) {
+                    return OverwriteDecision.OVERWRITE;
+                }
+                String[] answer = new String[1];
+                GUIUtils.invokeAndWait(() -> answer[0] = showOverwriteWarningDialog(outputFile));
+                switch (answer[0]) {
+                    case OVERWRITE_YES_ALL:
+                        overwriteAll = true;
+                        return OverwriteDecision.OVERWRITE;
+                    case OVERWRITE_YES:
+                        return OverwriteDecision.OVERWRITE;
+                    case OVERWRITE_NO:
+                        return OverwriteDecision.SKIP;
+                    default:
+                        return OverwriteDecision.STOP;
+                }
+            }
+
+            @Override
+            public void fileFailed(File file, Throwable e) {
+                Messages.showExceptionOnEDT(e);
+            }
+        };
+
+        SwingWorker<Void, Void> worker = new SwingWorker<Void, Void>() {
+            @Override
+            public Void doInBackground() throws InterruptedException {
+                overwriteAll = false;
+                try {
+                    processor.processAll(inputFiles, listener);
+                } finally {
+                    progressMonitor.close();
+                }
+                String summary = processor.getSummary();
+                EventQueue.invokeLater(() -> Messages.showInStatusBar(summary));
+                return null;
+            }
+        };
+        worker.execute();
+    }
+
     private static void processFile(File file, CompAction action, File saveDir) {
         OpenSave.openFileAsync(file)
                 .thenApplyAsync(
@@ -55,6 +55,7 @@ public class BatchFilterWizard extends Wizard {
         Automate.processEachFile(comp -> filter.run(
                 comp.getActiveDrawableOrThrow(),
                 BATCH_AUTOMATE, busyCursorParent),
+                new FilterBatchOp(filter),
                 dialogTitle);
     }
 
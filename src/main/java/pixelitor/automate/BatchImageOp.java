@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.automate;
+
+import pixelitor.filters.comp.CompAction;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * The pixel-level equivalent of a batch {@link CompAction}.
+ * It is used when the input files are single-layer images,
+ * which can be processed without creating compositions.
+ */
+public interface BatchImageOp {
+    /**
+     * Returns the processed image. The source image
+     * can be modified or returned.
+     */
+    BufferedImage process(BufferedImage src);
+
+    /**
+     * Returns an instance that can run at the same time as this one,
+     * or null if the images must be processed one after the other.
+     * Stateless implementations can return themselves.
+     */
+    default BatchImageOp copy() {
+        return this;
+    }
+}
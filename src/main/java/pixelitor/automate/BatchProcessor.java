@@ -0,0 +1,346 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.automate;
+
+import pixelitor.Composition;
+import pixelitor.io.FileUtils;
+import pixelitor.io.OpenRaster;
+import pixelitor.io.OutputFormat;
+import pixelitor.io.PXCFormat;
+import pixelitor.io.SaveSettings;
+import pixelitor.io.TrackedIO;
+import pixelitor.utils.ImageUtils;
+import pixelitor.utils.ProgressTracker;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.String.format;
+
+/**
+ * Processes image files without opening them in the GUI.
+ * Layered files (pxc, ora) are flattened.
+ *
+ * Each file is decoded, processed with a {@link BatchImageOp} and
+ * encoded on a bounded pool of worker threads, so that several files
+ * are in flight at the same time. The number of files in flight is
+ * limited by the estimated memory they need.
+ */
+public class BatchProcessor {
+    private static final long BYTES_IN_MEGABYTE = 1024 * 1024;
+
+    // the decoded image, the processed image and a
+    // converted copy for the encoder can exist at the same time
+    private static final int IMAGES_PER_FILE = 3;
+
+    /**
+     * What to do if an output file already exists
+     */
+    public enum OverwriteDecision {
+        OVERWRITE, SKIP, STOP
+    }
+
+    /**
+     * Receives the events of the batch processing
+     */
+    public interface Listener {
+        /**
+         * Called on the thread running the batch, before a
+         * file is started. Returns false if the batch should stop.
+         */
+        boolean fileStarting(File file, int index, int numFiles);
+
+        /**
+         * Called on the thread running the batch if the output file
+         * already exists or it is the output of a previous file
+         */
+        OverwriteDecision outputExists(File outputFile);
+
+        /**
+         * Called on a worker thread if a file could not be processed
+         */
+        void fileFailed(File file, Throwable e);
+    }
+
+    private final BatchImageOp op;
+    private final OutputFormat outputFormat;
+    private final File saveDir;
+    private final int numWorkers;
+
+    // the op instances that are not used by a worker right now
+    private final BlockingQueue<BatchImageOp> idleOps = new LinkedBlockingQueue<>();
+    private final int numOps;
+
+    private final Semaphore memoryPermits;
+    private final int memoryBudgetMB;
+
+    private final StageStats decodeStats = new StageStats("decode");
+    private final StageStats processStats = new StageStats("process");
+    private final StageStats encodeStats = new StageStats("encode");
+    private final AtomicInteger numWritten = new AtomicInteger();
+    private long totalNanos;
+
+    public BatchProcessor(BatchImageOp op, OutputFormat outputFormat, File saveDir) {
+        this(op, outputFormat, saveDir, Runtime.getRuntime().availableProcessors());
+    }
+
+    BatchProcessor(BatchImageOp op, OutputFormat outputFormat, File saveDir, int numWorkers) {
+        assert !outputFormat.supportsMultipleLayers();
+
+        this.op = op;
+        this.outputFormat = outputFormat;
+        this.saveDir = saveDir;
+        this.numWorkers = numWorkers;
+
+        idleOps.add(op);
+        for (int i = 1; i < numWorkers; i++) {
+            BatchImageOp copy = op.copy();
+            if (copy == null) {
+                break;
+            }
+            idleOps.add(copy);
+        }
+        numOps = idleOps.size();
+
+        // a quarter of the maximal heap
+        long budget = Runtime.getRuntime().maxMemory() / 4 / BYTES_IN_MEGABYTE;
+        memoryBudgetMB = (int) Math.max(1, Math.min(Integer.MAX_VALUE, budget));
+        memoryPermits = new Semaphore(memoryBudgetMB);
+    }
+
+    /**
+     * Returns whether the given files can be processed
+     * without creating compositions
+     */
+    public static boolean canProcess(File[] inputFiles, OutputFormat outputFormat) {
+        if (outputFormat.supportsMultipleLayers()) {
+            return false;
+        }
+        for (File file : inputFiles) {
+            // in the GUI the actions should see the layers
+            if (isLayered(getExt(file))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Processes the given files and returns after all of them are
+     * finished. The input files are not modified, except if the
+     * listener allows an input file to be overwritten.
+     */
+    public void processAll(File[] inputFiles, Listener listener) throws InterruptedException {
+        long startTime = System.nanoTime();
+
+        ExecutorService workers = Executors.newFixedThreadPool(numWorkers, createThreadFactory());
+        Set<File> outputFiles = new HashSet<>();
+        try {
+            for (int i = 0; i < inputFiles.length; i++) {
+                File file = inputFiles[i];
+                if (!listener.fileStarting(file, i, inputFiles.length)) {
+                    break;
+                }
+
+                File outputFile = calcOutputFile(file);
+                boolean exists = outputFile.exists() || outputFiles.contains(outputFile);
+                if (exists) {
+                    OverwriteDecision decision = listener.outputExists(outputFile);
+                    if (decision == OverwriteDecision.SKIP) {
+                        continue;
+                    } else if (decision == OverwriteDecision.STOP) {
+                        break;
+                    }
+                }
+                outputFiles.add(outputFile);
+
+                // wait until the files in flight leave enough memory
+                int neededMB = estimateMemoryMB(file);
+                memoryPermits.acquire(neededMB);
+                workers.execute(() -> {
+                    try {
+                        processFile(file, outputFile);
+                    } catch (Throwable e) {
+                        listener.fileFailed(file, e);
+                    } finally {
+                        memoryPermits.release(neededMB);
+                    }
+                });
+            }
+        } finally {
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            totalNanos = System.nanoTime() - startTime;
+        }
+    }
+
+    private void processFile(File file, File outputFile) throws Exception {
+        long start = System.nanoTime();
+        BufferedImage img = decode(file);
+        long decoded = System.nanoTime();
+        decodeStats.add(decoded - start);
+
+        BatchImageOp workerOp = idleOps.take();
+        try {
+            img = workerOp.process(img);
+        } finally {
+            idleOps.add(workerOp);
+        }
+        long processed = System.nanoTime();
+        processStats.add(processed - decoded);
+
+        outputFormat.saveImage(img, new SaveSettings(outputFormat, outputFile));
+        encodeStats.add(System.nanoTime() - processed);
+        numWritten.incrementAndGet();
+    }
+
+    private static BufferedImage decode(File file) throws Exception {
+        String ext = getExt(file);
+        if (isLayered(ext)) {
+            // layered files are flattened
+            Composition comp = "pxc".equals(ext) ? PXCFormat.read(file) : OpenRaster.read(file);
+            if (comp == null) {
+                throw new IOException(format("Could not load \"%s\".", file.getName()));
+            }
+            // the composition is not shown and not edited,
+            // so its composite image can be used without a copy
+            return comp.getCompositeImage();
+        }
+
+        BufferedImage img;
+        try (ImageInputStream iis = ImageIO.createImageInputStream(file)) {
+            img = TrackedIO.readFromIIS(iis, ProgressTracker.NULL_TRACKER);
+        }
+        if (img == null) {
+            throw new IOException(format("Could not load \"%s\" as an image file.", file.getName()));
+        }
+        // the same conversion as for the opened files
+        return ImageUtils.toSysCompatibleImage(img);
+    }
+
+    private static String getExt(File file) {
+        return FileUtils.getExt(file.getName()).orElse("").toLowerCase();
+    }
+
+    private static boolean isLayered(String ext) {
+        return "pxc".equals(ext) || "ora".equals(ext);
+    }
+
+    private File calcOutputFile(File inputFile) {
+        String outFileName = FileUtils.replaceExt(inputFile.getName(), outputFormat.toString());
+        return new File(saveDir, outFileName);
+    }
+
+    /**
+     * Estimates the memory needed by a file from its image size,
+     * which can be read without decoding the pixels
+     */
+    private int estimateMemoryMB(File file) {
+        long bytes = -1;
+        try (ImageInputStream iis = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = iis == null ? null : ImageIO.getImageReaders(iis);
+            if (readers != null && readers.hasNext()) {
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(iis, true, true);
+                    bytes = 4L * reader.getWidth(0) * reader.getHeight(0) * IMAGES_PER_FILE;
+                } finally {
+                    reader.dispose();
+                }
+            }
+        } catch (IOException e) {
+            // the error will be reported when the file is decoded
+        }
+        if (bytes < 0) {
+            // unknown size: assume a share of the budget
+            return Math.max(1, memoryBudgetMB / numWorkers);
+        }
+        long mb = (bytes + BYTES_IN_MEGABYTE - 1) / BYTES_IN_MEGABYTE;
+        // a file larger than the whole budget can still run alone
+        return (int) Math.max(1, Math.min(mb, memoryBudgetMB));
+    }
+
+    private static ThreadFactory createThreadFactory() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, "[Batch worker " + threadCount.incrementAndGet() + "]");
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public int getNumWritten() {
+        return numWritten.get();
+    }
+
+    /**
+     * Returns the total time and the throughput of each stage. The stage
+     * throughput is measured in files per second of a stage running on
+     * all workers, so the slowest stage shows the bottleneck.
+     */
+    public String getSummary() {
+        return format("%d files written in %.2f s by %d workers (%s, %s, %s)",
+                numWritten.get(), totalNanos / 1.0e9, numWorkers,
+                decodeStats.getThroughput(numWorkers),
+                processStats.getThroughput(numOps),
+                encodeStats.getThroughput(numWorkers));
+    }
+
+    /**
+     * The time spent in a processing stage
+     */
+    private static class StageStats {
+        private final String name;
+        private final LongAdder nanos = new LongAdder();
+        private final AtomicInteger count = new AtomicInteger();
+
+        StageStats(String name) {
+            this.name = name;
+        }
+
+        void add(long stageNanos) {
+            nanos.add(stageNanos);
+            count.incrementAndGet();
+        }
+
+        String getThroughput(int parallelism) {
+            double seconds = nanos.sum() / 1.0e9;
+            if (seconds == 0) {
+                return name + ": -";
+            }
+            double filesPerSec = count.get() * parallelism / seconds;
+            return format("%s: %.1f files/s", name, filesPerSec);
+        }
+    }
+}
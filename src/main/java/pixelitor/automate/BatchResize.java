@@ -49,7 +49,8 @@ public class BatchResize {
         int maxHeight = p.getNewHeight();
 
         CompAction resizeAction = new Resize(maxWidth, maxHeight, true);
-        Automate.processEachFile(resizeAction, "Batch Resize...");
+        BatchImageOp resizeOp = img -> Resize.resizeInBox(img, maxWidth, maxHeight);
+        Automate.processEachFile(resizeAction, resizeOp, "Batch Resize...");
     }
 
     /**
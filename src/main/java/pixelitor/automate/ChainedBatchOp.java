@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.automate;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link BatchImageOp} that runs other ops one after the other
+ */
+class ChainedBatchOp implements BatchImageOp {
+    private final List<BatchImageOp> ops;
+
+    ChainedBatchOp(List<BatchImageOp> ops) {
+        this.ops = ops;
+    }
+
+    @Override
+    public BufferedImage process(BufferedImage src) {
+        BufferedImage img = src;
+        for (BatchImageOp op : ops) {
+            img = op.process(img);
+        }
+        return img;
+    }
+
+    @Override
+    public BatchImageOp copy() {
+        List<BatchImageOp> copies = new ArrayList<>(ops.size());
+        for (BatchImageOp op : ops) {
+            BatchImageOp copy = op.copy();
+            if (copy == null) {
+                return null;
+            }
+            copies.add(copy);
+        }
+        return new ChainedBatchOp(copies);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.automate;
+
+import pixelitor.filters.Filter;
+import pixelitor.filters.FilterAction;
+import pixelitor.filters.ParametrizedFilter;
+import pixelitor.filters.gui.FilterWithGUI;
+import pixelitor.filters.lookup.FusedPointFilter;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link BatchImageOp} that runs a filter
+ */
+class FilterBatchOp implements BatchImageOp {
+    private final Filter filter;
+
+    FilterBatchOp(Filter filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public BufferedImage process(BufferedImage src) {
+        return filter.transformImage(src);
+    }
+
+    @Override
+    public BatchImageOp copy() {
+        Filter copy = copyFilter(filter);
+        return copy == null ? null : new FilterBatchOp(copy);
+    }
+
+    /**
+     * Returns an independent instance with the same settings, or null.
+     * Even the filters without settings can't be shared between the
+     * workers, because some of them (for example the WholeImageFilter
+     * subclasses) store intermediate results in fields while running.
+     */
+    private static Filter copyFilter(Filter filter) {
+        if (filter instanceof ParametrizedFilter) {
+            return ((ParametrizedFilter) filter).copy();
+        }
+        if (filter instanceof FusedPointFilter) {
+            List<Filter> filters = ((FusedPointFilter) filter).getFilters();
+            List<Filter> copies = new ArrayList<>(filters.size());
+            for (Filter f : filters) {
+                Filter copy = copyFilter(f);
+                if (copy == null) {
+                    return null;
+                }
+                copies.add(copy);
+            }
+            return new FusedPointFilter(copies);
+        }
+        if (filter instanceof FilterWithGUI) {
+            // its settings can't be copied
+            return null;
+        }
+        FilterAction action = filter.getFilterAction();
+        if (action == null) {
+            return null;
+        }
+        Filter copy = action.createNewFilter();
+        return copy.getClass() == filter.getClass() ? copy : null;
+    }
+}
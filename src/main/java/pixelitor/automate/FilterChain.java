@@ -0,0 +1,152 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.automate;
+
+import pixelitor.filters.Filter;
+import pixelitor.filters.FilterAction;
+import pixelitor.filters.FilterUtils;
+import pixelitor.filters.ParametrizedFilter;
+import pixelitor.filters.gui.FilterParam;
+import pixelitor.filters.gui.ParsableParam;
+import pixelitor.filters.lookup.FusedPointFilter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * A sequence of configured filters, used by the command-line batch mode.
+ * It is read from a text file like this:
+ * <pre>
+ * # a comment
+ * [Gaussian Blur]
+ * Radius = 10
+ *
+ * [Invert]
+ * </pre>
+ * The section names are the filter names as they appear in the menus,
+ * and the other lines set the filter parameters by their names
+ * (see {@link ParsableParam#setValueFromString(String)}).
+ * The parameters that are not mentioned keep their default values.
+ */
+public class FilterChain {
+    private final List<Filter> filters = new ArrayList<>();
+
+    private FilterChain() {
+    }
+
+    public static FilterChain read(File file) throws IOException {
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        return parse(lines, file.getName());
+    }
+
+    /**
+     * Creates the filters from the lines of a chain file.
+     * The source is used only in the error messages.
+     */
+    public static FilterChain parse(List<String> lines, String source) {
+        FilterChain chain = new FilterChain();
+        Filter current = null;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String location = format("%s, line %d", source, i + 1);
+            if (line.startsWith("[") && line.endsWith("]")) {
+                String filterName = line.substring(1, line.length() - 1).trim();
+                current = createFilter(filterName, location);
+                chain.filters.add(current);
+                continue;
+            }
+
+            int eqIndex = line.indexOf('=');
+            if (eqIndex < 0) {
+                throw new IllegalArgumentException(format(
+                        "%s: expected [Filter Name] or Param Name = value", location));
+            }
+            if (current == null) {
+                throw new IllegalArgumentException(format(
+                        "%s: parameter before the first filter", location));
+            }
+            String paramName = line.substring(0, eqIndex).trim();
+            String value = line.substring(eqIndex + 1).trim();
+            setParam(current, paramName, value, location);
+        }
+        return chain;
+    }
+
+    private static Filter createFilter(String name, String location) {
+        FilterAction action = FilterUtils.findByName(name)
+                .orElseThrow(() -> new IllegalArgumentException(format(
+                        "%s: unknown filter '%s'", location, name)));
+        // each section gets its own instance, so that
+        // the same filter can appear more than once
+        return action.createNewFilter();
+    }
+
+    private static void setParam(Filter filter, String paramName, String value, String location) {
+        if (!(filter instanceof ParametrizedFilter)) {
+            throw new IllegalArgumentException(format(
+                    "%s: %s has no parameters", location, filter.getName()));
+        }
+        List<FilterParam> params = ((ParametrizedFilter) filter).getParamSet().getParams();
+        for (FilterParam param : params) {
+            if (param.getName().equalsIgnoreCase(paramName)) {
+                if (!(param instanceof ParsableParam)) {
+                    throw new IllegalArgumentException(format(
+                            "%s: %s can't be set in a filter chain",
+                            location, param.getName()));
+                }
+                try {
+                    ((ParsableParam) param).setValueFromString(value);
+                } catch (RuntimeException e) {
+                    // also the NumberFormatExceptions
+                    throw new IllegalArgumentException(format(
+                            "%s: invalid value '%s' for %s (%s)",
+                            location, value, param.getName(), e.getMessage()), e);
+                }
+                return;
+            }
+        }
+        throw new IllegalArgumentException(format(
+                "%s: %s has no parameter '%s'", location, filter.getName(), paramName));
+    }
+
+    public List<Filter> getFilters() {
+        return filters;
+    }
+
+    /**
+     * Returns the op that runs the filters of this chain one after the other.
+     * The consecutive color adjustments run together in a single pass.
+     */
+    public BatchImageOp asBatchOp() {
+        List<Filter> fused = FusedPointFilter.fuse(filters);
+        List<BatchImageOp> ops = new ArrayList<>(fused.size());
+        for (Filter filter : fused) {
+            ops.add(new FilterBatchOp(filter));
+        }
+        return new ChainedBatchOp(ops);
+    }
+}
@@ -407,29 +407,9 @@ public class ChannelMixer extends ParametrizedFilter {
         boolean packedInt = ImageUtils.hasPackedIntArray(src);
 
         if (packedInt) {
-            int[] srcData = ImageUtils.getPixelsAsArray(src);
-            int[] destData = ImageUtils.getPixelsAsArray(dest);
-
-            int length = srcData.length;
-            assert length == destData.length;
-
-            for (int i = 0; i < length; i++) {
-                int rgb = srcData[i];
-                int a = rgb & 0xFF000000;
-                int r = (rgb >>> 16) & 0xFF;
-                int g = (rgb >>> 8) & 0xFF;
-                int b = (rgb) & 0xFF;
-
-                int newRed = (int) (rfr * r + rfg * g + rfb * b);
-                int newGreen = (int) (gfr * r + gfg * g + gfb * b);
-                int newBlue = (int) (bfr * r + bfg * g + bfb * b);
-
-                newRed = PixelUtils.clamp(newRed);
-                newGreen = PixelUtils.clamp(newGreen);
-                newBlue = PixelUtils.clamp(newBlue);
-
-                destData[i] = a | (newRed << 16) | (newGreen << 8) | newBlue;
-            }
+            // the same per-pixel code as when the filter is fused
+            // with other point filters, so that the results match
+            FilterUtils.runRGBPixelOp(getPixelOp(), src, dest);
         } else { // not packed int
             BandCombineOp bandCombineOp = new BandCombineOp(new float[][]{
                     {rfr, rfg, rfb},
@@ -459,4 +439,32 @@ public class ChannelMixer extends ParametrizedFilter {
     public boolean supportsGray() {
         return false;
     }
-}
\ No newline at end of file
+
+    @Override
+    public RGBPixelOp getPixelOp() {
+        float rfr = redFromRed.getValueAsPercentage();
+        float rfg = redFromGreen.getValueAsPercentage();
+        float rfb = redFromBlue.getValueAsPercentage();
+
+        float gfr = greenFromRed.getValueAsPercentage();
+        float gfg = greenFromGreen.getValueAsPercentage();
+        float gfb = greenFromBlue.getValueAsPercentage();
+
+        float bfr = blueFromRed.getValueAsPercentage();
+        float bfg = blueFromGreen.getValueAsPercentage();
+        float bfb = blueFromBlue.getValueAsPercentage();
+
+        return (a, r, g, b) -> {
+            int newRed = PixelUtils.clamp((int) (rfr * r + rfg * g + rfb * b));
+            int newGreen = PixelUtils.clamp((int) (gfr * r + gfg * g + gfb * b));
+            int newBlue = PixelUtils.clamp((int) (bfr * r + bfg * g + bfb * b));
+
+            return (a << 24) | (newRed << 16) | (newGreen << 8) | newBlue;
+        };
+    }
+
+    @Override
+    public boolean isPointOperation() {
+        return true;
+    }
+}
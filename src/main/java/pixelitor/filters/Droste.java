@@ -84,4 +84,9 @@ public class Droste extends ParametrizedFilter {
         dest = filter.filter(src, dest);
         return dest;
     }
+
+    @Override
+    public boolean supportsProxyPreview() {
+        return true;
+    }
 }
\ No newline at end of file
@@ -23,6 +23,7 @@ import pixelitor.filters.gui.IntChoiceParam.Value;
 import pixelitor.filters.gui.ShowOriginal;
 import pixelitor.filters.lookup.FastLookupOp;
 import pixelitor.filters.lookup.LookupFactory;
+import pixelitor.filters.lookup.LookupPixelOp;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.BufferedImageOp;
@@ -65,15 +66,25 @@ public class ExtractChannel extends ParametrizedFilter {
         int channel = channelParam.getValue();
 
         if (bwParam.isChecked()) {
-            dest = bwExtractChannel(src, dest, channel);
+            dest = FilterUtils.runRGBPixelOp(createBWPixelOp(channel), src, dest);
         } else {
-            dest = colorExtractChannel(src, dest, channel);
+            BufferedImageOp filterOp = new FastLookupOp((ShortLookupTable) createColorLookup(channel));
+            filterOp.filter(src, dest);
         }
 
         return dest;
     }
 
-    private static BufferedImage bwExtractChannel(BufferedImage src, BufferedImage dest, int channel) {
+    @Override
+    public RGBPixelOp getPixelOp() {
+        int channel = channelParam.getValue();
+        if (bwParam.isChecked()) {
+            return createBWPixelOp(channel);
+        }
+        return LookupPixelOp.from(createColorLookup(channel));
+    }
+
+    private static RGBPixelOp createBWPixelOp(int channel) {
         RGBPixelOp rgbOp;
         switch (channel) {
             case RED_CHANNEL:
@@ -118,10 +129,10 @@ public class ExtractChannel extends ParametrizedFilter {
             default:
                 throw new IllegalStateException("should not het here");
         }
-        return FilterUtils.runRGBPixelOp(rgbOp, src, dest);
+        return rgbOp;
     }
 
-    private static BufferedImage colorExtractChannel(BufferedImage src, BufferedImage dest, int channel) {
+    private static LookupTable createColorLookup(int channel) {
         LookupTable lookupTable;
 
         switch (channel) {
@@ -146,14 +157,16 @@ public class ExtractChannel extends ParametrizedFilter {
             default:
                 throw new IllegalStateException("should not het here");
         }
-
-        BufferedImageOp filterOp = new FastLookupOp((ShortLookupTable) lookupTable);
-        filterOp.filter(src, dest);
-        return dest;
+        return lookupTable;
     }
 
     @Override
     public boolean supportsGray() {
         return false;
     }
+
+    @Override
+    public boolean isPointOperation() {
+        return true;
+    }
 }
\ No newline at end of file
@@ -40,6 +40,21 @@ public class ExtractChannelFilter extends Filter {
         return false;
     }
 
+    @Override
+    public boolean isPointOperation() {
+        return true;
+    }
+
+    @Override
+    public RGBPixelOp getPixelOp() {
+        return rgbOp;
+    }
+
+    @Override
+    public Object getSettingsKey() {
+        return rgbOp;
+    }
+
     // static factory methods from here
 
     public static FilterAction getValueChannelFA() {
@@ -29,8 +29,10 @@ import pixelitor.utils.Messages;
 import pixelitor.utils.test.RandomGUITest;
 
 import java.awt.Component;
+import java.awt.EventQueue;
 import java.awt.image.BufferedImage;
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
 import static pixelitor.ChangeReason.FILTER_WITHOUT_DIALOG;
@@ -45,7 +47,12 @@ public abstract class Filter implements Serializable {
 
     // used for making sure that there are no
     // unnecessary filter executions triggered
-    public static long runCount = 0;
+    private static final AtomicLong runCount = new AtomicLong();
+
+    // the previews, the animations and the batch processing run
+    // filters on other threads, so the EDT runs are also counted
+    // separately. Written and reliably read only on the EDT.
+    private static long edtRunCount = 0;
 
     protected Filter() {
     }
@@ -85,6 +92,14 @@ public abstract class Filter implements Serializable {
         Runnable task = () -> transformAndHandleExceptions(dr, cr);
         GUIUtils.runWithBusyCursor(busyCursorParent, task);
 
+        runFinished(startTime);
+    }
+
+    /**
+     * Called on the EDT after the filter ran, including
+     * the previews calculated on a background thread
+     */
+    public void runFinished(long startTime) {
         long totalTime = (System.nanoTime() - startTime) / 1_000_000;
         Messages.showPerformanceMessage(getName(), totalTime);
 
@@ -109,34 +124,44 @@ public abstract class Filter implements Serializable {
             } else {
                 dr.filterWithoutDialogFinished(dest, cr, getName());
             }
-        } catch (OutOfMemoryError e) {
-            Dialogs.showOutOfMemoryDialog(e);
         } catch (Throwable e) {
-            ImageLayer layer = (ImageLayer) dr;
-            if (layer instanceof LayerMask) {
-                layer = (ImageLayer) layer.getParent();
-            }
-            String msg = String.format(
-                    "Error while running the filter '%s'\n" +
-                            "composition = '%s'\n" +
-                            "layer = '%s' (%s)\n" +
-                            "hasMask = '%s'\n" +
-                            "mask editing = '%b'",
-                    getName(), layer.getComp()
-                            .getName(),
-                    layer.getName(), layer.getClass()
-                            .getSimpleName(),
-                    layer.hasMask(), layer.isMaskEditing());
-
-
-            IllegalStateException ise = new IllegalStateException(msg, e);
-            if (RandomGUITest.isRunning()) {
-                throw ise; // we can debug the exact filter parameters only in RandomGUITest
-            }
-            Messages.showException(ise);
+            handleException(dr, e);
         }
     }
 
+    /**
+     * Shows an error which happened while running this filter on the given {@link Drawable}
+     */
+    public void handleException(Drawable dr, Throwable e) {
+        if (e instanceof OutOfMemoryError) {
+            Dialogs.showOutOfMemoryDialog((OutOfMemoryError) e);
+            return;
+        }
+
+        ImageLayer layer = (ImageLayer) dr;
+        if (layer instanceof LayerMask) {
+            layer = (ImageLayer) layer.getParent();
+        }
+        String msg = String.format(
+                "Error while running the filter '%s'\n" +
+                        "composition = '%s'\n" +
+                        "layer = '%s' (%s)\n" +
+                        "hasMask = '%s'\n" +
+                        "mask editing = '%b'",
+                getName(), layer.getComp()
+                        .getName(),
+                layer.getName(), layer.getClass()
+                        .getSimpleName(),
+                layer.hasMask(), layer.isMaskEditing());
+
+
+        IllegalStateException ise = new IllegalStateException(msg, e);
+        if (RandomGUITest.isRunning()) {
+            throw ise; // we can debug the exact filter parameters only in RandomGUITest
+        }
+        Messages.showException(ise);
+    }
+
     public BufferedImage transformImage(BufferedImage src) {
         boolean convertFromGray = false;
         if (src.getType() == TYPE_BYTE_GRAY) { // editing a mask
@@ -157,17 +182,41 @@ public abstract class Filter implements Serializable {
             dest = ImageUtils.convertToGrayScaleImage(dest);
         }
 
-        runCount++;
+        runCount.incrementAndGet();
+        if (EventQueue.isDispatchThread()) {
+            edtRunCount++;
+        }
 
         assert dest != null : getName() + " returned null dest";
 
         return dest;
     }
 
+    /**
+     * Whether the previews should be first calculated on a
+     * downscaled copy of a large image, because the filter is slow
+     */
+    public boolean supportsProxyPreview() {
+        return false;
+    }
+
+    /**
+     * Transforms a downscaled copy of the source image. The scale is the
+     * size of the proxy relative to the real source, the settings that
+     * are measured in pixels have to be scaled accordingly.
+     */
+    public BufferedImage transformProxy(BufferedImage proxySrc, double scale) {
+        return transformImage(proxySrc);
+    }
+
     public void setFilterAction(FilterAction filterAction) {
         this.filterAction = filterAction;
     }
 
+    public FilterAction getFilterAction() {
+        return filterAction;
+    }
+
     public String getName() {
         if (filterAction != null) {
             return filterAction.getName();
@@ -189,4 +238,49 @@ public abstract class Filter implements Serializable {
     public boolean supportsGray() {
         return true;
     }
+
+    /**
+     * Whether each output pixel depends only on the input pixel
+     * at the same position, so that a part of an image
+     * can be transformed independently of the rest
+     */
+    public boolean isPointOperation() {
+        return false;
+    }
+
+    /**
+     * Returns the function that this filter applies to each pixel with
+     * the current settings, or null if this is not a point operation
+     * that can be expressed as an {@link RGBPixelOp}. The op gets and
+     * returns non-premultiplied values, and it must not have side effects,
+     * because it can be called from several threads at the same time.
+     * It allows running a sequence of color adjustments in one pass.
+     */
+    public RGBPixelOp getPixelOp() {
+        return null;
+    }
+
+    /**
+     * Returns an object that is equal to the key returned at another time
+     * only if the filter would produce the same output for the same input.
+     * Results can be cached only for filters that return a non-null key.
+     */
+    public Object getSettingsKey() {
+        return null;
+    }
+
+    /**
+     * Returns the number of finished filter runs on all threads
+     */
+    public static long getRunCount() {
+        return runCount.get();
+    }
+
+    /**
+     * Returns the number of finished filter runs on the EDT.
+     * The result is reliable only if it is called on the EDT.
+     */
+    public static long getEDTRunCount() {
+        return edtRunCount;
+    }
 }
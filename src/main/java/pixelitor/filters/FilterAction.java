@@ -83,6 +83,15 @@ public class FilterAction extends DrawableAction {
         return filter;
     }
 
+    /**
+     * Creates a new filter instance, independent of the one returned by getFilter
+     */
+    public Filter createNewFilter() {
+        Filter newFilter = filterSupplier.get();
+        newFilter.setFilterAction(this);
+        return newFilter;
+    }
+
     public FilterAction withListNamePrefix(String listNamePrefix) {
         this.listNamePrefix = listNamePrefix;
         return this;
@@ -65,6 +65,16 @@ public class FilterUtils {
                 .toArray(FilterAction[]::new);
     }
 
+    /**
+     * Finds a filter by its menu name or list name, ignoring the case
+     */
+    public static Optional<FilterAction> findByName(String name) {
+        return allFilters.stream()
+                .filter(fa -> name.equalsIgnoreCase(fa.getName())
+                        || name.equalsIgnoreCase(fa.getListName()))
+                .findFirst();
+    }
+
     public static Filter getRandomFilter(Predicate<Filter> conditions) {
         // tries to avoid the instantiation of filters
         FilterAction filterAction;
@@ -20,6 +20,7 @@ package pixelitor.filters;
 import com.jhlabs.image.PointFilter;
 import pixelitor.filters.gui.RangeParam;
 import pixelitor.filters.gui.ShowOriginal;
+import pixelitor.filters.lookup.LookupPixelOp;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
@@ -66,13 +67,26 @@ public class HueSat extends ParametrizedFilter {
             return src;
         }
 
+        dest = createImpl().filter(src, dest);
+
+        return dest;
+    }
+
+    private Impl createImpl() {
         float satShift = saturation.getValueAsPercentage();
         float briShift = brightness.getValueAsPercentage();
         float hueShift = hue.getValueAsFloat() / 360.0f;
 
-        dest = new Impl(hueShift, satShift, briShift).filter(src, dest);
+        return new Impl(hueShift, satShift, briShift);
+    }
 
-        return dest;
+    @Override
+    public RGBPixelOp getPixelOp() {
+        if ((hue.getValue() == 0) && (saturation.getValue() == 0) && (brightness.getValue() == 0)) {
+            return LookupPixelOp.createIdentity();
+        }
+        Impl impl = createImpl();
+        return (a, r, g, b) -> impl.filterRGB(0, 0, (a << 24) | (r << 16) | (g << 8) | b);
     }
 
     private static class Impl extends PointFilter {
@@ -123,4 +137,9 @@ public class HueSat extends ParametrizedFilter {
             return a | newRGB; // add the real alpha
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean isPointOperation() {
+        return true;
+    }
+}
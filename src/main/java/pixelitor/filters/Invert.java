@@ -17,6 +17,7 @@
 package pixelitor.filters;
 
 import com.jhlabs.image.PixelUtils;
+import pixelitor.filters.lookup.LookupPixelOp;
 import pixelitor.utils.ImageUtils;
 
 import java.awt.image.BufferedImage;
@@ -95,4 +96,20 @@ public class Invert extends Filter {
     public boolean supportsGray() {
         return false;
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean isPointOperation() {
+        return true;
+    }
+
+    @Override
+    public RGBPixelOp getPixelOp() {
+        return LookupPixelOp.createInvert();
+    }
+
+    @Override
+    public Object getSettingsKey() {
+        // there are no settings
+        return getClass();
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters;
+
+import pixelitor.filters.gui.RangeParam;
+import pixelitor.filters.gui.ShowOriginal;
+import pixelitor.filters.impl.HistogramMedianFilter;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A median filter with an adjustable radius, which
+ * calculates the median of each channel separately
+ */
+public class Median extends ParametrizedFilter {
+    public static final String NAME = "Median";
+
+    private final RangeParam radius = new RangeParam("Radius", 1, 2, 100);
+
+    public Median() {
+        super(ShowOriginal.YES);
+
+        setParams(radius);
+    }
+
+    @Override
+    public BufferedImage doTransform(BufferedImage src, BufferedImage dest) {
+        HistogramMedianFilter filter = new HistogramMedianFilter(NAME);
+        filter.setRadius(radius.getValue());
+        return filter.filter(src, dest);
+    }
+}
@@ -23,6 +23,7 @@ import pixelitor.filters.gui.FilterParam;
 import pixelitor.filters.gui.FilterWithGUI;
 import pixelitor.filters.gui.ParamSet;
 import pixelitor.filters.gui.ParametrizedFilterGUI;
+import pixelitor.filters.gui.RangeParam;
 import pixelitor.filters.gui.ShowOriginal;
 import pixelitor.layers.Drawable;
 import pixelitor.utils.ImageUtils;
@@ -78,6 +79,12 @@ public abstract class ParametrizedFilter extends FilterWithGUI {
 
     public abstract BufferedImage doTransform(BufferedImage src, BufferedImage dest);
 
+    @Override
+    public BufferedImage transformProxy(BufferedImage proxySrc, double scale) {
+        // the scale-dependent params will return scaled values
+        return RangeParam.supplyWithImageScale(scale, () -> transformImage(proxySrc));
+    }
+
     private void setParamSet(ParamSet paramSet) {
         this.paramSet = paramSet;
         // switch the affected area functionality here on-off
@@ -102,6 +109,44 @@ public abstract class ParametrizedFilter extends FilterWithGUI {
         return paramSet;
     }
 
+    /**
+     * Creates a new instance of this filter with the same settings, which can
+     * run on another thread independently of this one.
+     * Returns null if this is not possible.
+     */
+    public ParametrizedFilter copy() {
+        FilterAction action = getFilterAction();
+        if (action == null || !canBeCopied()) {
+            return null;
+        }
+        Filter newFilter = action.createNewFilter();
+        if (newFilter.getClass() != getClass()) {
+            return null;
+        }
+        ParametrizedFilter copy = (ParametrizedFilter) newFilter;
+        if (!paramSet.copyValuesInto(copy.paramSet)) {
+            return null;
+        }
+        return copy;
+    }
+
+    /**
+     * Filters that keep some state outside their params (for example a random
+     * seed) must return false here, because a new instance with
+     * the same param values would not give the same result.
+     */
+    protected boolean canBeCopied() {
+        return true;
+    }
+
+    @Override
+    public Object getSettingsKey() {
+        if (paramSet == null || !canBeCopied()) {
+            return null;
+        }
+        return paramSet.getSettingsKey();
+    }
+
     public void setAffectedAreaShapes(Shape[] affectedAreaShapes) {
         this.affectedAreaShapes = affectedAreaShapes;
     }
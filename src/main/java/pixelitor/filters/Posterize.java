@@ -21,6 +21,7 @@ import pixelitor.filters.gui.RangeParam;
 import pixelitor.filters.gui.ShowOriginal;
 import pixelitor.filters.levels.RGBLookup;
 import pixelitor.filters.lookup.FastLookupOp;
+import pixelitor.filters.lookup.LookupPixelOp;
 
 import java.awt.image.BufferedImage;
 import java.awt.image.BufferedImageOp;
@@ -51,16 +52,26 @@ public class Posterize extends ParametrizedFilter {
 
     @Override
     public BufferedImage doTransform(BufferedImage src, BufferedImage dest) {
+        RGBLookup rgbLookup = createLookup();
+
+        BufferedImageOp filterOp = new FastLookupOp((ShortLookupTable) rgbLookup.getLookupOp());
+        filterOp.filter(src, dest);
+
+        return dest;
+    }
+
+    private RGBLookup createLookup() {
         int numRedLevels = redLevels.getValue();
         int numGreenLevels = greenLevels.getValue();
         int numBlueLevels = blueLevels.getValue();
         RGBLookup rgbLookup = new RGBLookup();
         rgbLookup.initFromPosterize(numRedLevels, numGreenLevels, numBlueLevels);
+        return rgbLookup;
+    }
 
-        BufferedImageOp filterOp = new FastLookupOp((ShortLookupTable) rgbLookup.getLookupOp());
-        filterOp.filter(src, dest);
-
-        return dest;
+    @Override
+    public RGBPixelOp getPixelOp() {
+        return LookupPixelOp.from(createLookup().getLookupOp());
     }
 
     @Override
@@ -72,4 +83,9 @@ public class Posterize extends ParametrizedFilter {
     public boolean supportsGray() {
         return false;
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean isPointOperation() {
+        return true;
+    }
+}
@@ -28,6 +28,20 @@ public interface RGBPixelOp {
      */
     int changeRGB(int a, int r, int g, int b);
 
+    /**
+     * Returns an op that runs this op and then the given op
+     * on the result, without an intermediate image.
+     */
+    default RGBPixelOp andThen(RGBPixelOp after) {
+        return (a, r, g, b) -> {
+            int argb = changeRGB(a, r, g, b);
+            return after.changeRGB((argb >>> 24) & 0xFF,
+                    (argb >>> 16) & 0xFF,
+                    (argb >>> 8) & 0xFF,
+                    argb & 0xFF);
+        };
+    }
+
     default FilterAction toFilterAction(String name) {
         return new FilterAction(name,
                 () -> new ExtractChannelFilter(this))
@@ -194,4 +194,10 @@ public abstract class ShapeFilter extends ParametrizedFilter {
     protected boolean createDefaultDestImg() {
         return false;
     }
+
+    @Override
+    public Object getSettingsKey() {
+        // the foreground and background colors are not in the params
+        return null;
+    }
 }
\ No newline at end of file
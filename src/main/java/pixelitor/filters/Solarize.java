@@ -21,6 +21,7 @@ import pixelitor.filters.gui.IntChoiceParam;
 import pixelitor.filters.gui.IntChoiceParam.Value;
 import pixelitor.filters.gui.RangeParam;
 import pixelitor.filters.gui.ShowOriginal;
+import pixelitor.filters.lookup.LookupPixelOp;
 import pixelitor.utils.ImageUtils;
 
 import java.awt.image.BufferedImage;
@@ -59,6 +60,43 @@ public class Solarize extends ParametrizedFilter {
         int[] srcData = ImageUtils.getPixelsAsArray(src);
         int[] destData = ImageUtils.getPixelsAsArray(dest);
 
+        int[][] lookups = createLookups();
+        int[] redLookup = lookups[0];
+        int[] greenLookup = lookups[1];
+        int[] blueLookup = lookups[2];
+
+        for (int i = 0, destDataLength = destData.length; i < destDataLength; i++) {
+            int rgb = srcData[i];
+
+            int a = (rgb >>> 24) & 0xFF;
+            if (a == 0) {
+                destData[i] = 0;
+            } else {
+                int r = (rgb >>> 16) & 0xFF;
+                int g = (rgb >>> 8) & 0xFF;
+                int b = (rgb) & 0xFF;
+
+                int newR = redLookup[r];
+                int newG = greenLookup[g];
+                int newB = blueLookup[b];
+
+                destData[i] = (a << 24) | (newR << 16) | (newG << 8) | newB;
+            }
+        }
+
+        return dest;
+    }
+
+    @Override
+    public RGBPixelOp getPixelOp() {
+        int[][] lookups = createLookups();
+        return new LookupPixelOp(lookups[0], lookups[1], lookups[2]);
+    }
+
+    /**
+     * Returns the red, green and blue lookup tables
+     */
+    private int[][] createLookups() {
         float redThr = redThreshold.getValueAsFloat();
         float greenThr = greenThreshold.getValueAsFloat();
         float blueThr = blueThreshold.getValueAsFloat();
@@ -119,30 +157,16 @@ public class Solarize extends ParametrizedFilter {
             }
         }
 
-        for (int i = 0, destDataLength = destData.length; i < destDataLength; i++) {
-            int rgb = srcData[i];
-
-            int a = (rgb >>> 24) & 0xFF;
-            if (a == 0) {
-                destData[i] = 0;
-            } else {
-                int r = (rgb >>> 16) & 0xFF;
-                int g = (rgb >>> 8) & 0xFF;
-                int b = (rgb) & 0xFF;
-
-                int newR = redLookup[r];
-                int newG = greenLookup[g];
-                int newB = blueLookup[b];
-
-                destData[i] = (a << 24) | (newR << 16) | (newG << 8) | newB;
-            }
-        }
-
-        return dest;
+        return new int[][]{redLookup, greenLookup, blueLookup};
     }
 
     @Override
     public boolean supportsGray() {
         return false;
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean isPointOperation() {
+        return true;
+    }
+}
@@ -29,7 +29,6 @@ import pixelitor.utils.StatusBarProgressTracker;
 import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.util.Random;
-import java.util.concurrent.Future;
 
 import static java.awt.Color.BLACK;
 import static java.awt.Color.WHITE;
@@ -90,14 +89,8 @@ public class ValueNoise extends ParametrizedFilter {
 
         ProgressTracker pt = new StatusBarProgressTracker(NAME, height);
 
-        Future<?>[] futures = new Future[height];
-        for (int y = 0; y < height; y++) {
-            int finalY = y;
-            Runnable lineTask = () -> calculateLine(lookupTable, destData,
-                    width, frequency, persistence, amplitude, finalY);
-            futures[y] = ThreadPool.submit(lineTask);
-        }
-        ThreadPool.waitForFutures(futures, pt);
+        ThreadPool.forEachRow(height, width, pt, y -> calculateLine(lookupTable, destData,
+                width, frequency, persistence, amplitude, y));
 
         pt.finish();
 
@@ -86,4 +86,9 @@ public class Voronoi extends ParametrizedFilter {
 
         return dest;
     }
+
+    @Override
+    public boolean supportsProxyPreview() {
+        return true;
+    }
 }
\ No newline at end of file
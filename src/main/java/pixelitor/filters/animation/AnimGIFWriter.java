@@ -14,19 +14,57 @@
  * You should have received a copy of the GNU General Public License
  * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
  */
+
 package pixelitor.filters.animation;
 
 import pd.AnimatedGifEncoder;
+import pd.AnimatedGifEncoder.Frame;
+import pixelitor.ThreadPool;
+import pixelitor.utils.Messages;
 
+import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static java.awt.image.BufferedImage.TYPE_3BYTE_BGR;
 
 /**
  * An {@link AnimationWriter} implementation
- * that writes an animated GIF file
+ * that writes an animated GIF file.
+ *
+ * The frames are quantized and compressed in parallel on the
+ * {@link ThreadPool}, and a single writer thread writes them
+ * out in order. The number of frames that are waiting to be
+ * written is limited, so that the memory usage is bounded.
  */
 public class AnimGIFWriter implements AnimationWriter {
+    // the maximal number of frames that are being prepared
+    // or are waiting for the previous frames to be written
+    private static final int MAX_QUEUED_FRAMES = 2 * Runtime.getRuntime().availableProcessors();
+
     private final AnimatedGifEncoder encoder;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "[GIF writer thread]");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Semaphore queueSlots = new Semaphore(MAX_QUEUED_FRAMES);
+
+    private boolean sizeSet = false;
+    private int width;
+    private int height;
+
+    private volatile boolean cancelled = false;
+    private volatile Throwable failure;
+    private boolean saved = false;
 
     public AnimGIFWriter(File file, int delayMillis) {
         encoder = new AnimatedGifEncoder();
@@ -35,18 +73,105 @@ public class AnimGIFWriter implements AnimationWriter {
         encoder.setRepeat(0);
     }
 
+    /**
+     * Uses one palette learnt from the given images for all frames.
+     * Must be called before adding the first frame.
+     */
+    public void setSharedPalette(List<BufferedImage> samples) {
+        if (samples.isEmpty()) {
+            return;
+        }
+        setSize(samples.get(0));
+        encoder.setSharedPalette(samples);
+    }
+
     @Override
-    public void addFrame(BufferedImage image) {
-        encoder.addFrame(image);
+    public void addFrame(BufferedImage image) throws IOException {
+        if (failure != null) {
+            throw new IOException("Could not write the GIF frame", failure);
+        }
+        setSize(image);
+        try {
+            queueSlots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+
+        // the caller is free to reuse the image after this method returns
+        BufferedImage copy = copyToFrameFormat(image);
+
+        CompletableFuture<Frame> prepared = CompletableFuture.supplyAsync(
+                () -> encoder.prepareFrame(copy), ThreadPool.getExecutor());
+        writer.execute(() -> {
+            try {
+                Frame frame = prepared.join();
+                if (!cancelled && failure == null && !encoder.addFrame(frame)) {
+                    failure = new IOException("Could not write the GIF frame");
+                }
+            } catch (Throwable e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            } finally {
+                queueSlots.release();
+            }
+        });
+    }
+
+    private void setSize(BufferedImage firstFrame) {
+        if (!sizeSet) {
+            width = firstFrame.getWidth();
+            height = firstFrame.getHeight();
+            encoder.setSize(width, height);
+            sizeSet = true;
+        }
+    }
+
+    private BufferedImage copyToFrameFormat(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(width, height, TYPE_3BYTE_BGR);
+        Graphics2D g = copy.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return copy;
+    }
+
+    /**
+     * Waits until all the queued frames are written
+     */
+    private void waitForWriter() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     @Override
     public void finish() {
-        encoder.finish();
+        waitForWriter();
+        if (failure != null) {
+            encoder.cancel();
+            Messages.showException(failure);
+        } else if (encoder.finish()) {
+            saved = true;
+        } else {
+            Messages.showException(new IOException("Could not finish the GIF file"));
+        }
+    }
+
+    /**
+     * Returns true if the file was completely written by finish
+     */
+    public boolean isSaved() {
+        return saved;
     }
 
     @Override
     public void cancel() {
+        cancelled = true;
+        waitForWriter();
         encoder.cancel();
     }
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.animation;
+
+import java.io.IOException;
+
+/**
+ * An {@link AnimationWriter} that can add an already
+ * added frame again by its index, without having its image
+ */
+public interface FrameRepeatingWriter extends AnimationWriter {
+    /**
+     * Adds again the frame that was added with the given index (counting from zero)
+     */
+    void addRepeatedFrame(int frameIndex) throws IOException;
+}
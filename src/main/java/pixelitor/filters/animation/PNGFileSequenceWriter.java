@@ -23,14 +23,16 @@ import pixelitor.utils.Messages;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 
 import static java.lang.String.format;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 /**
  * An {@link AnimationWriter} implementation
  * that writes a sequence of PNG files
  */
-public class PNGFileSequenceWriter implements AnimationWriter {
+public class PNGFileSequenceWriter implements FrameRepeatingWriter {
     private final File outputDir;
     private int fileSequenceNumber;
     private int numWrittenImages = 0;
@@ -41,14 +43,27 @@ public class PNGFileSequenceWriter implements AnimationWriter {
 
     @Override
     public void addFrame(BufferedImage image) throws IOException {
-        String fileName = format("frame_%05d.png", fileSequenceNumber);
+        File outputFile = getFrameFile(fileSequenceNumber);
         fileSequenceNumber++;
-        File outputFile = new File(outputDir, fileName);
 
         TrackedIO.write(image, "PNG", outputFile);
         numWrittenImages++;
     }
 
+    @Override
+    public void addRepeatedFrame(int frameIndex) throws IOException {
+        File outputFile = getFrameFile(fileSequenceNumber);
+        fileSequenceNumber++;
+
+        Files.copy(getFrameFile(frameIndex).toPath(), outputFile.toPath(), REPLACE_EXISTING);
+        numWrittenImages++;
+    }
+
+    private File getFrameFile(int sequenceNumber) {
+        String fileName = format("frame_%05d.png", sequenceNumber);
+        return new File(outputDir, fileName);
+    }
+
     @Override
     public void finish() {
         Messages.showFilesSavedMessage(numWrittenImages, outputDir);
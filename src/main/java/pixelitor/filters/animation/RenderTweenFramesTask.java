@@ -18,23 +18,26 @@
 package pixelitor.filters.animation;
 
 import pixelitor.Composition;
-import pixelitor.filters.Filter;
-import pixelitor.filters.ParametrizedFilter;
-import pixelitor.filters.gui.ParamSetState;
-import pixelitor.gui.PixelitorWindow;
 import pixelitor.gui.utils.GUIUtils;
 import pixelitor.layers.Drawable;
+import pixelitor.utils.ImageUtils;
 import pixelitor.utils.Messages;
 
 import javax.swing.*;
 import java.awt.image.BufferedImage;
 import java.beans.PropertyChangeEvent;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
 
 import static java.lang.String.format;
 import static pixelitor.ChangeReason.TWEEN_PREVIEW;
 
 /**
- * A SwingWorker for rendering the frames of a tween animation
+ * A SwingWorker for rendering the frames of a tween animation.
+ * Several frames are filtered in parallel (see {@link TweenFrameRenderer}),
+ * but they are shown and written in order.
  */
 class RenderTweenFramesTask extends SwingWorker<Void, Void> {
     private final TweenAnimation animation;
@@ -60,7 +63,7 @@ class RenderTweenFramesTask extends SwingWorker<Void, Void> {
         progressMonitor.setNote(format("Completed %d%%.\n", progress));
         if (progressMonitor.isCanceled()) {
             // Probably nothing bad happens if the current frame rendering is
-            // interrupted, but to be on the safe side, let the current frame
+            // interrupted, but to be on the safe side, let the current frames
             // finish by passing false to cancel
             cancel(false);
         }
@@ -79,13 +82,9 @@ class RenderTweenFramesTask extends SwingWorker<Void, Void> {
 
     private void renderFrames() {
         int numFrames = animation.getNumFrames();
-        ParametrizedFilter filter = animation.getFilter();
-
         AnimationWriter animationWriter = animation.createAnimationWriter();
         boolean canceled = false;
 
-        PixelitorWindow busyCursorParent = PixelitorWindow.getInstance();
-
         dr.tweenCalculatingStarted();
 
         int numTotalFrames = numFrames;
@@ -94,6 +93,29 @@ class RenderTweenFramesTask extends SwingWorker<Void, Void> {
             numTotalFrames = 2 * numFrames - 2;
         }
 
+        BufferedImage src = dr.getFilterSourceImage();
+        TweenFrameRenderer renderer = new TweenFrameRenderer(animation, src);
+
+        // the pong frames are the same as the ping frames, so they are
+        // not rendered again if the writer can repeat them or if they
+        // fit into the memory cache
+        boolean writerRepeats = pingPong && animationWriter instanceof FrameRepeatingWriter;
+        int firstCachedFrame = numFrames;
+        if (pingPong && !writerRepeats) {
+            firstCachedFrame = calcFirstCachedFrame(numFrames, dr.getComp());
+        }
+        Map<Integer, BufferedImage> pongCache = new HashMap<>();
+
+        // the times of the frames that must be rendered, in output order
+        Queue<Double> timesToRender = new ArrayDeque<>();
+        for (int frameNr = 0; frameNr < numTotalFrames; frameNr++) {
+            int effectiveFrame = getEffectiveFrame(frameNr, numFrames);
+            boolean repeated = writerRepeats || effectiveFrame >= firstCachedFrame;
+            if (frameNr == effectiveFrame || !repeated) {
+                timesToRender.add(((double) effectiveFrame) / numFrames);
+            }
+        }
+
         for (int frameNr = 0; frameNr < numTotalFrames; frameNr++) {
             if (isCancelled()) {
                 canceled = true;
@@ -102,34 +124,37 @@ class RenderTweenFramesTask extends SwingWorker<Void, Void> {
             int percentProgress = (int) ((100.0 * frameNr) / numTotalFrames);
             setProgress(percentProgress);
 
-            double time;
-            if (frameNr < numFrames) { // ping: normal animation forwards
-                time = ((double) frameNr) / numFrames;
-            } else { // pong: animating backwards
-                // TODO we are calculating the same frames again
-                // they could be cached somewhere
-                // perhaps in an array of soft references with the
-                // calculated frames or in the case of file sequence
-                // output one could simply make copies of the files.
-                int effectiveFrame = 2 * (numFrames - 1) - frameNr;
-                time = ((double) effectiveFrame) / numFrames;
+            // keep the renderer busy with the next frames
+            while (renderer.canSubmit() && !timesToRender.isEmpty()) {
+                renderer.submit(timesToRender.remove());
             }
 
+            int effectiveFrame = getEffectiveFrame(frameNr, numFrames);
+            boolean pong = frameNr != effectiveFrame;
             try {
-                // first render the frame...
-                BufferedImage image = renderFrame(filter, time, busyCursorParent);
-
-                // ...then write the file
-                // TODO ideally while writing out the frame,
-                // the rendering of the next frame should be
-                // started on another thread
-                animationWriter.addFrame(image);
+                if (pong && writerRepeats) {
+                    ((FrameRepeatingWriter) animationWriter).addRepeatedFrame(effectiveFrame);
+                } else if (pong && effectiveFrame >= firstCachedFrame) {
+                    animationWriter.addFrame(pongCache.remove(effectiveFrame));
+                } else {
+                    BufferedImage image = showFrame(renderer.next());
+                    if (!pong && effectiveFrame >= firstCachedFrame && effectiveFrame < numFrames - 1) {
+                        // the writers don't modify the frames
+                        pongCache.put(effectiveFrame, image);
+                    }
+
+                    // the GIF writer encodes the frame on other
+                    // threads while the next frames are rendered
+                    animationWriter.addFrame(image);
+                }
             } catch (Exception e) {
                 canceled = true;
                 Messages.showException(e);
                 break;
             }
         }
+        renderer.cancel();
+        pongCache.clear();
 
         setProgress(100);
 
@@ -144,27 +169,48 @@ class RenderTweenFramesTask extends SwingWorker<Void, Void> {
         });
     }
 
-    private BufferedImage renderFrame(ParametrizedFilter filter,
-                                      double time,
-                                      PixelitorWindow busyCursorParent) {
-
-        long runCountBefore = Filter.runCount;
-
-        ParamSetState intermediateState = animation.tween(time);
-        filter.getParamSet().setState(intermediateState);
-
-        // all sorts of problems can happen
-        // if filters run outside of EDT
-        Runnable filterRunTask = () -> filter.run(dr, TWEEN_PREVIEW, busyCursorParent);
-        GUIUtils.invokeAndWait(filterRunTask);
-
-        long runCountAfter = Filter.runCount;
-        assert runCountAfter == runCountBefore + 1;
+    /**
+     * Returns the index of the ping frame that is shown at the given frame
+     */
+    private static int getEffectiveFrame(int frameNr, int numFrames) {
+        if (frameNr < numFrames) { // ping: normal animation forwards
+            return frameNr;
+        }
+        // pong: animating backwards
+        return 2 * (numFrames - 1) - frameNr;
+    }
 
-        Composition comp = dr.getComp();
-        comp.repaint();
+    /**
+     * Returns the first ping frame that is kept in memory for the pong part.
+     * The frames near the turning point are cached, because they are
+     * needed the soonest. The last ping frame is not repeated at all.
+     */
+    private static int calcFirstCachedFrame(int numFrames, Composition comp) {
+        long frameBytes = 4L * comp.getCanvasImWidth() * comp.getCanvasImHeight();
+        long maxCached = Runtime.getRuntime().maxMemory() / 8 / frameBytes;
+        int numRepeated = numFrames - 2;
+        int numCached = (int) Math.min(numRepeated, maxCached);
+        return numFrames - 1 - numCached;
+    }
 
-        return comp.getCompositeImage();
+    /**
+     * Shows the filtered image in the drawable and
+     * returns a copy of the composite image of the composition
+     */
+    private BufferedImage showFrame(BufferedImage filtered) {
+        BufferedImage[] composite = new BufferedImage[1];
+        String filterName = animation.getFilter().getName();
+        GUIUtils.invokeAndWait(() -> {
+            // all sorts of problems can happen
+            // if the preview is changed outside of EDT
+            dr.changePreviewImage(filtered, filterName, TWEEN_PREVIEW);
+
+            Composition comp = dr.getComp();
+            comp.repaint();
+            // copied on the EDT, because the composite image is updated in place
+            composite[0] = ImageUtils.copyImage(comp.getCompositeImage());
+        });
+        return composite[0];
     }
 
     @Override
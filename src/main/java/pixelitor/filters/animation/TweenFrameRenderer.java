@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.animation;
+
+import pixelitor.ThreadPool;
+import pixelitor.filters.ParametrizedFilter;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Filters the source image of a tween animation for several frames
+ * at the same time, and returns the results in the submission order.
+ *
+ * Each frame is rendered by its own copy of the animated filter,
+ * so the frames don't share parameter values. If the filter can't
+ * be copied, the frames are rendered one after the other.
+ */
+class TweenFrameRenderer {
+    private final TweenAnimation animation;
+    private final BufferedImage src;
+
+    // the filter instances that are not rendering a frame right now
+    private final BlockingQueue<ParametrizedFilter> idleFilters = new LinkedBlockingQueue<>();
+    private final int numFilters;
+
+    // the frames that were submitted, but not yet returned, the oldest first
+    private final Deque<CompletableFuture<BufferedImage>> pending = new ArrayDeque<>();
+
+    TweenFrameRenderer(TweenAnimation animation, BufferedImage src) {
+        this.animation = animation;
+        this.src = src;
+
+        ParametrizedFilter filter = animation.getFilter();
+        idleFilters.add(filter);
+        int parallelism = calcParallelism(src);
+        for (int i = 1; i < parallelism; i++) {
+            ParametrizedFilter copy = filter.copy();
+            if (copy == null) {
+                break;
+            }
+            idleFilters.add(copy);
+        }
+        numFilters = idleFilters.size();
+    }
+
+    /**
+     * Returns how many frames can be rendered at the same time,
+     * considering that each of them needs a few images of the source size
+     */
+    private static int calcParallelism(BufferedImage src) {
+        long imageBytes = 4L * src.getWidth() * src.getHeight();
+        long byMemory = Runtime.getRuntime().maxMemory() / 4 / (3 * imageBytes);
+        int byCores = Runtime.getRuntime().availableProcessors();
+        return (int) Math.max(1, Math.min(byCores, byMemory));
+    }
+
+    /**
+     * Whether another frame can be submitted without
+     * exceeding the number of the filter instances
+     */
+    boolean canSubmit() {
+        return pending.size() < numFilters;
+    }
+
+    /**
+     * Starts rendering the frame at the given animation time
+     */
+    void submit(double time) {
+        assert canSubmit();
+
+        pending.addLast(CompletableFuture.supplyAsync(
+                () -> render(time), ThreadPool.getExecutor()));
+    }
+
+    private BufferedImage render(double time) {
+        ParametrizedFilter filter;
+        try {
+            filter = idleFilters.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        try {
+            filter.getParamSet().setState(animation.tween(time));
+            return filter.transformImage(src);
+        } finally {
+            idleFilters.add(filter);
+        }
+    }
+
+    /**
+     * Returns the filtered image of the oldest
+     * submitted frame, waiting for it if necessary
+     */
+    BufferedImage next() throws InterruptedException, ExecutionException {
+        return pending.removeFirst().get();
+    }
+
+    /**
+     * Drops the frames that are still rendering.
+     * Their results are discarded when they are ready.
+     */
+    void cancel() {
+        pending.forEach(future -> future.cancel(false));
+        pending.clear();
+    }
+}
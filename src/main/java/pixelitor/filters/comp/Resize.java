@@ -22,10 +22,14 @@ import pixelitor.Composition;
 import pixelitor.history.History;
 import pixelitor.history.MultiLayerBackup;
 import pixelitor.history.MultiLayerEdit;
+import pixelitor.utils.ImageUtils;
 import pixelitor.utils.Messages;
 
+import java.awt.Dimension;
 import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
 
+import static java.awt.RenderingHints.VALUE_INTERPOLATION_BICUBIC;
 import static pixelitor.Composition.ImageChangeActions.REPAINT;
 
 /**
@@ -56,12 +60,10 @@ public class Resize implements CompAction {
         }
 
         if (resizeInBox) {
-            double heightScale = canvasTargetHeight / (double) canvasCurrHeight;
-            double widthScale = canvasTargetWidth / (double) canvasCurrWidth;
-            double scale = Math.min(heightScale, widthScale);
-
-            canvasTargetWidth = (int) (scale * (double) canvasCurrWidth);
-            canvasTargetHeight = (int) (scale * (double) canvasCurrHeight);
+            Dimension size = calcSizeInBox(canvasCurrWidth, canvasCurrHeight,
+                    canvasTargetWidth, canvasTargetHeight);
+            canvasTargetWidth = size.width;
+            canvasTargetHeight = size.height;
         }
 
         String editName = "Resize";
@@ -91,6 +93,37 @@ public class Resize implements CompAction {
                 + canvasTargetWidth + " x " + canvasTargetHeight + " pixels.");
     }
 
+    /**
+     * Resizes a single image so that the proportions are kept
+     * and the result fits into the given dimensions
+     */
+    public static BufferedImage resizeInBox(BufferedImage img, int boxWidth, int boxHeight) {
+        int currWidth = img.getWidth();
+        int currHeight = img.getHeight();
+        if (currWidth == boxWidth && currHeight == boxHeight) {
+            return img;
+        }
+
+        Dimension size = calcSizeInBox(currWidth, currHeight, boxWidth, boxHeight);
+        return ImageUtils.getFasterScaledInstance(img, size.width, size.height,
+                VALUE_INTERPOLATION_BICUBIC);
+    }
+
+    /**
+     * Returns the largest size with the given proportions
+     * that fits into the given box
+     */
+    private static Dimension calcSizeInBox(int currWidth, int currHeight,
+                                           int boxWidth, int boxHeight) {
+        double heightScale = boxHeight / (double) currHeight;
+        double widthScale = boxWidth / (double) currWidth;
+        double scale = Math.min(heightScale, widthScale);
+
+        return new Dimension(
+                (int) (scale * (double) currWidth),
+                (int) (scale * (double) currHeight));
+    }
+
     private void resizeLayers(Composition comp) {
         comp.forEachLayer(layer -> {
             layer.resize(canvasTargetWidth, canvasTargetHeight);
@@ -18,12 +18,16 @@
 
 package pixelitor.filters.curves;
 
+import com.jhlabs.image.Curve;
 import com.jhlabs.image.CurvesFilter;
+import pixelitor.filters.RGBPixelOp;
 import pixelitor.filters.gui.FilterGUI;
 import pixelitor.filters.gui.FilterWithGUI;
+import pixelitor.filters.lookup.LookupPixelOp;
 import pixelitor.layers.Drawable;
 
 import java.awt.image.BufferedImage;
+import java.util.Arrays;
 
 /**
  * Tone ToneCurvesFilter filter
@@ -54,19 +58,55 @@ public class ToneCurvesFilter extends FilterWithGUI {
             return src;
         }
 
-        filter.setCurves(
+        setCurvesOn(filter);
+
+        dest = filter.filter(src, dest);
+        return dest;
+    }
+
+    private void setCurvesOn(CurvesFilter curvesFilter) {
+        curvesFilter.setCurves(
                 this.curves.getCurve(ToneCurveType.RGB).curve,
                 this.curves.getCurve(ToneCurveType.RED).curve,
                 this.curves.getCurve(ToneCurveType.GREEN).curve,
                 this.curves.getCurve(ToneCurveType.BLUE).curve
         );
+    }
 
-        dest = filter.filter(src, dest);
-        return dest;
+    @Override
+    public RGBPixelOp getPixelOp() {
+        if (curves == null) {
+            return LookupPixelOp.createIdentity();
+        }
+        // a new instance, because this can be called from any thread
+        CurvesFilter curvesFilter = new CurvesFilter(NAME);
+        setCurvesOn(curvesFilter);
+        int[][] tables = curvesFilter.getTables();
+        return new LookupPixelOp(tables[0], tables[1], tables[2]);
     }
 
     @Override
     public void randomizeSettings() {
         // not supported yet
     }
+
+    @Override
+    public boolean isPointOperation() {
+        return true;
+    }
+
+    @Override
+    public Object getSettingsKey() {
+        if (curves == null) {
+            return null;
+        }
+        // the knots are edited in place, so they must be copied
+        StringBuilder sb = new StringBuilder();
+        for (ToneCurveType type : ToneCurveType.values()) {
+            Curve curve = curves.getCurve(type).curve;
+            sb.append(Arrays.toString(curve.x))
+                    .append(Arrays.toString(curve.y));
+        }
+        return sb.toString();
+    }
 }
\ No newline at end of file
@@ -27,7 +27,7 @@ import java.util.function.Predicate;
  * Base class for filter params that have a JComboBox as their GUI
  */
 public abstract class AbstractMultipleChoiceParam<E>
-        extends AbstractFilterParam implements ComboBoxModel<E> {
+        extends AbstractFilterParam implements ComboBoxModel<E>, ParsableParam {
 
     protected AbstractMultipleChoiceParam(String name,
                                           RandomizePolicy randomizePolicy) {
@@ -56,14 +56,77 @@ public abstract class AbstractMultipleChoiceParam<E>
         return false;
     }
 
+    /**
+     * Selects the choice that has the given name (ignoring the case)
+     */
+    @Override
+    public void setValueFromString(String s) {
+        String name = s.trim();
+        int numItems = getSize();
+        for (int i = 0; i < numItems; i++) {
+            E item = getElementAt(i);
+            if (item.toString().equalsIgnoreCase(name)) {
+                setSelectedItem(item);
+                return;
+            }
+        }
+        throw new IllegalArgumentException(getName() + ": unknown choice '" + name + "'");
+    }
+
     @Override
     public ParamState copyState() {
-        throw new UnsupportedOperationException();
+        Object selected = getSelectedItem();
+        int numItems = getSize();
+        for (int i = 0; i < numItems; i++) {
+            if (getElementAt(i).equals(selected)) {
+                return new ChoiceState(i);
+            }
+        }
+        throw new IllegalStateException("selected = " + selected);
     }
 
+    /**
+     * Selects the item with the same index as in the
+     * given state, which can come from another instance
+     * of the same parameter.
+     */
     @Override
     public void setState(ParamState state) {
-        throw new UnsupportedOperationException();
+        setSelectedItem(getElementAt(((ChoiceState) state).index));
+    }
+
+    /**
+     * The state of a multiple choice param. It is not animated,
+     * the interpolation simply switches to the end state halfway.
+     */
+    private static class ChoiceState implements ParamState<ChoiceState> {
+        private final int index;
+
+        ChoiceState(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public ChoiceState interpolate(ChoiceState endState, double progress) {
+            return progress < 0.5 ? this : endState;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ChoiceState other = (ChoiceState) o;
+            return index == other.index;
+        }
+
+        @Override
+        public int hashCode() {
+            return index;
+        }
     }
 
     /**
@@ -32,7 +32,7 @@ import static pixelitor.filters.gui.RandomizePolicy.ALLOW_RANDOMIZE;
 /**
  * A filter parameter for selecting an angle.
  */
-public class AngleParam extends AbstractFilterParam {
+public class AngleParam extends AbstractFilterParam implements ParsableParam {
     // as returned form Math.atan2, this is between -PI and PI
     private double angle;
     private double defaultVal = 0.0;
@@ -56,14 +56,25 @@ public class AngleParam extends AbstractFilterParam {
     }
 
     public void setValueInDegrees(double d, boolean trigger) {
+        setValue(degreesToRadians(d), trigger);
+    }
+
+    private static double degreesToRadians(double d) {
         double degrees = d;
         if (degrees < 0) {
             degrees = -degrees;
         } else {
             degrees = 360 - degrees;
         }
-        double r = Math.toRadians(degrees);
-        setValue(r, trigger);
+        return Math.toRadians(degrees);
+    }
+
+    private static double radiansToDegrees(double r) {
+        double degrees = Math.toDegrees(r);
+        if (degrees <= 0) {
+            return -degrees;
+        }
+        return 360 - degrees;
     }
 
     public void setValue(double r, boolean trigger) {
@@ -181,16 +192,23 @@ public class AngleParam extends AbstractFilterParam {
         return true;
     }
 
+    /**
+     * Accepts the angle in degrees, as it is shown in the GUI
+     */
+    @Override
+    public void setValueFromString(String s) {
+        setValueInDegrees(Double.parseDouble(s.trim()), false);
+    }
+
     @Override
     public ParamState copyState() {
-        // save the degrees so that the interpolation
-        // does not confuse the user
-        return new APState(getValueInDegrees());
+        // the exact radians, so that a copied filter gives the same result
+        return new APState(angle);
     }
 
     @Override
     public void setState(ParamState state) {
-        setValueInDegrees(((APState) state).angle, false);
+        setValue(((APState) state).angle, false);
     }
 
     private static class APState implements ParamState {
@@ -203,8 +221,28 @@ public class AngleParam extends AbstractFilterParam {
         @Override
         public ParamState interpolate(ParamState endState, double progress) {
             APState apEndState = (APState) endState;
-            double interpolatedAngle = ImageMath.lerp(progress, angle, apEndState.angle);
-            return new APState(interpolatedAngle);
+            // interpolate the degrees so that
+            // the interpolation does not confuse the user
+            double interpolatedDegrees = ImageMath.lerp(progress,
+                    radiansToDegrees(angle), radiansToDegrees(apEndState.angle));
+            return new APState(degreesToRadians(interpolatedDegrees));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            APState other = (APState) o;
+            return angle == other.angle;
+        }
+
+        @Override
+        public int hashCode() {
+            return Double.hashCode(angle);
         }
     }
 
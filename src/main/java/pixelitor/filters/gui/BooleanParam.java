@@ -33,7 +33,7 @@ import static pixelitor.filters.gui.RandomizePolicy.IGNORE_RANDOMIZE;
 /**
  * A filter parameter for a boolean value.
  */
-public class BooleanParam extends AbstractFilterParam {
+public class BooleanParam extends AbstractFilterParam implements ParsableParam {
     private final boolean defaultValue;
     private boolean currentValue;
     private final boolean addDefaultButton;
@@ -156,14 +156,61 @@ public class BooleanParam extends AbstractFilterParam {
         return false;
     }
 
+    @Override
+    public void setValueFromString(String s) {
+        String value = s.trim();
+        if ("true".equalsIgnoreCase(value)) {
+            setValue(true, false, false);
+        } else if ("false".equalsIgnoreCase(value)) {
+            setValue(false, false, false);
+        } else {
+            throw new IllegalArgumentException(format(
+                    "%s: expected true or false, found '%s'", getName(), value));
+        }
+    }
+
     @Override
     public ParamState copyState() {
-        throw new UnsupportedOperationException();
+        return new BooleanState(currentValue);
     }
 
     @Override
     public void setState(ParamState state) {
-        throw new UnsupportedOperationException();
+        setValue(((BooleanState) state).value, true, false);
+    }
+
+    /**
+     * The state of a {@link BooleanParam}. It is not animated,
+     * the interpolation simply switches to the end state halfway.
+     */
+    private static class BooleanState implements ParamState<BooleanState> {
+        private final boolean value;
+
+        BooleanState(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        public BooleanState interpolate(BooleanState endState, double progress) {
+            return progress < 0.5 ? this : endState;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            BooleanState other = (BooleanState) o;
+            return value == other.value;
+        }
+
+        @Override
+        public int hashCode() {
+            return Boolean.hashCode(value);
+        }
     }
 
     @Override
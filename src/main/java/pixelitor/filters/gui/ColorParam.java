@@ -32,7 +32,7 @@ import static pixelitor.filters.gui.RandomizePolicy.ALLOW_RANDOMIZE;
 /**
  * A filter parameter for selecting a color
  */
-public class ColorParam extends AbstractFilterParam {
+public class ColorParam extends AbstractFilterParam implements ParsableParam {
     private final Color defaultColor;
     private Color color;
 
@@ -115,6 +115,24 @@ public class ColorParam extends AbstractFilterParam {
         return true;
     }
 
+    /**
+     * Accepts a hexadecimal color in the #RRGGBB or #AARRGGBB form
+     */
+    @Override
+    public void setValueFromString(String s) {
+        String hex = s.trim();
+        if (hex.startsWith("#")) {
+            hex = hex.substring(1);
+        }
+        if (hex.length() != 6 && hex.length() != 8) {
+            throw new IllegalArgumentException(format(
+                    "%s: expected #RRGGBB or #AARRGGBB, found '%s'", getName(), s.trim()));
+        }
+        boolean hasAlpha = hex.length() == 8;
+        int argb = (int) Long.parseLong(hex, 16);
+        setColor(new Color(argb, hasAlpha), false);
+    }
+
     @Override
     public ParamState copyState() {
         return new CState(color);
@@ -137,6 +155,23 @@ public class ColorParam extends AbstractFilterParam {
             Color endColor = ((CState) endState).color;
             return new CState(ColorUtils.interpolateInRGB(color, endColor, (float) progress));
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CState other = (CState) o;
+            return color.equals(other.color);
+        }
+
+        @Override
+        public int hashCode() {
+            return color.hashCode();
+        }
     }
 
     @Override
@@ -23,7 +23,8 @@ import pixelitor.gui.utils.GUIUtils;
 import javax.swing.*;
 import java.awt.Rectangle;
 import java.util.Arrays;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 
 import static pixelitor.filters.gui.RandomizePolicy.ALLOW_RANDOMIZE;
 
@@ -88,7 +89,10 @@ public class DialogParam extends AbstractFilterParam {
 
     @Override
     public void setState(ParamState state) {
-
+        List<ParamState> childStates = ((CompositeState) state).childStates;
+        for (int i = 0; i < children.length; i++) {
+            children[i].setState(childStates.get(i));
+        }
     }
 
     @Override
@@ -143,13 +147,11 @@ public class DialogParam extends AbstractFilterParam {
     }
 
     static class CompositeState implements ParamState {
-        private Map<String, ParamState> childStates;
+        private final List<ParamState> childStates = new ArrayList<>();
 
         public CompositeState(FilterParam[] children) {
             for (FilterParam child : children) {
-                if (child.canBeAnimated()) {
-                    childStates.put(child.getName(), child.copyState());
-                }
+                childStates.add(child.copyState());
             }
         }
 
@@ -159,5 +161,32 @@ public class DialogParam extends AbstractFilterParam {
             // TODO
             return null;
         }
+
+        @Override
+        public boolean hasValueEquality() {
+            for (ParamState childState : childStates) {
+                if (childState == null || !childState.hasValueEquality()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CompositeState other = (CompositeState) o;
+            return childStates.equals(other.childStates);
+        }
+
+        @Override
+        public int hashCode() {
+            return childStates.hashCode();
+        }
     }
 }
@@ -22,8 +22,6 @@ import pixelitor.layers.Drawable;
 
 import javax.swing.*;
 
-import static pixelitor.ChangeReason.PREVIEWING;
-
 /**
  * The superclass of all filter configuration panels
  */
@@ -38,6 +36,6 @@ public abstract class FilterGUI extends JPanel implements PreviewExecutor {
 
     @Override
     public void runFilterPreview() {
-        filter.run(dr, PREVIEWING, this);
+        PreviewScheduler.requestPreview(filter, dr, this);
     }
 }
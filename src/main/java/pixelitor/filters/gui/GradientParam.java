@@ -29,6 +29,7 @@ import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.Rectangle;
 import java.beans.PropertyChangeEvent;
+import java.util.Arrays;
 
 import static com.bric.swing.MultiThumbSlider.HORIZONTAL;
 import static java.awt.Color.BLACK;
@@ -282,6 +283,24 @@ public class GradientParam extends AbstractFilterParam {
             }
             return interpolatedColors;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            GState other = (GState) o;
+            return Arrays.equals(thumbPositions, other.thumbPositions)
+                    && Arrays.equals(colors, other.colors);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(thumbPositions) + Arrays.hashCode(colors);
+        }
     }
 
     @Override
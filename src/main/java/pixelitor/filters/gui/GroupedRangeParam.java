@@ -31,7 +31,7 @@ import static pixelitor.filters.gui.RandomizePolicy.ALLOW_RANDOMIZE;
  * Two or more {@link RangeParam} objects that are grouped visually in the GUI
  * and can be linked to move together.
  */
-public class GroupedRangeParam extends AbstractFilterParam {
+public class GroupedRangeParam extends AbstractFilterParam implements ParsableParam {
     private final RangeParam[] rangeParams;
     private final ButtonModel checkBoxModel;
     private final boolean linkedByDefault;
@@ -246,6 +246,30 @@ public class GroupedRangeParam extends AbstractFilterParam {
         return getClass().getSimpleName() + rangeStrings;
     }
 
+    /**
+     * Accepts either a single number, which is used for all
+     * values, or all the values separated by commas
+     */
+    @Override
+    public void setValueFromString(String s) {
+        String[] values = s.split(",");
+        if (values.length == 1) {
+            double value = Double.parseDouble(values[0].trim());
+            for (RangeParam param : rangeParams) {
+                param.setValue(value, false);
+            }
+        } else if (values.length == rangeParams.length) {
+            setLinked(false);
+            for (int i = 0; i < values.length; i++) {
+                rangeParams[i].setValue(Double.parseDouble(values[i].trim()), false);
+            }
+        } else {
+            throw new IllegalArgumentException(String.format(
+                    "%s: expected 1 or %d values, found '%s'",
+                    getName(), rangeParams.length, s.trim()));
+        }
+    }
+
     @Override
     public ParamState copyState() {
         double[] values = Arrays.stream(rangeParams)
@@ -284,5 +308,22 @@ public class GroupedRangeParam extends AbstractFilterParam {
 
             return new GRState(interpolatedValues);
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            GRState other = (GRState) o;
+            return Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
     }
 }
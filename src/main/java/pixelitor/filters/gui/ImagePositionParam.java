@@ -28,7 +28,7 @@ import static pixelitor.filters.gui.RandomizePolicy.ALLOW_RANDOMIZE;
 /**
  * A filter parameter for selecting an image coordinate (relative to the image size)
  */
-public class ImagePositionParam extends AbstractFilterParam {
+public class ImagePositionParam extends AbstractFilterParam implements ParsableParam {
     private float relativeX = 0.5f;
     private float relativeY = 0.5f;
 
@@ -118,6 +118,22 @@ public class ImagePositionParam extends AbstractFilterParam {
         return true;
     }
 
+    /**
+     * Accepts the relative x and y coordinates
+     * (between 0 and 1) separated by a comma
+     */
+    @Override
+    public void setValueFromString(String s) {
+        String[] coords = s.split(",");
+        if (coords.length != 2) {
+            throw new IllegalArgumentException(format(
+                    "%s: expected x,y, found '%s'", getName(), s.trim()));
+        }
+        float relX = Float.parseFloat(coords[0].trim());
+        float relY = Float.parseFloat(coords[1].trim());
+        setRelativeValues(relX, relY, false, false, false);
+    }
+
     @Override
     public ParamState copyState() {
         return new IPPState(relativeX, relativeY);
@@ -146,6 +162,23 @@ public class ImagePositionParam extends AbstractFilterParam {
             double interpolatedY = ImageMath.lerp(progress, relativeY, ippEndState.relativeY);
             return new IPPState(interpolatedX, interpolatedY);
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            IPPState other = (IPPState) o;
+            return relativeX == other.relativeX && relativeY == other.relativeY;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Double.hashCode(relativeX) + Double.hashCode(relativeY);
+        }
     }
 
     @Override
@@ -129,13 +129,17 @@ public class ParamSet {
     }
 
     public void randomize() {
-        long before = Filter.runCount;
+        long before = Filter.getEDTRunCount();
+        long requestsBefore = PreviewScheduler.getNumRequests();
 
         paramList.forEach(FilterParam::randomize);
 
         // this call is not supposed to trigger the filter!
-        long after = Filter.runCount;
+        // (only the EDT runs are checked, because an earlier
+        // preview might still finish in the background)
+        long after = Filter.getEDTRunCount();
         assert before == after : "before = " + before + ", after = " + after;
+        assert requestsBefore == PreviewScheduler.getNumRequests();
     }
 
     public void runFilter() {
@@ -175,6 +179,68 @@ public class ParamSet {
                 });
     }
 
+    /**
+     * Copies the values of all params (not only of the ones that can be
+     * animated) into the given ParamSet, which must belong to another
+     * instance of the same filter. Returns false if some param
+     * doesn't support copying its value.
+     */
+    public boolean copyValuesInto(ParamSet other) {
+        List<FilterParam> otherParams = other.paramList;
+        if (otherParams.size() != paramList.size()) {
+            return false;
+        }
+        try {
+            for (int i = 0; i < paramList.size(); i++) {
+                otherParams.get(i).setState(paramList.get(i).copyState());
+            }
+        } catch (UnsupportedOperationException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns an object that is equal to a settings key returned at another
+     * time only if all the param values are the same. Unlike {@link ParamSetState},
+     * it includes the params that can't be animated.
+     * Returns null if the params can't be compared in this way,
+     * or if some randomness can be reseeded outside the params.
+     */
+    public Object getSettingsKey() {
+        List<ParamState> states = new ArrayList<>(paramList.size());
+        try {
+            for (FilterParam param : paramList) {
+                ParamState state = param.copyState();
+                if (state == null || !state.hasValueEquality()) {
+                    return null;
+                }
+                states.add(state);
+            }
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+        if (hasReseedAction()) {
+            return null;
+        }
+        return states;
+    }
+
+    private boolean hasReseedAction() {
+        for (FilterAction action : actionList) {
+            if (action instanceof ReseedNoiseFilterAction) {
+                return true;
+            }
+        }
+        for (FilterParam param : paramList) {
+            if (param instanceof AbstractFilterParam
+                    && ((AbstractFilterParam) param).action instanceof ReseedNoiseFilterAction) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * A ParamSet can be animated if at least
      * one contained filter parameter can be
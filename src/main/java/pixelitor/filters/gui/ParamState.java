@@ -22,6 +22,10 @@ package pixelitor.filters.gui;
  *
  * The self-bounded type parameter is for ensuring that
  * interpolate receives and returns the actual type
+ *
+ * Implementations must override equals and hashCode so that two
+ * states of the same param with the same values are equal,
+ * unless they return false from {@link #hasValueEquality()}
  */
 public interface ParamState<S extends ParamState<S>> {
     /**
@@ -30,4 +34,12 @@ public interface ParamState<S extends ParamState<S>> {
      * and the given argument represents the end state
      */
     S interpolate(S endState, double progress);
+
+    /**
+     * Returns true if equals compares the values of the states,
+     * and not the object identities
+     */
+    default boolean hasValueEquality() {
+        return true;
+    }
 }
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.gui;
+
+/**
+ * A filter parameter whose value can be set from its text form,
+ * as it is given in the filter chain files of the command-line batch mode
+ */
+public interface ParsableParam extends FilterParam {
+    /**
+     * Sets the value from its text form.
+     * It doesn't trigger the filter.
+     */
+    void setValueFromString(String s);
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.filters.gui;
+
+import pixelitor.filters.Filter;
+import pixelitor.gui.utils.GUIUtils;
+import pixelitor.layers.Drawable;
+import pixelitor.utils.ImageUtils;
+
+import java.awt.Component;
+import java.awt.EventQueue;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import static java.awt.RenderingHints.VALUE_INTERPOLATION_BILINEAR;
+import static pixelitor.ChangeReason.PREVIEWING;
+
+/**
+ * Calculates the filter previews on a background thread, so that
+ * the EDT stays responsive while the filter parameters are adjusted.
+ *
+ * At most one preview is calculated at a time. A new request
+ * interrupts the running (now outdated) calculation, and the requests
+ * arriving until it stops are coalesced into the latest one.
+ * Outdated results are never shown.
+ *
+ * For slow filters and large images a quick preview is first
+ * calculated on a downscaled proxy of the image, and it is shown
+ * while the full-resolution preview is calculated.
+ *
+ * The methods must be called on the EDT.
+ */
+public class PreviewScheduler {
+    private static final ThreadFactory threadFactory = r -> {
+        Thread thread = new Thread(r, "[Preview thread]");
+        thread.setDaemon(true);
+        return thread;
+    };
+    private static final ExecutorService executor
+            = Executors.newSingleThreadExecutor(threadFactory);
+
+    // the proxy images have approximately this many pixels
+    private static final int PROXY_PIXELS = 1_000_000;
+
+    // it is not worth using proxies that are only slightly smaller
+    private static final double MAX_PROXY_SCALE = 0.5;
+
+    private static long numRequests = 0;
+
+    // the calculation whose result was not yet handled on the EDT
+    private static Calculation running;
+
+    // the latest request that arrived while another preview was calculated
+    private static Request pending;
+
+    private PreviewScheduler() {
+        // should not be instantiated
+    }
+
+    /**
+     * Starts calculating a new preview in the background.
+     * The result is shown only if no newer request arrives.
+     */
+    public static void requestPreview(Filter filter, Drawable dr,
+                                      Component busyCursorParent) {
+        assert EventQueue.isDispatchThread() : "not EDT thread";
+
+        numRequests++;
+        Request request = new Request(filter, dr, busyCursorParent);
+        if (running == null) {
+            start(request);
+        } else {
+            running.cancel();
+            pending = request;
+        }
+    }
+
+    /**
+     * Makes sure that the preview for the latest request is shown,
+     * waiting for the running calculation if necessary.
+     * Called before a filter dialog is accepted.
+     */
+    public static void finishPreview() {
+        if (running != null) {
+            Calculation calc = running;
+            running = null;
+
+            calc.waitUntilDone();
+            if (pending == null) {
+                calc.showResult();
+            }
+        }
+        if (pending != null) {
+            Request request = pending;
+            pending = null;
+
+            // no point in starting a background calculation
+            // if we have to wait for it anyway
+            request.filter.run(request.dr, PREVIEWING, request.busyCursorParent);
+        }
+    }
+
+    /**
+     * Throws away the running and the pending previews.
+     * Called when a preview session starts or ends.
+     *
+     * It waits for the cancelled calculation, because the filters
+     * that don't check for interrupts would keep running on the
+     * preview thread, at the same time as a later run of the
+     * same filter instance on the EDT.
+     */
+    public static void cancelPreview() {
+        pending = null;
+        if (running != null) {
+            Calculation calc = running;
+            running = null;
+
+            calc.cancel();
+            calc.waitUntilDone();
+        }
+    }
+
+    public static long getNumRequests() {
+        return numRequests;
+    }
+
+    private static void start(Request request) {
+        // the source image is determined on the EDT
+        BufferedImage src = request.dr.getFilterSourceImage();
+
+        running = new Calculation(request, src);
+        running.future = executor.submit(running);
+    }
+
+    private static void proxyCalculated(Calculation calc, BufferedImage proxyResult) {
+        if (calc != running || pending != null) {
+            // outdated or the dialog was closed
+            return;
+        }
+        Filter filter = calc.request.filter;
+        calc.request.dr.changePreviewImage(proxyResult, filter.getName(), PREVIEWING);
+    }
+
+    private static void calculationDone(Calculation calc) {
+        if (calc != running) {
+            // already handled by finishPreview or cancelPreview
+            return;
+        }
+        running = null;
+
+        if (pending == null) {
+            calc.showResult();
+        } else {
+            Request request = pending;
+            pending = null;
+            start(request);
+        }
+    }
+
+    /**
+     * The filter and its target captured at the time of a request
+     */
+    private static class Request {
+        private final Filter filter;
+        private final Drawable dr;
+        private final Component busyCursorParent;
+
+        Request(Filter filter, Drawable dr, Component busyCursorParent) {
+            this.filter = filter;
+            this.dr = dr;
+            this.busyCursorParent = busyCursorParent;
+        }
+    }
+
+    /**
+     * A preview calculation running on the preview thread
+     */
+    private static class Calculation implements Runnable {
+        private final Request request;
+        private final BufferedImage src;
+        private Future<?> future;
+
+        // written on the preview thread, read on the EDT
+        // after the calculation is done
+        private BufferedImage result;
+        private Throwable error;
+        private long startTime;
+
+        // guarded by this
+        private Thread thread;
+        private boolean cancelled = false;
+
+        Calculation(Request request, BufferedImage src) {
+            this.request = request;
+            this.src = src;
+        }
+
+        @Override
+        public void run() {
+            boolean start;
+            synchronized (this) {
+                start = !cancelled;
+                if (start) {
+                    thread = Thread.currentThread();
+                }
+            }
+            if (start) {
+                calculate();
+            }
+            EventQueue.invokeLater(() -> calculationDone(this));
+        }
+
+        private void calculate() {
+            startTime = System.nanoTime();
+            try {
+                GUIUtils.runWithBusyCursor(request.busyCursorParent, () -> {
+                    if (request.filter.supportsProxyPreview()) {
+                        calculateProxy();
+                    }
+                    result = request.filter.transformImage(src);
+                });
+            } catch (CancellationException e) {
+                // a newer request arrived
+                result = null;
+            } catch (Throwable e) {
+                error = e;
+            } finally {
+                synchronized (this) {
+                    thread = null;
+                }
+                // the interrupt of a cancellation must not
+                // affect the next calculation on this thread
+                Thread.interrupted();
+            }
+        }
+
+        private void calculateProxy() {
+            int width = src.getWidth();
+            int height = src.getHeight();
+            double scale = Math.sqrt(PROXY_PIXELS / ((double) width * height));
+            if (scale > MAX_PROXY_SCALE) {
+                return;
+            }
+            int proxyWidth = Math.max(1, (int) (width * scale));
+            int proxyHeight = Math.max(1, (int) (height * scale));
+
+            BufferedImage proxy = ImageUtils.getFasterScaledInstance(
+                    src, proxyWidth, proxyHeight, VALUE_INTERPOLATION_BILINEAR);
+            BufferedImage proxyResult = request.filter.transformProxy(proxy, scale);
+            if (proxyResult == proxy || Thread.currentThread().isInterrupted()) {
+                // nothing to show, or it is already outdated
+                return;
+            }
+
+            // the preview must have the size of the real image
+            BufferedImage upscaled = ImageUtils.getFasterScaledInstance(
+                    proxyResult, width, height, VALUE_INTERPOLATION_BILINEAR);
+            EventQueue.invokeLater(() -> proxyCalculated(this, upscaled));
+        }
+
+        /**
+         * Interrupts the thread only while it works on this calculation.
+         * Filters that run their work through the ThreadPool stop
+         * early, the others finish, but their result is ignored.
+         */
+        synchronized void cancel() {
+            cancelled = true;
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        void waitUntilDone() {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // can't happen, the exceptions are caught in calculate()
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void showResult() {
+            if (cancelled) {
+                return;
+            }
+            Filter filter = request.filter;
+            if (error != null) {
+                filter.handleException(request.dr, error);
+            } else if (result != null) {
+                request.dr.changePreviewImage(result, filter.getName(), PREVIEWING);
+                filter.runFinished(startTime);
+            }
+        }
+    }
+}
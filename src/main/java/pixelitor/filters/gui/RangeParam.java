@@ -28,6 +28,7 @@ import javax.swing.event.EventListenerList;
 import java.awt.FlowLayout;
 import java.awt.Rectangle;
 import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
 import static java.lang.String.format;
 import static pixelitor.filters.gui.RandomizePolicy.ALLOW_RANDOMIZE;
@@ -39,7 +40,7 @@ import static pixelitor.gui.utils.SliderSpinner.TextPosition.NONE;
  * Suitable as the model of a JSlider (but usually used as a model of
  * an entire SliderSpinner)
  */
-public class RangeParam extends AbstractFilterParam implements BoundedRangeModel {
+public class RangeParam extends AbstractFilterParam implements BoundedRangeModel, ParsableParam {
     private int minValue;
     private int maxValue;
     private int defaultValue;
@@ -61,6 +62,14 @@ public class RangeParam extends AbstractFilterParam implements BoundedRangeModel
     private boolean adjustMaxAccordingToImage = false;
     private double maxToImageSizeRatio;
 
+    // true if the value is a distance measured in pixels, such as a radius
+    private boolean scaleDependent = false;
+
+    // the scale of the image transformed on the current thread relative
+    // to the real image, for example when calculating a quick preview
+    private static final ThreadLocal<Double> imageScale
+            = ThreadLocal.withInitial(() -> 1.0);
+
     public RangeParam(String name, int min, int def, int max) {
         this(name, min, def, max, true, BORDER);
     }
@@ -226,14 +235,17 @@ public class RangeParam extends AbstractFilterParam implements BoundedRangeModel
 
     @Override
     public int getValue() {
-        return (int) value;
+        return (int) getValueAsDouble();
     }
 
     public float getValueAsFloat() {
-        return (float) value;
+        return (float) getValueAsDouble();
     }
 
     public double getValueAsDouble() {
+        if (scaleDependent) {
+            return value * imageScale.get();
+        }
         return value;
     }
 
@@ -359,11 +371,45 @@ public class RangeParam extends AbstractFilterParam implements BoundedRangeModel
         return this;
     }
 
+    /**
+     * Marks the value as a distance in pixels, which
+     * must be scaled together with the image
+     */
+    public RangeParam withScaleDependence() {
+        scaleDependent = true;
+        return this;
+    }
+
+    public boolean isScaleDependent() {
+        return scaleDependent;
+    }
+
+    /**
+     * Runs the given task on the current thread so that the
+     * scale-dependent values are multiplied by the given scale.
+     */
+    public static <T> T supplyWithImageScale(double scale, Supplier<T> task) {
+        imageScale.set(scale);
+        try {
+            return task.get();
+        } finally {
+            imageScale.remove();
+        }
+    }
+
     @Override
     public boolean canBeAnimated() {
         return true;
     }
 
+    /**
+     * Accepts a number, which is clamped into the allowed range
+     */
+    @Override
+    public void setValueFromString(String s) {
+        setValue(Double.parseDouble(s.trim()), false);
+    }
+
     @Override
     public ParamState copyState() {
         return new RPState(value);
@@ -396,6 +442,23 @@ public class RangeParam extends AbstractFilterParam implements BoundedRangeModel
         public double getValue() {
             return value;
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            RPState other = (RPState) o;
+            return value == other.value;
+        }
+
+        @Override
+        public int hashCode() {
+            return Double.hashCode(value);
+        }
     }
 
     @Override
@@ -22,6 +22,8 @@ import pixelitor.tools.shapes.BasicStrokeJoin;
 import pixelitor.tools.shapes.ShapeType;
 import pixelitor.tools.shapes.StrokeType;
 
+import java.util.Objects;
+
 /**
  * Represents the configuration of a stroke.
  * It also functions as the {@link ParamState} of {@link StrokeParam}
@@ -73,4 +75,26 @@ public class StrokeSettings implements ParamState<StrokeSettings> {
     public boolean isDashed() {
         return dashed;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        StrokeSettings other = (StrokeSettings) o;
+        return width == other.width
+                && dashed == other.dashed
+                && cap == other.cap
+                && join == other.join
+                && type == other.type
+                && shapeType == other.shapeType;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(width, cap, join, type, shapeType, dashed);
+    }
 }
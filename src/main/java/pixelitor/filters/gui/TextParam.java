@@ -28,7 +28,7 @@ import static pixelitor.filters.gui.RandomizePolicy.ALLOW_RANDOMIZE;
 /**
  * A filter parameter for text input
  */
-public class TextParam extends AbstractFilterParam {
+public class TextParam extends AbstractFilterParam implements ParsableParam {
     private final String defaultValue;
 
     private boolean trigger = true; // whether the running of the filter should be triggered
@@ -101,6 +101,13 @@ public class TextParam extends AbstractFilterParam {
         return false;
     }
 
+    @Override
+    public void setValueFromString(String s) {
+        trigger = false;
+        setValue(s);
+        trigger = true;
+    }
+
     @Override
     public ParamState copyState() {
         throw new UnsupportedOperationException();
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.impl;
+
+import com.jhlabs.image.WholeImageFilter;
+import pixelitor.filters.Median;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * The implementation of the {@link Median} filter.
+ *
+ * Calculates the median of each channel separately with the
+ * constant time algorithm of Perreault and Hébert: a histogram is
+ * kept for each column of the kernel, and the kernel histogram is
+ * updated by adding the entering and removing the leaving column
+ * histogram. The histograms have a coarse and a fine level, and
+ * the fine level of the kernel histogram is updated lazily, only
+ * for the segment that contains the median.
+ * The pixels outside the image are replaced by the nearest edge pixel.
+ */
+public class HistogramMedianFilter extends WholeImageFilter {
+    private static final int NUM_CHANNELS = 4;
+    private static final int NUM_BINS = 256;
+    private static final int NUM_SEGMENTS = 16;
+    private static final int SEGMENT_SIZE = NUM_BINS / NUM_SEGMENTS;
+
+    private int radius = 1;
+
+    // the column histograms, the counts fit into chars,
+    // because a column has at most 2 * radius + 1 pixels
+    private char[] colFine;
+    private char[] colCoarse;
+
+    // the histograms of the kernel
+    private int[] fine;
+    private int[] coarse;
+
+    // the x coordinate for which a fine segment of the kernel
+    // histogram is up to date, or -1 if it must be recalculated
+    private int[] fineX;
+
+    public HistogramMedianFilter(String filterName) {
+        super(filterName);
+    }
+
+    public void setRadius(int radius) {
+        this.radius = radius;
+    }
+
+    @Override
+    protected int getNeighbourhoodRadius() {
+        return radius;
+    }
+
+    @Override
+    protected int[] filterPixels(int width, int height, int[] inPixels, Rectangle transformedSpace) {
+        pt = createProgressTracker(height);
+
+        int diameter = 2 * radius + 1;
+        // the index of the median in the sorted kernel
+        int medianRank = diameter * diameter / 2;
+
+        colFine = new char[width * NUM_CHANNELS * NUM_BINS];
+        colCoarse = new char[width * NUM_CHANNELS * NUM_SEGMENTS];
+        fine = new int[NUM_CHANNELS * NUM_BINS];
+        coarse = new int[NUM_CHANNELS * NUM_SEGMENTS];
+        fineX = new int[NUM_CHANNELS * NUM_SEGMENTS];
+
+        for (int dy = -radius; dy <= radius; dy++) {
+            addRow(inPixels, width, clamp(dy, height));
+        }
+
+        int[] outPixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            if (y > 0) {
+                removeRow(inPixels, width, clamp(y - radius - 1, height));
+                addRow(inPixels, width, clamp(y + radius, height));
+            }
+
+            Arrays.fill(coarse, 0);
+            for (int dx = -radius; dx <= radius; dx++) {
+                addColumnCoarse(clamp(dx, width));
+            }
+            Arrays.fill(fineX, -1);
+
+            int index = y * width;
+            for (int x = 0; x < width; x++) {
+                if (x > 0) {
+                    int entering = clamp(x + radius, width);
+                    int leaving = clamp(x - radius - 1, width);
+                    if (entering != leaving) {
+                        addColumnCoarse(entering);
+                        removeColumnCoarse(leaving);
+                    }
+                }
+
+                int rgb = 0;
+                for (int ch = 0; ch < NUM_CHANNELS; ch++) {
+                    rgb |= findMedian(ch, x, width, medianRank) << (ch * 8);
+                }
+                outPixels[index + x] = rgb;
+            }
+            pt.unitDone();
+        }
+        finishProgressTracker();
+
+        colFine = null;
+        colCoarse = null;
+        return outPixels;
+    }
+
+    private int findMedian(int ch, int x, int width, int medianRank) {
+        int coarseStart = ch * NUM_SEGMENTS;
+        int count = 0;
+        int segment = 0;
+        while (count + coarse[coarseStart + segment] <= medianRank) {
+            count += coarse[coarseStart + segment];
+            segment++;
+        }
+
+        updateFineSegment(ch, segment, x, width);
+
+        int fineStart = ch * NUM_BINS + segment * SEGMENT_SIZE;
+        int bin = 0;
+        while (count + fine[fineStart + bin] <= medianRank) {
+            count += fine[fineStart + bin];
+            bin++;
+        }
+        return segment * SEGMENT_SIZE + bin;
+    }
+
+    /**
+     * Brings the given segment of the fine kernel histogram up to date
+     * with the kernel at the given x, either by replaying the column changes
+     * since its last update, or, if that would be slower, by summing
+     * the column histograms of the kernel.
+     */
+    private void updateFineSegment(int ch, int segment, int x, int width) {
+        int segmentIndex = ch * NUM_SEGMENTS + segment;
+        int lastX = fineX[segmentIndex];
+        int fineStart = ch * NUM_BINS + segment * SEGMENT_SIZE;
+        int colOffset = ch * NUM_BINS + segment * SEGMENT_SIZE;
+        int colStride = NUM_CHANNELS * NUM_BINS;
+
+        if (lastX < 0 || x - lastX > radius) {
+            Arrays.fill(fine, fineStart, fineStart + SEGMENT_SIZE, 0);
+            for (int dx = -radius; dx <= radius; dx++) {
+                int colStart = clamp(x + dx, width) * colStride + colOffset;
+                for (int i = 0; i < SEGMENT_SIZE; i++) {
+                    fine[fineStart + i] += colFine[colStart + i];
+                }
+            }
+        } else {
+            for (int cx = lastX + 1; cx <= x; cx++) {
+                int entering = clamp(cx + radius, width);
+                int leaving = clamp(cx - radius - 1, width);
+                if (entering == leaving) {
+                    continue;
+                }
+                int enteringStart = entering * colStride + colOffset;
+                int leavingStart = leaving * colStride + colOffset;
+                for (int i = 0; i < SEGMENT_SIZE; i++) {
+                    fine[fineStart + i] += colFine[enteringStart + i] - colFine[leavingStart + i];
+                }
+            }
+        }
+        fineX[segmentIndex] = x;
+    }
+
+    private void addRow(int[] pixels, int width, int y) {
+        int rowStart = y * width;
+        for (int x = 0; x < width; x++) {
+            int rgb = pixels[rowStart + x];
+            for (int ch = 0; ch < NUM_CHANNELS; ch++) {
+                int value = (rgb >>> (ch * 8)) & 0xFF;
+                int histIndex = x * NUM_CHANNELS + ch;
+                colFine[histIndex * NUM_BINS + value]++;
+                colCoarse[histIndex * NUM_SEGMENTS + value / SEGMENT_SIZE]++;
+            }
+        }
+    }
+
+    private void removeRow(int[] pixels, int width, int y) {
+        int rowStart = y * width;
+        for (int x = 0; x < width; x++) {
+            int rgb = pixels[rowStart + x];
+            for (int ch = 0; ch < NUM_CHANNELS; ch++) {
+                int value = (rgb >>> (ch * 8)) & 0xFF;
+                int histIndex = x * NUM_CHANNELS + ch;
+                colFine[histIndex * NUM_BINS + value]--;
+                colCoarse[histIndex * NUM_SEGMENTS + value / SEGMENT_SIZE]--;
+            }
+        }
+    }
+
+    private void addColumnCoarse(int x) {
+        int colStart = x * NUM_CHANNELS * NUM_SEGMENTS;
+        for (int i = 0; i < NUM_CHANNELS * NUM_SEGMENTS; i++) {
+            coarse[i] += colCoarse[colStart + i];
+        }
+    }
+
+    private void removeColumnCoarse(int x) {
+        int colStart = x * NUM_CHANNELS * NUM_SEGMENTS;
+        for (int i = 0; i < NUM_CHANNELS * NUM_SEGMENTS; i++) {
+            coarse[i] -= colCoarse[colStart + i];
+        }
+    }
+
+    private static int clamp(int coord, int size) {
+        if (coord < 0) {
+            return 0;
+        }
+        if (coord >= size) {
+            return size - 1;
+        }
+        return coord;
+    }
+
+    @Override
+    public String toString() {
+        return "Noise/Median";
+    }
+}
@@ -21,11 +21,22 @@ import com.jhlabs.image.WholeImageFilter;
 import pixelitor.filters.Morphology;
 
 import java.awt.Rectangle;
+import java.util.Arrays;
 
 /**
  * The implementation of the {@link Morphology} filter.
+ *
+ * The minimum/maximum over the kernel is calculated with the
+ * van Herk/Gil-Werman algorithm, which needs a constant number
+ * of comparisons per pixel, independently of the radius.
+ * The square kernel is separated into a horizontal and a vertical
+ * running window. The diamond kernel is the union of two squares
+ * rotated by 45 degrees (one for the pixels at an even, and one for
+ * the pixels at an odd distance), which are separated into
+ * running windows along the two diagonals.
  */
 public class MorphologyFilter extends WholeImageFilter {
+    // the radius of the kernel
     private int iterations = 1;
 
     public static final int OP_ERODE = 1;
@@ -36,6 +47,15 @@ public class MorphologyFilter extends WholeImageFilter {
     public static final int KERNEL_SQUARE = 4;
     private int kernel;
 
+    // the value that doesn't change the result of combine,
+    // it is also used for the pixels outside the image
+    private int identity;
+
+    // the line buffers of the running windows
+    private int[] ext;
+    private int[] prefix;
+    private int[] suffix;
+
     public MorphologyFilter(String filterName) {
         super(filterName);
     }
@@ -48,94 +68,203 @@ public class MorphologyFilter extends WholeImageFilter {
         this.op = op;
     }
 
+    /**
+     * Sets the radius of the kernel. The result is the same as
+     * applying the 3x3 version of the kernel the given number of times.
+     */
     public void setIterations(int iterations) {
         this.iterations = iterations;
     }
 
+    @Override
+    protected int getNeighbourhoodRadius() {
+        return iterations;
+    }
+
     @Override
     protected int[] filterPixels(int width, int height, int[] inPixels, Rectangle transformedSpace) {
-        int[] outPixels = new int[width * height];
-        int numPixels = inPixels.length;
-        short[] inA = new short[numPixels];
-        short[] inR = new short[numPixels];
-        short[] inG = new short[numPixels];
-        short[] inB = new short[numPixels];
-
-        pt = createProgressTracker(iterations);
-        for (int it = 0; it < iterations; it++) {
-            if (it > 0) {
-                System.arraycopy(outPixels, 0, inPixels, 0, numPixels);
-            }
-            for (int i = 0; i < numPixels; i++) {
-                int rgb = inPixels[i];
-                inA[i] = (short) ((rgb >> 24) & 0xff);
-                inR[i] = (short) ((rgb >> 16) & 0xff);
-                inG[i] = (short) ((rgb >> 8) & 0xff);
-                inB[i] = (short) (rgb & 0xff);
-            }
+        identity = op == OP_DILATE ? 0 : 0xFF_FF_FF_FF;
 
-            int index = 0;
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < width; x++) {
-                    short a = 0xff;
-                    short r = 0xff;
-                    short g = 0xff;
-                    short b = 0xff;
-
-                    if (op == OP_DILATE) {
-                        r = 0;
-                        g = 0;
-                        b = 0;
-                    }
-
-                    for (int dy = -1; dy <= 1; dy++) {
-                        int iy = y + dy;
-                        if (0 <= iy && iy < height) {
-                            int xOffset = iy * width;
-                            for (int dx = -1; dx <= 1; dx++) {
-                                if (kernel == KERNEL_DIAMOND) {
-                                    if (dx == dy && dx != 0) {
-                                        continue;
-                                    }
-                                    if (dx == -dy && dx != 0) {
-                                        continue;
-                                    }
-                                }
-
-                                int ix = x + dx;
-                                if (0 <= ix && ix < width) {
-                                    int comparedIndex = xOffset + ix;
-
-                                    if (op == OP_ERODE) {
-                                        a = min(a, inA[comparedIndex]);
-                                        r = min(r, inR[comparedIndex]);
-                                        g = min(g, inG[comparedIndex]);
-                                        b = min(b, inB[comparedIndex]);
-                                    } else {
-                                        a = max(a, inA[comparedIndex]);
-                                        r = max(r, inR[comparedIndex]);
-                                        g = max(g, inG[comparedIndex]);
-                                        b = max(b, inB[comparedIndex]);
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    outPixels[index++] = (a << 24) | (r << 16) | (g << 8) | b;
-                }
+        pt = createProgressTracker(height);
+        int[] outPixels;
+        if (kernel == KERNEL_DIAMOND) {
+            outPixels = filterDiamond(width, height, inPixels);
+        } else {
+            outPixels = filterSquare(width, height, inPixels);
+        }
+        if (op == OP_DILATE) {
+            // the dilation always results in opaque pixels
+            for (int i = 0; i < outPixels.length; i++) {
+                outPixels[i] |= 0xFF_00_00_00;
             }
-            pt.unitDone();
         }
         finishProgressTracker();
+
+        ext = null;
+        prefix = null;
+        suffix = null;
+        return outPixels;
+    }
+
+    private int[] filterSquare(int width, int height, int[] inPixels) {
+        int r = iterations;
+        allocLineBuffers(Math.max(width, height), 2 * r + 1);
+
+        int[] tmp = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            slide(inPixels, tmp, y * width, 1, width, -r, r);
+        }
+        passDone(height, 1, 2);
+
+        int[] outPixels = new int[width * height];
+        for (int x = 0; x < width; x++) {
+            slide(tmp, outPixels, x, width, height, -r, r);
+        }
+        passDone(height, 2, 2);
+
+        return outPixels;
+    }
+
+    private int[] filterDiamond(int width, int height, int[] inPixels) {
+        int r = iterations;
+
+        // the diamond is the union of the rotated squares
+        // {a * (1, 1) + b * (1, -1)} with a, b in [evenMin, evenMax], and
+        // {(1, 0) + a * (1, 1) + b * (1, -1)} with a, b in [oddMin, oddMax]
+        int evenMin = -(r / 2);
+        int evenMax = r / 2;
+        int oddMin = -((r + 1) / 2);
+        int oddMax = (r - 1) / 2;
+
+        // the padding makes sure that all the intermediate
+        // results needed for the image pixels are calculated
+        int pad = r + 1;
+        int pw = width + 2 * pad;
+        int ph = height + 2 * pad;
+        int[] padded = new int[pw * ph];
+        Arrays.fill(padded, identity);
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(inPixels, y * width, padded, (y + pad) * pw + pad, width);
+        }
+        allocLineBuffers(Math.max(pw, ph), oddMax - oddMin + 1);
+
+        int[] tmp = new int[pw * ph];
+        int[] even = new int[pw * ph];
+        slideAntiDiagonals(padded, tmp, pw, ph, evenMin, evenMax);
+        passDone(height, 1, 4);
+        slideDiagonals(tmp, even, pw, ph, evenMin, evenMax);
+        passDone(height, 2, 4);
+
+        int[] odd = padded; // the padded input is not needed after this
+        slideAntiDiagonals(padded, tmp, pw, ph, oddMin, oddMax);
+        passDone(height, 3, 4);
+        slideDiagonals(tmp, odd, pw, ph, oddMin, oddMax);
+        passDone(height, 4, 4);
+
+        int[] outPixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            int outIndex = y * width;
+            int paddedIndex = (y + pad) * pw + pad;
+            for (int x = 0; x < width; x++) {
+                outPixels[outIndex + x] = combine(even[paddedIndex + x], odd[paddedIndex + x + 1]);
+            }
+        }
         return outPixels;
     }
 
-    private static short min(short a, short b) {
-        return (a <= b) ? a : b;
+    /**
+     * Runs the window along the lines going in the (1, 1) direction
+     */
+    private void slideDiagonals(int[] src, int[] dst, int w, int h, int min, int max) {
+        int step = w + 1;
+        for (int y = 0; y < h; y++) {
+            slide(src, dst, y * w, step, Math.min(w, h - y), min, max);
+        }
+        for (int x = 1; x < w; x++) {
+            slide(src, dst, x, step, Math.min(w - x, h), min, max);
+        }
+    }
+
+    /**
+     * Runs the window along the lines going in the (1, -1) direction
+     */
+    private void slideAntiDiagonals(int[] src, int[] dst, int w, int h, int min, int max) {
+        int step = 1 - w;
+        for (int y = 0; y < h; y++) {
+            slide(src, dst, y * w, step, Math.min(w, y + 1), min, max);
+        }
+        for (int x = 1; x < w; x++) {
+            slide(src, dst, (h - 1) * w + x, step, Math.min(w - x, h), min, max);
+        }
+    }
+
+    private void allocLineBuffers(int maxLength, int maxWindow) {
+        int size = maxLength + 2 * maxWindow;
+        ext = new int[size];
+        prefix = new int[size];
+        suffix = new int[size];
+    }
+
+    /**
+     * Calculates dst[i] = combine(src[i + min], ..., src[i + max]) for the
+     * line that starts at the given index and has the given step and length.
+     * The pixels outside the line are considered to be the identity.
+     */
+    private void slide(int[] src, int[] dst, int start, int step, int length, int min, int max) {
+        int windowSize = max - min + 1;
+        int extLength = length + windowSize - 1;
+        int numBlocks = (extLength + windowSize - 1) / windowSize;
+        int blocksLength = numBlocks * windowSize;
+
+        // shift the line so that the window of the
+        // output pixel i starts at ext[i]
+        for (int t = 0; t < blocksLength; t++) {
+            int i = t + min;
+            ext[t] = (i >= 0 && i < length) ? src[start + i * step] : identity;
+        }
+
+        // the running values from the start and from the end of each block
+        for (int blockStart = 0; blockStart < blocksLength; blockStart += windowSize) {
+            int blockEnd = blockStart + windowSize - 1;
+            prefix[blockStart] = ext[blockStart];
+            for (int t = blockStart + 1; t <= blockEnd; t++) {
+                prefix[t] = combine(prefix[t - 1], ext[t]);
+            }
+            suffix[blockEnd] = ext[blockEnd];
+            for (int t = blockEnd - 1; t >= blockStart; t--) {
+                suffix[t] = combine(suffix[t + 1], ext[t]);
+            }
+        }
+
+        // each window is covered by the end of
+        // a block and by the start of the next one
+        for (int i = 0; i < length; i++) {
+            dst[start + i * step] = combine(suffix[i], prefix[i + windowSize - 1]);
+        }
     }
 
-    private static short max(short a, short b) {
-        return (a >= b) ? a : b;
+    private void passDone(int height, int pass, int numPasses) {
+        pt.unitsDone(height * pass / numPasses - height * (pass - 1) / numPasses);
+    }
+
+    private int combine(int rgb1, int rgb2) {
+        int a1 = (rgb1 >>> 24);
+        int r1 = (rgb1 >>> 16) & 0xFF;
+        int g1 = (rgb1 >>> 8) & 0xFF;
+        int b1 = rgb1 & 0xFF;
+
+        int a2 = (rgb2 >>> 24);
+        int r2 = (rgb2 >>> 16) & 0xFF;
+        int g2 = (rgb2 >>> 8) & 0xFF;
+        int b2 = rgb2 & 0xFF;
+
+        if (op == OP_ERODE) {
+            return Math.min(a1, a2) << 24 | Math.min(r1, r2) << 16
+                    | Math.min(g1, g2) << 8 | Math.min(b1, b2);
+        } else {
+            return Math.max(a1, a2) << 24 | Math.max(r1, r2) << 16
+                    | Math.max(g1, g2) << 8 | Math.max(b1, b2);
+        }
     }
 
     @Override
@@ -143,4 +272,3 @@ public class MorphologyFilter extends WholeImageFilter {
         return "Blur/Minimum";
     }
 }
-
@@ -72,7 +72,7 @@ public class JHCells extends ParametrizedFilter {
                 gridRandomness,
                 gradient,
                 darkLightBalance,
-                scale.withAdjustedRange(0.5),
+                scale.withAdjustedRange(0.5).withScaleDependence(),
                 stretch,
                 angle
         ).withAction(new ReseedNoiseFilterAction(e -> {
@@ -128,4 +128,9 @@ public class JHCells extends ParametrizedFilter {
         dest = filter.filter(src, dest);
         return dest;
     }
+
+    @Override
+    public boolean supportsProxyPreview() {
+        return true;
+    }
 }
\ No newline at end of file
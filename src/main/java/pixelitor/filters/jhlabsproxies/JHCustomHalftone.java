@@ -39,7 +39,8 @@ public class JHCustomHalftone extends JHMaskedHalftone {
     protected BufferedImage createMaskImage(BufferedImage src) {
         Optional<Composition> opt = ImageComponents.findCompositionByName("Untitled1");
         if (opt.isPresent()) {
-            return opt.get().getCompositeImage();
+            // the composite image of the other composition is updated in place
+            return ImageUtils.copyImage(opt.get().getCompositeImage());
         }
         // to avoid exceptions if in an auto test
         // this is selected as a random filter
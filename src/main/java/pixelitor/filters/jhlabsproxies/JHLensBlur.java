@@ -44,7 +44,7 @@ public class JHLensBlur extends ParametrizedFilter {
         super(ShowOriginal.YES);
 
         setParams(
-                amount,
+                amount.withScaleDependence(),
                 numberOfSides,
                 bloomFactor,
                 bloomThreshold,
@@ -76,4 +76,9 @@ public class JHLensBlur extends ParametrizedFilter {
 
         return dest;
     }
+
+    @Override
+    public boolean supportsProxyPreview() {
+        return true;
+    }
 }
\ No newline at end of file
@@ -75,6 +75,12 @@ public class JHPlasma extends ParametrizedFilter {
         }));
     }
 
+    @Override
+    protected boolean canBeCopied() {
+        // the seed is kept in the filter
+        return false;
+    }
+
     @Override
     public BufferedImage doTransform(BufferedImage src, BufferedImage dest) {
 
@@ -17,10 +17,12 @@
 
 package pixelitor.filters.levels;
 
+import pixelitor.filters.RGBPixelOp;
 import pixelitor.filters.gui.FilterGUI;
 import pixelitor.filters.gui.FilterWithGUI;
 import pixelitor.filters.levels.gui.LevelsGUI;
 import pixelitor.filters.lookup.FastLookupOp;
+import pixelitor.filters.lookup.LookupPixelOp;
 import pixelitor.layers.Drawable;
 import pixelitor.utils.RandomUtils;
 
@@ -74,4 +76,23 @@ public class Levels extends FilterWithGUI {
     public boolean supportsGray() {
         return false;
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean isPointOperation() {
+        return true;
+    }
+
+    @Override
+    public RGBPixelOp getPixelOp() {
+        if (rgbLookup == null) {
+            return null;
+        }
+        return LookupPixelOp.from(rgbLookup.getLookupOp());
+    }
+
+    @Override
+    public Object getSettingsKey() {
+        // a new lookup is set every time the settings change
+        return rgbLookup;
+    }
+}
@@ -19,6 +19,7 @@ package pixelitor.filters.lookup;
 
 import com.jhlabs.image.PixelUtils;
 import pixelitor.filters.ParametrizedFilter;
+import pixelitor.filters.RGBPixelOp;
 import pixelitor.filters.gui.IntChoiceParam;
 import pixelitor.filters.gui.IntChoiceParam.Value;
 import pixelitor.filters.gui.RangeParam;
@@ -78,8 +79,7 @@ public class ColorBalance extends ParametrizedFilter {
             return src;
         }
 
-        RGBLookup rgbLookup = new LookupHelper(cr, mg, yb, affect.getValue())
-                .getLookup();
+        RGBLookup rgbLookup = createLookup(cr, mg, yb);
 
         BufferedImageOp filterOp = new FastLookupOp(
                 (ShortLookupTable) rgbLookup.getLookupOp());
@@ -89,6 +89,23 @@ public class ColorBalance extends ParametrizedFilter {
         return dest;
     }
 
+    private RGBLookup createLookup(float cr, float mg, float yb) {
+        return new LookupHelper(cr, mg, yb, affect.getValue())
+                .getLookup();
+    }
+
+    @Override
+    public RGBPixelOp getPixelOp() {
+        float cr = cyanRed.getValueAsFloat();
+        float mg = magentaGreen.getValueAsFloat();
+        float yb = yellowBlue.getValueAsFloat();
+
+        if ((cr == 0) && (mg == 0) && (yb == 0)) {
+            return LookupPixelOp.createIdentity();
+        }
+        return LookupPixelOp.from(createLookup(cr, mg, yb).getLookupOp());
+    }
+
     private static class LookupHelper {
         private final float cyanRed;
         private final float magentaGreen;
@@ -183,4 +200,9 @@ public class ColorBalance extends ParametrizedFilter {
     public boolean supportsGray() {
         return false;
     }
+
+    @Override
+    public boolean isPointOperation() {
+        return true;
+    }
 }
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.lookup;
+
+import pixelitor.ThreadPool;
+import pixelitor.filters.Filter;
+import pixelitor.filters.RGBPixelOp;
+import pixelitor.utils.ImageUtils;
+import pixelitor.utils.ProgressTracker;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Runs a sequence of point operation filters (see {@link Filter#getPixelOp()})
+ * in a single parallel pass over the pixels, without intermediate images.
+ * The lookup table based filters are merged into a single lookup table,
+ * the others are chained per pixel.
+ *
+ * The pixel ops work with non-premultiplied values, so a premultiplied
+ * image is un-premultiplied and premultiplied only once for the whole
+ * sequence, which is also more precise than running the filters one by one.
+ */
+public class FusedPointFilter extends Filter {
+    private final List<Filter> filters;
+
+    public FusedPointFilter(List<Filter> filters) {
+        this.filters = filters;
+    }
+
+    /**
+     * Replaces the runs of at least two consecutive filters that
+     * have pixel ops with {@link FusedPointFilter}s.
+     */
+    public static List<Filter> fuse(List<Filter> filters) {
+        List<Filter> fused = new ArrayList<>(filters.size());
+        List<Filter> run = new ArrayList<>();
+        for (Filter filter : filters) {
+            if (filter.getPixelOp() != null) {
+                run.add(filter);
+            } else {
+                addRun(run, fused);
+                run = new ArrayList<>();
+                fused.add(filter);
+            }
+        }
+        addRun(run, fused);
+        return fused;
+    }
+
+    private static void addRun(List<Filter> run, List<Filter> fused) {
+        if (run.size() > 1) {
+            fused.add(new FusedPointFilter(run));
+        } else {
+            fused.addAll(run);
+        }
+    }
+
+    @Override
+    protected BufferedImage transform(BufferedImage src, BufferedImage dest) {
+        RGBPixelOp pixelOp = getPixelOp();
+        if (pixelOp == null) {
+            // the settings of a filter changed since the fusing
+            return transformOneByOne(src);
+        }
+        int width = src.getWidth();
+        int height = src.getHeight();
+        if (!ImageUtils.hasPackedIntArray(src)
+                || src.getRaster().getDataBuffer().getSize() != width * height) {
+            // the pixels are accessed directly, so other image
+            // types and sub-images are converted first
+            src = toPackedIntImage(src);
+            dest = ImageUtils.createImageWithSameCM(src);
+        }
+        int[] srcData = ImageUtils.getPixelsAsArray(src);
+        int[] destData = ImageUtils.getPixelsAsArray(dest);
+
+        boolean premultiplied = src.isAlphaPremultiplied();
+        ThreadPool.processRows(height, width, ProgressTracker.NULL_TRACKER,
+                (startRow, endRow) -> filterPixels(pixelOp, srcData, destData,
+                        startRow * width, endRow * width, premultiplied));
+        return dest;
+    }
+
+    private static BufferedImage toPackedIntImage(BufferedImage src) {
+        BufferedImage img = new BufferedImage(src.getWidth(), src.getHeight(), TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        g.drawImage(src, 0, 0, null);
+        g.dispose();
+        return img;
+    }
+
+    private BufferedImage transformOneByOne(BufferedImage src) {
+        BufferedImage img = src;
+        for (Filter filter : filters) {
+            img = filter.transformImage(img);
+        }
+        return img;
+    }
+
+    private static void filterPixels(RGBPixelOp pixelOp, int[] srcData, int[] destData,
+                                     int start, int end, boolean premultiplied) {
+        // the lookup tables are accessed directly, because
+        // most of the time the whole sequence is a single lookup
+        LookupPixelOp lookup = null;
+        int[] redTable = null;
+        int[] greenTable = null;
+        int[] blueTable = null;
+        if (pixelOp instanceof LookupPixelOp) {
+            lookup = (LookupPixelOp) pixelOp;
+            redTable = lookup.getRed();
+            greenTable = lookup.getGreen();
+            blueTable = lookup.getBlue();
+        }
+
+        for (int i = start; i < end; i++) {
+            int rgb = srcData[i];
+            int a = (rgb >>> 24) & 0xFF;
+            if (premultiplied && a == 0) {
+                destData[i] = 0;
+                continue;
+            }
+            int r = (rgb >>> 16) & 0xFF;
+            int g = (rgb >>> 8) & 0xFF;
+            int b = rgb & 0xFF;
+
+            boolean partlyTransparent = premultiplied && a != 255;
+            if (partlyTransparent) {
+                float f = 255.0f / a;
+                r = Math.min((int) (r * f), 255);
+                g = Math.min((int) (g * f), 255);
+                b = Math.min((int) (b * f), 255);
+            }
+
+            int result;
+            if (lookup != null) {
+                result = (a << 24) | (redTable[r] << 16) | (greenTable[g] << 8) | blueTable[b];
+            } else {
+                result = pixelOp.changeRGB(a, r, g, b);
+            }
+
+            if (premultiplied) {
+                int newA = (result >>> 24) & 0xFF;
+                if (newA != 255) {
+                    float f = newA * (1.0f / 255.0f);
+                    int newR = (int) (((result >>> 16) & 0xFF) * f);
+                    int newG = (int) (((result >>> 8) & 0xFF) * f);
+                    int newB = (int) ((result & 0xFF) * f);
+                    result = (newA << 24) | (newR << 16) | (newG << 8) | newB;
+                }
+            }
+            destData[i] = result;
+        }
+    }
+
+    /**
+     * Returns the pixel ops of all the filters merged into one,
+     * or null if one of the filters has no pixel op.
+     */
+    @Override
+    public RGBPixelOp getPixelOp() {
+        RGBPixelOp fused = null;
+        for (Filter filter : filters) {
+            RGBPixelOp pixelOp = filter.getPixelOp();
+            if (pixelOp == null) {
+                return null;
+            }
+            fused = fused == null ? pixelOp : fused.andThen(pixelOp);
+        }
+        return fused;
+    }
+
+    @Override
+    public boolean isPointOperation() {
+        return true;
+    }
+
+    @Override
+    public Object getSettingsKey() {
+        List<Object> keys = new ArrayList<>(2 * filters.size());
+        for (Filter filter : filters) {
+            Object key = filter.getSettingsKey();
+            if (key == null) {
+                return null;
+            }
+            // different filters could have equal settings
+            keys.add(filter.getClass());
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    @Override
+    public boolean supportsGray() {
+        return false;
+    }
+
+    @Override
+    public String getName() {
+        return filters.stream()
+                .map(Filter::getName)
+                .collect(joining(" + "));
+    }
+
+    public List<Filter> getFilters() {
+        return filters;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.lookup;
+
+import pixelitor.filters.RGBPixelOp;
+
+import java.awt.image.LookupTable;
+import java.awt.image.ShortLookupTable;
+
+/**
+ * An {@link RGBPixelOp} that maps each color channel independently
+ * through a lookup table. Two such ops can be merged into one
+ * lookup table, therefore a sequence of them costs as much as one.
+ */
+public class LookupPixelOp implements RGBPixelOp {
+    private static final int TABLE_SIZE = 256;
+
+    private final int[] red;
+    private final int[] green;
+    private final int[] blue;
+
+    public LookupPixelOp(int[] red, int[] green, int[] blue) {
+        assert red.length == TABLE_SIZE;
+        assert green.length == TABLE_SIZE;
+        assert blue.length == TABLE_SIZE;
+
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
+    }
+
+    /**
+     * Creates an op from a (one- or three-band) {@link ShortLookupTable}
+     */
+    public static LookupPixelOp from(LookupTable lookupTable) {
+        short[][] data = ((ShortLookupTable) lookupTable).getTable();
+        int[] red = toIntTable(data[0]);
+        if (data.length < 3) {
+            return new LookupPixelOp(red, red, red);
+        }
+        return new LookupPixelOp(red, toIntTable(data[1]), toIntTable(data[2]));
+    }
+
+    private static int[] toIntTable(short[] data) {
+        int[] table = new int[TABLE_SIZE];
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            table[i] = Math.min(data[i] & 0xFFFF, 255);
+        }
+        return table;
+    }
+
+    public static LookupPixelOp createIdentity() {
+        int[] table = new int[TABLE_SIZE];
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            table[i] = i;
+        }
+        return new LookupPixelOp(table, table, table);
+    }
+
+    public static LookupPixelOp createInvert() {
+        int[] table = new int[TABLE_SIZE];
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            table[i] = 255 - i;
+        }
+        return new LookupPixelOp(table, table, table);
+    }
+
+    @Override
+    public int changeRGB(int a, int r, int g, int b) {
+        return (a << 24) | (red[r] << 16) | (green[g] << 8) | blue[b];
+    }
+
+    @Override
+    public RGBPixelOp andThen(RGBPixelOp after) {
+        if (!(after instanceof LookupPixelOp)) {
+            return RGBPixelOp.super.andThen(after);
+        }
+        LookupPixelOp next = (LookupPixelOp) after;
+        int[] newRed = new int[TABLE_SIZE];
+        int[] newGreen = new int[TABLE_SIZE];
+        int[] newBlue = new int[TABLE_SIZE];
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            newRed[i] = next.red[red[i]];
+            newGreen[i] = next.green[green[i]];
+            newBlue[i] = next.blue[blue[i]];
+        }
+        return new LookupPixelOp(newRed, newGreen, newBlue);
+    }
+
+    int[] getRed() {
+        return red;
+    }
+
+    int[] getGreen() {
+        return green;
+    }
+
+    int[] getBlue() {
+        return blue;
+    }
+}
@@ -18,6 +18,7 @@
 package pixelitor.filters.lookup;
 
 import pixelitor.filters.Filter;
+import pixelitor.filters.RGBPixelOp;
 import pixelitor.utils.ImageUtils;
 
 import java.awt.image.BufferedImage;
@@ -51,4 +52,23 @@ public class Luminosity extends Filter {
     public boolean supportsGray() {
         return false;
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean isPointOperation() {
+        return true;
+    }
+
+    @Override
+    public RGBPixelOp getPixelOp() {
+        return (a, r, g, b) -> {
+            int lum = (int) LuminanceLookup.from(r, g, b);
+            return (a << 24) | (lum << 16) | (lum << 8) | lum;
+        };
+    }
+
+    @Override
+    public Object getSettingsKey() {
+        // there are no settings
+        return getClass();
+    }
+}
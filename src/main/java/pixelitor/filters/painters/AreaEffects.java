@@ -161,4 +161,10 @@ public class AreaEffects implements Serializable, ParamState<AreaEffects> {
         // TODO add animation support
         return null;
     }
+
+    @Override
+    public boolean hasValueEquality() {
+        // the effects can't be compared by their values
+        return false;
+    }
 }
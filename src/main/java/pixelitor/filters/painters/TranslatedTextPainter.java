@@ -27,6 +27,9 @@ import java.awt.Paint;
 import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
 
 /**
  * A TextPainter that can have an extra translation (so that text
@@ -137,6 +140,27 @@ public class TranslatedTextPainter extends TextPainter {
         g.setTransform(origTX);
     }
 
+    /**
+     * Calculates the layout of the text without painting it,
+     * and returns the same bounding box that painting
+     * on an untransformed image graphics would calculate.
+     */
+    public Rectangle calcBoundingBox(int width, int height) {
+        BufferedImage tmp = new BufferedImage(1, 1, TYPE_INT_ARGB);
+        Graphics2D g = tmp.createGraphics();
+        configureGraphics(g);
+        Font font = calculateFont(null);
+        if (font != null) {
+            g.setFont(font);
+        }
+        FontMetrics metrics = g.getFontMetrics(g.getFont());
+        String text = calculateText(null);
+        boundingBox = calculateLayout(metrics.stringWidth(text), metrics.getHeight(), width, height);
+        g.dispose();
+
+        return getBoundingBox();
+    }
+
     @Override
     protected String calculateText(Object component) {
         return getText();
@@ -19,14 +19,13 @@ package pixelitor.gui;
 
 import pixelitor.Composition;
 import pixelitor.utils.ActiveImageChangeListener;
-import pixelitor.utils.ImageUtils;
+import pixelitor.utils.Histogram;
 
 import javax.swing.*;
 import java.awt.BorderLayout;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.GridLayout;
-import java.awt.image.BufferedImage;
 import java.util.Objects;
 
 import static java.awt.Color.BLUE;
@@ -45,7 +44,6 @@ public class HistogramsPanel extends JPanel implements ActiveImageChangeListener
     private final HistogramPainter red;
     private final HistogramPainter green;
     private final HistogramPainter blue;
-    private static final int HISTOGRAM_RESOLUTION = 256;
 
     private boolean logarithmic;
 
@@ -112,40 +110,14 @@ public class HistogramsPanel extends JPanel implements ActiveImageChangeListener
         if (!isShown()) {
             return;
         }
-        BufferedImage image = comp.getCompositeImage();
-
-        int[] reds = new int[HISTOGRAM_RESOLUTION];
-        int[] blues = new int[HISTOGRAM_RESOLUTION];
-        int[] greens = new int[HISTOGRAM_RESOLUTION];
-
-        int[] data = ImageUtils.getPixelsAsArray(image);
-        for (int rgb : data) {
-            int a = (rgb >>> 24) & 0xFF;
-            if (a > 0) {
-                int r = (rgb >>> 16) & 0xFF;
-                int g = (rgb >>> 8) & 0xFF;
-                int b = (rgb) & 0xFF;
-
-                reds[r]++;
-                greens[g]++;
-                blues[b]++;
-            }
-        }
-
+        Histogram histogram = comp.getHistogram();
         if (logarithmic) {
-            for (int i = 0; i < HISTOGRAM_RESOLUTION; i++) {
-                // Add one before taking the logarithm to avoid calculating log(0)
-                // Note that log(1) = 0, which is just perfect
-                // Also multiply with a big number to avoid rounding errors
-                reds[i] = (int) (1000.0 * (Math.log(reds[i] + 1)));
-                greens[i] = (int) (1000.0 * (Math.log(greens[i] + 1)));
-                blues[i] = (int) (1000.0 * (Math.log(blues[i] + 1)));
-            }
+            histogram = histogram.toLogarithmic();
         }
 
-        red.updateData(reds);
-        green.updateData(greens);
-        blue.updateData(blues);
+        red.updateData(histogram.getRed());
+        green.updateData(histogram.getGreen());
+        blue.updateData(histogram.getBlue());
         repaint();
     }
 }
@@ -62,7 +62,6 @@ import java.awt.event.MouseMotionListener;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.awt.image.BufferedImage;
 
 import static java.awt.Color.BLACK;
 import static java.lang.String.format;
@@ -362,8 +361,7 @@ public class ImageComponent extends JComponent
             assert mask != null : "no mask in " + maskViewMode;
             mask.paintLayerOnGraphics(g2, true);
         } else {
-            BufferedImage compositeImage = comp.getCompositeImage();
-            ImageUtils.drawImageWithClipping(g2, compositeImage);
+            comp.paintCompositeImage(g2, viewScale);
 
             if (maskViewMode.showRuby()) {
                 LayerMask mask = comp.getActiveLayer().getMask();
@@ -302,7 +302,7 @@ public class Navigator extends JComponent
         AffineTransform origTX = g2.getTransform();
 
         g2.scale(imgScalingRatio, imgScalingRatio);
-        g2.drawImage(ic.getComp().getCompositeImage(), 0, 0, null);
+        ic.getComp().paintCompositeImage(g2, imgScalingRatio);
         g2.setTransform(origTX);
 
         g2.setStroke(VIEW_BOX_STROKE);
@@ -35,6 +35,7 @@ import static java.lang.Integer.parseInt;
  */
 public class PreferencesPanel extends JPanel {
     private final JTextField undoLevelsTF;
+    private final JTextField undoMemoryTF;
     private final JComboBox<IntChoiceParam.Value> thumbSizeCB;
 
     private PreferencesPanel() {
@@ -56,6 +57,12 @@ public class PreferencesPanel extends JPanel {
         gbh.addLabelWithControl("Undo/Redo Levels: ",
                 TextFieldValidator.createIntOnlyLayerFor(undoLevelsTF));
 
+        undoMemoryTF = new JTextField(5);
+        undoMemoryTF.setName("undoMemoryTF");
+        undoMemoryTF.setText(String.valueOf(History.getUndoMemoryLimit()));
+        gbh.addLabelWithControl("Undo Memory Limit (MB): ",
+                TextFieldValidator.createIntOnlyLayerFor(undoMemoryTF));
+
         IntChoiceParam.Value[] thumbSizes = {
                 new IntChoiceParam.Value("24x24 pixels", 24),
                 new IntChoiceParam.Value("48x48 pixels", 48),
@@ -84,20 +91,41 @@ public class PreferencesPanel extends JPanel {
             couldParse = false;
         }
 
-        if (couldParse) {
-            History.setUndoLevels(undoLevels);
-            return true;
-        } else {
+        if (!couldParse) {
             Dialogs.showErrorDialog(d, "Error",
                     "<html>The <b>Undo/Redo Levels</b> must be an integer.");
             return false;
         }
+
+        int undoMemory = 0;
+        try {
+            undoMemory = getUndoMemory();
+        } catch (NumberFormatException ex) {
+            couldParse = false;
+        }
+
+        if (!couldParse) {
+            Dialogs.showErrorDialog(d, "Error",
+                    "<html>The <b>Undo Memory Limit</b> must be an integer.");
+            return false;
+        }
+
+        History.setUndoLevels(undoLevels);
+        // the shown default becomes a user setting only if it was edited
+        if (undoMemory != History.getUndoMemoryLimit()) {
+            History.setUndoMemoryLimit(undoMemory);
+        }
+        return true;
     }
 
     private int getUndoLevels() {
         return parseInt(undoLevelsTF.getText().trim());
     }
 
+    private int getUndoMemory() {
+        return parseInt(undoMemoryTF.getText().trim());
+    }
+
     private void updateThumbSize() {
         int newSize = ((IntChoiceParam.Value) thumbSizeCB.getSelectedItem()).getValue();
         LayerButtonLayout.setThumbSize(newSize);
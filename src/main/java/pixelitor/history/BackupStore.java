@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.history;
+
+import pixelitor.utils.Messages;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Keeps the memory used by the undo backup images within a budget.
+ *
+ * When the budget is exceeded, the oldest backups are
+ * compressed into a scratch directory on a background thread.
+ */
+public class BackupStore {
+    private static final ThreadFactory threadFactory = r -> {
+        Thread thread = new Thread(r, "[Undo spill thread]");
+        thread.setDaemon(true);
+        return thread;
+    };
+    private static final ExecutorService executor
+            = Executors.newSingleThreadExecutor(threadFactory);
+
+    private static final long BYTES_IN_MEGABYTE = 1024 * 1024;
+
+    // the backups in memory, the oldest first
+    private static final Set<ImageBackup> inMemory = new LinkedHashSet<>();
+    private static long memoryUsed = 0;
+    private static long memoryBudget = getDefaultBudget();
+    // -1 if the default budget is used
+    private static int userBudgetMB = -1;
+
+    private static File scratchDir;
+    private static boolean scratchDirFailed = false;
+
+    private BackupStore() {
+        // should not be instantiated
+    }
+
+    static synchronized void add(ImageBackup backup) {
+        if (inMemory.add(backup)) {
+            memoryUsed += backup.getSizeInBytes();
+            spillIfNecessary();
+        }
+    }
+
+    static synchronized void remove(ImageBackup backup) {
+        if (inMemory.remove(backup)) {
+            memoryUsed -= backup.getSizeInBytes();
+        }
+    }
+
+    private static void spillIfNecessary() {
+        if (memoryUsed <= memoryBudget) {
+            return;
+        }
+        File dir = getScratchDir();
+        if (dir == null) {
+            return;
+        }
+        Iterator<ImageBackup> it = inMemory.iterator();
+        while (memoryUsed > memoryBudget && it.hasNext()) {
+            ImageBackup backup = it.next();
+            if (!backup.canSpill()) {
+                continue;
+            }
+            it.remove();
+            memoryUsed -= backup.getSizeInBytes();
+            executor.execute(() -> spill(backup, dir));
+        }
+    }
+
+    private static void spill(ImageBackup backup, File dir) {
+        try {
+            backup.spill(dir);
+        } catch (IOException e) {
+            // it stays in memory
+            backup.spillFailed();
+            add(backup);
+            Messages.showExceptionOnEDT(e);
+        }
+    }
+
+    private static File getScratchDir() {
+        if (scratchDir == null && !scratchDirFailed) {
+            try {
+                scratchDir = Files.createTempDirectory("pixelitor-undo").toFile();
+                scratchDir.deleteOnExit();
+            } catch (IOException e) {
+                scratchDirFailed = true;
+                Messages.showExceptionOnEDT(e);
+            }
+        }
+        return scratchDir;
+    }
+
+    /**
+     * Sets the memory budget of the backups in megabytes.
+     * A non-positive value resets it to the default.
+     */
+    public static synchronized void setMemoryBudgetMB(int megaBytes) {
+        if (megaBytes > 0) {
+            memoryBudget = megaBytes * BYTES_IN_MEGABYTE;
+            userBudgetMB = megaBytes;
+        } else {
+            memoryBudget = getDefaultBudget();
+            userBudgetMB = -1;
+        }
+        spillIfNecessary();
+    }
+
+    public static synchronized int getMemoryBudgetMB() {
+        return (int) (memoryBudget / BYTES_IN_MEGABYTE);
+    }
+
+    /**
+     * Returns the memory budget set by the user in
+     * megabytes, or -1 if the default is used
+     */
+    public static synchronized int getUserMemoryBudgetMB() {
+        return userBudgetMB;
+    }
+
+    public static synchronized long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    /**
+     * Waits until the pending backups are written to the disk
+     */
+    static void waitForSpilling() {
+        try {
+            executor.submit(() -> {
+            }).get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long getDefaultBudget() {
+        // a quarter of the maximal heap
+        return Runtime.getRuntime().maxMemory() / 4;
+    }
+}
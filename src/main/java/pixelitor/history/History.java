@@ -58,6 +58,7 @@ public class History {
             setUndoLevels(15);
         } else {
             setUndoLevels(AppPreferences.loadUndoLevels());
+            setUndoMemoryLimit(AppPreferences.loadUndoMemoryLimit());
         }
     }
 
@@ -122,28 +123,31 @@ public class History {
         }
     }
 
+    /**
+     * Save only the affected area for undo, taking the original
+     * pixels from a backup of the tiles that were changed.
+     * The rectangle must be relative to the canvas.
+     */
+    public static void addToolArea(Rectangle rect, TileBackup backup,
+                                   Drawable dr, String toolName) {
+        BufferedImage image = dr.getImage();
+        rect = toImageArea(rect, image, dr, false);
+        if (rect.isEmpty()) {
+            return;
+        }
+
+        PartialImageEdit edit = new PartialImageEdit(toolName, dr.getComp(),
+                dr, rect, backup.copyOriginal(rect), false);
+        addEdit(edit);
+    }
+
     public static PartialImageEdit createPartialImageEdit(Rectangle rect,
                                                           BufferedImage origImage,
                                                           Drawable dr,
                                                           boolean relativeToImage,
                                                           String editName) {
-        assert rect.width > 0 : "rectangle.width = " + rect.width;
-        assert rect.height > 0 : "rectangle.height = " + rect.height;
-
-        if (!relativeToImage) {
-            // if the coordinates are relative to the canvas,
-            // translate them to be relative to the image
-            int dx = -dr.getTX();
-            int dy = -dr.getTY();
-            rect.translate(dx, dy);
-        }
-
-        rect = SwingUtilities.computeIntersection(0, 0,
-                origImage.getWidth(), origImage.getHeight(), // full image bounds
-                rect
-        );
-
         assert (origImage != null);
+        rect = toImageArea(rect, origImage, dr, relativeToImage);
         if (rect.isEmpty()) {
             return null;
         }
@@ -158,6 +162,25 @@ public class History {
         return edit;
     }
 
+    private static Rectangle toImageArea(Rectangle rect, BufferedImage image,
+                                         Drawable dr, boolean relativeToImage) {
+        assert rect.width > 0 : "rectangle.width = " + rect.width;
+        assert rect.height > 0 : "rectangle.height = " + rect.height;
+
+        if (!relativeToImage) {
+            // if the coordinates are relative to the canvas,
+            // translate them to be relative to the image
+            int dx = -dr.getTX();
+            int dy = -dr.getTY();
+            rect.translate(dx, dy);
+        }
+
+        return SwingUtilities.computeIntersection(0, 0,
+                image.getWidth(), image.getHeight(), // full image bounds
+                rect
+        );
+    }
+
     public static String getUndoPresentationName() {
         return undoManager.getUndoPresentationName();
     }
@@ -180,7 +203,7 @@ public class History {
             undoManager.undo();
         } catch (CannotUndoException e) {
             Messages.showInfo("No undo available",
-                    "No undo available, probably because the undo image was discarded in order to save memory");
+                    "No undo available, probably because the undo image could not be read back from the disk");
         }
     }
 
@@ -195,7 +218,8 @@ public class History {
             numUndoneEdits--; // after redo we should be fadeable again
             undoManager.redo();
         } catch (CannotRedoException e) {
-            Messages.showException(e);
+            Messages.showInfo("No redo available",
+                    "No redo available, probably because the redo image could not be read back from the disk");
         }
     }
 
@@ -219,6 +243,27 @@ public class History {
         return undoManager.getLimit();
     }
 
+    /**
+     * Sets the memory (in megabytes) that the undo images can use
+     * before they are moved to the disk. A non-positive value
+     * means a default limit based on the maximal heap size.
+     */
+    public static void setUndoMemoryLimit(int megaBytes) {
+        BackupStore.setMemoryBudgetMB(megaBytes);
+    }
+
+    public static int getUndoMemoryLimit() {
+        return BackupStore.getMemoryBudgetMB();
+    }
+
+    /**
+     * Returns the undo memory limit set by the user,
+     * or -1 if the default limit is used
+     */
+    public static int getUserUndoMemoryLimit() {
+        return BackupStore.getUserMemoryBudgetMB();
+    }
+
     public static boolean canRepeatOperation() {
         if (numUndoneEdits > 0) {
             return false;
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.history;
+
+import pixelitor.utils.Messages;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+
+/**
+ * A backup image used by the undo/redo edits.
+ *
+ * The image is kept in memory as long as the {@link BackupStore}
+ * budget allows it, then it is compressed into a scratch file
+ * and read back only if it is needed again.
+ */
+public class ImageBackup {
+    private BufferedImage image;
+    private File file;
+    private final int width;
+    private final int height;
+    private final int type;
+    private final long sizeInBytes;
+    private boolean disposed = false;
+    private volatile boolean spillFailed = false;
+    private boolean readFailed = false;
+
+    private ImageBackup(BufferedImage image) {
+        this.image = image;
+        width = image.getWidth();
+        height = image.getHeight();
+        type = image.getType();
+        sizeInBytes = calcSizeInBytes(image);
+    }
+
+    /**
+     * Creates a backup for the given image, which must not be modified later.
+     */
+    public static ImageBackup of(BufferedImage image) {
+        assert image != null;
+        ImageBackup backup = new ImageBackup(image);
+        BackupStore.add(backup);
+        return backup;
+    }
+
+    /**
+     * Returns the backed up image, reading it back from the
+     * disk if necessary. Returns null if it could not be read.
+     */
+    public synchronized BufferedImage get() {
+        if (image != null || disposed || readFailed) {
+            return image;
+        }
+        try {
+            image = read(file, width, height, type);
+        } catch (IOException e) {
+            // reported only once, the edits using
+            // this backup can't be undone any more
+            readFailed = true;
+            Messages.showExceptionOnEDT(e);
+            return null;
+        }
+        // the file is kept, so the image can be dropped
+        // again without writing it one more time
+        BackupStore.add(this);
+        return image;
+    }
+
+    /**
+     * Releases the memory and the scratch file used by this backup.
+     */
+    public synchronized void dispose() {
+        if (disposed) {
+            return;
+        }
+        disposed = true;
+        BackupStore.remove(this);
+        image = null;
+        deleteFile();
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public synchronized boolean isInMemory() {
+        return image != null;
+    }
+
+    boolean canSpill() {
+        if (spillFailed) {
+            return false;
+        }
+        return type == TYPE_INT_ARGB || type == TYPE_INT_ARGB_PRE
+                || type == TYPE_INT_RGB || type == TYPE_BYTE_GRAY;
+    }
+
+    /**
+     * Moves the image from the memory into the given file.
+     * Called on the spilling thread.
+     */
+    void spill(File scratchDir) throws IOException {
+        BufferedImage img;
+        File f;
+        synchronized (this) {
+            if (disposed || image == null) {
+                return;
+            }
+            img = image;
+            f = file;
+        }
+        if (f == null) {
+            // the image is not modified, so it can be written without holding the lock
+            f = File.createTempFile("undo", ".bin", scratchDir);
+            f.deleteOnExit();
+            write(img, f);
+        }
+        synchronized (this) {
+            file = f;
+            if (disposed) {
+                deleteFile();
+            } else {
+                image = null;
+            }
+        }
+    }
+
+    void spillFailed() {
+        spillFailed = true;
+    }
+
+    private void deleteFile() {
+        if (file != null) {
+            file.delete();
+            file = null;
+        }
+    }
+
+    private static long calcSizeInBytes(BufferedImage image) {
+        Raster raster = image.getRaster();
+        long bytesPerElement = DataBuffer.getDataTypeSize(raster.getTransferType()) / 8;
+        return (long) image.getWidth() * image.getHeight()
+                * raster.getNumDataElements() * bytesPerElement;
+    }
+
+    private static void write(BufferedImage img, File f) throws IOException {
+        Raster raster = img.getRaster();
+        int w = img.getWidth();
+        int h = img.getHeight();
+        boolean intData = raster.getTransferType() == DataBuffer.TYPE_INT;
+        ByteBuffer rowBytes = ByteBuffer.allocate(intData ? w * 4 : w);
+        Object rowData = null;
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(
+                new BufferedOutputStream(new FileOutputStream(f)), deflater, 1 << 16))) {
+            for (int y = 0; y < h; y++) {
+                rowData = raster.getDataElements(0, y, w, 1, rowData);
+                rowBytes.clear();
+                if (intData) {
+                    rowBytes.asIntBuffer().put((int[]) rowData);
+                } else {
+                    rowBytes.put((byte[]) rowData);
+                }
+                out.write(rowBytes.array());
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static BufferedImage read(File f, int w, int h, int type) throws IOException {
+        BufferedImage img = new BufferedImage(w, h, type);
+        WritableRaster raster = img.getRaster();
+        boolean intData = raster.getTransferType() == DataBuffer.TYPE_INT;
+        byte[] rowBytes = new byte[intData ? w * 4 : w];
+        int[] rowInts = intData ? new int[w] : null;
+
+        Inflater inflater = new Inflater();
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(
+                new BufferedInputStream(new FileInputStream(f)), inflater, 1 << 16))) {
+            for (int y = 0; y < h; y++) {
+                in.readFully(rowBytes);
+                if (intData) {
+                    ByteBuffer.wrap(rowBytes).asIntBuffer().get(rowInts);
+                    raster.setDataElements(0, y, w, 1, rowInts);
+                } else {
+                    raster.setDataElements(0, y, w, 1, rowBytes);
+                }
+            }
+        } finally {
+            inflater.end();
+        }
+        return img;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.history;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+import static java.awt.image.BufferedImage.TYPE_CUSTOM;
+
+/**
+ * Stores an image as the tiles in which it differs from a reference image.
+ * The original image can be restored only from an image
+ * with the same content as the reference image.
+ */
+public class ImageDiff {
+    private static final int TILE_SIZE = 64;
+
+    // if more tiles changed, then storing the whole image is better
+    private static final double MAX_CHANGED_RATIO = 0.75;
+
+    private final int width;
+    private final int height;
+    private final int numTilesX;
+
+    // the indexes of the changed tiles
+    private final int[] changedTiles;
+
+    // the changed tiles of the original image stacked
+    // vertically, or null if nothing changed
+    private final ImageBackup tiles;
+
+    private ImageDiff(int width, int height, int[] changedTiles, ImageBackup tiles) {
+        this.width = width;
+        this.height = height;
+        this.numTilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        this.changedTiles = changedTiles;
+        this.tiles = tiles;
+    }
+
+    /**
+     * Returns the differences of the given image from the reference image,
+     * or null if the images can't be compared or most of the image changed.
+     */
+    public static ImageDiff create(BufferedImage img, BufferedImage reference) {
+        int width = img.getWidth();
+        int height = img.getHeight();
+        if (reference.getWidth() != width || reference.getHeight() != height
+                || img.getType() != reference.getType() || img.getType() == TYPE_CUSTOM) {
+            return null;
+        }
+        Raster imgRaster = img.getRaster();
+        int transferType = imgRaster.getTransferType();
+        if (imgRaster.getNumDataElements() != 1 || (transferType != DataBuffer.TYPE_INT
+                && transferType != DataBuffer.TYPE_BYTE)) {
+            return null;
+        }
+
+        int numTilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int numTilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        boolean[] changed = findChangedTiles(img, reference, numTilesX, numTilesY);
+
+        int numChanged = 0;
+        for (boolean b : changed) {
+            if (b) {
+                numChanged++;
+            }
+        }
+        if (numChanged > MAX_CHANGED_RATIO * changed.length) {
+            return null;
+        }
+
+        int[] changedTiles = new int[numChanged];
+        BufferedImage tilesImage = null;
+        if (numChanged > 0) {
+            tilesImage = new BufferedImage(TILE_SIZE, numChanged * TILE_SIZE, img.getType());
+            WritableRaster tilesRaster = tilesImage.getRaster();
+            int slot = 0;
+            for (int i = 0; i < changed.length; i++) {
+                if (changed[i]) {
+                    changedTiles[slot] = i;
+                    int x = (i % numTilesX) * TILE_SIZE;
+                    int y = (i / numTilesX) * TILE_SIZE;
+                    int w = Math.min(TILE_SIZE, width - x);
+                    int h = Math.min(TILE_SIZE, height - y);
+                    Raster tile = imgRaster.createChild(x, y, w, h, 0, 0, null);
+                    tilesRaster.setDataElements(0, slot * TILE_SIZE, tile);
+                    slot++;
+                }
+            }
+        }
+
+        ImageBackup tiles = tilesImage == null ? null : ImageBackup.of(tilesImage);
+        return new ImageDiff(width, height, changedTiles, tiles);
+    }
+
+    private static boolean[] findChangedTiles(BufferedImage img, BufferedImage reference,
+                                              int numTilesX, int numTilesY) {
+        int width = img.getWidth();
+        int height = img.getHeight();
+        Raster imgRaster = img.getRaster();
+        Raster refRaster = reference.getRaster();
+        boolean intData = imgRaster.getTransferType() == DataBuffer.TYPE_INT;
+
+        boolean[] changed = new boolean[numTilesX * numTilesY];
+        Object imgRow = null;
+        Object refRow = null;
+        for (int y = 0; y < height; y++) {
+            imgRow = imgRaster.getDataElements(0, y, width, 1, imgRow);
+            refRow = refRaster.getDataElements(0, y, width, 1, refRow);
+            int rowStart = (y / TILE_SIZE) * numTilesX;
+            for (int tx = 0; tx < numTilesX; tx++) {
+                if (changed[rowStart + tx]) {
+                    continue;
+                }
+                int from = tx * TILE_SIZE;
+                int to = Math.min(from + TILE_SIZE, width);
+                boolean same = intData
+                        ? sameRange((int[]) imgRow, (int[]) refRow, from, to)
+                        : sameRange((byte[]) imgRow, (byte[]) refRow, from, to);
+                if (!same) {
+                    changed[rowStart + tx] = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    private static boolean sameRange(int[] a, int[] b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameRange(byte[] a, byte[] b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (a[i] != b[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Restores the original image from an image that has
+     * the same content as the reference image had.
+     * Returns null if this is not possible.
+     */
+    public BufferedImage applyTo(BufferedImage reference) {
+        if (reference.getWidth() != width || reference.getHeight() != height) {
+            return null;
+        }
+        BufferedImage tilesImage = null;
+        if (tiles != null) {
+            tilesImage = tiles.get();
+            if (tilesImage == null || tilesImage.getType() != reference.getType()) {
+                return null;
+            }
+        }
+
+        BufferedImage restored = new BufferedImage(reference.getColorModel(),
+                reference.copyData(null), reference.isAlphaPremultiplied(), null);
+        if (tilesImage == null) {
+            return restored;
+        }
+        WritableRaster restoredRaster = restored.getRaster();
+        Raster tilesRaster = tilesImage.getRaster();
+        for (int slot = 0; slot < changedTiles.length; slot++) {
+            int i = changedTiles[slot];
+            int x = (i % numTilesX) * TILE_SIZE;
+            int y = (i / numTilesX) * TILE_SIZE;
+            int w = Math.min(TILE_SIZE, width - x);
+            int h = Math.min(TILE_SIZE, height - y);
+            Raster tile = tilesRaster.createChild(0, slot * TILE_SIZE, w, h, 0, 0, null);
+            restoredRaster.setDataElements(x, y, tile);
+        }
+        return restored;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getNumChangedTiles() {
+        return changedTiles.length;
+    }
+
+    public void dispose() {
+        if (tiles != null) {
+            tiles.dispose();
+        }
+    }
+}
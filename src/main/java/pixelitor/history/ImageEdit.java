@@ -24,14 +24,19 @@ import pixelitor.utils.debug.DebugNode;
 import javax.swing.undo.CannotRedoException;
 import javax.swing.undo.CannotUndoException;
 import java.awt.image.BufferedImage;
-import java.lang.ref.SoftReference;
 
 /**
  * A PixelitorEdit that represents the changes made to an image.
  */
 public class ImageEdit extends FadeableEdit {
     private final boolean ignoreSelection;
-    private SoftReference<BufferedImage> imgRef;
+
+    // The backup is stored either as a whole image
+    // or as its difference from the current image.
+    // The backup image might be moved to the disk
+    // if the backups use too much memory.
+    private ImageBackup backup;
+    private ImageDiff diff;
     protected Drawable dr;
 
     private final boolean canRepeat;
@@ -45,12 +50,11 @@ public class ImageEdit extends FadeableEdit {
         assert dr != null;
         assert backupImage != null;
 
-        // the backup image is stored in an SoftReference
-        this.imgRef = new SoftReference<>(backupImage);
         this.dr = dr;
         this.canRepeat = canRepeat;
 
-        checkBackupDifferentFromActive();
+        checkBackupDifferentFromActive(backupImage);
+        this.backup = ImageBackup.of(backupImage);
     }
 
     public static ImageEdit createEmbedded(Drawable dr) {
@@ -66,11 +70,28 @@ public class ImageEdit extends FadeableEdit {
         return edit;
     }
 
+    /**
+     * Stores the backup only as its difference from the given image,
+     * which is the image of the drawable after the edit
+     */
+    public void storeAsDiffFrom(BufferedImage afterImage) {
+        BufferedImage backupImage = backup.get();
+        if (backupImage == null || afterImage == backupImage) {
+            return;
+        }
+        ImageDiff newDiff = ImageDiff.create(backupImage, afterImage);
+        if (newDiff != null) {
+            backup.dispose();
+            backup = null;
+            diff = newDiff;
+        }
+    }
+
     // the backup should never be identical to the active image
     // otherwise the backup might be also edited
-    private void checkBackupDifferentFromActive() {
+    private void checkBackupDifferentFromActive(BufferedImage backupImage) {
         BufferedImage layerImage = dr.getImage();
-        if (layerImage == imgRef.get()) {
+        if (layerImage == backupImage) {
             throw new IllegalStateException("backup image is identical to the active one");
         }
     }
@@ -97,7 +118,7 @@ public class ImageEdit extends FadeableEdit {
      * Returns true if successful
      */
     private boolean swapImages()  {
-        BufferedImage backupImage = imgRef.get();
+        BufferedImage backupImage = getBackupImage();
         if(backupImage == null) {
             return false;
         }
@@ -110,15 +131,20 @@ public class ImageEdit extends FadeableEdit {
         }
         dr.changeImageForUndoRedo(backupImage, ignoreSelection);
 
-        // create new backup image from tmp
-        imgRef = new SoftReference<>(tmp);
+        // create new backup image from tmp, if possible
+        // as a difference from the current image
+        checkBackupDifferentFromActive(tmp);
+        disposeBackup();
+        diff = ImageDiff.create(tmp, dr.getImage());
+        if (diff == null) {
+            backup = ImageBackup.of(tmp);
+        }
 
         if(!embedded) {
             comp.imageChanged();
             dr.updateIconImage();
         }
 
-        checkBackupDifferentFromActive();
         return true;
     }
 
@@ -126,24 +152,33 @@ public class ImageEdit extends FadeableEdit {
     public void die() {
         super.die();
 
-        BufferedImage backupImage = imgRef.get();
-        if(backupImage != null) {
-            backupImage.flush();
-        }
-
-        imgRef = null;
+        disposeBackup();
         dr = null;
     }
 
     @Override
     public BufferedImage getBackupImage() {
-        if(imgRef != null) {
-            // this still could be null
-            return imgRef.get();
+        // these still could return null, if the data could not be read back
+        if (diff != null) {
+            return diff.applyTo(dr.getImage());
+        }
+        if(backup != null) {
+            return backup.get();
         }
         return null;
     }
 
+    private void disposeBackup() {
+        if (backup != null) {
+            backup.dispose();
+            backup = null;
+        }
+        if (diff != null) {
+            diff.dispose();
+            diff = null;
+        }
+    }
+
     @Override
     public boolean canRepeat() {
         return canRepeat;
@@ -153,10 +188,14 @@ public class ImageEdit extends FadeableEdit {
     public DebugNode getDebugNode() {
         DebugNode node = super.getDebugNode();
 
-        BufferedImage img = imgRef.get();
-        if (img != null) {
-            node.addInt("Backup Image Width", img.getWidth());
-            node.addInt("Backup Image Height", img.getHeight());
+        if (backup != null) {
+            node.addInt("Backup Image Width", backup.getWidth());
+            node.addInt("Backup Image Height", backup.getHeight());
+            node.addBoolean("Backup In Memory", backup.isInMemory());
+        } else if (diff != null) {
+            node.addInt("Backup Image Width", diff.getWidth());
+            node.addInt("Backup Image Height", diff.getHeight());
+            node.addInt("Changed Tiles", diff.getNumChangedTiles());
         }
 
         return node;
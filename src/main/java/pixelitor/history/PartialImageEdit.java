@@ -40,19 +40,31 @@ import static java.lang.String.format;
 public class PartialImageEdit extends FadeableEdit {
     private final Rectangle saveRect;
     private final boolean canRepeat;
-    private Raster backupRaster;
+    private ImageBackup backup;
 
     private final Drawable dr;
 
     public PartialImageEdit(String name, Composition comp, Drawable dr,
                             BufferedImage image, Rectangle saveRect, boolean canRepeat) {
+        this(name, comp, dr, saveRect,
+                ImageUtils.getCopyOfSubimage(image, saveRect), canRepeat);
+    }
+
+    /**
+     * Creates the edit from the already copied pixels of the saved rectangle
+     */
+    public PartialImageEdit(String name, Composition comp, Drawable dr,
+                            Rectangle saveRect, BufferedImage savedPixels, boolean canRepeat) {
         super(name, comp, dr);
 
+        assert savedPixels.getWidth() == saveRect.width;
+        assert savedPixels.getHeight() == saveRect.height;
+
         this.canRepeat = canRepeat;
         this.dr = dr;
         this.saveRect = saveRect;
 
-        backupRaster = image.getData(this.saveRect);
+        backup = ImageBackup.of(savedPixels);
 
 //        EventQueue.invokeLater(() -> Utils.debugRaster(backupRaster, "Partial Image"));
     }
@@ -61,22 +73,33 @@ public class PartialImageEdit extends FadeableEdit {
     public void undo() throws CannotUndoException {
         super.undo();
 
-        swapRasters();
+        if (!swapRasters()) {
+            throw new CannotUndoException();
+        }
     }
 
     @Override
     public void redo() throws CannotRedoException {
         super.redo();
 
-        swapRasters();
+        if (!swapRasters()) {
+            throw new CannotRedoException();
+        }
     }
 
-    private void swapRasters() {
-        BufferedImage image = dr.getImage();
+    /**
+     * Returns true if successful
+     */
+    private boolean swapRasters() {
+        Raster backupRaster = getBackupRaster();
+        if (backupRaster == null) {
+            return false;
+        }
 
-        Raster tmpRaster = null;
+        BufferedImage image = dr.getImage();
+        BufferedImage tmp = null;
         try {
-            tmpRaster = image.getData(saveRect);
+            tmp = ImageUtils.getCopyOfSubimage(image, saveRect);
             image.setData(backupRaster);
         } catch (ArrayIndexOutOfBoundsException e) {
             System.out.println("PartialImageEdit.swapRasters saveRect = " + saveRect);
@@ -84,16 +107,31 @@ public class PartialImageEdit extends FadeableEdit {
             int height = image.getHeight();
             System.out.println("PartialImageEdit.swapRasters width = " + width + ", height = " + height);
 
-            debugRaster("tmpRaster", tmpRaster);
+            debugRaster("tmpRaster", tmp == null ? null : tmp.getRaster());
             debugRaster("backupRaster", backupRaster);
 
             throw e;
         }
 
-        backupRaster = tmpRaster;
+        backup.dispose();
+        backup = ImageBackup.of(tmp);
 
         comp.imageChanged();
         dr.updateIconImage();
+
+        return true;
+    }
+
+    /**
+     * Returns the backed up pixels positioned at the saved rectangle,
+     * or null if they could not be read back from the disk
+     */
+    private Raster getBackupRaster() {
+        BufferedImage backupImage = backup.get();
+        if (backupImage == null) {
+            return null;
+        }
+        return backupImage.getRaster().createTranslatedChild(saveRect.x, saveRect.y);
     }
 
     private static void debugRaster(String name, Raster raster) {
@@ -122,7 +160,7 @@ public class PartialImageEdit extends FadeableEdit {
     public void die() {
         super.die();
 
-        backupRaster = null;
+        backup.dispose();
     }
 
     @Override
@@ -135,6 +173,10 @@ public class PartialImageEdit extends FadeableEdit {
         // recreate the full image as if it was backed up entirely
         // because Fade expects to fade images of equal size
         // TODO this is not the optimal solution  - Fade should fade only the changed area
+        Raster backupRaster = getBackupRaster();
+        if (backupRaster == null) {
+            return null;
+        }
         BufferedImage fullImage = dr.getImage();
         BufferedImage previousImage = ImageUtils.copyImage(fullImage);
         previousImage.setData(backupRaster);
@@ -153,8 +195,8 @@ public class PartialImageEdit extends FadeableEdit {
     public DebugNode getDebugNode() {
         DebugNode node = super.getDebugNode();
 
-        node.addInt("Backup Image Width", backupRaster.getWidth());
-        node.addInt("Backup Image Height", backupRaster.getHeight());
+        node.addInt("Backup Image Width", backup.getWidth());
+        node.addInt("Backup Image Height", backup.getHeight());
 
         return node;
     }
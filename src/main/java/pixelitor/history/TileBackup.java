@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.history;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+/**
+ * A copy-on-write backup of an image that is about to be modified.
+ *
+ * Creating it costs nothing, the original pixels of a tile are
+ * copied only when the tile is about to be changed for the first time,
+ * so the memory used is proportional to the modified area,
+ * and not to the size of the image.
+ */
+public class TileBackup {
+    private static final int TILE_SIZE = 64;
+
+    private final BufferedImage image;
+
+    // the position of the image relative to the canvas
+    private final int tx;
+    private final int ty;
+
+    private final int numTilesX;
+    private final int numTilesY;
+
+    // the original pixels of the tiles, or null if the tile was not backed up
+    private final Raster[] tiles;
+    private int numBackedUpTiles = 0;
+
+    // the tile range of the last backup, which is typically requested
+    // again and again while the brush moves within the same tiles
+    private int lastFirstTileX = -1;
+    private int lastLastTileX = -1;
+    private int lastFirstTileY = -1;
+    private int lastLastTileY = -1;
+
+    public TileBackup(BufferedImage image, int tx, int ty) {
+        this.image = image;
+        this.tx = tx;
+        this.ty = ty;
+        numTilesX = (image.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+        numTilesY = (image.getHeight() + TILE_SIZE - 1) / TILE_SIZE;
+        tiles = new Raster[numTilesX * numTilesY];
+    }
+
+    /**
+     * Backs up the not yet saved tiles of the given area,
+     * which is relative to the canvas. Must be called
+     * before the pixels of the area are changed.
+     */
+    public void backup(Rectangle canvasArea) {
+        Rectangle area = new Rectangle(canvasArea);
+        area.translate(-tx, -ty);
+        area = area.intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        if (area.isEmpty()) {
+            return;
+        }
+
+        int firstTileX = area.x / TILE_SIZE;
+        int lastTileX = (area.x + area.width - 1) / TILE_SIZE;
+        int firstTileY = area.y / TILE_SIZE;
+        int lastTileY = (area.y + area.height - 1) / TILE_SIZE;
+        if (firstTileX == lastFirstTileX && lastTileX == lastLastTileX
+                && firstTileY == lastFirstTileY && lastTileY == lastLastTileY) {
+            return;
+        }
+        lastFirstTileX = firstTileX;
+        lastLastTileX = lastTileX;
+        lastFirstTileY = firstTileY;
+        lastLastTileY = lastTileY;
+
+        for (int tileY = firstTileY; tileY <= lastTileY; tileY++) {
+            for (int tileX = firstTileX; tileX <= lastTileX; tileX++) {
+                int i = tileY * numTilesX + tileX;
+                if (tiles[i] == null) {
+                    tiles[i] = image.getData(getTileBounds(tileX, tileY)); // a copy
+                    numBackedUpTiles++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the given area (relative to the image)
+     * as it was before the changes. The area must be
+     * within the image bounds.
+     */
+    public BufferedImage copyOriginal(Rectangle imageArea) {
+        Raster current = image.getData(imageArea); // a copy
+        WritableRaster result = (WritableRaster) current.createChild(
+                imageArea.x, imageArea.y, imageArea.width, imageArea.height,
+                0, 0, null);
+
+        int firstTileX = imageArea.x / TILE_SIZE;
+        int lastTileX = (imageArea.x + imageArea.width - 1) / TILE_SIZE;
+        int firstTileY = imageArea.y / TILE_SIZE;
+        int lastTileY = (imageArea.y + imageArea.height - 1) / TILE_SIZE;
+        for (int tileY = firstTileY; tileY <= lastTileY; tileY++) {
+            for (int tileX = firstTileX; tileX <= lastTileX; tileX++) {
+                Raster tile = tiles[tileY * numTilesX + tileX];
+                if (tile == null) {
+                    continue; // this tile was not changed
+                }
+                Rectangle r = tile.getBounds().intersection(imageArea);
+                Raster part = tile.createChild(r.x, r.y, r.width, r.height, 0, 0, null);
+                result.setDataElements(r.x - imageArea.x, r.y - imageArea.y, part);
+            }
+        }
+
+        return new BufferedImage(image.getColorModel(), result,
+                image.isAlphaPremultiplied(), null);
+    }
+
+    private Rectangle getTileBounds(int tileX, int tileY) {
+        int x = tileX * TILE_SIZE;
+        int y = tileY * TILE_SIZE;
+        int w = Math.min(TILE_SIZE, image.getWidth() - x);
+        int h = Math.min(TILE_SIZE, image.getHeight() - y);
+        return new Rectangle(x, y, w, h);
+    }
+
+    public int getNumBackedUpTiles() {
+        return numBackedUpTiles;
+    }
+
+    public int getNumTiles() {
+        return numTilesX * numTilesY;
+    }
+}
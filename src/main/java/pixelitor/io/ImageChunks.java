@@ -0,0 +1,255 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.io;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The pixels of an image in a version 4 PXC file, stored
+ * in horizontal bands that are compressed independently.
+ */
+class ImageChunks {
+    private static final int ROWS_PER_CHUNK = 256;
+
+    // the compression of a chunk is scheduled as a single task
+    static final int MIN_CHUNK_COST = 1 << 20;
+
+    private final int width;
+    private final int height;
+    private final int type;
+    private final int numChunks;
+    private final long[] offsets;
+    private final int[] lengths;
+
+    // the compressed data, used only while writing
+    private final byte[][] data;
+
+    // if not null, the compressed data is copied from this
+    // file (from the given offsets) instead of encoding it again
+    private File sourceFile;
+    private long[] sourceOffsets;
+
+    private ImageChunks(int width, int height, int type, int numChunks) {
+        this.width = width;
+        this.height = height;
+        this.type = type;
+        this.numChunks = numChunks;
+        offsets = new long[numChunks];
+        lengths = new int[numChunks];
+        data = new byte[numChunks][];
+    }
+
+    static ImageChunks forImage(BufferedImage img) {
+        Raster raster = img.getRaster();
+        int transferType = raster.getTransferType();
+        if (raster.getNumDataElements() != 1 || (transferType != DataBuffer.TYPE_INT
+                && transferType != DataBuffer.TYPE_BYTE)) {
+            throw new IllegalStateException("unsupported image type " + img.getType());
+        }
+        int height = img.getHeight();
+        int numChunks = (height + ROWS_PER_CHUNK - 1) / ROWS_PER_CHUNK;
+        return new ImageChunks(img.getWidth(), height, img.getType(), numChunks);
+    }
+
+    /**
+     * Returns chunks that will be written by copying the compressed
+     * data of the given, previously saved chunks from their file
+     */
+    static ImageChunks copyOf(ImageChunks saved, File savedFile) {
+        ImageChunks copy = new ImageChunks(saved.width, saved.height,
+                saved.type, saved.numChunks);
+        System.arraycopy(saved.lengths, 0, copy.lengths, 0, saved.numChunks);
+        copy.sourceFile = savedFile;
+        copy.sourceOffsets = saved.offsets.clone();
+        return copy;
+    }
+
+    boolean matches(BufferedImage img) {
+        return img.getWidth() == width && img.getHeight() == height && img.getType() == type;
+    }
+
+    static ImageChunks readIndex(DataInput in) throws IOException {
+        int width = in.readInt();
+        int height = in.readInt();
+        int type = in.readInt();
+        int numChunks = in.readInt();
+        ImageChunks chunks = new ImageChunks(width, height, type, numChunks);
+        for (int i = 0; i < numChunks; i++) {
+            chunks.offsets[i] = in.readLong();
+            chunks.lengths[i] = in.readInt();
+        }
+        return chunks;
+    }
+
+    void writeIndex(DataOutput out) throws IOException {
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeInt(type);
+        out.writeInt(numChunks);
+        for (int i = 0; i < numChunks; i++) {
+            out.writeLong(offsets[i]);
+            out.writeInt(lengths[i]);
+        }
+    }
+
+    long getIndexSize() {
+        return 4 * 4 + numChunks * (8 + 4);
+    }
+
+    int getNumChunks() {
+        return numChunks;
+    }
+
+    /**
+     * Sets the file offsets of the chunks, assuming that they
+     * are written starting from the given offset, and returns
+     * the offset after the last chunk
+     */
+    long setOffsets(long startOffset) {
+        long offset = startOffset;
+        for (int i = 0; i < numChunks; i++) {
+            offsets[i] = offset;
+            offset += lengths[i];
+        }
+        return offset;
+    }
+
+    File getSourceFile() {
+        return sourceFile;
+    }
+
+    /**
+     * Writes the compressed data. If it is copied from a previous file,
+     * then the channel of that file must be given.
+     */
+    void writeChunks(DataOutput out, FileChannel sourceChannel) throws IOException {
+        for (int i = 0; i < numChunks; i++) {
+            if (sourceFile != null) {
+                out.write(readFully(sourceChannel, sourceOffsets[i], lengths[i]).array());
+            } else {
+                out.write(data[i]);
+                data[i] = null;
+            }
+        }
+        sourceFile = null;
+        sourceOffsets = null;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            // positional reads are safe from multiple threads
+            int count = channel.read(buffer, position + buffer.position());
+            if (count < 0) {
+                throw new IOException("unexpected end of file");
+            }
+        }
+        return buffer;
+    }
+
+    BufferedImage createImage() {
+        return new BufferedImage(width, height, type);
+    }
+
+    /**
+     * Compresses one band of the image. Can be called in parallel for different chunks.
+     */
+    void encodeChunk(int chunkIndex, BufferedImage img) {
+        int startY = chunkIndex * ROWS_PER_CHUNK;
+        int numRows = Math.min(ROWS_PER_CHUNK, height - startY);
+        Object pixels = img.getRaster().getDataElements(0, startY, width, numRows, null);
+
+        byte[] raw;
+        if (pixels instanceof int[]) {
+            int[] ints = (int[]) pixels;
+            ByteBuffer buffer = ByteBuffer.allocate(ints.length * 4);
+            buffer.asIntBuffer().put(ints);
+            raw = buffer.array();
+        } else {
+            raw = (byte[]) pixels;
+        }
+
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+            byte[] buffer = new byte[1 << 16];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            data[chunkIndex] = out.toByteArray();
+            lengths[chunkIndex] = data[chunkIndex].length;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Reads and decompresses one band of the image into the given image.
+     * Can be called in parallel for different chunks.
+     */
+    void decodeChunk(int chunkIndex, FileChannel channel, BufferedImage img) throws IOException {
+        ByteBuffer compressed = readFully(channel, offsets[chunkIndex], lengths[chunkIndex]);
+
+        int startY = chunkIndex * ROWS_PER_CHUNK;
+        int numRows = Math.min(ROWS_PER_CHUNK, height - startY);
+        WritableRaster raster = img.getRaster();
+        boolean intData = raster.getTransferType() == DataBuffer.TYPE_INT;
+        byte[] raw = new byte[width * numRows * (intData ? 4 : 1)];
+
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array());
+            int done = 0;
+            while (done < raw.length) {
+                int count = inflater.inflate(raw, done, raw.length - done);
+                if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("corrupt image data in chunk " + chunkIndex);
+                }
+                done += count;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+
+        if (intData) {
+            int[] pixels = new int[width * numRows];
+            ByteBuffer.wrap(raw).asIntBuffer().get(pixels);
+            raster.setDataElements(0, startY, width, numRows, pixels);
+        } else {
+            raster.setDataElements(0, startY, width, numRows, raw);
+        }
+    }
+}
@@ -17,16 +17,18 @@
 
 package pixelitor.io;
 
-import pd.AnimatedGifEncoder;
 import pixelitor.Composition;
+import pixelitor.filters.animation.AnimGIFWriter;
 import pixelitor.gui.utils.GUIUtils;
 import pixelitor.layers.ImageLayer;
 import pixelitor.layers.Layer;
 import pixelitor.layers.TextLayer;
 import pixelitor.utils.ImageUtils;
+import pixelitor.utils.Messages;
 
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -35,10 +37,13 @@ import java.util.List;
  */
 public class LayerAnimation {
     private final int delayMillis;
+    private final boolean sharedPalette;
     private final List<BufferedImage> images = new ArrayList<>();
 
-    public LayerAnimation(Composition comp, int delayMillis, boolean pingPong) {
+    public LayerAnimation(Composition comp, int delayMillis,
+                          boolean pingPong, boolean sharedPalette) {
         this.delayMillis = delayMillis;
+        this.sharedPalette = sharedPalette;
         addComposition(comp, pingPong);
     }
 
@@ -76,13 +81,23 @@ public class LayerAnimation {
     }
 
     private void export(File f) {
-        AnimatedGifEncoder e = new AnimatedGifEncoder();
-        e.start(f);
-        e.setDelay(delayMillis);
-        e.setRepeat(0);
-        images.forEach(e::addFrame);
-        boolean ok = e.finish();
-        // TODO handle ok status
+        AnimGIFWriter writer = new AnimGIFWriter(f, delayMillis);
+        if (sharedPalette) {
+            writer.setSharedPalette(images);
+        }
+        try {
+            for (BufferedImage image : images) {
+                writer.addFrame(image);
+            }
+        } catch (IOException e) {
+            writer.cancel();
+            Messages.showException(e);
+            return;
+        }
+        writer.finish();
+        if (writer.isSaved()) {
+            Messages.showFileSavedMessage(f);
+        }
     }
 
     public void saveToFile(File selectedFile) {
@@ -37,6 +37,7 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -48,6 +49,7 @@ import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
@@ -63,20 +65,68 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 public class OpenRaster {
     private static final String MERGED_IMAGE_NAME = "mergedimage.png";
 
+    // the zip entries of the layer images in the last saved or
+    // loaded files, so that the unchanged images can be copied
+    private static final SavedLayerImages<String> savedImages = new SavedLayerImages<>();
+
     private OpenRaster() {
     }
 
-    public static void uncheckedWrite(Composition comp, File outFile, boolean addMergedImage) {
+    /**
+     * Used by the saves running on the IO thread. The merged image
+     * must be a copy of the composite image made on the EDT, because
+     * the composite image is updated in place, or it can be null.
+     */
+    public static void uncheckedWrite(Composition comp, File outFile, BufferedImage mergedImage) {
         try {
-            write(comp, outFile, addMergedImage);
+            write(comp, outFile, mergedImage);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
     public static void write(Composition comp, File outFile, boolean addMergedImage) throws IOException {
+        BufferedImage mergedImage = null;
+        if (addMergedImage) {
+            mergedImage = ImageUtils.copyImage(comp.getCompositeImage());
+        }
+        write(comp, outFile, mergedImage);
+    }
+
+    private static void write(Composition comp, File outFile, BufferedImage mergedImage) throws IOException {
         ProgressTracker pt = new StatusBarProgressTracker("Writing " + outFile.getName(), 100);
 
+        // the previous file might be still needed for the copied layer images
+        File tmp = SavedLayerImages.createTmpFileFor(outFile);
+        Map<ImageLayer, String> entryNames = new HashMap<>();
+        Map<ImageLayer, Long> contentVersions = new HashMap<>();
+        Map<File, ZipFile> sourceFiles = new HashMap<>();
+        try {
+            writeZip(comp, tmp, mergedImage, entryNames, contentVersions, sourceFiles, pt);
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        } finally {
+            for (ZipFile zipFile : sourceFiles.values()) {
+                zipFile.close();
+            }
+        }
+        try {
+            SavedLayerImages.replaceWithTmpFile(tmp, outFile);
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        savedImages.fileProcessed(outFile, entryNames, contentVersions);
+
+        pt.finish();
+    }
+
+    private static void writeZip(Composition comp, File outFile, BufferedImage mergedImage,
+                                 Map<ImageLayer, String> entryNames,
+                                 Map<ImageLayer, Long> contentVersions,
+                                 Map<File, ZipFile> sourceFiles,
+                                 ProgressTracker pt) throws IOException {
         FileOutputStream fos = new FileOutputStream(outFile);
         ZipOutputStream zos = new ZipOutputStream(fos);
 
@@ -86,7 +136,7 @@ public class OpenRaster {
 
         int numLayers = comp.getNumLayers();
         int numImageLayers = comp.getNumImageLayers();
-        if (addMergedImage) {
+        if (mergedImage != null) {
             numImageLayers++;
         }
         double workRatio = 1.0 / numImageLayers;
@@ -97,15 +147,18 @@ public class OpenRaster {
             if (layer instanceof ImageLayer) {
                 ImageLayer imageLayer = (ImageLayer) layer;
                 ProgressTracker spt = new SubtaskProgressTracker(workRatio, pt);
-                stackXML += writeLayer(imageLayer, i, zos, spt);
+                // captured before the image is read, because
+                // the layer can be edited while the file is written
+                contentVersions.put(imageLayer, imageLayer.getContentVersion());
+                stackXML += writeLayer(imageLayer, i, zos, sourceFiles, spt);
+                entryNames.put(imageLayer, getEntryName(i));
             }
         }
 
-        if (addMergedImage) {
+        if (mergedImage != null) {
             zos.putNextEntry(new ZipEntry(MERGED_IMAGE_NAME));
             ProgressTracker subTaskTracker = new SubtaskProgressTracker(workRatio, pt);
-            BufferedImage img = comp.getCompositeImage();
-            TrackedIO.writeToStream(img, zos, "PNG", subTaskTracker);
+            TrackedIO.writeToStream(mergedImage, zos, "PNG", subTaskTracker);
             zos.closeEntry();
         }
 
@@ -121,13 +174,12 @@ public class OpenRaster {
         zos.write("image/openraster".getBytes(UTF_8));
         zos.closeEntry();
         zos.close();
-
-        pt.finish();
     }
 
     private static String writeLayer(ImageLayer layer,
                                      int layerIndex,
                                      ZipOutputStream zos,
+                                     Map<File, ZipFile> sourceFiles,
                                      ProgressTracker pt) throws IOException {
         String stackXML = format(Locale.ENGLISH,
                 "<layer name=\"%s\" visibility=\"%s\" composite-op=\"%s\" " +
@@ -139,14 +191,63 @@ public class OpenRaster {
                 layerIndex,
                 layer.getTX(),
                 layer.getTY());
-        ZipEntry entry = new ZipEntry(format("data/%d.png", layerIndex));
-        zos.putNextEntry(entry);
-        BufferedImage image = layer.getImage();
+        String entryName = getEntryName(layerIndex);
+
+        SavedLayerImages.Record<String> saved = savedImages.find(layer);
+        if (saved != null) {
+            // the image didn't change since it was saved: copy the
+            // png file instead of encoding the image again
+            ZipFile source = sourceFiles.get(saved.getFile());
+            if (source == null) {
+                source = new ZipFile(saved.getFile());
+                sourceFiles.put(saved.getFile(), source);
+            }
+            ZipEntry savedEntry = source.getEntry(saved.getLocation());
+            if (savedEntry != null) {
+                byte[] png;
+                try (InputStream in = source.getInputStream(savedEntry)) {
+                    png = readAllBytes(in);
+                }
+                writeStoredEntry(zos, entryName, png);
+                pt.finish();
+                return stackXML;
+            }
+        }
 
-        TrackedIO.writeToStream(image, zos, "PNG", pt);
+        // the png data is already compressed, therefore it is
+        // stored without compressing it once more
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        TrackedIO.writeToStream(layer.getImage(), png, "PNG", pt);
+        writeStoredEntry(zos, entryName, png.toByteArray());
+        return stackXML;
+    }
+
+    private static String getEntryName(int layerIndex) {
+        return format("data/%d.png", layerIndex);
+    }
 
+    private static void writeStoredEntry(ZipOutputStream zos, String name,
+                                         byte[] data) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(data.length);
+        entry.setCompressedSize(data.length);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        entry.setCrc(crc.getValue());
+        zos.putNextEntry(entry);
+        zos.write(data);
         zos.closeEntry();
-        return stackXML;
+    }
+
+    private static byte[] readAllBytes(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1 << 16];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
     }
 
     public static Composition read(File file) throws IOException, ParserConfigurationException, SAXException {
@@ -196,6 +297,7 @@ public class OpenRaster {
         Composition comp = Composition.createEmpty(compWidth, compHeight);
         comp.setFile(file);
 
+        Map<ImageLayer, String> entryNames = new HashMap<>();
         NodeList layers = doc.getElementsByTagName("layer");
         for (int i = layers.getLength() - 1; i >= 0; i--) { // stack.xml contains layers in reverse order
             Node node = layers.item(i);
@@ -232,7 +334,9 @@ public class OpenRaster {
             layer.setTranslation(tX, tY);
 
             comp.addLayerInInitMode(layer);
+            entryNames.put(layer, layerImageSource);
         }
+        savedImages.fileRead(file, entryNames);
         comp.setActiveLayer(comp.getLayer(0));
 
         pt.finish();
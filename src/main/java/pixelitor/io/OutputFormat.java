@@ -39,7 +39,7 @@ public enum OutputFormat {
     }, ORA(true, true) {
         @Override
         public Runnable getSaveTask(Composition comp, SaveSettings settings) {
-            return () -> OpenRaster.uncheckedWrite(comp, settings.getFile(), false);
+            return () -> OpenRaster.uncheckedWrite(comp, settings.getFile(), null);
         }
     };
 
@@ -54,11 +54,18 @@ public enum OutputFormat {
     public Runnable getSaveTask(Composition comp, SaveSettings settings) {
         assert !supportsMultipleLayers; // overwritten for multi-layered formats
 
-        return () -> saveSingleLayered(comp, settings);
+        // the composite image is updated in place on the EDT,
+        // therefore a copy is saved on the IO thread
+        BufferedImage img = ImageUtils.copyImage(comp.getCompositeImage());
+        return () -> saveImage(img, settings);
     }
 
-    private void saveSingleLayered(Composition comp, SaveSettings settings) {
-        BufferedImage img = comp.getCompositeImage();
+    /**
+     * Saves a flat image in this single-layered format
+     */
+    public void saveImage(BufferedImage img, SaveSettings settings) {
+        assert !supportsMultipleLayers;
+
         if (!supportsAlpha) {
             // no alpha support, convert first to RGB
             img = ImageUtils.convertToRGB(img, false);
@@ -66,6 +73,10 @@ public enum OutputFormat {
         OpenSave.saveImageToFile(img, settings);
     }
 
+    public boolean supportsMultipleLayers() {
+        return supportsMultipleLayers;
+    }
+
     @Override
     public String toString() {
         return super.toString().toLowerCase();
@@ -18,13 +18,18 @@
 package pixelitor.io;
 
 import pixelitor.Composition;
+import pixelitor.ThreadPool;
+import pixelitor.layers.ImageLayer;
 import pixelitor.utils.Messages;
 import pixelitor.utils.ProgressTracker;
 import pixelitor.utils.StatusBarProgressTracker;
-import pixelitor.utils.SubtaskProgressTracker;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -34,6 +39,14 @@ import java.io.ObjectInput;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutput;
 import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -42,58 +55,105 @@ import static pixelitor.utils.ImageUtils.getPixelsAsArray;
 
 /**
  * PXC file format support.
+ *
+ * Since version 4 the serialized composition contains only the
+ * structure, and the pixels of the images are stored after it
+ * in separately compressed chunks, which are listed in an index
+ * table at the beginning of the file. This way the chunks can be
+ * compressed and decompressed in parallel, and each image can be
+ * located without reading the rest of the file.
+ *
+ * Version 4 layout:
+ * header (0xAB, 0xC4, version byte), structure length (int),
+ * number of images (int), for each image: width, height, type,
+ * number of chunks (ints) and for each chunk: offset (long)
+ * and length (int), then the gzipped serialized composition,
+ * then the chunks.
  */
 public class PXCFormat {
-    private static final int CURRENT_PXC_VERSION_NUMBER = 0x03;
+    private static final int CURRENT_PXC_VERSION_NUMBER = 0x04;
+    private static final int LAST_SERIALIZED_PIXELS_VERSION = 0x03;
 
-    // tracks the reading-writing of the whole file
-    private static ProgressTracker mainPT;
+    // the images written or read on the current thread
+    // in the version 4 format, while the structure is serialized
+    private static final ThreadLocal<ChunkedImages> chunkedImages = new ThreadLocal<>();
 
-    private static double workRatioForOneImage;
+    // allows the saves to copy the chunks of the unchanged images
+    private static final SavedLayerImages<ImageChunks> savedImages = new SavedLayerImages<>();
 
     private PXCFormat() {
     }
 
     public static Composition read(File file) throws NotPxcFormatException {
+        int versionByte;
+        try (InputStream is = new FileInputStream(file)) {
+            versionByte = readVersion(file, is);
+        } catch (IOException e) {
+            Messages.showException(e);
+            return null;
+        }
+
+        if (versionByte == LAST_SERIALIZED_PIXELS_VERSION) {
+            return readSerializedPixels(file);
+        }
+
+        Composition comp = null;
+        try {
+            comp = readChunked(file);
+        } catch (IOException | ClassNotFoundException e) {
+            Messages.showException(e);
+        }
+        return comp;
+    }
+
+    private static int readVersion(File file, InputStream is) throws IOException, NotPxcFormatException {
+        int firstByte = is.read();
+        int secondByte = is.read();
+        if (firstByte == 0xAB && secondByte == 0xC4) {
+            // identification bytes OK
+        } else {
+            throw new NotPxcFormatException(file.getName() + " is not in the pxc format.");
+        }
+        int versionByte = is.read();
+        if (versionByte == 0) {
+            throw new NotPxcFormatException(file
+                    .getName() + " is in an obsolete pxc format, " +
+                    "it can only be opened in the old beta Pixelitor versions 0.9.2-0.9.7");
+        }
+        if (versionByte == 1) {
+            throw new NotPxcFormatException(file
+                    .getName() + " is in an obsolete pxc format, " +
+                    "it can only be opened in the old beta Pixelitor version 0.9.8");
+        }
+        if (versionByte == 2) {
+            throw new NotPxcFormatException(file
+                    .getName() + " is in an obsolete pxc format, " +
+                    "it can only be opened in the old Pixelitor versions 0.9.9-1.1.2");
+        }
+        if (versionByte > CURRENT_PXC_VERSION_NUMBER) {
+            throw new NotPxcFormatException(file.getName() + " has unknown version byte " + versionByte);
+        }
+        return versionByte;
+    }
+
+    /**
+     * Reads the version 3 files, in which the pixels are
+     * serialized together with the rest of the composition
+     */
+    private static Composition readSerializedPixels(File file) {
         long fileSize = file.length();
-        mainPT = new StatusBarProgressTracker(
+        ProgressTracker mainPT = new StatusBarProgressTracker(
                 "Reading " + file.getName(), (int) fileSize);
         Composition comp = null;
         try (InputStream is = new ProgressTrackingInputStream(
                 new FileInputStream(file), mainPT)) {
-            int firstByte = is.read();
-            int secondByte = is.read();
-            if (firstByte == 0xAB && secondByte == 0xC4) {
-                // identification bytes OK
-            } else {
-                throw new NotPxcFormatException(file.getName() + " is not in the pxc format.");
-            }
-            int versionByte = is.read();
-            if (versionByte == 0) {
-                throw new NotPxcFormatException(file
-                        .getName() + " is in an obsolete pxc format, " +
-                        "it can only be opened in the old beta Pixelitor versions 0.9.2-0.9.7");
-            }
-            if (versionByte == 1) {
-                throw new NotPxcFormatException(file
-                        .getName() + " is in an obsolete pxc format, " +
-                        "it can only be opened in the old beta Pixelitor version 0.9.8");
-            }
-            if (versionByte == 2) {
-                throw new NotPxcFormatException(file
-                        .getName() + " is in an obsolete pxc format, " +
-                        "it can only be opened in the old Pixelitor versions 0.9.9-1.1.2");
-            }
-            if (versionByte > 3) {
-                throw new NotPxcFormatException(file.getName() + " has unknown version byte " + versionByte);
-            }
+            is.skip(3); // the header was already checked
 
             try (GZIPInputStream gs = new GZIPInputStream(is)) {
                 try (ObjectInput ois = new ObjectInputStream(gs)) {
                     comp = (Composition) ois.readObject();
                     mainPT.finish();
-                    mainPT = null;
-                    
+
                     // file is transient in Composition because the pxc file can be renamed
                     comp.setFile(file);
                 }
@@ -105,33 +165,182 @@ public class PXCFormat {
         return comp;
     }
 
+    private static Composition readChunked(File file) throws IOException, ClassNotFoundException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(3); // the header was already checked
+            int structureLength = raf.readInt();
+
+            int numImages = raf.readInt();
+            List<ImageChunks> images = new ArrayList<>(numImages);
+            for (int i = 0; i < numImages; i++) {
+                images.add(ImageChunks.readIndex(raf));
+            }
+
+            byte[] structure = new byte[structureLength];
+            raf.readFully(structure);
+
+            ChunkedImages context = new ChunkedImages();
+            context.chunks.addAll(images);
+            context.images.addAll(decodeImages(images, raf.getChannel(), file.getName()));
+            // filled in while the layers are deserialized
+            context.owners.addAll(Collections.nCopies(numImages, null));
+
+            Composition comp;
+            chunkedImages.set(context);
+            try (ObjectInput ois = new ObjectInputStream(new GZIPInputStream(
+                    new ByteArrayInputStream(structure)))) {
+                comp = (Composition) ois.readObject();
+            } finally {
+                chunkedImages.remove();
+            }
+            savedImages.fileRead(file, context.getChunksByOwner());
+
+            // file is transient in Composition because the pxc file can be renamed
+            comp.setFile(file);
+            return comp;
+        }
+    }
+
+    /**
+     * Decodes all the chunks of all the images in parallel
+     */
+    private static List<BufferedImage> decodeImages(List<ImageChunks> images,
+                                                    FileChannel channel,
+                                                    String fileName) throws IOException {
+        List<BufferedImage> decoded = new ArrayList<>(images.size());
+        List<Runnable> chunkTasks = new ArrayList<>();
+        for (ImageChunks image : images) {
+            BufferedImage img = image.createImage();
+            decoded.add(img);
+            for (int i = 0; i < image.getNumChunks(); i++) {
+                int chunkIndex = i;
+                chunkTasks.add(() -> {
+                    try {
+                        image.decodeChunk(chunkIndex, channel, img);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        }
+
+        runInParallel(chunkTasks, "Reading " + fileName);
+        return decoded;
+    }
+
     public static void write(Composition comp, File f) {
-        mainPT = new StatusBarProgressTracker(
-                "Writing " + f.getName(), 100);
-        int numImages = comp.calcNumImages();
-        if (numImages > 0) {
-            workRatioForOneImage = 1.0 / numImages;
-        } else {
-            workRatioForOneImage = -1;
+        try {
+            writeChunked(comp, f);
+        } catch (IOException e) {
+            Messages.showException(e);
         }
-        try (FileOutputStream fos = new FileOutputStream(f)) {
-            fos.write(new byte[]{(byte) 0xAB, (byte) 0xC4, CURRENT_PXC_VERSION_NUMBER});
+    }
 
-            try (GZIPOutputStream gz = new GZIPOutputStream(fos)) {
-                try (ObjectOutput oos = new ObjectOutputStream(gz)) {
-                    oos.writeObject(comp);
-                    oos.flush();
+    private static void writeChunked(Composition comp, File f) throws IOException {
+        // serialize the structure, while collecting the images
+        ChunkedImages context = new ChunkedImages();
+        ByteArrayOutputStream structureBytes = new ByteArrayOutputStream();
+        chunkedImages.set(context);
+        try (ObjectOutput oos = new ObjectOutputStream(new GZIPOutputStream(structureBytes))) {
+            oos.writeObject(comp);
+            oos.flush();
+        } finally {
+            chunkedImages.remove();
+        }
+        byte[] structure = structureBytes.toByteArray();
+
+        // the unchanged images are copied from the file where they were
+        // last saved, the others are compressed in parallel
+        List<ImageChunks> chunks = context.chunks;
+        List<Runnable> chunkTasks = new ArrayList<>();
+        for (int i = 0; i < context.images.size(); i++) {
+            BufferedImage img = context.images.get(i);
+            SavedLayerImages.Record<ImageChunks> saved = savedImages.find(context.owners.get(i));
+            if (saved != null && saved.getLocation().matches(img)) {
+                chunks.add(ImageChunks.copyOf(saved.getLocation(), saved.getFile()));
+                continue;
+            }
+            ImageChunks imageChunks = ImageChunks.forImage(img);
+            chunks.add(imageChunks);
+            for (int j = 0; j < imageChunks.getNumChunks(); j++) {
+                int chunkIndex = j;
+                chunkTasks.add(() -> imageChunks.encodeChunk(chunkIndex, img));
+            }
+        }
+        runInParallel(chunkTasks, "Writing " + f.getName());
+
+        // now that the chunk sizes are known, the offsets can be calculated
+        long indexSize = 4 + 4;
+        for (ImageChunks imageChunks : chunks) {
+            indexSize += imageChunks.getIndexSize();
+        }
+        long offset = 3 + indexSize + structure.length;
+        for (ImageChunks imageChunks : chunks) {
+            offset = imageChunks.setOffsets(offset);
+        }
+
+        // the previous file might be still needed for the copied chunks
+        File tmp = SavedLayerImages.createTmpFileFor(f);
+        Map<File, RandomAccessFile> sourceFiles = new HashMap<>();
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+            out.write(new byte[]{(byte) 0xAB, (byte) 0xC4, CURRENT_PXC_VERSION_NUMBER});
+            out.writeInt(structure.length);
+            out.writeInt(chunks.size());
+            for (ImageChunks imageChunks : chunks) {
+                imageChunks.writeIndex(out);
+            }
+            out.write(structure);
+            for (ImageChunks imageChunks : chunks) {
+                FileChannel source = null;
+                File sourceFile = imageChunks.getSourceFile();
+                if (sourceFile != null) {
+                    RandomAccessFile raf = sourceFiles.get(sourceFile);
+                    if (raf == null) {
+                        raf = new RandomAccessFile(sourceFile, "r");
+                        sourceFiles.put(sourceFile, raf);
+                    }
+                    source = raf.getChannel();
                 }
+                imageChunks.writeChunks(out, source);
             }
         } catch (IOException e) {
-            Messages.showException(e);
+            tmp.delete();
+            throw e;
+        } finally {
+            for (RandomAccessFile raf : sourceFiles.values()) {
+                raf.close();
+            }
+        }
+        try {
+            SavedLayerImages.replaceWithTmpFile(tmp, f);
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+
+        savedImages.fileProcessed(f, context.getChunksByOwner(), context.contentVersions);
+    }
+
+    private static void runInParallel(List<Runnable> tasks, String progressMsg) throws IOException {
+        ProgressTracker pt = new StatusBarProgressTracker(progressMsg, Math.max(tasks.size(), 1));
+        try {
+            // the tasks are big enough to be scheduled one by one
+            ThreadPool.processRange(tasks.size(), ImageChunks.MIN_CHUNK_COST, pt, (start, end) -> {
+                for (int i = start; i < end; i++) {
+                    tasks.get(i).run();
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pt.finish();
         }
-        mainPT.finish();
-        mainPT = null;
     }
 
     public static void serializeImage(ObjectOutputStream out,
-                                      BufferedImage img) throws IOException {
+                                      BufferedImage img,
+                                      ImageLayer owner) throws IOException {
         assert img != null;
         int imgType = img.getType();
         int imgWidth = img.getWidth();
@@ -141,33 +350,46 @@ public class PXCFormat {
         out.writeInt(imgHeight);
         out.writeInt(imgType);
 
-        ProgressTracker pt = getImageTracker();
+        ChunkedImages context = chunkedImages.get();
+        if (context != null) {
+            // only a reference, the pixels are written later in chunks
+            out.writeInt(context.images.size());
+            context.images.add(img);
+            context.owners.add(owner);
+            if (owner != null) {
+                // the layer can be edited while the chunks are encoded
+                context.contentVersions.put(owner, owner.getContentVersion());
+            }
+            return;
+        }
 
+        // the version 3 encoding
         if (imgType == TYPE_BYTE_GRAY) {
             ImageIO.write(img, "PNG", out);
         } else {
             int[] pixels = getPixelsAsArray(img);
-            int length = pixels.length;
-            int progress = 0;
-            int fiveUnits = length / 20;
             for (int pixel : pixels) {
                 out.writeInt(pixel);
-                progress++;
-                if (progress > fiveUnits) {
-                    pt.unitsDone(5);
-                    progress = 0;
-                }
             }
         }
     }
 
     // when deserializing, the progress tracking
     // is done at the InputStream level, not here
-    public static BufferedImage deserializeImage(ObjectInputStream in) throws IOException {
+    public static BufferedImage deserializeImage(ObjectInputStream in,
+                                                 ImageLayer owner) throws IOException {
         int width = in.readInt();
         int height = in.readInt();
         int type = in.readInt();
 
+        ChunkedImages context = chunkedImages.get();
+        if (context != null) {
+            // the chunks were already decoded
+            int index = in.readInt();
+            context.owners.set(index, owner);
+            return context.images.get(index);
+        }
+
         if (type == TYPE_BYTE_GRAY) {
             return ImageIO.read(in);
         } else {
@@ -182,12 +404,24 @@ public class PXCFormat {
         }
     }
 
-    private static ProgressTracker getImageTracker() {
-        if (workRatioForOneImage == -1) {
-            // a pxc without images
-            return ProgressTracker.NULL_TRACKER;
-        } else {
-            return new SubtaskProgressTracker(workRatioForOneImage, mainPT);
+    /**
+     * The images of a version 4 file, in the order of their chunks
+     */
+    private static class ChunkedImages {
+        private final List<BufferedImage> images = new ArrayList<>();
+        private final List<ImageLayer> owners = new ArrayList<>();
+        private final List<ImageChunks> chunks = new ArrayList<>();
+        private final Map<ImageLayer, Long> contentVersions = new HashMap<>();
+
+        private Map<ImageLayer, ImageChunks> getChunksByOwner() {
+            Map<ImageLayer, ImageChunks> map = new HashMap<>();
+            for (int i = 0; i < owners.size(); i++) {
+                ImageLayer owner = owners.get(i);
+                if (owner != null) {
+                    map.put(owner, chunks.get(i));
+                }
+            }
+            return map;
         }
     }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.io;
+
+import pixelitor.layers.ImageLayer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Remembers where the images of the layers were last saved (or
+ * loaded from), so that a save can copy the already encoded data
+ * of the unchanged images from that file instead of encoding them again.
+ *
+ * An image is considered unchanged if the content version of its
+ * layer is the same, and the file was not modified since then.
+ *
+ * @param <T> the location of the image data within the file
+ */
+class SavedLayerImages<T> {
+    private final Map<ImageLayer, Record<T>> records
+            = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * Returns the record of the given layer if its image
+     * didn't change since it was saved, or null otherwise
+     */
+    Record<T> find(ImageLayer layer) {
+        Record<T> record = records.get(layer);
+        if (record == null) {
+            return null;
+        }
+        if (record.contentVersion != layer.getContentVersion()
+                || !record.isFileUnchanged()) {
+            records.remove(layer);
+            return null;
+        }
+        return record;
+    }
+
+    /**
+     * Remembers the image locations in a file that was completely read
+     */
+    void fileRead(File file, Map<ImageLayer, T> locations) {
+        Map<ImageLayer, Long> contentVersions = new HashMap<>();
+        for (ImageLayer layer : locations.keySet()) {
+            contentVersions.put(layer, layer.getContentVersion());
+        }
+        fileProcessed(file, locations, contentVersions);
+    }
+
+    /**
+     * Remembers the image locations in a file that was completely written.
+     * The content versions must be captured when the images were serialized,
+     * because the layers can be edited while the file is written.
+     */
+    void fileProcessed(File file, Map<ImageLayer, T> locations,
+                       Map<ImageLayer, Long> contentVersions) {
+        long lastModified = file.lastModified();
+        long length = file.length();
+        locations.forEach((layer, location) -> records.put(layer,
+                new Record<>(file, lastModified, length,
+                        contentVersions.get(layer), location)));
+    }
+
+    /**
+     * Creates a temporary file next to the given file, so that the
+     * previous version of the file can be read while the new one is written
+     */
+    static File createTmpFileFor(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        return File.createTempFile(file.getName(), ".tmp", dir);
+    }
+
+    static void replaceWithTmpFile(File tmp, File file) throws IOException {
+        try {
+            Files.move(tmp.toPath(), file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), file.toPath(), REPLACE_EXISTING);
+        }
+    }
+
+    static final class Record<T> {
+        private final File file;
+        private final long lastModified;
+        private final long length;
+        private final long contentVersion;
+        private final T location;
+
+        private Record(File file, long lastModified, long length,
+                       long contentVersion, T location) {
+            this.file = file;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.contentVersion = contentVersion;
+            this.location = location;
+        }
+
+        private boolean isFileUnchanged() {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+
+        File getFile() {
+            return file;
+        }
+
+        T getLocation() {
+            return location;
+        }
+    }
+}
@@ -20,6 +20,7 @@ package pixelitor.layers;
 import pixelitor.Composition;
 import pixelitor.filters.Filter;
 import pixelitor.filters.gui.FilterWithGUI;
+import pixelitor.filters.lookup.FusedPointFilter;
 import pixelitor.utils.Utils;
 
 import java.awt.Graphics2D;
@@ -27,6 +28,8 @@ import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A global adjustment to all the layers that are bellow this layer
@@ -39,6 +42,11 @@ public class AdjustmentLayer extends Layer {
 
     private final Filter filter;
 
+    // not serialized, they are re-created when first needed
+    private transient FilterResultCache resultCache;
+    // used when this layer is the first of several fused layers
+    private transient FilterResultCache fusedResultCache;
+
     public AdjustmentLayer(Composition comp, String name, Filter filter) {
         super(comp, name, null);
         this.filter = filter;
@@ -75,7 +83,54 @@ public class AdjustmentLayer extends Layer {
 
     @Override
     public BufferedImage actOnImageFromLayerBellow(BufferedImage src) {
-        return filter.transformImage(src);
+        if (resultCache == null) {
+            resultCache = new FilterResultCache();
+        }
+        return resultCache.get(filter, src);
+    }
+
+    /**
+     * Returns the index of the last layer in the run of adjustment layers
+     * that start at the given index and can be applied in a single pass,
+     * or the start index if there are no such layers.
+     * Invisible layers don't break the run.
+     */
+    public static int findFusibleRunEnd(List<Layer> layers, int start) {
+        int end = start;
+        for (int i = start; i < layers.size(); i++) {
+            Layer layer = layers.get(i);
+            if (!layer.isVisible()) {
+                continue;
+            }
+            if (!(layer instanceof AdjustmentLayer) || !((AdjustmentLayer) layer).canBeFused()) {
+                break;
+            }
+            end = i;
+        }
+        return end;
+    }
+
+    private boolean canBeFused() {
+        return !useMask() && isNormalAndOpaque() && filter.getPixelOp() != null;
+    }
+
+    /**
+     * Applies the filters of the visible adjustment layers in the given list
+     * (starting with this one) in a single pass over the pixels.
+     */
+    public BufferedImage applyFused(List<Layer> layers, BufferedImage src) {
+        assert layers.get(0) == this;
+
+        List<Filter> filters = new ArrayList<>(layers.size());
+        for (Layer layer : layers) {
+            if (layer.isVisible()) {
+                filters.add(((AdjustmentLayer) layer).filter);
+            }
+        }
+        if (fusedResultCache == null) {
+            fusedResultCache = new FilterResultCache();
+        }
+        return fusedResultCache.get(new FusedPointFilter(filters), src);
     }
 
     @Override
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.layers;
+
+import pixelitor.filters.Filter;
+import pixelitor.utils.ImageUtils;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+/**
+ * Caches the output of the filter of an {@link AdjustmentLayer}.
+ *
+ * The input image is identified by the hashes of its 64x64 tiles, and the
+ * filter settings by {@link Filter#getSettingsKey()}. If both are the same
+ * as the last time, then the filter doesn't run at all. If only some tiles
+ * changed and the filter is a point operation, then only those
+ * tiles are re-calculated.
+ */
+class FilterResultCache {
+    private static final int TILE_SIZE = 64;
+
+    // if more tiles changed, then filtering the whole image is faster
+    private static final double MAX_CHANGED_RATIO = 0.5;
+
+    // the constants of the 64-bit FNV-1a hash
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private BufferedImage output;
+    private long[] tileHashes;
+    private Object settingsKey;
+
+    /**
+     * Returns the filtered version of the given image. The returned
+     * image is never shared with the cache, so it can be modified.
+     */
+    public BufferedImage get(Filter filter, BufferedImage src) {
+        Object newKey = filter.getSettingsKey();
+        long[] newHashes = newKey == null ? null : calcTileHashes(src);
+        if (newHashes == null) {
+            invalidate();
+            return filter.transformImage(src);
+        }
+
+        if (!canReuseOutput(newKey, src, newHashes)
+                || !updateChangedTiles(filter, src, newHashes)) {
+            output = filter.transformImage(src);
+            if (output == src) { // the filter did nothing
+                output = ImageUtils.copyImage(src);
+            }
+        }
+        settingsKey = newKey;
+        tileHashes = newHashes;
+
+        return ImageUtils.copyImage(output);
+    }
+
+    public void invalidate() {
+        output = null;
+        tileHashes = null;
+        settingsKey = null;
+    }
+
+    private boolean canReuseOutput(Object newKey, BufferedImage src, long[] newHashes) {
+        return output != null
+                && newKey.equals(settingsKey)
+                && output.getWidth() == src.getWidth()
+                && output.getHeight() == src.getHeight()
+                && tileHashes.length == newHashes.length;
+    }
+
+    /**
+     * Re-calculates the tiles of the cached output whose input changed.
+     * Returns false if the whole image has to be filtered instead.
+     */
+    private boolean updateChangedTiles(Filter filter, BufferedImage src, long[] newHashes) {
+        int numChanged = 0;
+        for (int i = 0; i < newHashes.length; i++) {
+            if (newHashes[i] != tileHashes[i]) {
+                numChanged++;
+            }
+        }
+        if (numChanged == 0) {
+            return true;
+        }
+        if (!filter.isPointOperation() || numChanged > MAX_CHANGED_RATIO * newHashes.length) {
+            return false;
+        }
+
+        int width = src.getWidth();
+        int height = src.getHeight();
+        int numTilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        Raster srcRaster = src.getRaster();
+        WritableRaster outRaster = output.getRaster();
+        for (int i = 0; i < newHashes.length; i++) {
+            if (newHashes[i] == tileHashes[i]) {
+                continue;
+            }
+            int x = (i % numTilesX) * TILE_SIZE;
+            int y = (i / numTilesX) * TILE_SIZE;
+            int w = Math.min(TILE_SIZE, width - x);
+            int h = Math.min(TILE_SIZE, height - y);
+
+            // the filters expect images with their own rasters,
+            // so the tile can't be a sub-image
+            WritableRaster tileRaster = srcRaster.createCompatibleWritableRaster(w, h);
+            tileRaster.setDataElements(0, 0, srcRaster.createChild(x, y, w, h, 0, 0, null));
+            BufferedImage tile = new BufferedImage(src.getColorModel(),
+                    tileRaster, src.isAlphaPremultiplied(), null);
+
+            BufferedImage filteredTile = filter.transformImage(tile);
+            if (!filteredTile.getColorModel().equals(output.getColorModel())) {
+                return false;
+            }
+            outRaster.setDataElements(x, y, filteredTile.getRaster());
+        }
+        return true;
+    }
+
+    /**
+     * Returns the hashes of the 64x64 tiles of the given image,
+     * or null if the image type is not supported.
+     */
+    private static long[] calcTileHashes(BufferedImage img) {
+        Raster raster = img.getRaster();
+        int transferType = raster.getTransferType();
+        if (raster.getNumDataElements() != 1 || (transferType != DataBuffer.TYPE_INT
+                && transferType != DataBuffer.TYPE_BYTE)) {
+            return null;
+        }
+        boolean intData = transferType == DataBuffer.TYPE_INT;
+
+        int width = img.getWidth();
+        int height = img.getHeight();
+        int numTilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int numTilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+        long[] hashes = new long[numTilesX * numTilesY];
+        Arrays.fill(hashes, FNV_OFFSET_BASIS);
+
+        Object row = null;
+        for (int y = 0; y < height; y++) {
+            row = raster.getDataElements(0, y, width, 1, row);
+            int rowStart = (y / TILE_SIZE) * numTilesX;
+            for (int tx = 0; tx < numTilesX; tx++) {
+                int from = tx * TILE_SIZE;
+                int to = Math.min(from + TILE_SIZE, width);
+                long hash = hashes[rowStart + tx];
+                if (intData) {
+                    int[] pixels = (int[]) row;
+                    for (int i = from; i < to; i++) {
+                        hash = (hash ^ pixels[i]) * FNV_PRIME;
+                    }
+                } else {
+                    byte[] pixels = (byte[]) row;
+                    for (int i = from; i < to; i++) {
+                        hash = (hash ^ pixels[i]) * FNV_PRIME;
+                    }
+                }
+                hashes[rowStart + tx] = hash;
+            }
+        }
+        return hashes;
+    }
+}
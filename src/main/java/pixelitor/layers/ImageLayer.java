@@ -22,6 +22,7 @@ import pixelitor.Composition;
 import pixelitor.ConsistencyChecks;
 import pixelitor.filters.comp.Flip;
 import pixelitor.filters.comp.Rotate;
+import pixelitor.filters.gui.PreviewScheduler;
 import pixelitor.gui.utils.Dialogs;
 import pixelitor.history.ApplyLayerMaskEdit;
 import pixelitor.history.ContentLayerMoveEdit;
@@ -30,6 +31,7 @@ import pixelitor.history.ImageEdit;
 import pixelitor.history.PixelitorEdit;
 import pixelitor.io.PXCFormat;
 import pixelitor.selection.Selection;
+import pixelitor.selection.SelectionMask;
 import pixelitor.tools.Tools;
 import pixelitor.utils.ImageTrimUtil;
 import pixelitor.utils.ImageUtils;
@@ -126,6 +128,13 @@ public class ImageLayer extends ContentLayer implements Drawable {
      */
     private transient Rectangle trimmedBoundingBox;
 
+    /**
+     * Increased whenever the image content might have changed,
+     * so that savers can skip the unchanged images.
+     * Volatile because the saves read it on the IO thread.
+     */
+    private transient volatile long contentVersion = 0;
+
     private ImageLayer(Composition comp, String name, Layer parent) {
         super(comp, name, parent);
     }
@@ -231,7 +240,7 @@ public class ImageLayer extends ContentLayer implements Drawable {
 
     private void writeObject(ObjectOutputStream out) throws IOException {
         out.defaultWriteObject();
-        PXCFormat.serializeImage(out, image);
+        PXCFormat.serializeImage(out, image, this);
     }
 
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
@@ -243,7 +252,7 @@ public class ImageLayer extends ContentLayer implements Drawable {
         image = null;
 
         in.defaultReadObject();
-        setImage(PXCFormat.deserializeImage(in));
+        setImage(PXCFormat.deserializeImage(in, this));
         imageContentChanged = false;
     }
 
@@ -293,12 +302,20 @@ public class ImageLayer extends ContentLayer implements Drawable {
         if (selectionShape == null) {
             return newImg;
         } else {
+            Rectangle bounds = selectionShape.getBounds();
+            if (selectionShape instanceof SelectionMask) {
+                // the partially selected pixels are mixed
+                SelectionMask mask = (SelectionMask) selectionShape;
+                if (mask.copySelected(newImg, bounds.x, bounds.y, src, getTX(), getTY())) {
+                    return src;
+                }
+            }
+
             // the argument image pixels will replace the old ones only where selected
             Graphics2D g = src.createGraphics();
             g.translate(-getTX(), -getTY());
             g.setComposite(AlphaComposite.Src);
             g.setClip(selectionShape);
-            Rectangle bounds = selectionShape.getBounds();
             g.drawImage(newImg, bounds.x, bounds.y, null);
             g.dispose();
             return src;
@@ -331,6 +348,7 @@ public class ImageLayer extends ContentLayer implements Drawable {
         BufferedImage oldImage = image;
         setImage(newImage);
         ImageEdit edit = new ImageEdit(editName, comp, this, oldImage, true, false);
+        edit.storeAsDiffFrom(newImage);
         History.addEdit(edit);
 
         updateIconImage();
@@ -344,6 +362,9 @@ public class ImageLayer extends ContentLayer implements Drawable {
     public void startPreviewing() {
         assert state == NORMAL : "state was " + state;
 
+        // the results of an earlier session are not needed
+        PreviewScheduler.cancelPreview();
+
         if (comp.hasSelection()) {
             // if we have a selection, then the preview image reference cannot be simply
             // the image reference, because when we draw into the preview image, we would
@@ -363,6 +384,8 @@ public class ImageLayer extends ContentLayer implements Drawable {
         assert state == PREVIEW || state == SHOW_ORIGINAL;
         assert previewImage != null;
 
+        PreviewScheduler.cancelPreview();
+
         setState(NORMAL);
 
         // so that layer mask transparency image is regenerated
@@ -378,10 +401,14 @@ public class ImageLayer extends ContentLayer implements Drawable {
         assert (state == PREVIEW) || (state == SHOW_ORIGINAL);
         assert previewImage != null;
 
+        // the accepted image should reflect the latest settings
+        PreviewScheduler.finishPreview();
+
         if (imageContentChanged) {
             ImageEdit edit = new ImageEdit(filterName, comp, this,
                     getSelectedSubImage(true),
                     false, true);
+            edit.storeAsDiffFrom(previewImage);
             History.addEdit(edit);
         }
 
@@ -498,6 +525,7 @@ public class ImageLayer extends ContentLayer implements Drawable {
         assert imageForUndo != null;
         ImageEdit edit = new ImageEdit(filterName, comp, this,
                 imageForUndo, false, true);
+        edit.storeAsDiffFrom(image);
         History.addEdit(edit);
 
         // otherwise the next filter run will take the old image source,
@@ -531,9 +559,18 @@ public class ImageLayer extends ContentLayer implements Drawable {
     }
 
     public void imageChanged() {
+        contentChanged();
         invalidateCache();
     }
 
+    protected void contentChanged() {
+        contentVersion++;
+    }
+
+    public long getContentVersion() {
+        return contentVersion;
+    }
+
     public void invalidateCache() {
         trimmedBoundingBox = null;
     }
@@ -998,22 +1035,81 @@ public class ImageLayer extends ContentLayer implements Drawable {
                 g.drawImage(visibleImage, getTX(), getTY(), null);
                 tmpDrawingLayer.paintOn(g, 0, 0);
             } else { // layer is not in normal mode
-                // first create a merged layer-brush image
-                BufferedImage mergedLayerBrushImg = copyImage(visibleImage);
-                // TODO a canvas-sized image would be enough?
-                Graphics2D mergedLayerBrushG = mergedLayerBrushImg.createGraphics();
-
-                // draw the brush on the layer
-                tmpDrawingLayer.paintOn(mergedLayerBrushG, -getTX(), -getTY());
-                mergedLayerBrushG.dispose();
-
-                // now draw the merged layer-brush on the target Graphics
-                // with the layer composite
-                g.drawImage(mergedLayerBrushImg, getTX(), getTY(), null);
+                Rectangle drawnArea = tmpDrawingLayer.getDrawnArea();
+                if (drawnArea == null) {
+                    paintMergedWithTmpLayer(g, visibleImage);
+                } else {
+                    paintMergedWithTmpLayer(g, visibleImage, drawnArea);
+                }
             }
         }
     }
 
+    private void paintMergedWithTmpLayer(Graphics2D g, BufferedImage visibleImage) {
+        // first create a merged layer-brush image
+        BufferedImage mergedLayerBrushImg = copyImage(visibleImage);
+        Graphics2D mergedLayerBrushG = mergedLayerBrushImg.createGraphics();
+
+        // draw the brush on the layer
+        tmpDrawingLayer.paintOn(mergedLayerBrushG, -getTX(), -getTY());
+        mergedLayerBrushG.dispose();
+
+        // now draw the merged layer-brush on the target Graphics
+        // with the layer composite
+        g.drawImage(mergedLayerBrushImg, getTX(), getTY(), null);
+    }
+
+    /**
+     * Merges the layer and the tmp layer only within the area that
+     * was drawn into, and paints the rest of the layer unchanged.
+     */
+    private void paintMergedWithTmpLayer(Graphics2D g, BufferedImage visibleImage,
+                                         Rectangle drawnArea) {
+        int tx = getTX();
+        int ty = getTY();
+        Rectangle layerBounds = new Rectangle(tx, ty,
+                visibleImage.getWidth(), visibleImage.getHeight());
+        Rectangle area = drawnArea.intersection(layerBounds);
+        if (area.isEmpty()) {
+            g.drawImage(visibleImage, tx, ty, null);
+            return;
+        }
+
+        // the four bands around the drawn area
+        int layerMaxX = layerBounds.x + layerBounds.width;
+        int layerMaxY = layerBounds.y + layerBounds.height;
+        int areaMaxX = area.x + area.width;
+        int areaMaxY = area.y + area.height;
+        Rectangle[] bands = {
+                new Rectangle(layerBounds.x, layerBounds.y,
+                        layerBounds.width, area.y - layerBounds.y),
+                new Rectangle(layerBounds.x, areaMaxY,
+                        layerBounds.width, layerMaxY - areaMaxY),
+                new Rectangle(layerBounds.x, area.y,
+                        area.x - layerBounds.x, area.height),
+                new Rectangle(areaMaxX, area.y,
+                        layerMaxX - areaMaxX, area.height)
+        };
+        for (Rectangle band : bands) {
+            if (band.isEmpty()) {
+                continue;
+            }
+            Graphics2D bandG = (Graphics2D) g.create();
+            bandG.clipRect(band.x, band.y, band.width, band.height);
+            bandG.drawImage(visibleImage, tx, ty, null);
+            bandG.dispose();
+        }
+
+        // the merged layer-brush image of the drawn area
+        BufferedImage mergedLayerBrushImg = ImageUtils.getCopyOfSubimage(visibleImage,
+                new Rectangle(area.x - tx, area.y - ty, area.width, area.height));
+        Graphics2D mergedLayerBrushG = mergedLayerBrushImg.createGraphics();
+        tmpDrawingLayer.paintOn(mergedLayerBrushG, -area.x, -area.y);
+        mergedLayerBrushG.dispose();
+
+        g.drawImage(mergedLayerBrushImg, area.x, area.y, null);
+    }
+
     protected void paintLayerOnGraphicsWOTmpLayer(Graphics2D g,
                                                   BufferedImage visibleImage,
                                                   boolean firstVisibleLayer) {
@@ -1127,14 +1223,16 @@ public class ImageLayer extends ContentLayer implements Drawable {
         return ImageUtils.createSysCompatibleImage(width, height);
     }
 
-    // called when the image variable points to a new reference
+    // called when the image variable points to a new reference,
+    // overridden in LayerMask to also update the transparency image
     protected void imageRefChanged() {
-        // empty here, but overridden in LayerMask
-        // to update the transparency image
+        contentChanged();
     }
 
     @Override
     public void updateIconImage() {
+        // the icons are updated after the in-place changes
+        contentChanged();
         getUI().updateLayerIconImage(this);
     }
 
@@ -130,6 +130,15 @@ public abstract class Layer implements Serializable {
         return visible;
     }
 
+    /**
+     * Returns true if this layer changes the image composited so far
+     * instead of just painting over it (adjustment layers
+     * and watermarked text layers)
+     */
+    public boolean isAdjustment() {
+        return isAdjustment;
+    }
+
     public void setVisible(boolean newVisibility, boolean addToHistory) {
         if (this.visible == newVisibility) {
             return;
@@ -565,7 +574,7 @@ public abstract class Layer implements Serializable {
         }
     }
 
-    private boolean useMask() {
+    protected boolean useMask() {
         return mask != null && maskEnabled;
     }
 
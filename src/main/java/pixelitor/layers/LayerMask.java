@@ -132,11 +132,13 @@ public class LayerMask extends ImageLayer {
 
     @Override
     protected void imageRefChanged() {
+        super.imageRefChanged();
         updateFromBWImage();
     }
 
     @Override
     public void updateIconImage() {
+        contentChanged();
         LayerButton button = getUI();
         if(button != null) { // can be null while deserializing
             button.updateLayerIconImage(this);
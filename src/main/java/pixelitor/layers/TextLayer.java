@@ -58,6 +58,17 @@ public class TextLayer extends ContentLayer {
     private transient TranslatedTextPainter painter;
     private TextSettings settings;
 
+    // the text and its effects rendered into an image, which is
+    // valid as long as the settings, the translation and the canvas
+    // size are the same as at the time of the rendering
+    private transient BufferedImage renderedImage;
+    private transient Rectangle renderedBounds;
+    private transient TextSettings renderedSettings;
+    private transient int renderedTX;
+    private transient int renderedTY;
+    private transient int renderedCanvasWidth;
+    private transient int renderedCanvasHeight;
+
     public TextLayer(Composition comp) {
         this(comp, "");
     }
@@ -223,8 +234,68 @@ public class TextLayer extends ContentLayer {
 
     @Override
     public void paintLayerOnGraphics(Graphics2D g, boolean firstVisibleLayer) {
+        if (settings == null) {
+            return;
+        }
+        BufferedImage rendered = getRenderedImage();
+        if (rendered != null) {
+            g.drawImage(rendered, renderedBounds.x, renderedBounds.y, null);
+        }
+    }
+
+    /**
+     * Returns the text rendered with its effects into an image
+     * positioned at renderedBounds, or null if nothing is visible.
+     * The image is re-rendered only if something changed since
+     * the last time, so that compositing the other layers
+     * doesn't repeat the slow painting of the effects.
+     */
+    BufferedImage getRenderedImage() {
+        int canvasWidth = comp.getCanvasImWidth();
+        int canvasHeight = comp.getCanvasImHeight();
+        if (renderedSettings == settings
+                && renderedTX == painter.getTX() && renderedTY == painter.getTY()
+                && renderedCanvasWidth == canvasWidth
+                && renderedCanvasHeight == canvasHeight) {
+            return renderedImage;
+        }
+
+        renderedSettings = settings;
+        renderedTX = painter.getTX();
+        renderedTY = painter.getTY();
+        renderedCanvasWidth = canvasWidth;
+        renderedCanvasHeight = canvasHeight;
+        if (renderedImage != null) {
+            renderedImage.flush();
+            renderedImage = null;
+        }
+
+        Rectangle bounds = painter.calcBoundingBox(canvasWidth, canvasHeight);
+        // the bounding box is calculated from the font metrics,
+        // but some glyphs (for example italic ones) can overhang it
+        int margin = settings.getFont().getSize() / 3 + 2;
+        if (settings.getAreaEffects() != null) {
+            margin += settings.getAreaEffects().getMaxEffectThickness();
+        }
+        bounds.grow(margin, margin);
+        renderedBounds = bounds.intersection(new Rectangle(0, 0, canvasWidth, canvasHeight));
+        if (renderedBounds.isEmpty()) {
+            return null;
+        }
+
+        renderedImage = ImageUtils.createSysCompatibleImage(
+                renderedBounds.width, renderedBounds.height);
+        Graphics2D g = renderedImage.createGraphics();
+        g.translate(-renderedBounds.x, -renderedBounds.y);
         painter.setFillPaint(settings.getColor());
-        painter.paint(g, null, comp.getCanvasImWidth(), comp.getCanvasImHeight());
+        painter.paint(g, null, canvasWidth, canvasHeight);
+        g.dispose();
+
+        return renderedImage;
+    }
+
+    private void invalidateRenderedImage() {
+        renderedSettings = null;
     }
 
     @Override
@@ -263,6 +334,7 @@ public class TextLayer extends ContentLayer {
 
     public void setSettings(TextSettings settings) {
         this.settings = settings;
+        invalidateRenderedImage();
 
         isAdjustment = settings.isWatermark();
         settings.configurePainter(painter);
@@ -14,32 +14,70 @@
  * You should have received a copy of the GNU General Public License
  * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
  */
-
 package pixelitor.layers;
 
+import java.awt.AlphaComposite;
 import java.awt.Composite;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
 import java.awt.image.BufferedImage;
+import java.lang.ref.SoftReference;
 import java.util.Objects;
 
 /**
  * A temporary drawing layer for the tools that use blending modes.
+ *
+ * If the tool reports the area it is about to draw into, then
+ * drawing is restricted to that area, and only that area is
+ * composited and cleared afterwards. The canvas-sized image
+ * is reused by the next strokes while there is enough memory.
  */
 public class TmpDrawingLayer {
+    // the cleared image of the last disposed tmp layer
+    private static SoftReference<BufferedImage> reusableImage;
+
     private BufferedImage image;
     private final Graphics2D g;
     private final Composite composite;
 
+    // the area (relative to the canvas) that can contain
+    // drawn pixels, or null if it can be anywhere
+    private Rectangle drawnArea;
+
+    // the clip set by the tool (typically the selection)
+    private Shape toolClip;
+
     public TmpDrawingLayer(ImageLayer imageLayer, Composite composite) {
         this.composite = Objects.requireNonNull(composite);
 
         // the image is never translated,
         // the coordinates are relative to the canvas
-        image = imageLayer.createCanvasSizedTmpImage();
+        image = takeReusableImage(imageLayer.canvas.getImWidth(),
+                imageLayer.canvas.getImHeight());
+        if (image == null) {
+            image = imageLayer.createCanvasSizedTmpImage();
+        }
 
         g = image.createGraphics();
     }
 
+    private static synchronized BufferedImage takeReusableImage(int width, int height) {
+        if (reusableImage == null) {
+            return null;
+        }
+        BufferedImage img = reusableImage.get();
+        reusableImage = null;
+        if (img != null && img.getWidth() == width && img.getHeight() == height) {
+            return img;
+        }
+        return null;
+    }
+
+    private static synchronized void makeReusable(BufferedImage img) {
+        reusableImage = new SoftReference<>(img);
+    }
+
     public Graphics2D getGraphics() {
         return g;
     }
@@ -52,14 +90,64 @@ public class TmpDrawingLayer {
         return image.getHeight();
     }
 
+    /**
+     * Extends the area where drawing is allowed. Must be called
+     * before the area is drawn into, and after the tool has set
+     * its own clipping on the graphics.
+     */
+    public void extendDrawnArea(Rectangle canvasArea) {
+        Rectangle area = canvasArea.intersection(
+                new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        if (drawnArea == null) {
+            toolClip = g.getClip();
+            drawnArea = area;
+        } else if (area.isEmpty() || drawnArea.contains(area)) {
+            return;
+        } else if (drawnArea.isEmpty()) {
+            drawnArea = area;
+        } else {
+            drawnArea = drawnArea.union(area);
+        }
+        g.setClip(toolClip);
+        g.clipRect(drawnArea.x, drawnArea.y, drawnArea.width, drawnArea.height);
+    }
+
+    /**
+     * Returns the area (relative to the canvas) that can
+     * contain drawn pixels, or null if it can be anywhere
+     */
+    public Rectangle getDrawnArea() {
+        return drawnArea;
+    }
+
     public void dispose() {
         g.dispose();
-        image.flush();
+
+        // clear the used part so that the image can be reused
+        Graphics2D clearG = image.createGraphics();
+        clearG.setComposite(AlphaComposite.Clear);
+        if (drawnArea == null) {
+            clearG.fillRect(0, 0, image.getWidth(), image.getHeight());
+        } else {
+            clearG.fillRect(drawnArea.x, drawnArea.y, drawnArea.width, drawnArea.height);
+        }
+        clearG.dispose();
+
+        makeReusable(image);
         image = null;
     }
 
     public void paintOn(Graphics2D g, int tx, int ty) {
         g.setComposite(composite);
-        g.drawImage(image, tx, ty, null);
+        if (drawnArea == null) {
+            g.drawImage(image, tx, ty, null);
+        } else if (!drawnArea.isEmpty()) {
+            int x = drawnArea.x;
+            int y = drawnArea.y;
+            int maxX = x + drawnArea.width;
+            int maxY = y + drawnArea.height;
+            g.drawImage(image, tx + x, ty + y, tx + maxX, ty + maxY,
+                    x, y, maxX, maxY, null);
+        }
     }
 }
@@ -162,6 +162,16 @@ public class MenuBar extends JMenuBar {
         this.add(createHelpMenu(pw));
     }
 
+    /**
+     * Registers the filters of the Color and Filter menus
+     * without creating the main window, so that they can
+     * be found by name in the headless batch mode
+     */
+    public static void createFilterActions() {
+        createColorMenu();
+        createFilterMenu();
+    }
+
     private static JMenu createFileMenu(PixelitorWindow pw) {
         PMenu fileMenu = new PMenu("File", 'F');
 
@@ -578,6 +588,9 @@ public class MenuBar extends JMenuBar {
         selectMenu.buildAction(SelectionActions.getModify())
                 .enableIf(ACTION_ENABLED)
                 .add();
+        selectMenu.buildAction(SelectionActions.getFeather())
+                .enableIf(ACTION_ENABLED)
+                .add();
 
         return selectMenu;
     }
@@ -840,6 +853,7 @@ public class MenuBar extends JMenuBar {
         sub.buildFilter(JHMedian.NAME, JHMedian::new)
                 .noGUI()
                 .add();
+        sub.addFilter(Median.NAME, Median::new);
 
         sub.addSeparator();
 
@@ -98,7 +98,7 @@ public enum CopySource {
     }, COMPOSITE {
         @Override
         BufferedImage getImage(Composition comp) {
-            return comp.getCompositeImage();
+            return ImageUtils.copyImage(comp.getCompositeImage());
         }
 
         @Override
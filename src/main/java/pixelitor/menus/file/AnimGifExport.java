@@ -52,23 +52,25 @@ public class AnimGifExport {
                 .owner(dialogOwner)
                 .content(p)
                 .okText("Export")
-                .okAction(() -> export(comp, p.getDelayMillis(), p.isPingPong()))
+                .okAction(() -> export(comp, p.getDelayMillis(),
+                        p.isPingPong(), p.isSharedPalette()))
                 .show();
     }
 
-    private static void export(Composition activeComp, int delayMillis, boolean pingPong) {
+    private static void export(Composition activeComp, int delayMillis,
+                               boolean pingPong, boolean sharedPalette) {
         File file = FileChoosers.selectSaveFileForSpecificFormat(gifFilter);
         if (file != null) {
             LayerAnimation animation = new LayerAnimation(activeComp,
-                    delayMillis, pingPong);
+                    delayMillis, pingPong, sharedPalette);
             animation.saveToFile(file);
-            Messages.showFileSavedMessage(file);
         }
     }
 
     static class ExportPanel extends JPanel {
         private final JTextField delayTF;
         private final JCheckBox pingPongCB;
+        private final JCheckBox sharedPaletteCB;
 
         public ExportPanel(int nrLayers) {
             setBorder(createEmptyBorder(10, 10, 10, 10));
@@ -91,6 +93,11 @@ public class AnimGifExport {
                 pingPongCB.setEnabled(false);
             }
             add(pingPongCB);
+
+            sharedPaletteCB = new JCheckBox("Use the Same Colors in All Frames");
+            sharedPaletteCB.setToolTipText("<html>Faster, and avoids flickering colors," +
+                    "<br>but a frame might get less accurate colors");
+            add(sharedPaletteCB);
         }
 
         private int getDelayMillis() {
@@ -100,5 +107,9 @@ public class AnimGifExport {
         private boolean isPingPong() {
             return pingPongCB.isSelected();
         }
+
+        private boolean isSharedPalette() {
+            return sharedPaletteCB.isSelected();
+        }
     }
 }
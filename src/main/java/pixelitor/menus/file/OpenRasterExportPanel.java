@@ -23,8 +23,10 @@ import pixelitor.gui.utils.DialogBuilder;
 import pixelitor.gui.utils.Dialogs;
 import pixelitor.io.FileChoosers;
 import pixelitor.io.OpenRaster;
+import pixelitor.utils.ImageUtils;
 
 import javax.swing.*;
+import java.awt.image.BufferedImage;
 import java.io.File;
 
 /**
@@ -66,8 +68,10 @@ public class OpenRasterExportPanel extends JPanel {
     private static void okPressedInDialog(Composition comp, OpenRasterExportPanel p) {
         File file = FileChoosers.selectSaveFileForSpecificFormat(FileChoosers.oraFilter);
         if (file != null) {
-            boolean addMergedImage = p.exportMergedImage();
-            Runnable saveTask = () -> OpenRaster.uncheckedWrite(comp, file, addMergedImage);
+            // copied on the EDT, because the composite image is updated in place
+            BufferedImage mergedImage = p.exportMergedImage()
+                    ? ImageUtils.copyImage(comp.getCompositeImage()) : null;
+            Runnable saveTask = () -> OpenRaster.uncheckedWrite(comp, file, mergedImage);
             comp.saveAsync(saveTask, file, true);
         }
     }
@@ -120,7 +120,11 @@ public class Selection {
             return;
         }
 
-        paintAnts(g2, shape, dashPhase);
+        Shape antsShape = shape;
+        if (shape instanceof SelectionMask) {
+            antsShape = ((SelectionMask) shape).getOutline();
+        }
+        paintAnts(g2, antsShape, dashPhase);
     }
 
     private void paintAnts(Graphics2D g2, Shape shape, float phase) {
@@ -209,20 +213,39 @@ public class Selection {
     }
 
     public void modify(SelectionModifyType type, float amount) {
-        BasicStroke outlineStroke = new BasicStroke(amount);
-        Shape outlineShape = outlineStroke.createStrokedShape(shape);
+        Shape backupShape = shape;
+        if (SelectionMask.shouldRasterize(shape)) {
+            shape = type.modify(SelectionMask.from(shape), amount / 2.0f);
+        } else {
+            BasicStroke outlineStroke = new BasicStroke(amount);
+            Shape outlineShape = outlineStroke.createStrokedShape(shape);
+
+            Area oldArea = new Area(shape);
+            Area outlineArea = new Area(outlineShape);
 
-        Area oldArea = new Area(shape);
-        Area outlineArea = new Area(outlineShape);
+            shape = type.modify(oldArea, outlineArea);
+        }
+
+        changeFinished("Modify Selection", backupShape);
+    }
 
+    /**
+     * Softens the edges of the selection. The selection
+     * becomes a {@link SelectionMask} with partially selected pixels.
+     */
+    public void feather(float radius) {
         Shape backupShape = shape;
-        shape = type.modify(oldArea, outlineArea);
+        shape = SelectionMask.from(shape).feather(radius);
+
+        changeFinished("Feather Selection", backupShape);
+    }
 
+    private void changeFinished(String editName, Shape backupShape) {
         Composition comp = ic.getComp();
         boolean notEmpty = clipToCanvasSize(comp);
         if (notEmpty) {
             SelectionChangeEdit edit = new SelectionChangeEdit(
-                    "Modify Selection", comp, backupShape);
+                    editName, comp, backupShape);
             History.addEdit(edit);
         } else {
             comp.deselect(true);
@@ -231,7 +254,11 @@ public class Selection {
 
     public Shape transform(AffineTransform at) {
         Shape backupShape = shape;
-        shape = at.createTransformedShape(shape);
+        if (shape instanceof SelectionMask) {
+            shape = ((SelectionMask) shape).transform(at);
+        } else {
+            shape = at.createTransformedShape(shape);
+        }
         return backupShape;
     }
 
@@ -134,6 +134,34 @@ public final class SelectionActions {
         }
     }
 
+    private static final Action feather = new MenuAction("Feather Selection...") {
+        @Override
+        public void onClick() {
+            JPanel panel = new JPanel(new GridBagLayout());
+            GridBagHelper gbh = new GridBagHelper(panel);
+            RangeParam radius = new RangeParam("Radius (pixels)", 1, 5, 100);
+
+            gbh.addLabelWithControl("Radius", radius.createGUI());
+
+            new DialogBuilder()
+                    .content(panel)
+                    .title("Feather Selection")
+                    .okText("Feather")
+                    .cancelText("Close")
+                    .validator(d -> {
+                        Selection selection = getActiveCompOrNull().getSelection();
+                        if (selection != null) {
+                            selection.feather(radius.getValue());
+                        }
+
+                        // always return false so that
+                        // the Feather button does not close it
+                        return false;
+                    })
+                    .show();
+        }
+    };
+
     static {
         setEnabled(false, null);
     }
@@ -165,6 +193,7 @@ public final class SelectionActions {
         invert.setEnabled(b);
         showHide.setEnabled(b);
         modify.setEnabled(b);
+        feather.setEnabled(b);
         convertToPath.setEnabled(b);
     }
 
@@ -196,4 +225,8 @@ public final class SelectionActions {
         return modify;
     }
 
+    public static Action getFeather() {
+        return feather;
+    }
+
 }
@@ -24,35 +24,54 @@ import java.awt.geom.Area;
  * Corresponds to the "New Selection" combo box in the Selection Tool.
  */
 public enum SelectionInteraction {
-    REPLACE("Replace") { 
+    REPLACE("Replace") {
         @Override
         public Shape combine(Shape oldShape, Shape newShape) {
             return newShape;
         }
+
+        @Override
+        protected Shape combineAreas(Area oldArea, Area newArea) {
+            return newArea;
+        }
+
+        @Override
+        int combineCoverage(int oldCoverage, int newCoverage) {
+            return newCoverage;
+        }
     }, ADD("Add") {
         @Override
-        public Shape combine(Shape oldShape, Shape newShape) {
-            Area oldArea = new Area(oldShape);
-            Area newArea = new Area(newShape);
+        protected Shape combineAreas(Area oldArea, Area newArea) {
             oldArea.add(newArea);
             return oldArea;
         }
+
+        @Override
+        int combineCoverage(int oldCoverage, int newCoverage) {
+            return Math.max(oldCoverage, newCoverage);
+        }
     }, SUBTRACT("Subtract") {
         @Override
-        public Shape combine(Shape oldShape, Shape newShape) {
-            Area oldArea = new Area(oldShape);
-            Area newArea = new Area(newShape);
+        protected Shape combineAreas(Area oldArea, Area newArea) {
             oldArea.subtract(newArea);
             return oldArea;
         }
+
+        @Override
+        int combineCoverage(int oldCoverage, int newCoverage) {
+            return Math.min(oldCoverage, 255 - newCoverage);
+        }
     }, INTERSECT("Intersect") {
         @Override
-        public Shape combine(Shape oldShape, Shape newShape) {
-            Area oldArea = new Area(oldShape);
-            Area newArea = new Area(newShape);
+        protected Shape combineAreas(Area oldArea, Area newArea) {
             oldArea.intersect(newArea);
             return oldArea;
         }
+
+        @Override
+        int combineCoverage(int oldCoverage, int newCoverage) {
+            return Math.min(oldCoverage, newCoverage);
+        }
     };
 
     private final String guiName;
@@ -62,9 +81,24 @@ public enum SelectionInteraction {
     }
 
     /**
-     * Calculates the combined shape from the existing shape and the new one
+     * Calculates the combined shape from the existing shape and the new one.
+     * If one of them is a {@link SelectionMask} or they are too complex
+     * for the {@link Area} operations, then the result is a {@link SelectionMask}.
+     */
+    public Shape combine(Shape oldShape, Shape newShape) {
+        if (SelectionMask.shouldRasterize(oldShape, newShape)) {
+            return SelectionMask.from(oldShape)
+                    .combine(this, SelectionMask.from(newShape));
+        }
+        return combineAreas(new Area(oldShape), new Area(newShape));
+    }
+
+    protected abstract Shape combineAreas(Area oldArea, Area newArea);
+
+    /**
+     * Combines the coverage values (0-255) of a pixel in the two selections
      */
-    public abstract Shape combine(Shape oldShape, Shape newShape);
+    abstract int combineCoverage(int oldCoverage, int newCoverage);
 
     @Override
     public String toString() {
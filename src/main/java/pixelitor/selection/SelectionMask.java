@@ -0,0 +1,757 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.selection;
+
+import pixelitor.ThreadPool;
+import pixelitor.utils.ProgressTracker;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+
+/**
+ * A selection stored as an 8-bit coverage raster in image space,
+ * relative to the canvas. It is an alternative to the {@link java.awt.geom.Area}
+ * based selection shapes, which become very slow for complex outlines.
+ *
+ * The combine, modify and feather operations work directly on the
+ * coverage values. It is a {@link Shape}, so it can be stored in the
+ * history and used for clipping like any other selection shape. The
+ * path of the selected pixels is calculated only on demand, and it
+ * includes the pixels with a coverage of at least 50%.
+ *
+ * Instances are immutable.
+ */
+public final class SelectionMask implements Shape {
+    private static final int INSIDE_THRESHOLD = 128;
+
+    // shapes with more path segments are combined as rasters
+    private static final int MAX_SEGMENTS_FOR_AREAS = 2000;
+
+    // the bounds of the pixels with a non-zero coverage
+    private final Rectangle bounds;
+
+    // the coverage values of the pixels inside the bounds, row by row
+    private final byte[] coverage;
+
+    // calculated on demand
+    private Path2D fillPath;
+    private Path2D outline;
+
+    private SelectionMask(Rectangle bounds, byte[] coverage) {
+        this.bounds = bounds;
+        this.coverage = coverage;
+    }
+
+    /**
+     * Returns the given shape as a coverage mask. The shape is
+     * rasterized without antialiasing, the same way as it would clip.
+     */
+    public static SelectionMask from(Shape shape) {
+        if (shape instanceof SelectionMask) {
+            return (SelectionMask) shape;
+        }
+        Rectangle shapeBounds = shape.getBounds();
+        if (shapeBounds.isEmpty()) {
+            return new SelectionMask(new Rectangle(), new byte[0]);
+        }
+
+        BufferedImage img = new BufferedImage(shapeBounds.width, shapeBounds.height, TYPE_BYTE_GRAY);
+        Graphics2D g = img.createGraphics();
+        g.translate(-shapeBounds.x, -shapeBounds.y);
+        g.setColor(Color.WHITE);
+        g.fill(shape);
+        g.dispose();
+
+        byte[] pixels = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+        return trimmed(shapeBounds, pixels);
+    }
+
+    /**
+     * Returns true if the combination of the given shapes
+     * should be calculated with coverage masks
+     */
+    public static boolean shouldRasterize(Shape... shapes) {
+        int numSegments = 0;
+        for (Shape shape : shapes) {
+            if (shape instanceof SelectionMask) {
+                return true;
+            }
+            PathIterator it = shape.getPathIterator(null);
+            while (!it.isDone()) {
+                numSegments++;
+                if (numSegments > MAX_SEGMENTS_FOR_AREAS) {
+                    return true;
+                }
+                it.next();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates a mask from the given coverage values and bounds,
+     * shrinking the bounds to the pixels with a non-zero coverage
+     */
+    private static SelectionMask trimmed(Rectangle area, byte[] values) {
+        int width = area.width;
+        int minX = width;
+        int maxX = -1;
+        int minY = -1;
+        int maxY = -1;
+        for (int row = 0; row < area.height; row++) {
+            int offset = row * width;
+            int first = -1;
+            int last = -1;
+            for (int col = 0; col < width; col++) {
+                if (values[offset + col] != 0) {
+                    if (first == -1) {
+                        first = col;
+                    }
+                    last = col;
+                }
+            }
+            if (first != -1) {
+                if (minY == -1) {
+                    minY = row;
+                }
+                maxY = row;
+                minX = Math.min(minX, first);
+                maxX = Math.max(maxX, last);
+            }
+        }
+        if (minY == -1) {
+            return new SelectionMask(new Rectangle(), new byte[0]);
+        }
+
+        int newWidth = maxX - minX + 1;
+        int newHeight = maxY - minY + 1;
+        Rectangle newBounds = new Rectangle(area.x + minX, area.y + minY, newWidth, newHeight);
+        if (newWidth == width && newHeight == area.height) {
+            return new SelectionMask(newBounds, values);
+        }
+        byte[] newValues = new byte[newWidth * newHeight];
+        for (int row = 0; row < newHeight; row++) {
+            System.arraycopy(values, (row + minY) * width + minX,
+                    newValues, row * newWidth, newWidth);
+        }
+        return new SelectionMask(newBounds, newValues);
+    }
+
+    /**
+     * Returns the coverage (0-255) of the given pixel
+     */
+    public int getCoverage(int x, int y) {
+        int col = x - bounds.x;
+        int row = y - bounds.y;
+        if (col < 0 || row < 0 || col >= bounds.width || row >= bounds.height) {
+            return 0;
+        }
+        return coverage[row * bounds.width + col] & 0xFF;
+    }
+
+    private boolean isInside(int x, int y) {
+        return getCoverage(x, y) >= INSIDE_THRESHOLD;
+    }
+
+    public boolean isEmpty() {
+        return bounds.isEmpty();
+    }
+
+    /**
+     * Combines this mask with the given one pixel by pixel
+     */
+    public SelectionMask combine(SelectionInteraction interaction, SelectionMask other) {
+        Rectangle area = union(bounds, other.bounds);
+        if (area.isEmpty()) {
+            return this;
+        }
+        byte[] result = new byte[area.width * area.height];
+        ThreadPool.forEachRow(area.height, area.width, ProgressTracker.NULL_TRACKER, row -> {
+            int y = area.y + row;
+            int offset = row * area.width;
+            for (int col = 0; col < area.width; col++) {
+                int x = area.x + col;
+                result[offset + col] = (byte) interaction.combineCoverage(
+                        getCoverage(x, y), other.getCoverage(x, y));
+            }
+        });
+        return trimmed(area, result);
+    }
+
+    private static Rectangle union(Rectangle a, Rectangle b) {
+        if (a.isEmpty()) {
+            return new Rectangle(b);
+        }
+        if (b.isEmpty()) {
+            return new Rectangle(a);
+        }
+        return a.union(b);
+    }
+
+    /**
+     * Returns the part of this mask that is inside the given rectangle
+     */
+    public SelectionMask intersect(Rectangle2D rect) {
+        Rectangle intRect = rect.getBounds();
+        if (!intRect.equals(rect)) {
+            return combine(SelectionInteraction.INTERSECT, from(rect));
+        }
+        Rectangle area = bounds.intersection(intRect);
+        if (area.isEmpty()) {
+            return new SelectionMask(new Rectangle(), new byte[0]);
+        }
+        if (area.equals(bounds)) {
+            return this;
+        }
+        byte[] result = new byte[area.width * area.height];
+        for (int row = 0; row < area.height; row++) {
+            int srcOffset = (area.y - bounds.y + row) * bounds.width + area.x - bounds.x;
+            System.arraycopy(coverage, srcOffset, result, row * area.width, area.width);
+        }
+        return trimmed(area, result);
+    }
+
+    /**
+     * Returns the inverse of this mask within the given (canvas) bounds
+     */
+    public SelectionMask invert(Rectangle canvasBounds) {
+        Rectangle area = new Rectangle(canvasBounds);
+        byte[] result = new byte[area.width * area.height];
+        ThreadPool.forEachRow(area.height, area.width, ProgressTracker.NULL_TRACKER, row -> {
+            int y = area.y + row;
+            int offset = row * area.width;
+            for (int col = 0; col < area.width; col++) {
+                result[offset + col] = (byte) (255 - getCoverage(area.x + col, y));
+            }
+        });
+        return trimmed(area, result);
+    }
+
+    public SelectionMask translate(int dx, int dy) {
+        Rectangle newBounds = new Rectangle(bounds);
+        newBounds.translate(dx, dy);
+        return new SelectionMask(newBounds, coverage);
+    }
+
+    /**
+     * Returns the transformed mask if the transform is an integer
+     * translation, otherwise the transformed path of the selected pixels
+     */
+    public Shape transform(AffineTransform at) {
+        if ((at.getType() & ~AffineTransform.TYPE_TRANSLATION) == 0) {
+            double tx = at.getTranslateX();
+            double ty = at.getTranslateY();
+            if (tx == Math.rint(tx) && ty == Math.rint(ty)) {
+                return translate((int) tx, (int) ty);
+            }
+        }
+        return at.createTransformedShape(getFillPath());
+    }
+
+    /**
+     * Adds the pixels that are closer than the given distance to a selected pixel
+     */
+    public SelectionMask dilate(float distance) {
+        int margin = (int) Math.ceil(distance);
+        Rectangle area = new Rectangle(bounds.x - margin, bounds.y - margin,
+                bounds.width + 2 * margin, bounds.height + 2 * margin);
+        int[] dist = distanceTransform(area, true, distance);
+        return thresholdDistances(area, dist, distance, false);
+    }
+
+    /**
+     * Removes the pixels that are closer than the given distance to an unselected pixel
+     */
+    public SelectionMask erode(float distance) {
+        // the margin makes sure that the pixels outside the bounds count as unselected
+        Rectangle area = new Rectangle(bounds.x - 1, bounds.y - 1,
+                bounds.width + 2, bounds.height + 2);
+        int[] dist = distanceTransform(area, false, distance);
+        return thresholdDistances(area, dist, distance, true);
+    }
+
+    private static SelectionMask thresholdDistances(Rectangle area, int[] dist,
+                                                    float distance, boolean keepFar) {
+        double maxDist2 = (double) distance * distance;
+        byte[] result = new byte[dist.length];
+        for (int i = 0; i < dist.length; i++) {
+            boolean near = dist[i] <= maxDist2;
+            if (near != keepFar) {
+                result[i] = (byte) 255;
+            }
+        }
+        return trimmed(area, result);
+    }
+
+    /**
+     * Calculates for each pixel of the area the squared Euclidean
+     * distance to the nearest selected (or unselected) pixel, using the
+     * separable algorithm of Felzenszwalb and Huttenlocher. The distances
+     * greater than the given maximum distance are clamped.
+     */
+    private int[] distanceTransform(Rectangle area, boolean toSelected, float maxDistance) {
+        int width = area.width;
+        int height = area.height;
+        int far = (int) Math.min(Integer.MAX_VALUE / 4,
+                Math.ceil((double) maxDistance * maxDistance) + 1);
+        int[] dist = new int[width * height];
+
+        ThreadPool.processRows(height, width, ProgressTracker.NULL_TRACKER, (start, end) -> {
+            int[] f = new int[width];
+            int[] d = new int[width];
+            int[] v = new int[width];
+            double[] z = new double[width + 1];
+            for (int row = start; row < end; row++) {
+                int y = area.y + row;
+                for (int col = 0; col < width; col++) {
+                    boolean feature = isInside(area.x + col, y) == toSelected;
+                    f[col] = feature ? 0 : far;
+                }
+                distanceTransform1D(f, d, v, z, width, far);
+                System.arraycopy(d, 0, dist, row * width, width);
+            }
+        });
+        ThreadPool.processRange(width, height, ProgressTracker.NULL_TRACKER, (start, end) -> {
+            int[] f = new int[height];
+            int[] d = new int[height];
+            int[] v = new int[height];
+            double[] z = new double[height + 1];
+            for (int col = start; col < end; col++) {
+                for (int row = 0; row < height; row++) {
+                    f[row] = dist[row * width + col];
+                }
+                distanceTransform1D(f, d, v, z, height, far);
+                for (int row = 0; row < height; row++) {
+                    dist[row * width + col] = d[row];
+                }
+            }
+        });
+        return dist;
+    }
+
+    /**
+     * The one-dimensional distance transform of sampled functions
+     * (the lower envelope of parabolas rooted at the samples)
+     */
+    private static void distanceTransform1D(int[] f, int[] d, int[] v, double[] z,
+                                            int n, int far) {
+        int k = 0;
+        v[0] = 0;
+        z[0] = Double.NEGATIVE_INFINITY;
+        z[1] = Double.POSITIVE_INFINITY;
+        for (int q = 1; q < n; q++) {
+            double s = intersection(f, q, v[k]);
+            while (s <= z[k]) {
+                k--;
+                s = intersection(f, q, v[k]);
+            }
+            k++;
+            v[k] = q;
+            z[k] = s;
+            z[k + 1] = Double.POSITIVE_INFINITY;
+        }
+        k = 0;
+        for (int q = 0; q < n; q++) {
+            while (z[k + 1] < q) {
+                k++;
+            }
+            long dq = q - v[k];
+            d[q] = (int) Math.min(far, dq * dq + f[v[k]]);
+        }
+    }
+
+    private static double intersection(int[] f, int q, int p) {
+        return ((f[q] + (double) q * q) - (f[p] + (double) p * p)) / (2.0 * (q - p));
+    }
+
+    /**
+     * Softens the edges of the selection with three box blurs,
+     * which approximate a gaussian blur with the given radius
+     */
+    public SelectionMask feather(float radius) {
+        int boxRadius = Math.max(1, Math.round(radius / 3.0f));
+        int margin = 3 * boxRadius;
+        Rectangle area = new Rectangle(bounds.x - margin, bounds.y - margin,
+                bounds.width + 2 * margin, bounds.height + 2 * margin);
+        int width = area.width;
+        int height = area.height;
+        int[] values = new int[width * height];
+        for (int row = 0; row < bounds.height; row++) {
+            int srcOffset = row * bounds.width;
+            int dstOffset = (row + margin) * width + margin;
+            for (int col = 0; col < bounds.width; col++) {
+                values[dstOffset + col] = coverage[srcOffset + col] & 0xFF;
+            }
+        }
+
+        for (int pass = 0; pass < 3; pass++) {
+            ThreadPool.processRows(height, width, ProgressTracker.NULL_TRACKER, (start, end) -> {
+                int[] line = new int[width];
+                for (int row = start; row < end; row++) {
+                    System.arraycopy(values, row * width, line, 0, width);
+                    boxBlur(line, width, boxRadius);
+                    System.arraycopy(line, 0, values, row * width, width);
+                }
+            });
+            ThreadPool.processRange(width, height, ProgressTracker.NULL_TRACKER, (start, end) -> {
+                int[] line = new int[height];
+                for (int col = start; col < end; col++) {
+                    for (int row = 0; row < height; row++) {
+                        line[row] = values[row * width + col];
+                    }
+                    boxBlur(line, height, boxRadius);
+                    for (int row = 0; row < height; row++) {
+                        values[row * width + col] = line[row];
+                    }
+                }
+            });
+        }
+
+        byte[] result = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = (byte) values[i];
+        }
+        return trimmed(area, result);
+    }
+
+    /**
+     * An in-place box blur with a running sum. The values
+     * outside the line are considered to be zero.
+     */
+    private static void boxBlur(int[] line, int n, int radius) {
+        int size = 2 * radius + 1;
+        int[] input = line.clone();
+        int sum = 0;
+        for (int i = 0; i < radius && i < n; i++) {
+            sum += input[i];
+        }
+        for (int i = 0; i < n; i++) {
+            int in = i + radius;
+            if (in < n) {
+                sum += input[in];
+            }
+            int out = i - radius - 1;
+            if (out >= 0) {
+                sum -= input[out];
+            }
+            line[i] = (sum + size / 2) / size;
+        }
+    }
+
+    /**
+     * Replaces the pixels of the destination image with the pixels of the
+     * source image where this mask is set. Partially selected pixels are mixed.
+     * The images are positioned at the given coordinates relative to the canvas.
+     *
+     * Returns false (without changing anything) if the images don't have
+     * packed int pixels, and the caller has to fall back to clipping.
+     */
+    public boolean copySelected(BufferedImage src, int srcX, int srcY,
+                                BufferedImage dst, int dstX, int dstY) {
+        WritableRaster dstRaster = dst.getRaster();
+        Raster srcRaster = src.getRaster();
+        if (!hasPackedInts(srcRaster) || !hasPackedInts(dstRaster)) {
+            return false;
+        }
+
+        Rectangle area = bounds
+                .intersection(new Rectangle(srcX, srcY, src.getWidth(), src.getHeight()))
+                .intersection(new Rectangle(dstX, dstY, dst.getWidth(), dst.getHeight()));
+        if (area.isEmpty()) {
+            return true;
+        }
+        int width = area.width;
+        ThreadPool.processRows(area.height, width, ProgressTracker.NULL_TRACKER, (start, end) -> {
+            int[] srcRow = new int[width];
+            int[] dstRow = new int[width];
+            for (int row = start; row < end; row++) {
+                int y = area.y + row;
+                srcRaster.getDataElements(area.x - srcX, y - srcY, width, 1, srcRow);
+                dstRaster.getDataElements(area.x - dstX, y - dstY, width, 1, dstRow);
+                int maskOffset = (y - bounds.y) * bounds.width + area.x - bounds.x;
+                for (int col = 0; col < width; col++) {
+                    int c = coverage[maskOffset + col] & 0xFF;
+                    if (c == 255) {
+                        dstRow[col] = srcRow[col];
+                    } else if (c != 0) {
+                        dstRow[col] = mix(dstRow[col], srcRow[col], c);
+                    }
+                }
+                dstRaster.setDataElements(area.x - dstX, y - dstY, width, 1, dstRow);
+            }
+        });
+        return true;
+    }
+
+    private static boolean hasPackedInts(Raster raster) {
+        return raster.getTransferType() == DataBuffer.TYPE_INT
+                && raster.getNumDataElements() == 1;
+    }
+
+    private static int mix(int from, int to, int amount) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int a = (from >>> shift) & 0xFF;
+            int b = (to >>> shift) & 0xFF;
+            int mixed = a + ((b - a) * amount + 127) / 255;
+            result |= mixed << shift;
+        }
+        return result;
+    }
+
+    /**
+     * The path of the selected pixels as non-overlapping rectangles:
+     * the horizontal runs of selected pixels, merged vertically
+     * if the same run continues in the next row.
+     */
+    private synchronized Path2D getFillPath() {
+        if (fillPath != null) {
+            return fillPath;
+        }
+        Path2D path = new Path2D.Float(Path2D.WIND_NON_ZERO);
+        int width = bounds.width;
+
+        // the open rectangles: start x, end x (exclusive) and start y of each
+        int[] open = new int[0];
+        int numOpen = 0;
+        for (int row = 0; row <= bounds.height; row++) {
+            int[] runs = row < bounds.height ? findRuns(row) : new int[0];
+            int numRuns = runs.length / 2;
+            int[] nextOpen = new int[numRuns * 3];
+
+            // the runs are sorted, so they can be matched with a merge
+            int i = 0;
+            for (int r = 0; r < numRuns; r++) {
+                int start = runs[2 * r];
+                int end = runs[2 * r + 1];
+                while (i < numOpen && open[3 * i] < start) {
+                    addRect(path, open, i, row);
+                    i++;
+                }
+                if (i < numOpen && open[3 * i] == start && open[3 * i + 1] == end) {
+                    nextOpen[3 * r + 2] = open[3 * i + 2];
+                    i++;
+                } else {
+                    nextOpen[3 * r + 2] = row;
+                }
+                nextOpen[3 * r] = start;
+                nextOpen[3 * r + 1] = end;
+            }
+            while (i < numOpen) {
+                addRect(path, open, i, row);
+                i++;
+            }
+            open = nextOpen;
+            numOpen = numRuns;
+        }
+        assert numOpen == 0;
+        fillPath = path;
+        return path;
+    }
+
+    private void addRect(Path2D path, int[] open, int index, int endRow) {
+        float x1 = bounds.x + open[3 * index];
+        float x2 = bounds.x + open[3 * index + 1];
+        float y1 = bounds.y + open[3 * index + 2];
+        float y2 = bounds.y + endRow;
+        path.moveTo(x1, y1);
+        path.lineTo(x2, y1);
+        path.lineTo(x2, y2);
+        path.lineTo(x1, y2);
+        path.closePath();
+    }
+
+    /**
+     * Returns the start (inclusive) and end (exclusive) columns
+     * of the runs of selected pixels in the given row
+     */
+    private int[] findRuns(int row) {
+        int width = bounds.width;
+        int offset = row * width;
+        int numRuns = 0;
+        int[] runs = new int[8];
+        int col = 0;
+        while (col < width) {
+            if ((coverage[offset + col] & 0xFF) < INSIDE_THRESHOLD) {
+                col++;
+                continue;
+            }
+            int start = col;
+            while (col < width && (coverage[offset + col] & 0xFF) >= INSIDE_THRESHOLD) {
+                col++;
+            }
+            if (2 * numRuns + 2 > runs.length) {
+                runs = Arrays.copyOf(runs, runs.length * 2);
+            }
+            runs[2 * numRuns] = start;
+            runs[2 * numRuns + 1] = col;
+            numRuns++;
+        }
+        return Arrays.copyOf(runs, 2 * numRuns);
+    }
+
+    /**
+     * Returns the borders between the selected and unselected
+     * pixels as line segments, for the marching ants
+     */
+    public synchronized Shape getOutline() {
+        if (outline != null) {
+            return outline;
+        }
+        Path2D path = new Path2D.Float();
+        int minX = bounds.x;
+        int minY = bounds.y;
+        int maxX = bounds.x + bounds.width;
+        int maxY = bounds.y + bounds.height;
+
+        // horizontal borders
+        for (int y = minY; y <= maxY; y++) {
+            int runStart = -1;
+            for (int x = minX; x <= maxX; x++) {
+                boolean border = x < maxX && isInside(x, y - 1) != isInside(x, y);
+                if (border && runStart == -1) {
+                    runStart = x;
+                } else if (!border && runStart != -1) {
+                    path.moveTo(runStart, y);
+                    path.lineTo(x, y);
+                    runStart = -1;
+                }
+            }
+        }
+
+        // vertical borders
+        for (int x = minX; x <= maxX; x++) {
+            int runStart = -1;
+            for (int y = minY; y <= maxY; y++) {
+                boolean border = y < maxY && isInside(x - 1, y) != isInside(x, y);
+                if (border && runStart == -1) {
+                    runStart = y;
+                } else if (!border && runStart != -1) {
+                    path.moveTo(x, runStart);
+                    path.lineTo(x, y);
+                    runStart = -1;
+                }
+            }
+        }
+        outline = path;
+        return path;
+    }
+
+    @Override
+    public Rectangle getBounds() {
+        return new Rectangle(bounds);
+    }
+
+    @Override
+    public Rectangle2D getBounds2D() {
+        return new Rectangle(bounds);
+    }
+
+    @Override
+    public boolean contains(double x, double y) {
+        return isInside((int) Math.floor(x), (int) Math.floor(y));
+    }
+
+    @Override
+    public boolean contains(Point2D p) {
+        return contains(p.getX(), p.getY());
+    }
+
+    @Override
+    public boolean intersects(double x, double y, double w, double h) {
+        Rectangle area = pixelsOf(x, y, w, h);
+        for (int py = area.y; py < area.y + area.height; py++) {
+            for (int px = area.x; px < area.x + area.width; px++) {
+                if (isInside(px, py)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean intersects(Rectangle2D r) {
+        return intersects(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+    }
+
+    @Override
+    public boolean contains(double x, double y, double w, double h) {
+        if (w <= 0 || h <= 0) {
+            return false;
+        }
+        Rectangle area = pixelsOf(x, y, w, h);
+        if (!bounds.contains(x, y, w, h)) {
+            return false;
+        }
+        for (int py = area.y; py < area.y + area.height; py++) {
+            for (int px = area.x; px < area.x + area.width; px++) {
+                if (!isInside(px, py)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(Rectangle2D r) {
+        return contains(r.getX(), r.getY(), r.getWidth(), r.getHeight());
+    }
+
+    /**
+     * The pixels touched by the given rectangle, restricted to the bounds
+     */
+    private Rectangle pixelsOf(double x, double y, double w, double h) {
+        int x1 = (int) Math.floor(x);
+        int y1 = (int) Math.floor(y);
+        int x2 = (int) Math.ceil(x + w);
+        int y2 = (int) Math.ceil(y + h);
+        return new Rectangle(x1, y1, x2 - x1, y2 - y1).intersection(bounds);
+    }
+
+    @Override
+    public PathIterator getPathIterator(AffineTransform at) {
+        return getFillPath().getPathIterator(at);
+    }
+
+    @Override
+    public PathIterator getPathIterator(AffineTransform at, double flatness) {
+        return getFillPath().getPathIterator(at, flatness);
+    }
+
+    @Override
+    public String toString() {
+        return "SelectionMask{bounds=" + bounds + '}';
+    }
+}
@@ -32,29 +32,57 @@ public enum SelectionModifyType {
             previous.add(outlineShape);
             return previous;
         }
+
+        @Override
+        public SelectionMask modify(SelectionMask previous, float distance) {
+            return previous.dilate(distance);
+        }
     }, CONTRACT("Contract") {
         @Override
         public Shape modify(Area previous, Area outlineShape) {
             previous.subtract(outlineShape);
             return previous;
         }
+
+        @Override
+        public SelectionMask modify(SelectionMask previous, float distance) {
+            return previous.erode(distance);
+        }
     }, BORDER("Border") {
         @Override
         public Shape modify(Area previous, Area outlineShape) {
             return outlineShape;
         }
+
+        @Override
+        public SelectionMask modify(SelectionMask previous, float distance) {
+            return previous.dilate(distance).combine(
+                    SelectionInteraction.SUBTRACT, previous.erode(distance));
+        }
     }, BORDER_OUT("Border Outwards Only") {
         @Override
         public Shape modify(Area previous, Area outlineShape) {
             outlineShape.subtract(previous);
             return outlineShape;
         }
+
+        @Override
+        public SelectionMask modify(SelectionMask previous, float distance) {
+            return previous.dilate(distance).combine(
+                    SelectionInteraction.SUBTRACT, previous);
+        }
     }, BORDER_IN("Border Inwards Only") {
         @Override
         public Shape modify(Area previous, Area outlineShape) {
             previous.intersect(outlineShape);
             return previous;
         }
+
+        @Override
+        public SelectionMask modify(SelectionMask previous, float distance) {
+            return previous.combine(
+                    SelectionInteraction.SUBTRACT, previous.erode(distance));
+        }
     };
 
     private final String guiName;
@@ -69,6 +97,12 @@ public enum SelectionModifyType {
      */
     public abstract Shape modify(Area previous, Area outlineShape);
 
+    /**
+     * Calculates a new mask from the existing one. The distance
+     * is the half of the width of the outline used for shapes.
+     */
+    public abstract SelectionMask modify(SelectionMask previous, float distance);
+
     public static EnumParam<SelectionModifyType> asParam() {
         return new EnumParam<>("Type", SelectionModifyType.class);
     }
@@ -25,7 +25,6 @@ import pixelitor.gui.utils.DialogBuilder;
 import pixelitor.gui.utils.GUIUtils;
 import pixelitor.gui.utils.GridBagHelper;
 import pixelitor.gui.utils.SliderSpinner;
-import pixelitor.history.History;
 import pixelitor.layers.Drawable;
 import pixelitor.tools.brushes.AffectedArea;
 import pixelitor.tools.brushes.Brush;
@@ -41,10 +40,10 @@ import java.awt.Composite;
 import java.awt.Cursor;
 import java.awt.Graphics2D;
 import java.awt.GridBagLayout;
+import java.awt.Rectangle;
 import java.awt.Shape;
 import java.awt.geom.FlatteningPathIterator;
 import java.awt.geom.PathIterator;
-import java.awt.image.BufferedImage;
 
 import static java.awt.RenderingHints.KEY_ANTIALIASING;
 import static java.awt.RenderingHints.VALUE_ANTIALIAS_ON;
@@ -259,10 +258,8 @@ public abstract class AbstractBrushTool extends Tool {
     }
 
     private void finishBrushStroke(Drawable dr) {
-        BufferedImage originalImage = drawDestination.getOriginalImage(dr, this);
-        History.addToolArea(affectedArea.asRectangle(brush.getActualRadius()),
-                originalImage, dr,
-                false, getName());
+        Rectangle strokeArea = affectedArea.asRectangle(brush.getActualRadius());
+        drawDestination.addToHistory(dr, new Rectangle(strokeArea), getName());
 
         if (graphics != null) {
             graphics.dispose();
@@ -273,7 +270,7 @@ public abstract class AbstractBrushTool extends Tool {
 
         dr.updateIconImage();
 
-        dr.getComp().imageChanged(HISTOGRAM);
+        dr.getComp().imageChanged(HISTOGRAM, strokeArea);
     }
 
     public void drawBrushStrokeProgrammatically(Drawable dr, PPoint start, PPoint end) {
@@ -286,7 +283,7 @@ public abstract class AbstractBrushTool extends Tool {
     }
 
     protected void prepareProgrammaticBrushStroke(Drawable dr, PPoint start) {
-        drawDestination.prepareBrushStroke(dr);
+        drawDestination.prepareBrushStroke(dr, affectedArea, brush);
         graphics = createGraphicsForNewBrushStroke(dr);
     }
 
@@ -324,7 +321,7 @@ public abstract class AbstractBrushTool extends Tool {
      */
     private void newMousePoint(Drawable dr, PPoint p, boolean lineConnect) {
         if (graphics == null) { // a new brush stroke has to be initialized
-            drawDestination.prepareBrushStroke(dr);
+            drawDestination.prepareBrushStroke(dr, affectedArea, brush);
             graphics = createGraphicsForNewBrushStroke(dr);
             graphics.setRenderingHint(KEY_ANTIALIASING, VALUE_ANTIALIAS_ON);
 
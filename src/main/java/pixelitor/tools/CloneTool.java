@@ -33,6 +33,7 @@ import pixelitor.tools.brushes.LazyMouseBrush;
 import pixelitor.tools.util.PMouseEvent;
 import pixelitor.tools.util.PPoint;
 import pixelitor.utils.Cursors;
+import pixelitor.utils.ImageUtils;
 import pixelitor.utils.Messages;
 import pixelitor.utils.Mirror;
 import pixelitor.utils.RandomUtils;
@@ -205,7 +206,8 @@ public class CloneTool extends BlendingModeBrushTool {
         int dx = 0;
         int dy = 0;
         if (sampleAllLayers) {
-            sourceImage = comp.getCompositeImage();
+            // copied, because the strokes update the composite in place
+            sourceImage = ImageUtils.copyImage(comp.getCompositeImage());
         } else {
             Drawable dr = comp.getActiveDrawableOrThrow();
             sourceImage = dr.getImage();
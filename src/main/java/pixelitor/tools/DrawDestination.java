@@ -17,12 +17,17 @@
 
 package pixelitor.tools;
 
+import pixelitor.history.History;
+import pixelitor.history.TileBackup;
 import pixelitor.layers.Drawable;
-import pixelitor.utils.ImageUtils;
+import pixelitor.layers.TmpDrawingLayer;
+import pixelitor.tools.brushes.AffectedArea;
+import pixelitor.tools.brushes.Brush;
 import pixelitor.utils.test.Assertions;
 
 import java.awt.Composite;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 
 /**
@@ -32,29 +37,48 @@ import java.awt.image.BufferedImage;
  */
 public enum DrawDestination {
     TMP_LAYER {
+        // the affected area of the prepared stroke, which restricts
+        // the drawing (and compositing) within the temporary layer
+        private AffectedArea reportingArea;
+        private Brush brush;
+
         @Override
         public Graphics2D createGraphics(Drawable dr, Composite composite) {
-            return dr.createTmpDrawingLayer(composite).getGraphics();
+            TmpDrawingLayer tmpLayer = dr.createTmpDrawingLayer(composite);
+            if (reportingArea != null) {
+                reportingArea.startReporting(tmpLayer::extendDrawnArea,
+                        brush::getActualRadius);
+            }
+            return tmpLayer.getGraphics();
         }
 
         @Override
-        public void prepareBrushStroke(Drawable dr) {
-            // nothing to be done
+        public void prepareBrushStroke(Drawable dr, AffectedArea affectedArea, Brush brush) {
+            reportingArea = affectedArea;
+            this.brush = brush;
         }
 
         @Override
         public void finishBrushStroke(Drawable dr) {
+            if (reportingArea != null) {
+                reportingArea.stopReporting();
+                reportingArea = null;
+                brush = null;
+            }
             dr.mergeTmpDrawingLayerDown();
         }
 
         @Override
-        public BufferedImage getOriginalImage(Drawable dr, AbstractBrushTool tool) {
-            // it can simply return the drawable image because
+        public void addToHistory(Drawable dr, Rectangle strokeArea, String editName) {
+            // it can simply use the drawable image because
             // the drawing was on the temporary layer
-            return dr.getImage();
+            History.addToolArea(strokeArea, dr.getImage(), dr, false, editName);
         }
     }, DIRECT {
-        private BufferedImage copyBeforeStart;
+        // the original pixels are backed up only in the
+        // tiles that are reached by the brush
+        private TileBackup tileBackup;
+        private AffectedArea backedUpArea;
 
         @Override
         public Graphics2D createGraphics(Drawable dr, Composite composite) {
@@ -64,38 +88,45 @@ public enum DrawDestination {
         }
 
         @Override
-        public void prepareBrushStroke(Drawable dr) {
+        public void prepareBrushStroke(Drawable dr, AffectedArea affectedArea, Brush brush) {
             BufferedImage image = dr.getImage();
 
             assert Assertions.checkRasterMinimum(image);
 
-            copyBeforeStart = ImageUtils.copyImage(image);
+            tileBackup = new TileBackup(image, dr.getTX(), dr.getTY());
+            backedUpArea = affectedArea;
+            affectedArea.startReporting(tileBackup::backup, brush::getActualRadius);
         }
 
         @Override
         public void finishBrushStroke(Drawable dr) {
-            copyBeforeStart.flush();
-            copyBeforeStart = null;
+            backedUpArea.stopReporting();
+            backedUpArea = null;
+            tileBackup = null;
         }
 
         @Override
-        public BufferedImage getOriginalImage(Drawable dr, AbstractBrushTool tool) {
-            if (copyBeforeStart == null) {
-                throw new IllegalStateException("copyBeforeStart is null for " + tool.getName());
+        public void addToHistory(Drawable dr, Rectangle strokeArea, String editName) {
+            if (tileBackup == null) {
+                throw new IllegalStateException("no tile backup for " + editName);
             }
 
-            return copyBeforeStart;
+            History.addToolArea(strokeArea, tileBackup, dr, editName);
         }
     };
 
     public abstract Graphics2D createGraphics(Drawable dr, Composite composite);
 
-    public abstract void prepareBrushStroke(Drawable dr);
+    /**
+     * Called before the first brush position of a stroke.
+     */
+    public abstract void prepareBrushStroke(Drawable dr, AffectedArea affectedArea, Brush brush);
 
     public abstract void finishBrushStroke(Drawable dr);
 
     /**
-     * Returns the original (untouched) image for undo
+     * Saves the original (untouched) pixels of
+     * the given canvas-relative area for undo
      */
-    public abstract BufferedImage getOriginalImage(Drawable dr, AbstractBrushTool tool);
+    public abstract void addToHistory(Drawable dr, Rectangle strokeArea, String editName);
 }
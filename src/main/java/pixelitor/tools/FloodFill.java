@@ -0,0 +1,318 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.tools;
+
+import pixelitor.ThreadPool;
+import pixelitor.utils.ProgressTracker;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ * The pixels selected by a flood fill of the {@link PaintBucketTool}.
+ *
+ * The selected pixels are stored in a packed bitset (one bit per pixel)
+ * and the image is not modified while they are found, therefore the exact
+ * affected area is known before anything is changed, and only that area
+ * has to be backed up for undo.
+ */
+class FloodFill {
+    private final int width;
+    private final int height;
+
+    // each row starts at a new long, so that the
+    // rows can be written by different threads
+    private final int wordsPerRow;
+    private final long[] bits;
+
+    // the bounds of the selected pixels
+    private int minX = Integer.MAX_VALUE;
+    private int minY = Integer.MAX_VALUE;
+    private int maxX = -1;
+    private int maxY = -1;
+
+    private FloodFill(int width, int height) {
+        this.width = width;
+        this.height = height;
+        wordsPerRow = (width + 63) >>> 6;
+        bits = new long[wordsPerRow * height];
+    }
+
+    /**
+     * Selects the similar pixels connected to the given start point
+     * using the "Scanline fill" algorithm described at
+     * http://en.wikipedia.org/wiki/Flood_fill
+     */
+    static FloodFill local(int[] pixels, int width, int height,
+                           int startX, int startY,
+                           int tolerance, int rgbAtMouse) {
+        FloodFill fill = new FloodFill(width, height);
+        fill.scanlineFill(pixels, startX, startY, tolerance, rgbAtMouse);
+        return fill;
+    }
+
+    /**
+     * Selects all the similar pixels of the image, processing
+     * bands of rows in parallel
+     */
+    static FloodFill global(int[] pixels, int width, int height,
+                            int tolerance, int rgbAtMouse) {
+        FloodFill fill = new FloodFill(width, height);
+        ThreadPool.processRows(height, width, ProgressTracker.NULL_TRACKER,
+                (start, end) -> fill.selectSimilar(pixels, start, end, tolerance, rgbAtMouse));
+        return fill;
+    }
+
+    private void scanlineFill(int[] pixels, int startX, int startY,
+                              int tolerance, int rgbAtMouse) {
+        // the points to be inspected later, encoded as y * width + x
+        IntStack stack = new IntStack();
+        stack.push(startY * width + startX);
+
+        while (!stack.isEmpty()) {
+            int point = stack.pop();
+            int x = point % width;
+            int y = point / width;
+            if (isSet(x, y)) {
+                // it was reached from an other scanline
+                continue;
+            }
+            int offset = y * width;
+
+            // find the last replaceable point to the left
+            int scanlineMinX = x - 1;
+            while (scanlineMinX >= 0 && !isSet(scanlineMinX, y)
+                    && isSimilar(pixels[scanlineMinX + offset], rgbAtMouse, tolerance)) {
+                scanlineMinX--;
+            }
+            scanlineMinX++;
+
+            // find the last replaceable point to the right
+            int scanlineMaxX = x + 1;
+            while (scanlineMaxX < width && !isSet(scanlineMaxX, y)
+                    && isSimilar(pixels[scanlineMaxX + offset], rgbAtMouse, tolerance)) {
+                scanlineMaxX++;
+            }
+            scanlineMaxX--;
+
+            setRange(y, scanlineMinX, scanlineMaxX);
+            updateBounds(scanlineMinX, scanlineMaxX, y, y);
+
+            // look upwards and downwards for new points to be inspected later
+            if (y > 0) {
+                pushSeeds(stack, pixels, y - 1, scanlineMinX, scanlineMaxX,
+                        tolerance, rgbAtMouse);
+            }
+            if (y < height - 1) {
+                pushSeeds(stack, pixels, y + 1, scanlineMinX, scanlineMaxX,
+                        tolerance, rgbAtMouse);
+            }
+        }
+    }
+
+    private void pushSeeds(IntStack stack, int[] pixels, int y,
+                           int fromX, int toX,
+                           int tolerance, int rgbAtMouse) {
+        // if there are multiple pixels to be replaced
+        // that are horizontal neighbours,
+        // only one of them has to be inspected later
+        boolean pointsInLine = false;
+        int offset = y * width;
+        for (int x = fromX; x <= toX; x++) {
+            boolean shouldBeReplaced = !isSet(x, y)
+                    && isSimilar(pixels[x + offset], rgbAtMouse, tolerance);
+            if (!pointsInLine && shouldBeReplaced) {
+                stack.push(offset + x);
+                pointsInLine = true;
+            } else if (pointsInLine && !shouldBeReplaced) {
+                pointsInLine = false;
+            }
+        }
+    }
+
+    private void selectSimilar(int[] pixels, int startY, int endY,
+                               int tolerance, int rgbAtMouse) {
+        int bandMinX = Integer.MAX_VALUE;
+        int bandMaxX = -1;
+        int bandMinY = Integer.MAX_VALUE;
+        int bandMaxY = -1;
+        for (int y = startY; y < endY; y++) {
+            int offset = y * width;
+            int wordOffset = y * wordsPerRow;
+            boolean rowHasPixels = false;
+            for (int x = 0; x < width; x++) {
+                if (isSimilar(pixels[offset + x], rgbAtMouse, tolerance)) {
+                    bits[wordOffset + (x >>> 6)] |= 1L << x;
+                    if (x < bandMinX) {
+                        bandMinX = x;
+                    }
+                    if (x > bandMaxX) {
+                        bandMaxX = x;
+                    }
+                    rowHasPixels = true;
+                }
+            }
+            if (rowHasPixels) {
+                if (y < bandMinY) {
+                    bandMinY = y;
+                }
+                bandMaxY = y;
+            }
+        }
+        if (bandMaxY >= 0) {
+            synchronized (this) {
+                updateBounds(bandMinX, bandMaxX, bandMinY, bandMaxY);
+            }
+        }
+    }
+
+    private void updateBounds(int fromX, int toX, int fromY, int toY) {
+        if (fromX < minX) {
+            minX = fromX;
+        }
+        if (toX > maxX) {
+            maxX = toX;
+        }
+        if (fromY < minY) {
+            minY = fromY;
+        }
+        if (toY > maxY) {
+            maxY = toY;
+        }
+    }
+
+    private boolean isSet(int x, int y) {
+        return (bits[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Sets the bits between fromX and toX (both inclusive) in the given row
+     */
+    private void setRange(int y, int fromX, int toX) {
+        int wordOffset = y * wordsPerRow;
+        int firstWord = wordOffset + (fromX >>> 6);
+        int lastWord = wordOffset + (toX >>> 6);
+        long firstMask = -1L << fromX;
+        long lastMask = -1L >>> (63 - (toX & 63));
+        if (firstWord == lastWord) {
+            bits[firstWord] |= firstMask & lastMask;
+        } else {
+            bits[firstWord] |= firstMask;
+            Arrays.fill(bits, firstWord + 1, lastWord, -1L);
+            bits[lastWord] |= lastMask;
+        }
+    }
+
+    /**
+     * Returns true if the given pixel was selected by the fill
+     */
+    boolean isFilled(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return false;
+        }
+        return isSet(x, y);
+    }
+
+    /**
+     * Returns the bounding rectangle of the selected pixels,
+     * or null if nothing was selected
+     */
+    synchronized Rectangle getBounds() {
+        if (maxX < 0) {
+            return null;
+        }
+        return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
+    }
+
+    /**
+     * Sets the selected pixels to the given color. The given pixel
+     * array can belong to an image that covers only a part of the
+     * filled image, starting at areaX, areaY and having the given width.
+     */
+    void apply(int[] pixels, int areaX, int areaY, int areaWidth, int newRGB) {
+        Rectangle bounds = getBounds();
+        if (bounds == null) {
+            return;
+        }
+        int areaHeight = pixels.length / areaWidth;
+        Rectangle area = bounds.intersection(
+                new Rectangle(areaX, areaY, areaWidth, areaHeight));
+        if (area.isEmpty()) {
+            return;
+        }
+        int fromX = area.x;
+        int toX = area.x + area.width; // exclusive
+        ThreadPool.forEachRow(area.height, area.width, ProgressTracker.NULL_TRACKER, row -> {
+            int y = area.y + row;
+            int wordOffset = y * wordsPerRow;
+            int pixelOffset = (y - areaY) * areaWidth - areaX;
+            for (int w = fromX >>> 6, lastWord = (toX - 1) >>> 6; w <= lastWord; w++) {
+                long word = bits[wordOffset + w];
+                while (word != 0) {
+                    int x = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1; // clear the lowest set bit
+                    if (x >= fromX && x < toX) {
+                        pixels[pixelOffset + x] = newRGB;
+                    }
+                }
+            }
+        });
+    }
+
+    static boolean isSimilar(int color1, int color2, int tolerance) {
+        if (color1 == color2) {
+            return true;
+        }
+
+        int r1 = (color1 >>> 16) & 0xFF;
+        int g1 = (color1 >>> 8) & 0xFF;
+        int b1 = color1 & 0xFF;
+
+        int r2 = (color2 >>> 16) & 0xFF;
+        int g2 = (color2 >>> 8) & 0xFF;
+        int b2 = color2 & 0xFF;
+
+        return (r2 <= r1 + tolerance) && (r2 >= r1 - tolerance) &&
+                (g2 <= g1 + tolerance) && (g2 >= g1 - tolerance) &&
+                (b2 <= b1 + tolerance) && (b2 >= b1 - tolerance);
+    }
+
+    /**
+     * A growable stack of primitive ints, so that
+     * no object is allocated for the pushed points
+     */
+    private static class IntStack {
+        private int[] values = new int[1024];
+        private int size = 0;
+
+        void push(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int pop() {
+            return values[--size];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
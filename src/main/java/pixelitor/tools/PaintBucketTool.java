@@ -30,12 +30,10 @@ import pixelitor.utils.debug.DebugNode;
 import javax.swing.*;
 import java.awt.AlphaComposite;
 import java.awt.Graphics2D;
-import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
-import java.util.ArrayDeque;
-import java.util.Deque;
 
+import static pixelitor.Composition.ImageChangeActions.FULL;
 import static pixelitor.colors.FgBgColors.getBGColor;
 import static pixelitor.colors.FgBgColors.getFGColor;
 import static pixelitor.gui.utils.SliderSpinner.TextPosition.WEST;
@@ -108,17 +106,8 @@ public class PaintBucketTool extends Tool {
             return;
         }
 
-        BufferedImage backupForUndo = ImageUtils.copyImage(image);
-        boolean thereIsSelection = comp.hasSelection();
-        BufferedImage workingImage;
-        if (thereIsSelection) {
-            workingImage = ImageUtils.copyImage(image);
-        } else {
-            workingImage = image;
-        }
-
         String fill = (String) fillComboBox.getSelectedItem();
-        int rgbAtMouse = workingImage.getRGB(x, y);
+        int rgbAtMouse = image.getRGB(x, y);
         int newRGB;
         switch (fill) {
             case FILL_FOREGROUND:
@@ -137,195 +126,59 @@ public class PaintBucketTool extends Tool {
                 throw new IllegalStateException("fill = " + fill);
         }
 
-        Rectangle replacedArea;
+        int[] pixels = ImageUtils.getPixelsAsArray(image);
+        FloodFill floodFill;
         String action = (String) actionCB.getSelectedItem();
         int tolerance = toleranceParam.getValue();
         switch (action) {
             case ACTION_LOCAL:
-                replacedArea = scanlineFloodFill(workingImage,
-                        x, y, tolerance, rgbAtMouse, newRGB);
+                floodFill = FloodFill.local(pixels, imgWidth, imgHeight,
+                        x, y, tolerance, rgbAtMouse);
                 break;
             case ACTION_GLOBAL:
-                globalReplaceColor(workingImage,
-                        tolerance, rgbAtMouse, newRGB);
-                replacedArea = new Rectangle(0, 0, imgWidth, imgHeight);
+                floodFill = FloodFill.global(pixels, imgWidth, imgHeight,
+                        tolerance, rgbAtMouse);
                 break;
             default:
                 throw new IllegalStateException("action = " + action);
         }
 
-        if (replacedArea != null) { // something was replaced
-            History.addToolArea(replacedArea,
-                    backupForUndo, dr, true, getName());
-
-            if (thereIsSelection) {
-                Graphics2D g = image.createGraphics();
-
-                // the selection is relative to the canvas,
-                // so go to the canvas start
-                g.translate(-tx, -ty);
-                comp.applySelectionClipping(g);
-                g.translate(tx, ty); // go back
-
-                // makes "fill with transparency" possible
-                g.setComposite(AlphaComposite.Src);
-
-                g.drawImage(workingImage, 0, 0, null);
-                g.dispose();
-                workingImage.flush();
-            }
-            comp.imageChanged();
-            dr.updateIconImage();
-        }
-    }
-
-    /**
-     * Uses the "Scanline fill" algorithm described at
-     * http://en.wikipedia.org/wiki/Flood_fill
-     */
-    private static Rectangle scanlineFloodFill(BufferedImage img,
-                                               int x, int y, int tolerance,
-                                               int rgbAtMouse, int newRGB) {
-        int minX = x;
-        int maxX = x;
-        int minY = y;
-        int maxY = y;
-        int imgHeight = img.getHeight();
-        int imgWidth = img.getWidth();
-
-        int[] pixels = ImageUtils.getPixelsAsArray(img);
-
-        // Needed because the tolerance: we cannot assume that
-        // if the pixel is within the target range, it has been processed
-        boolean[] checkedPixels = new boolean[pixels.length];
-        for (int i = 0; i < checkedPixels.length; i++) {
-            checkedPixels[i] = false;
+        Rectangle replacedArea = floodFill.getBounds();
+        if (replacedArea == null) { // nothing was replaced
+            return;
         }
 
-        // the double-ended queue is used as a simple LIFO stack
-        Deque<Point> stack = new ArrayDeque<>();
-        stack.push(new Point(x, y));
-
-        while (!stack.isEmpty()) {
-            Point p = stack.pop();
-
-            x = p.x;
-            y = p.y;
-
-            // find the last replaceable point to the left
-            int scanlineMinX = x - 1;
-            int offset = y * imgWidth;
-            while ((scanlineMinX >= 0)
-                    && isSimilar(pixels[scanlineMinX + offset], rgbAtMouse, tolerance)) {
-                scanlineMinX--;
-            }
-            scanlineMinX++;
+        // only the replaced area is backed up, and the image is not changed yet
+        History.addToolArea(new Rectangle(replacedArea),
+                image, dr, true, getName());
 
-            // find the last replaceable point to the right
-            int scanlineMaxX = x + 1;
-            while ((scanlineMaxX < img.getWidth())
-                    && isSimilar(pixels[scanlineMaxX + offset], rgbAtMouse, tolerance)) {
-                scanlineMaxX++;
-            }
-            scanlineMaxX--;
+        if (comp.hasSelection()) {
+            BufferedImage filledArea = ImageUtils.getCopyOfSubimage(image, replacedArea);
+            floodFill.apply(ImageUtils.getPixelsAsArray(filledArea),
+                    replacedArea.x, replacedArea.y, replacedArea.width, newRGB);
 
-            // set the minX, maxX, minY, maxY variables
-            // that will be used to calculate the affected area
-            if (scanlineMinX < minX) {
-                minX = scanlineMinX;
-            }
-            if (scanlineMaxX > maxX) {
-                maxX = scanlineMaxX;
-            }
-            if (y > maxY) {
-                maxY = y;
-            } else if (y < minY) {
-                minY = y;
-            }
+            Graphics2D g = image.createGraphics();
 
-            // draw a line between (scanlineMinX, y) and (scanlineMaxX, y)
-            for (int i = scanlineMinX; i <= scanlineMaxX; i++) {
-                int index = i + offset;
-                pixels[index] = newRGB;
-                checkedPixels[index] = true;
-            }
+            // the selection is relative to the canvas,
+            // so go to the canvas start
+            g.translate(-tx, -ty);
+            comp.applySelectionClipping(g);
+            g.translate(tx, ty); // go back
 
-            // look upwards for new points to be inspected later
-            if (y > 0) {
-                // if there are multiple pixels to be replaced
-                // that are horizontal neighbours,
-                // only one of them has to be inspected later
-                boolean pointsInLine = false;
+            // makes "fill with transparency" possible
+            g.setComposite(AlphaComposite.Src);
 
-                int upOffset = (y - 1) * imgWidth;
-
-                for (int i = scanlineMinX; i <= scanlineMaxX; i++) {
-                    int upIndex = i + upOffset;
-                    boolean shouldBeReplaced = !checkedPixels[upIndex]
-                            && isSimilar(pixels[upIndex], rgbAtMouse, tolerance);
-
-                    if (!pointsInLine && shouldBeReplaced) {
-                        Point inspectLater = new Point(i, y - 1);
-                        stack.push(inspectLater);
-                        pointsInLine = true;
-                    } else if (pointsInLine && !shouldBeReplaced) {
-                        pointsInLine = false;
-                    }
-                }
-            }
-
-            // look downwards for new points to be inspected later
-            if (y < imgHeight - 1) {
-                boolean pointsInLine = false;
-                int downOffset = (y + 1) * imgWidth;
-
-                for (int i = scanlineMinX; i <= scanlineMaxX; i++) {
-                    int downIndex = i + downOffset;
-                    boolean shouldBeReplaced = !checkedPixels[downIndex]
-                            && isSimilar(pixels[downIndex], rgbAtMouse, tolerance);
-
-                    if (!pointsInLine && shouldBeReplaced) {
-                        Point inspectLater = new Point(i, y + 1);
-                        stack.push(inspectLater);
-                        pointsInLine = true;
-                    } else if (pointsInLine && !shouldBeReplaced) {
-                        pointsInLine = false;
-                    }
-                }
-            }
-        }
-
-        // return the affected area
-        return new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1);
-    }
-
-    private static void globalReplaceColor(BufferedImage img,
-                                           int tolerance,
-                                           int rgbAtMouse, int newRGB) {
-        int[] pixels = ImageUtils.getPixelsAsArray(img);
-        for (int i = 0; i < pixels.length; i++) {
-            if (isSimilar(pixels[i], rgbAtMouse, tolerance)) {
-                pixels[i] = newRGB;
-            }
-        }
-    }
-
-    private static boolean isSimilar(int color1, int color2, int tolerance) {
-        if (color1 == color2) {
-            return true;
+            g.drawImage(filledArea, replacedArea.x, replacedArea.y, null);
+            g.dispose();
+            filledArea.flush();
+        } else {
+            floodFill.apply(pixels, 0, 0, imgWidth, newRGB);
         }
 
-        int r1 = (color1 >>> 16) & 0xFF;
-        int g1 = (color1 >>> 8) & 0xFF;
-        int b1 = color1 & 0xFF;
-
-        int r2 = (color2 >>> 16) & 0xFF;
-        int g2 = (color2 >>> 8) & 0xFF;
-        int b2 = color2 & 0xFF;
-
-        return (r2 <= r1 + tolerance) && (r2 >= r1 - tolerance) &&
-                (g2 <= g1 + tolerance) && (g2 >= g1 - tolerance) &&
-                (b2 <= b1 + tolerance) && (b2 >= b1 - tolerance);
+        Rectangle canvasArea = new Rectangle(replacedArea);
+        canvasArea.translate(tx, ty);
+        comp.imageChanged(FULL, canvasArea);
+        dr.updateIconImage();
     }
 
     @Override
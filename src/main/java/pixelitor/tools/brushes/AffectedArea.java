@@ -21,6 +21,8 @@ import pixelitor.tools.util.PPoint;
 import pixelitor.utils.debug.DebugNode;
 
 import java.awt.Rectangle;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
 
 /**
  * Calculates the area affected by a brush for the undo.
@@ -32,6 +34,11 @@ public class AffectedArea {
     private double maxX = 0;
     private double maxY = 0;
 
+    // if not null, it is notified about the growing affected
+    // area before the brush draws into it
+    private Consumer<Rectangle> listener;
+    private DoubleSupplier radius;
+
     public AffectedArea() {
     }
 
@@ -45,6 +52,8 @@ public class AffectedArea {
         minY = y;
         maxX = x;
         maxY = y;
+
+        report();
     }
 
     /**
@@ -64,6 +73,30 @@ public class AffectedArea {
         } else if(y < minY) {
             minY = y;
         }
+
+        report();
+    }
+
+    /**
+     * Starts reporting the area that can be affected by the next
+     * brush positions (for example in order to back up its pixels).
+     * The brush radius is queried every time, because it
+     * can be changed with the keyboard during a stroke.
+     */
+    public void startReporting(Consumer<Rectangle> listener, DoubleSupplier radius) {
+        this.listener = listener;
+        this.radius = radius;
+    }
+
+    public void stopReporting() {
+        listener = null;
+        radius = null;
+    }
+
+    private void report() {
+        if (listener != null) {
+            listener.accept(asRectangle(radius.getAsDouble()));
+        }
     }
 
     /**
@@ -81,6 +81,7 @@ public final class AppPreferences {
     private static final String STATUS_BAR_SHOWN_KEY = "status_bar_shown";
 
     private static final String UNDO_LEVELS_KEY = "undo_levels";
+    private static final String UNDO_MEMORY_KEY = "undo_memory_mb";
 
     private static final String THUMB_SIZE_KEY = "thumb_size";
 
@@ -246,6 +247,24 @@ public final class AppPreferences {
         mainNode.putInt(UNDO_LEVELS_KEY, History.getUndoLevels());
     }
 
+    /**
+     * Returns the memory limit of the undo images in megabytes,
+     * or -1 if the default should be used
+     */
+    public static int loadUndoMemoryLimit() {
+        return mainNode.getInt(UNDO_MEMORY_KEY, -1);
+    }
+
+    private static void saveUndoMemoryLimit() {
+        // the default depends on the heap size, so it is not saved
+        int limit = History.getUserUndoMemoryLimit();
+        if (limit > 0) {
+            mainNode.putInt(UNDO_MEMORY_KEY, limit);
+        } else {
+            mainNode.remove(UNDO_MEMORY_KEY);
+        }
+    }
+
     public static int loadThumbSize() {
         return mainNode.getInt(THUMB_SIZE_KEY, LayerButtonLayout.SMALL_THUMB_SIZE);
     }
@@ -268,6 +287,7 @@ public final class AppPreferences {
         saveFgBgColors();
         WorkSpace.saveVisibility();
         saveUndoLevels();
+        saveUndoMemoryLimit();
         saveThumbSize();
         TipsOfTheDay.saveNextTipNr();
         saveNewImageSize();
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+/**
+ * A message handler for the headless command-line mode,
+ * which prints the messages to the console
+ */
+public class ConsoleMessageHandler implements MessageHandler {
+    @Override
+    public void showInStatusBar(String msg) {
+        System.out.println(msg);
+    }
+
+    @Override
+    public ProgressHandler startProgress(String msg, int max) {
+        return ProgressHandler.EMPTY;
+    }
+
+    @Override
+    public void showInfo(String title, String msg) {
+        System.out.println(title + ": " + msg);
+    }
+
+    @Override
+    public void showError(String title, String msg) {
+        System.err.println(title + ": " + msg);
+    }
+
+    @Override
+    public void showNotImageLayerError() {
+        System.err.println("The active layer is not an image layer.");
+    }
+
+    @Override
+    public void showNotDrawableError() {
+        System.err.println("The active layer is not an image layer or mask.");
+    }
+
+    @Override
+    public void showException(Throwable e) {
+        e.printStackTrace();
+    }
+
+    @Override
+    public void showException(Throwable e, Thread t) {
+        System.err.println("Exception in " + t.getName());
+        e.printStackTrace();
+    }
+
+    @Override
+    public void showExceptionOnEDT(Throwable e) {
+        e.printStackTrace();
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import pixelitor.Composition;
+import pixelitor.ThreadPool;
+import pixelitor.layers.ImageLayer;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+
+/**
+ * The red, green and blue histograms of an image area.
+ * Only the pixels that are not fully transparent are counted.
+ */
+public class Histogram {
+    public static final int NUM_BINS = 256;
+
+    private final int[] red;
+    private final int[] green;
+    private final int[] blue;
+
+    Histogram() {
+        this(new int[NUM_BINS], new int[NUM_BINS], new int[NUM_BINS]);
+    }
+
+    private Histogram(int[] red, int[] green, int[] blue) {
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
+    }
+
+    /**
+     * Calculates the histogram of the whole image in parallel
+     */
+    public static Histogram of(BufferedImage img) {
+        return of(img, new Rectangle(0, 0, img.getWidth(), img.getHeight()));
+    }
+
+    /**
+     * Calculates the histogram of the given rectangle of the image in parallel.
+     * The parts of the rectangle outside the image are ignored.
+     */
+    public static Histogram of(BufferedImage img, Rectangle area) {
+        Rectangle clipped = area.intersection(
+                new Rectangle(0, 0, img.getWidth(), img.getHeight()));
+        return calcParallel(img, clipped, null);
+    }
+
+    /**
+     * Calculates the histogram of the pixels inside the given shape
+     */
+    public static Histogram of(BufferedImage img, Shape shape) {
+        Rectangle area = shape.getBounds().intersection(
+                new Rectangle(0, 0, img.getWidth(), img.getHeight()));
+        if (area.isEmpty()) {
+            return new Histogram();
+        }
+
+        // the pixels of the mask are either 0 or 255,
+        // because the shape is filled without antialiasing
+        BufferedImage mask = new BufferedImage(area.width, area.height, TYPE_BYTE_GRAY);
+        Graphics2D g = mask.createGraphics();
+        g.translate(-area.x, -area.y);
+        g.setColor(Color.WHITE);
+        g.fill(shape);
+        g.dispose();
+
+        return calcParallel(img, area, mask.getRaster());
+    }
+
+    /**
+     * The histogram of the part of the layer image that is inside the canvas
+     */
+    public static Histogram ofLayer(ImageLayer layer) {
+        return of(layer.getCanvasSizedSubImage());
+    }
+
+    /**
+     * The histogram of the selected part of the active layer,
+     * or of the whole active layer if there is no selection
+     */
+    public static Histogram ofSelection(Composition comp, ImageLayer layer) {
+        Shape selection = comp.getSelectionShape();
+        if (selection == null) {
+            return ofLayer(layer);
+        }
+        return of(layer.getCanvasSizedSubImage(), selection);
+    }
+
+    private static Histogram calcParallel(BufferedImage img, Rectangle area, Raster mask) {
+        if (area.isEmpty()) {
+            return new Histogram();
+        }
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        Histogram[] partials = new Histogram[numThreads * 8];
+        int rowsPerPart = (area.height + partials.length - 1) / partials.length;
+        int numParts = (area.height + rowsPerPart - 1) / rowsPerPart;
+
+        ThreadPool.processRange(numParts, rowsPerPart * area.width,
+                ProgressTracker.NULL_TRACKER, (start, end) -> {
+                    for (int part = start; part < end; part++) {
+                        int y = area.y + part * rowsPerPart;
+                        int height = Math.min(rowsPerPart, area.y + area.height - y);
+                        Histogram partial = new Histogram();
+                        partial.addPixels(img, new Rectangle(area.x, y, area.width, height),
+                                mask, area.x, area.y);
+                        partials[part] = partial;
+                    }
+                });
+
+        Histogram result = new Histogram();
+        for (int i = 0; i < numParts; i++) {
+            result.add(partials[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Adds the pixels of the given image area to this histogram. If a mask
+     * is given, it must cover the area, its origin is at maskX, maskY
+     * in the image, and only the pixels where it is set are added.
+     */
+    void addPixels(BufferedImage img, Rectangle area, Raster mask, int maskX, int maskY) {
+        Raster raster = img.getRaster();
+        boolean intData = raster.getTransferType() == DataBuffer.TYPE_INT
+                && raster.getNumDataElements() == 1;
+        int width = area.width;
+        int[] row = new int[width];
+        byte[] maskRow = mask == null ? null : new byte[width];
+
+        for (int y = area.y; y < area.y + area.height; y++) {
+            if (intData) {
+                raster.getDataElements(area.x, y, width, 1, row);
+            } else {
+                img.getRGB(area.x, y, width, 1, row, 0, width);
+            }
+            if (mask != null) {
+                mask.getDataElements(area.x - maskX, y - maskY, width, 1, maskRow);
+            }
+            for (int x = 0; x < width; x++) {
+                int rgb = row[x];
+                if ((rgb >>> 24) == 0 || (maskRow != null && maskRow[x] == 0)) {
+                    continue;
+                }
+                red[(rgb >>> 16) & 0xFF]++;
+                green[(rgb >>> 8) & 0xFF]++;
+                blue[rgb & 0xFF]++;
+            }
+        }
+    }
+
+    void add(Histogram other) {
+        for (int i = 0; i < NUM_BINS; i++) {
+            red[i] += other.red[i];
+            green[i] += other.green[i];
+            blue[i] += other.blue[i];
+        }
+    }
+
+    void clear() {
+        for (int i = 0; i < NUM_BINS; i++) {
+            red[i] = 0;
+            green[i] = 0;
+            blue[i] = 0;
+        }
+    }
+
+    /**
+     * Returns a copy in which the counts are replaced by
+     * their (scaled) logarithms, for displaying them
+     */
+    public Histogram toLogarithmic() {
+        int[] logRed = new int[NUM_BINS];
+        int[] logGreen = new int[NUM_BINS];
+        int[] logBlue = new int[NUM_BINS];
+        for (int i = 0; i < NUM_BINS; i++) {
+            // Add one before taking the logarithm to avoid calculating log(0)
+            // Note that log(1) = 0, which is just perfect
+            // Also multiply with a big number to avoid rounding errors
+            logRed[i] = (int) (1000.0 * (Math.log(red[i] + 1)));
+            logGreen[i] = (int) (1000.0 * (Math.log(green[i] + 1)));
+            logBlue[i] = (int) (1000.0 * (Math.log(blue[i] + 1)));
+        }
+        return new Histogram(logRed, logGreen, logBlue);
+    }
+
+    public int[] getRed() {
+        return red.clone();
+    }
+
+    public int[] getGreen() {
+        return green.clone();
+    }
+
+    public int[] getBlue() {
+        return blue.clone();
+    }
+
+    /**
+     * Returns the number of counted (not fully transparent) pixels
+     */
+    public long getNumPixels() {
+        long sum = 0;
+        for (int count : red) {
+            sum += count;
+        }
+        return sum;
+    }
+}
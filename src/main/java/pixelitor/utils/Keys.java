@@ -18,11 +18,13 @@
 package pixelitor.utils;
 
 import javax.swing.*;
+import java.awt.GraphicsEnvironment;
 import java.awt.Toolkit;
 import java.awt.event.KeyEvent;
 
 import static java.awt.event.InputEvent.ALT_MASK;
 import static java.awt.event.InputEvent.CTRL_DOWN_MASK;
+import static java.awt.event.InputEvent.CTRL_MASK;
 import static java.awt.event.InputEvent.SHIFT_MASK;
 import static java.awt.event.KeyEvent.VK_ADD;
 import static java.awt.event.KeyEvent.VK_BACK_SPACE;
@@ -42,9 +44,10 @@ import static javax.swing.KeyStroke.getKeyStroke;
  * A convenience class for keeping track of keyboard shortcuts
  */
 public class Keys {
-    // Ctrl on Win/Linux, Command on Mac
-    private static final int MENU_CTRL_MASK
-            = Toolkit.getDefaultToolkit().getMenuShortcutKeyMask();
+    // Ctrl on Win/Linux, Command on Mac (the shortcuts
+    // are not used in headless mode, but they are created)
+    private static final int MENU_CTRL_MASK = GraphicsEnvironment.isHeadless()
+            ? CTRL_MASK : Toolkit.getDefaultToolkit().getMenuShortcutKeyMask();
 
     public static final KeyStroke CTRL_MINUS = getKeyStroke(VK_MINUS, MENU_CTRL_MASK);
     public static final KeyStroke CTRL_PLUS = getKeyStroke(VK_PLUS, MENU_CTRL_MASK);
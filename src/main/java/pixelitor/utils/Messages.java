@@ -20,6 +20,7 @@ package pixelitor.utils;
 import pixelitor.Build;
 import pixelitor.gui.GUIMessageHandler;
 
+import java.awt.GraphicsEnvironment;
 import java.io.File;
 
 import static java.lang.String.format;
@@ -34,6 +35,8 @@ public class Messages {
         try {
             if (Build.isTesting()) {
                 msgHandler = new TestMessageHandler();
+            } else if (GraphicsEnvironment.isHeadless()) {
+                msgHandler = new ConsoleMessageHandler();
             } else {
                 msgHandler = new GUIMessageHandler();
             }
@@ -29,7 +29,6 @@ import java.util.Random;
  */
 public class ReseedSupport {
     private static long seed = System.nanoTime();
-    private static final Random rand = new Random();
 
     private ReseedSupport() {
     }
@@ -39,12 +38,12 @@ public class ReseedSupport {
      * make sure that the filter runs with the same random numbers
      * as before when the re-run is NOT caused by pressing
      * the "reseed" button.
-     * Returns the random number generator which is reseeded.
+     * Returns a new random number generator with the current seed,
+     * so that several filters can run at the same time.
      * This must be called at the beginning of the filter.
      */
     public static Random reInitialize() {
-        rand.setSeed(seed);
-        return rand;
+        return new Random(seed);
     }
 
     /**
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import pixelitor.ThreadPool;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * Caches the histograms of the tiles of an image, so that after a
+ * local change only the histograms of the changed tiles have to
+ * be recalculated. The tile histograms are calculated in parallel
+ * and merged on demand.
+ */
+public class TiledHistogram {
+    private static final int TILE_SIZE = 256;
+
+    // the image of the cached tile histograms
+    private BufferedImage image;
+    private int numTilesX;
+    private int numTilesY;
+    private Histogram[] tiles;
+    private boolean[] dirtyTiles;
+    private boolean hasDirtyTiles;
+
+    private Histogram merged;
+
+    /**
+     * Returns the histogram of the given image. If it is the same image as in
+     * the previous call, then only the invalidated tiles are recalculated.
+     */
+    public Histogram get(BufferedImage img) {
+        if (img != image || tiles == null) {
+            init(img);
+        } else if (!hasDirtyTiles && merged != null) {
+            return merged;
+        }
+
+        ThreadPool.processRange(tiles.length, TILE_SIZE * TILE_SIZE,
+                ProgressTracker.NULL_TRACKER, (start, end) -> {
+                    for (int i = start; i < end; i++) {
+                        if (dirtyTiles[i]) {
+                            updateTile(i);
+                        }
+                    }
+                });
+
+        Histogram result = new Histogram();
+        for (Histogram tile : tiles) {
+            result.add(tile);
+        }
+        hasDirtyTiles = false;
+        merged = result;
+        return result;
+    }
+
+    private void init(BufferedImage img) {
+        image = img;
+        numTilesX = (img.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+        numTilesY = (img.getHeight() + TILE_SIZE - 1) / TILE_SIZE;
+        int numTiles = numTilesX * numTilesY;
+        tiles = new Histogram[numTiles];
+        dirtyTiles = new boolean[numTiles];
+        for (int i = 0; i < numTiles; i++) {
+            tiles[i] = new Histogram();
+            dirtyTiles[i] = true;
+        }
+        hasDirtyTiles = true;
+    }
+
+    private void updateTile(int index) {
+        int x = (index % numTilesX) * TILE_SIZE;
+        int y = (index / numTilesX) * TILE_SIZE;
+        int width = Math.min(TILE_SIZE, image.getWidth() - x);
+        int height = Math.min(TILE_SIZE, image.getHeight() - y);
+
+        Histogram tile = tiles[index];
+        tile.clear();
+        tile.addPixels(image, new Rectangle(x, y, width, height), null, 0, 0);
+        dirtyTiles[index] = false;
+    }
+
+    /**
+     * Marks the tiles intersecting the given area as changed
+     */
+    public void invalidateRegion(Rectangle area) {
+        if (tiles == null) {
+            return;
+        }
+        Rectangle r = area.intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        if (r.isEmpty()) {
+            return;
+        }
+        int lastTileX = (r.x + r.width - 1) / TILE_SIZE;
+        int lastTileY = (r.y + r.height - 1) / TILE_SIZE;
+        for (int ty = r.y / TILE_SIZE; ty <= lastTileY; ty++) {
+            for (int tx = r.x / TILE_SIZE; tx <= lastTileX; tx++) {
+                dirtyTiles[ty * numTilesX + tx] = true;
+            }
+        }
+        hasDirtyTiles = true;
+    }
+
+    public void invalidate() {
+        image = null;
+        tiles = null;
+        dirtyTiles = null;
+        merged = null;
+    }
+}
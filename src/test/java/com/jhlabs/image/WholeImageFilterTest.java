@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.jhlabs.image;
+
+import org.junit.Test;
+import pixelitor.filters.impl.HistogramMedianFilter;
+import pixelitor.filters.impl.MorphologyFilter;
+import pixelitor.utils.ProgressTracker;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+import static pixelitor.TestHelper.createRandomOpaqueImage;
+
+/**
+ * Checks that filtering in parallel bands gives the
+ * same result as filtering the whole image at once
+ */
+public class WholeImageFilterTest {
+    private static final int WIDTH = 57;
+    private static final int HEIGHT = 403;
+
+    @Test
+    public void test_median() {
+        checkBands(new MedianFilter("Median"));
+    }
+
+    @Test
+    public void test_reduceNoise() {
+        checkBands(new ReduceNoiseFilter("Reduce Noise"));
+    }
+
+    @Test
+    public void test_edge() {
+        checkBands(new EdgeFilter("Edge"));
+    }
+
+    @Test
+    public void test_emboss() {
+        EmbossFilter filter = new EmbossFilter("Emboss");
+        filter.setEmboss(true);
+        checkBands(filter);
+    }
+
+    @Test
+    public void test_morphology() {
+        MorphologyFilter filter = new MorphologyFilter("Morphology");
+        filter.setOp(MorphologyFilter.OP_DILATE);
+        filter.setKernel(MorphologyFilter.KERNEL_DIAMOND);
+        filter.setIterations(7);
+        checkBands(filter);
+    }
+
+    @Test
+    public void test_histogramMedian() {
+        HistogramMedianFilter filter = new HistogramMedianFilter("Median");
+        filter.setRadius(5);
+        checkBands(filter);
+    }
+
+    private static void checkBands(WholeImageFilter filter) {
+        filter.setProgressTracker(ProgressTracker.NULL_TRACKER);
+        BufferedImage src = createRandomOpaqueImage(WIDTH, HEIGHT, TYPE_INT_ARGB);
+
+        int[] pixels = src.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH);
+        int[] expected = filter.filterPixels(WIDTH, HEIGHT, pixels,
+                new Rectangle(0, 0, WIDTH, HEIGHT));
+
+        BufferedImage dst = filter.filter(src, null);
+        int[] actual = dst.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH);
+
+        assertThat(actual).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.jdesktop.swingx.graphics;
+
+import org.jdesktop.swingx.graphics.BlendComposite.BlendingMode;
+import org.junit.Test;
+
+import java.awt.CompositeContext;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.WritableRaster;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+import static pixelitor.TestHelper.createRandomImage;
+
+public class BlendCompositeTest {
+    private static final int WIDTH = 300;
+    private static final int HEIGHT = 200;
+
+    @Test
+    public void test_intDataSameAsReference() {
+        BufferedImage src = createRandomImage(WIDTH, HEIGHT, TYPE_INT_ARGB, 1);
+        BufferedImage dst = createRandomImage(WIDTH, HEIGHT, TYPE_INT_ARGB, 2);
+        ColorModel cm = src.getColorModel();
+
+        for (BlendingMode mode : BlendingMode.values()) {
+            for (float alpha : new float[]{1.0f, 0.6f}) {
+                BlendComposite composite = BlendComposite.getInstance(mode, alpha);
+
+                WritableRaster expected = dst.copyData(null);
+                CompositeContext reference = composite.createReferenceContext();
+                reference.compose(src.getRaster(), dst.getRaster(), expected);
+
+                WritableRaster actual = dst.copyData(null);
+                CompositeContext context = composite.createContext(cm, cm, null);
+                context.compose(src.getRaster(), dst.getRaster(), actual);
+
+                assertThat(getPixels(actual))
+                        .as(mode + ", alpha = " + alpha)
+                        .isEqualTo(getPixels(expected));
+            }
+        }
+    }
+
+    @Test
+    public void test_childRasters() {
+        BufferedImage src = createRandomImage(WIDTH, HEIGHT, TYPE_INT_ARGB, 3);
+        BufferedImage dst = createRandomImage(WIDTH, HEIGHT, TYPE_INT_ARGB, 4);
+        ColorModel cm = src.getColorModel();
+        BlendComposite composite = BlendComposite.getInstance(BlendingMode.SCREEN);
+
+        WritableRaster srcChild = src.getRaster()
+                .createWritableChild(10, 20, 100, 50, 0, 0, null);
+        WritableRaster expected = dst.copyData(null)
+                .createWritableChild(30, 5, 100, 50, 0, 0, null);
+        WritableRaster actual = dst.copyData(null)
+                .createWritableChild(30, 5, 100, 50, 0, 0, null);
+
+        composite.createReferenceContext().compose(srcChild, expected, expected);
+        composite.createContext(cm, cm, null).compose(srcChild, actual, actual);
+
+        assertThat(getPixels(actual)).isEqualTo(getPixels(expected));
+    }
+
+    private static int[] getPixels(WritableRaster raster) {
+        return (int[]) raster.getDataElements(0, 0,
+                raster.getWidth(), raster.getHeight(), null);
+    }
+}
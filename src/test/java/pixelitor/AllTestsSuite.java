@@ -17,9 +17,15 @@
 
 package pixelitor;
 
+import com.jhlabs.image.WholeImageFilterTest;
+import org.jdesktop.swingx.graphics.BlendCompositeTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
+import pixelitor.automate.BatchProcessorTest;
+import pixelitor.automate.FilterChainTest;
+import pixelitor.filters.FilterSettingsKeyTest;
 import pixelitor.filters.RandomFilterSourceTest;
+import pixelitor.filters.animation.AnimGIFWriterTest;
 import pixelitor.filters.comp.MultiLayerEditTest;
 import pixelitor.filters.gui.BooleanParamTest;
 import pixelitor.filters.gui.FilterParamTest;
@@ -27,19 +33,31 @@ import pixelitor.filters.gui.IntChoiceParamTest;
 import pixelitor.filters.gui.ParamSetTest;
 import pixelitor.filters.gui.ParamStateTest;
 import pixelitor.filters.gui.RangeParamTest;
+import pixelitor.filters.impl.HistogramMedianFilterTest;
+import pixelitor.filters.impl.MorphologyFilterTest;
 import pixelitor.filters.levels.LevelsTest;
+import pixelitor.filters.lookup.FusedPointFilterTest;
 import pixelitor.guides.GuidesTest;
+import pixelitor.history.ImageBackupTest;
+import pixelitor.history.ImageDiffTest;
 import pixelitor.history.PixelitorUndoManagerTest;
+import pixelitor.history.TileBackupTest;
+import pixelitor.io.ImageChunksTest;
+import pixelitor.io.SavedLayerImagesTest;
 import pixelitor.layers.ContentLayerTest;
+import pixelitor.layers.FilterResultCacheTest;
 import pixelitor.layers.ImageLayerTest;
 import pixelitor.layers.LayerBlendingModesTest;
 import pixelitor.layers.LayerTest;
 import pixelitor.layers.TextLayerTest;
+import pixelitor.selection.SelectionMaskTest;
 import pixelitor.tools.AbstractBrushToolTest;
+import pixelitor.tools.FloodFillTest;
 import pixelitor.tools.gradient.GradientHandlesTest;
 import pixelitor.tools.guidelines.RectGuidelineTest;
 import pixelitor.tools.transform.TransformBoxTest;
 import pixelitor.transform.TransformHelperTest;
+import pixelitor.utils.HistogramTest;
 import pixelitor.utils.ShapesTest;
 import pixelitor.utils.TrackedIOTest;
 import pixelitor.utils.UtilsTest;
@@ -63,18 +81,34 @@ import pixelitor.utils.UtilsTest;
 //        AllTestsSuite.class,
 
         AbstractBrushToolTest.class,
+        AnimGIFWriterTest.class,
+        BatchProcessorTest.class,
+        BlendCompositeTest.class,
         BooleanParamTest.class,
+        CompositeCacheTest.class,
         CompositionIOTest.class,
         CompositionTest.class,
         ContentLayerTest.class,
+        FilterChainTest.class,
         FilterParamTest.class,
+        FilterResultCacheTest.class,
+        FilterSettingsKeyTest.class,
+        FloodFillTest.class,
+        FusedPointFilterTest.class,
         GradientHandlesTest.class,
         GuidesTest.class,
+        HistogramMedianFilterTest.class,
+        HistogramTest.class,
+        ImageBackupTest.class,
+        ImageChunksTest.class,
+        ImageDiffTest.class,
         ImageLayerTest.class,
         IntChoiceParamTest.class,
         LayerBlendingModesTest.class,
         LayerTest.class,
         LevelsTest.class,
+        MipmapPyramidTest.class,
+        MorphologyFilterTest.class,
         MultiLayerEditTest.class,
         ParamSetTest.class,
         ParamStateTest.class,
@@ -82,12 +116,17 @@ import pixelitor.utils.UtilsTest;
         RandomFilterSourceTest.class,
         RangeParamTest.class,
         RectGuidelineTest.class,
+        SavedLayerImagesTest.class,
+        SelectionMaskTest.class,
         ShapesTest.class,
         TextLayerTest.class,
+        ThreadPoolTest.class,
+        TileBackupTest.class,
         TrackedIOTest.class,
         TransformBoxTest.class,
         TransformHelperTest.class,
-        UtilsTest.class,})
+        UtilsTest.class,
+        WholeImageFilterTest.class,})
 public class AllTestsSuite {
     // empty
 }
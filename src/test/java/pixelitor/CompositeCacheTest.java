@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import pixelitor.filters.Invert;
+import pixelitor.layers.AdjustmentLayer;
+import pixelitor.layers.ImageLayer;
+import pixelitor.utils.ImageUtils;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static pixelitor.Composition.ImageChangeActions.INVALIDATE_CACHE;
+import static pixelitor.TestHelper.createRandomImage;
+import static pixelitor.assertions.PixelitorAssertions.assertThat;
+
+public class CompositeCacheTest {
+    // not a multiple of the tile size, so that edge tiles are also tested
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 150;
+
+    private Composition comp;
+
+    @BeforeClass
+    public static void setupClass() {
+        Build.setTestingMode();
+    }
+
+    @Before
+    public void setUp() {
+        comp = TestHelper.createEmptyComposition(WIDTH, HEIGHT);
+    }
+
+    @Test
+    public void test_onlyDirtyTilesAreUpdated() {
+        addImageLayer(1);
+        ImageLayer active = addImageLayer(2);
+        comp.setActiveLayer(active);
+
+        BufferedImage composite = comp.getCompositeImage();
+        BufferedImage before = ImageUtils.copyImage(composite);
+
+        Rectangle stroke = new Rectangle(70, 10, 20, 20);
+        paint(active, stroke);
+        // changed, but not invalidated, so it must stay cached
+        int origRGB = active.getImage().getRGB(5, 140);
+        active.getImage().setRGB(5, 140, 0xFF_00_FF_00);
+        comp.imageChanged(INVALIDATE_CACHE, stroke);
+
+        BufferedImage updated = comp.getCompositeImage();
+        // the tiles are updated in place
+        assertThat(updated).isSameAs(composite);
+        assertThat(updated.getRGB(5, 140)).isEqualTo(before.getRGB(5, 140));
+
+        // the dirty tiles are the same as after a full re-composite
+        active.getImage().setRGB(5, 140, origRGB);
+        BufferedImage expected = comp.calculateCompositeImage();
+        assertThat(updated).hasSamePixelsAs(expected);
+    }
+
+    @Test
+    public void test_activeLayerAboveAdjustment() {
+        addImageLayer(1);
+        comp.addLayerInInitMode(new AdjustmentLayer(comp, "Invert", new Invert()));
+        ImageLayer active = addImageLayer(2);
+        comp.setActiveLayer(active);
+        BufferedImage composite = comp.getCompositeImage();
+
+        // crosses tile boundaries and the image edge
+        Rectangle stroke = new Rectangle(50, 120, 160, 40);
+        paint(active, stroke);
+        comp.imageChanged(INVALIDATE_CACHE, stroke);
+
+        // the adjustment is pre-merged into the layers
+        // bellow the active one, and the tiles are updated
+        BufferedImage updated = comp.getCompositeImage();
+        assertThat(updated).isSameAs(composite);
+        assertThat(updated).hasSamePixelsAs(comp.calculateCompositeImage());
+    }
+
+    @Test
+    public void test_activeLayerBellowAdjustment() {
+        ImageLayer active = addImageLayer(1);
+        comp.addLayerInInitMode(new AdjustmentLayer(comp, "Invert", new Invert()));
+        addImageLayer(2);
+        comp.setActiveLayer(active);
+        comp.getCompositeImage();
+
+        Rectangle stroke = new Rectangle(10, 10, 100, 30);
+        paint(active, stroke);
+        comp.imageChanged(INVALIDATE_CACHE, stroke);
+
+        // everything is re-composited
+        assertThat(comp.getCompositeImage())
+                .hasSamePixelsAs(comp.calculateCompositeImage());
+    }
+
+    private ImageLayer addImageLayer(long seed) {
+        BufferedImage image = createRandomImage(WIDTH, HEIGHT, TYPE_INT_ARGB, seed);
+        ImageLayer layer = new ImageLayer(comp, image, "layer " + seed, null);
+        comp.addLayerInInitMode(layer);
+        return layer;
+    }
+
+    private static void paint(ImageLayer layer, Rectangle area) {
+        BufferedImage image = layer.getImage();
+        Rectangle clipped = area.intersection(
+                new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        for (int y = clipped.y; y < clipped.y + clipped.height; y++) {
+            for (int x = clipped.x; x < clipped.x + clipped.width; x++) {
+                image.setRGB(x, y, 0x80_FF_00_00);
+            }
+        }
+    }
+}
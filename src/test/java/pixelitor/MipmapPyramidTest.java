@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor;
+
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MipmapPyramidTest {
+    @Test
+    public void test_getLevelFor() {
+        assertThat(MipmapPyramid.getLevelFor(2.0)).isEqualTo(0);
+        assertThat(MipmapPyramid.getLevelFor(1.0)).isEqualTo(0);
+        assertThat(MipmapPyramid.getLevelFor(0.7)).isEqualTo(0);
+        assertThat(MipmapPyramid.getLevelFor(0.5)).isEqualTo(1);
+        assertThat(MipmapPyramid.getLevelFor(0.353)).isEqualTo(1);
+        assertThat(MipmapPyramid.getLevelFor(0.25)).isEqualTo(2);
+        assertThat(MipmapPyramid.getLevelFor(0.125)).isEqualTo(3);
+    }
+
+    @Test
+    public void test_levelsAreAverages() {
+        // odd size, so that the edge handling is also tested
+        BufferedImage img = new BufferedImage(5, 3, TYPE_INT_ARGB_PRE);
+        fill(img, 0xFF_40_80_C0);
+        img.setRGB(0, 0, 0xFF_00_00_00);
+
+        MipmapPyramid pyramid = new MipmapPyramid();
+        BufferedImage level1 = pyramid.getLevel(img, 1);
+        assertThat(level1.getWidth()).isEqualTo(3);
+        assertThat(level1.getHeight()).isEqualTo(2);
+        // three of the four pixels have the fill color
+        assertThat(level1.getRGB(0, 0)).isEqualTo(0xFF_30_60_90);
+        assertThat(level1.getRGB(2, 1)).isEqualTo(0xFF_40_80_C0);
+
+        BufferedImage level2 = pyramid.getLevel(img, 2);
+        assertThat(level2.getWidth()).isEqualTo(2);
+        assertThat(level2.getHeight()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_transparentPixelsDontDarkenNonPremultiplied() {
+        BufferedImage img = new BufferedImage(4, 2, TYPE_INT_ARGB);
+        // an opaque white pixel next to transparent (black) ones
+        img.setRGB(0, 0, 0xFF_FF_FF_FF);
+        // a semi-transparent red pixel next to transparent ones
+        img.setRGB(2, 0, 0x80_FF_00_00);
+
+        MipmapPyramid pyramid = new MipmapPyramid();
+        BufferedImage level1 = pyramid.getLevel(img, 1);
+        assertThat(level1.getType()).isEqualTo(TYPE_INT_ARGB);
+        // the coverage is averaged, but the color stays the same
+        assertThat(level1.getRGB(0, 0)).isEqualTo(0x40_FF_FF_FF);
+        assertThat(level1.getRGB(1, 0)).isEqualTo(0x20_FF_00_00);
+    }
+
+    @Test
+    public void test_dirtyRegionUpdate() {
+        BufferedImage img = new BufferedImage(256, 256, TYPE_INT_ARGB_PRE);
+        fill(img, 0xFF_FF_FF_FF);
+
+        MipmapPyramid pyramid = new MipmapPyramid();
+        pyramid.getLevel(img, 3);
+
+        for (int y = 96; y < 104; y++) {
+            for (int x = 200; x < 208; x++) {
+                img.setRGB(x, y, 0xFF_00_00_00);
+            }
+        }
+
+        // without invalidation the old content is returned
+        assertThat(pyramid.getLevel(img, 3).getRGB(25, 12)).isEqualTo(0xFF_FF_FF_FF);
+
+        pyramid.invalidateRegion(new Rectangle(200, 96, 8, 8));
+        BufferedImage level3 = pyramid.getLevel(img, 3);
+        assertThat(level3.getRGB(25, 12)).isEqualTo(0xFF_00_00_00);
+        assertThat(level3.getRGB(24, 12)).isEqualTo(0xFF_FF_FF_FF);
+        assertThat(pyramid.getLevel(img, 1).getRGB(100, 48)).isEqualTo(0xFF_00_00_00);
+    }
+
+    private static void fill(BufferedImage img, int rgb) {
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                img.setRGB(x, y, rgb);
+            }
+        }
+    }
+}
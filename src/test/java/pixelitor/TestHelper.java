@@ -156,6 +156,36 @@ public class TestHelper {
         return new BufferedImage(TEST_WIDTH, TEST_HEIGHT, BufferedImage.TYPE_INT_ARGB);
     }
 
+    public static BufferedImage createRandomImage(int width, int height, int type) {
+        return createRandomImage(width, height, type, 42);
+    }
+
+    public static BufferedImage createRandomImage(int width, int height, int type, long seed) {
+        Random random = new Random(seed);
+        BufferedImage img = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                img.setRGB(x, y, random.nextInt());
+            }
+        }
+        return img;
+    }
+
+    /**
+     * Creates a random image without transparent pixels, whose
+     * ARGB values survive the premultiplication without rounding
+     */
+    public static BufferedImage createRandomOpaqueImage(int width, int height, int type) {
+        Random random = new Random(42);
+        BufferedImage img = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                img.setRGB(x, y, random.nextInt() | 0xFF_00_00_00);
+            }
+        }
+        return img;
+    }
+
     public static Graphics2D createGraphics() {
         return createImage().createGraphics();
     }
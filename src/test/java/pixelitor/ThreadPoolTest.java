@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor;
+
+import org.junit.Test;
+import pixelitor.utils.ProgressTracker;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the parallel range processing in {@link ThreadPool}
+ */
+public class ThreadPoolTest {
+    @Test
+    public void test_processRange_EachUnitOnce() {
+        for (int numUnits : new int[]{1, 7, 100, 10_000}) {
+            AtomicIntegerArray counts = new AtomicIntegerArray(numUnits);
+            CountingTracker tracker = new CountingTracker();
+
+            ThreadPool.processRange(numUnits, 1, tracker, (start, end) -> {
+                for (int i = start; i < end; i++) {
+                    counts.incrementAndGet(i);
+                }
+            });
+
+            for (int i = 0; i < numUnits; i++) {
+                assertThat(counts.get(i)).isEqualTo(1);
+            }
+            assertThat(tracker.units).isEqualTo(numUnits);
+        }
+    }
+
+    @Test
+    public void test_forEachRow_Nested() {
+        int numRows = 500;
+        AtomicIntegerArray counts = new AtomicIntegerArray(numRows * numRows);
+
+        ThreadPool.forEachRow(numRows, 100_000, ProgressTracker.NULL_TRACKER, y ->
+                ThreadPool.forEachRow(numRows, 100_000, ProgressTracker.NULL_TRACKER, x ->
+                        counts.incrementAndGet(y * numRows + x)));
+
+        for (int i = 0; i < counts.length(); i++) {
+            assertThat(counts.get(i)).isEqualTo(1);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_processRange_Exception() {
+        ThreadPool.processRange(1000, 100_000, ProgressTracker.NULL_TRACKER, (start, end) -> {
+            throw new IllegalStateException();
+        });
+    }
+
+    @Test
+    public void test_processRange_Interrupted() {
+        AtomicInteger processed = new AtomicInteger();
+        CountingTracker tracker = new CountingTracker();
+
+        Thread.currentThread().interrupt();
+        try {
+            ThreadPool.processRange(1000, 100_000, tracker,
+                    (start, end) -> processed.addAndGet(end - start));
+            fail("not cancelled");
+        } catch (CancellationException e) {
+            assertThat(processed.get()).isZero();
+            assertThat(tracker.finished).isTrue();
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    private static class CountingTracker implements ProgressTracker {
+        private int units = 0;
+        private boolean finished = false;
+
+        @Override
+        public void unitDone() {
+            units++;
+        }
+
+        @Override
+        public void unitsDone(int units) {
+            this.units += units;
+        }
+
+        @Override
+        public void finish() {
+            finished = true;
+        }
+    }
+}
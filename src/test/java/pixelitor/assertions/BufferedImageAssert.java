@@ -20,6 +20,7 @@ package pixelitor.assertions;
 import org.assertj.core.api.AbstractAssert;
 
 import java.awt.image.BufferedImage;
+import java.util.Objects;
 
 /**
  * Custom AssertJ assertions for {@link BufferedImage} objects.
@@ -54,4 +55,35 @@ public class BufferedImageAssert extends AbstractAssert<BufferedImageAssert, Buf
 
         return this;
     }
+
+    /**
+     * Checks that the images have the same size and the same ARGB values,
+     * and if they have the same type, then also the same raster data
+     */
+    public BufferedImageAssert hasSamePixelsAs(BufferedImage expected) {
+        widthIs(expected.getWidth());
+        heightIs(expected.getHeight());
+
+        int width = expected.getWidth();
+        int height = expected.getHeight();
+        int[] actualPixels = actual.getRGB(0, 0, width, height, null, 0, width);
+        int[] expectedPixels = expected.getRGB(0, 0, width, height, null, 0, width);
+        for (int i = 0; i < expectedPixels.length; i++) {
+            if (actualPixels[i] != expectedPixels[i]) {
+                failWithMessage("\nExpecting the pixel at (%d, %d) to be:\n  <%08X>\nbut was:\n  <%08X>",
+                        i % width, i / width, expectedPixels[i], actualPixels[i]);
+            }
+        }
+
+        if (actual.getType() == expected.getType()) {
+            Object actualData = actual.getRaster().getDataElements(0, 0, width, height, null);
+            Object expectedData = expected.getRaster().getDataElements(0, 0, width, height, null);
+            if (!Objects.deepEquals(actualData, expectedData)) {
+                failWithMessage("\nExpecting the same raster data as:\n  <%s>\nin:\n  <%s>",
+                        expected, actual);
+            }
+        }
+
+        return this;
+    }
 }
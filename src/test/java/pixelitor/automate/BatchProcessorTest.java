@@ -0,0 +1,127 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.automate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import pixelitor.Build;
+import pixelitor.automate.BatchProcessor.OverwriteDecision;
+import pixelitor.filters.jhlabsproxies.JHMedian;
+import pixelitor.io.OutputFormat;
+import pixelitor.menus.MenuBar;
+import pixelitor.utils.ImageUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static pixelitor.TestHelper.createRandomOpaqueImage;
+import static pixelitor.assertions.PixelitorAssertions.assertThat;
+
+public class BatchProcessorTest {
+    private static final int NUM_FILES = 12;
+    private static final int NUM_WORKERS = 4;
+
+    private File inputDir;
+    private File outputDir;
+
+    @BeforeClass
+    public static void setupClass() {
+        Build.setTestingMode();
+        MenuBar.createFilterActions();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        inputDir = Files.createTempDirectory("pix_batch_in").toFile();
+        outputDir = Files.createTempDirectory("pix_batch_out").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        deleteDir(inputDir);
+        deleteDir(outputDir);
+    }
+
+    @Test
+    public void test_multipleWorkersWithWholeImageFilter() throws Exception {
+        // the median is a WholeImageFilter, which keeps
+        // intermediate results in fields while it runs
+        List<String> chainLines = Arrays.asList("[" + JHMedian.NAME + "]", "[Invert]");
+        BatchImageOp op = FilterChain.parse(chainLines, "test").asBatchOp();
+        assertThat(op.copy()).isNotNull();
+
+        // different sizes, so that the workers would
+        // mix up their data if they shared a filter
+        File[] inputs = new File[NUM_FILES];
+        for (int i = 0; i < NUM_FILES; i++) {
+            BufferedImage img = createRandomOpaqueImage(100 + 13 * i, 80 + 7 * i, TYPE_INT_ARGB);
+            inputs[i] = new File(inputDir, "input" + i + ".png");
+            ImageIO.write(img, "png", inputs[i]);
+        }
+
+        List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        BatchProcessor processor = new BatchProcessor(op, OutputFormat.PNG, outputDir, NUM_WORKERS);
+        processor.processAll(inputs, new BatchProcessor.Listener() {
+            @Override
+            public boolean fileStarting(File file, int index, int numFiles) {
+                return true;
+            }
+
+            @Override
+            public OverwriteDecision outputExists(File outputFile) {
+                return OverwriteDecision.OVERWRITE;
+            }
+
+            @Override
+            public void fileFailed(File file, Throwable e) {
+                failures.add(e);
+            }
+        });
+        assertThat(failures).isEmpty();
+        assertThat(processor.getNumWritten()).isEqualTo(NUM_FILES);
+
+        // the same results as running the chain one file after the other
+        BatchImageOp serialOp = FilterChain.parse(chainLines, "test").asBatchOp();
+        for (File input : inputs) {
+            BufferedImage src = ImageUtils.toSysCompatibleImage(ImageIO.read(input));
+            BufferedImage expected = serialOp.process(src);
+            BufferedImage actual = ImageIO.read(new File(outputDir, input.getName()));
+            assertThat(actual).hasSamePixelsAs(expected);
+        }
+    }
+
+    private static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.automate;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import pixelitor.Build;
+import pixelitor.filters.ParametrizedFilter;
+import pixelitor.filters.gui.BooleanParam;
+import pixelitor.filters.gui.RangeParam;
+import pixelitor.menus.MenuBar;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FilterChainTest {
+    @BeforeClass
+    public static void setupClass() {
+        Build.setTestingMode();
+        MenuBar.createFilterActions();
+    }
+
+    @Test
+    public void test_parse() {
+        FilterChain chain = FilterChain.parse(Arrays.asList(
+                "# comment",
+                "[Gaussian Blur]",
+                "radius = 7",
+                "High-Pass Sharpening = true",
+                "",
+                "[Invert]"), "test");
+
+        assertThat(chain.getFilters()).hasSize(2);
+        ParametrizedFilter blur = (ParametrizedFilter) chain.getFilters().get(0);
+        List<?> params = blur.getParamSet().getParams();
+        assertThat(((RangeParam) params.get(0)).getValue()).isEqualTo(7);
+        assertThat(((BooleanParam) params.get(1)).isChecked()).isTrue();
+        assertThat(chain.getFilters().get(1).getName()).isEqualTo("Invert");
+    }
+
+    @Test
+    public void test_errors() {
+        assertThatThrownBy(() -> FilterChain.parse(Arrays.asList("[No Such Filter]"), "test"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("test, line 1");
+        assertThatThrownBy(() -> FilterChain.parse(Arrays.asList("[Gaussian Blur]", "Size = 3"), "test"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("line 2");
+        assertThatThrownBy(() -> FilterChain.parse(Arrays.asList("[Gaussian Blur]", "Radius = big"), "test"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("invalid value");
+        assertThatThrownBy(() -> FilterChain.parse(Arrays.asList("[Wood]", "Colors = red"), "test"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Colors can't be set");
+    }
+
+    @Test
+    public void test_asBatchOp() {
+        FilterChain chain = FilterChain.parse(Arrays.asList("[Invert]", "[Invert]"), "test");
+        BatchImageOp op = chain.asBatchOp();
+        assertThat(op.copy()).isNotNull();
+
+        BufferedImage src = new BufferedImage(4, 4, TYPE_INT_ARGB);
+        src.setRGB(1, 2, 0xFF_12_34_56);
+        BufferedImage result = op.process(src);
+
+        assertThat(result.getRGB(1, 2)).isEqualTo(0xFF_12_34_56);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+import pixelitor.Build;
+import pixelitor.filters.gui.ParamSet;
+import pixelitor.filters.gui.ParamState;
+import pixelitor.menus.MenuBar;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the settings keys and the param states of
+ * all filters are compared by their values
+ */
+@RunWith(Parameterized.class)
+public class FilterSettingsKeyTest {
+    @Parameter
+    public FilterAction action;
+
+    private ParametrizedFilter filter;
+
+    @Parameters(name = "{index}: {0}")
+    public static Collection<Object[]> instancesToTest() throws Exception {
+        Build.setTestingMode();
+        MenuBar.createFilterActions();
+
+        // the same filter could be registered by several tests
+        Map<String, FilterAction> actions = new LinkedHashMap<>();
+        // some filters can be created only on the EDT
+        SwingUtilities.invokeAndWait(() -> {
+            for (FilterAction action : FilterUtils.getAllFiltersSorted()) {
+                if (action.getFilter() instanceof ParametrizedFilter) {
+                    actions.putIfAbsent(action.getName(), action);
+                }
+            }
+        });
+
+        List<Object[]> instances = new ArrayList<>();
+        for (FilterAction action : actions.values()) {
+            instances.add(new Object[]{action});
+        }
+        return instances;
+    }
+
+    @Before
+    public void setUp() {
+        filter = (ParametrizedFilter) action.createNewFilter();
+        // not only the default values are checked
+        filter.randomizeSettings();
+    }
+
+    @Test
+    public void test_settingsKeyRoundTrip() {
+        Object key = filter.getSettingsKey();
+        if (key == null) {
+            // the filter opted out of the caching
+            return;
+        }
+        assertSameKey(filter.getSettingsKey(), key);
+
+        ParametrizedFilter copy = filter.copy();
+        assertThat(copy).isNotNull();
+        assertSameKey(copy.getSettingsKey(), key);
+    }
+
+    @Test
+    public void test_paramSetStateRoundTrip() {
+        ParamSet paramSet = filter.getParamSet();
+        if (!paramSet.canBeAnimated()) {
+            return;
+        }
+        List<ParamState> states = new ArrayList<>();
+        paramSet.copyState().forEach(states::add);
+
+        ParametrizedFilter other = (ParametrizedFilter) action.createNewFilter();
+        other.getParamSet().setState(paramSet.copyState());
+        List<ParamState> otherStates = new ArrayList<>();
+        other.getParamSet().copyState().forEach(otherStates::add);
+
+        assertThat(otherStates).hasSameSizeAs(states);
+        for (int i = 0; i < states.size(); i++) {
+            ParamState state = states.get(i);
+            if (state.hasValueEquality()) {
+                assertSameKey(otherStates.get(i), state);
+            }
+        }
+    }
+
+    private static void assertSameKey(Object actual, Object expected) {
+        assertThat(actual).isNotSameAs(expected);
+        assertThat(actual).isEqualTo(expected);
+        assertThat(actual.hashCode()).isEqualTo(expected.hashCode());
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.animation;
+
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AnimGIFWriterTest {
+    private static final int SIZE = 40;
+    private static final int NUM_FRAMES = 30;
+
+    @Test
+    public void test_separatePalettes() throws IOException {
+        checkWrittenFrames(false);
+    }
+
+    @Test
+    public void test_sharedPalette() throws IOException {
+        checkWrittenFrames(true);
+    }
+
+    private void checkWrittenFrames(boolean sharedPalette) throws IOException {
+        List<BufferedImage> frames = new ArrayList<>();
+        for (int i = 0; i < NUM_FRAMES; i++) {
+            frames.add(createFrame(i));
+        }
+
+        File file = File.createTempFile("pix_tmp", ".gif");
+        AnimGIFWriter writer = new AnimGIFWriter(file, 100);
+        if (sharedPalette) {
+            writer.setSharedPalette(frames);
+        }
+
+        // the same image is reused, like when rendering tweens
+        BufferedImage reused = new BufferedImage(SIZE, SIZE, TYPE_INT_ARGB);
+        for (BufferedImage frame : frames) {
+            Graphics2D g = reused.createGraphics();
+            g.drawImage(frame, 0, 0, null);
+            g.dispose();
+            writer.addFrame(reused);
+        }
+        writer.finish();
+
+        List<BufferedImage> read = readFrames(file);
+        file.delete();
+        assertThat(read).hasSize(NUM_FRAMES);
+        for (int i = 0; i < NUM_FRAMES; i++) {
+            // the frames are in order, and have roughly the right colors
+            Color expected = new Color(frames.get(i).getRGB(5, 5));
+            Color actual = new Color(read.get(i).getRGB(5, 5));
+            assertThat(Math.abs(expected.getRed() - actual.getRed())).isLessThan(16);
+            assertThat(Math.abs(expected.getBlue() - actual.getBlue())).isLessThan(16);
+        }
+    }
+
+    private static BufferedImage createFrame(int index) {
+        BufferedImage img = new BufferedImage(SIZE, SIZE, TYPE_INT_ARGB);
+        Graphics2D g = img.createGraphics();
+        int value = index * 255 / (NUM_FRAMES - 1);
+        g.setColor(new Color(value, 0, 255 - value));
+        g.fillRect(0, 0, SIZE, SIZE);
+        g.setColor(Color.WHITE);
+        g.fillRect(SIZE / 2, SIZE / 2, SIZE / 4, SIZE / 4);
+        g.dispose();
+        return img;
+    }
+
+    private static List<BufferedImage> readFrames(File file) throws IOException {
+        List<BufferedImage> frames = new ArrayList<>();
+        ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        try (ImageInputStream in = ImageIO.createImageInputStream(file)) {
+            reader.setInput(in);
+            int numFrames = reader.getNumImages(true);
+            for (int i = 0; i < numFrames; i++) {
+                frames.add(reader.read(i));
+            }
+        } finally {
+            reader.dispose();
+        }
+        return frames;
+    }
+}
@@ -61,6 +61,12 @@ public class ParamStateTest {
         FilterParam colorParamStart = new ColorParam("ColorParam", RED, FREE_OPACITY);
         FilterParam colorParamEnd = new ColorParam("ColorParam", BLUE, FREE_OPACITY);
 
+        FilterParam booleanParamStart = new BooleanParam("BooleanParam", false);
+        FilterParam booleanParamEnd = new BooleanParam("BooleanParam", true);
+
+        FilterParam choiceParamStart = IntChoiceParam.forEdgeAction();
+        FilterParam choiceParamEnd = IntChoiceParam.forEdgeAction(true);
+
         return Arrays.asList(new Object[][]{
                 {angleParamStart.copyState(), angleParamEnd.copyState()},
                 {rangeParamStart.copyState(), rangeParamEnd.copyState()},
@@ -68,6 +74,8 @@ public class ParamStateTest {
                 {gradientParamStart.copyState(), gradientParamEnd.copyState()},
                 {imagePositionParamStart.copyState(), imagePositionParamEnd.copyState()},
                 {colorParamStart.copyState(), colorParamEnd.copyState()},
+                {booleanParamStart.copyState(), booleanParamEnd.copyState()},
+                {choiceParamStart.copyState(), choiceParamEnd.copyState()},
         });
     }
 
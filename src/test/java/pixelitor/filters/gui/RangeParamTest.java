@@ -63,6 +63,21 @@ public class RangeParamTest {
         verify(al, times(1)).paramAdjusted();
     }
 
+    @Test
+    public void test_imageScale() {
+        RangeParam radius = new RangeParam("Radius", 0, 40, 100).withScaleDependence();
+        RangeParam other = new RangeParam("Other", 0, 40, 100);
+
+        int scaledRadius = RangeParam.supplyWithImageScale(0.25, radius::getValue);
+        int scaledOther = RangeParam.supplyWithImageScale(0.25, other::getValue);
+        assertThat(scaledRadius).isEqualTo(10);
+        assertThat(scaledOther).isEqualTo(40);
+
+        // the scaling doesn't leak outside the task
+        assertThat(radius.getValue()).isEqualTo(40);
+        assertThat(radius).isSetToDefault();
+    }
+
     @Test(expected = AssertionError.class)
     public void invalidArgsMinIsMax() {
         new RangeParam("name", 10, 10, 10);
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.impl;
+
+import com.jhlabs.image.MedianFilter;
+import org.junit.Test;
+import pixelitor.utils.ProgressTracker;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HistogramMedianFilterTest {
+    private static final int WIDTH = 41;
+    private static final int HEIGHT = 19;
+
+    @Test
+    public void test_againstSorting() {
+        Random random = new Random(11);
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        for (int radius = 1; radius <= 3; radius++) {
+            int[] actual = filter(pixels, radius);
+            int[] expected = sortingMedian(pixels, radius);
+            assertThat(actual).as("radius = " + radius).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    public void test_sameAs3x3ForGray() {
+        // for gray images the vector median of the 3x3 filter
+        // is the same as the median of the channels
+        Random random = new Random(12);
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < pixels.length; i++) {
+            int gray = random.nextInt(256);
+            pixels[i] = 0xFF_00_00_00 | gray << 16 | gray << 8 | gray;
+        }
+
+        int[] actual = filter(pixels, 1);
+
+        MedianFilter medianFilter = new MedianFilter("Median");
+        medianFilter.setProgressTracker(ProgressTracker.NULL_TRACKER);
+        BufferedImage src = new BufferedImage(WIDTH, HEIGHT, TYPE_INT_ARGB);
+        src.setRGB(0, 0, WIDTH, HEIGHT, pixels, 0, WIDTH);
+        BufferedImage dst = medianFilter.filter(src, null);
+        int[] expected = dst.getRGB(0, 0, WIDTH, HEIGHT, null, 0, WIDTH);
+
+        // the 3x3 filter handles the edges differently
+        for (int y = 1; y < HEIGHT - 1; y++) {
+            for (int x = 1; x < WIDTH - 1; x++) {
+                int i = y * WIDTH + x;
+                assertThat(actual[i]).as("x = " + x + ", y = " + y).isEqualTo(expected[i]);
+            }
+        }
+    }
+
+    private static int[] filter(int[] pixels, int radius) {
+        HistogramMedianFilter filter = new HistogramMedianFilter("Median");
+        filter.setProgressTracker(ProgressTracker.NULL_TRACKER);
+        filter.setRadius(radius);
+        return filter.filterPixels(WIDTH, HEIGHT, pixels.clone(),
+                new Rectangle(0, 0, WIDTH, HEIGHT));
+    }
+
+    private static int[] sortingMedian(int[] pixels, int radius) {
+        int diameter = 2 * radius + 1;
+        int[] values = new int[diameter * diameter];
+        int[] out = new int[pixels.length];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int rgb = 0;
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int n = 0;
+                    for (int dy = -radius; dy <= radius; dy++) {
+                        int iy = Math.min(HEIGHT - 1, Math.max(0, y + dy));
+                        for (int dx = -radius; dx <= radius; dx++) {
+                            int ix = Math.min(WIDTH - 1, Math.max(0, x + dx));
+                            values[n++] = (pixels[iy * WIDTH + ix] >>> shift) & 0xFF;
+                        }
+                    }
+                    Arrays.sort(values);
+                    rgb |= values[values.length / 2] << shift;
+                }
+                out[y * WIDTH + x] = rgb;
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.impl;
+
+import org.junit.Test;
+import pixelitor.utils.ProgressTracker;
+
+import java.awt.Rectangle;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static pixelitor.filters.impl.MorphologyFilter.KERNEL_DIAMOND;
+import static pixelitor.filters.impl.MorphologyFilter.KERNEL_SQUARE;
+import static pixelitor.filters.impl.MorphologyFilter.OP_DILATE;
+import static pixelitor.filters.impl.MorphologyFilter.OP_ERODE;
+
+/**
+ * Checks the running window implementation against
+ * the repeated application of the 3x3 kernel
+ */
+public class MorphologyFilterTest {
+    private static final int WIDTH = 23;
+    private static final int HEIGHT = 17;
+
+    @Test
+    public void test_dilateDiamond() {
+        checkAllRadii(OP_DILATE, KERNEL_DIAMOND);
+    }
+
+    @Test
+    public void test_erodeDiamond() {
+        checkAllRadii(OP_ERODE, KERNEL_DIAMOND);
+    }
+
+    @Test
+    public void test_dilateSquare() {
+        checkAllRadii(OP_DILATE, KERNEL_SQUARE);
+    }
+
+    @Test
+    public void test_erodeSquare() {
+        checkAllRadii(OP_ERODE, KERNEL_SQUARE);
+    }
+
+    private static void checkAllRadii(int op, int kernel) {
+        int[] pixels = createRandomPixels();
+        for (int radius = 1; radius <= 4; radius++) {
+            MorphologyFilter filter = new MorphologyFilter("Morphology");
+            filter.setProgressTracker(ProgressTracker.NULL_TRACKER);
+            filter.setOp(op);
+            filter.setKernel(kernel);
+            filter.setIterations(radius);
+
+            int[] actual = filter.filterPixels(WIDTH, HEIGHT, pixels.clone(),
+                    new Rectangle(0, 0, WIDTH, HEIGHT));
+            int[] expected = iterate(pixels, op, kernel, radius);
+            assertThat(actual).as("radius = " + radius).isEqualTo(expected);
+        }
+    }
+
+    /**
+     * The original algorithm, which applies the 3x3 kernel
+     * as many times as the radius and skips the pixels outside
+     */
+    private static int[] iterate(int[] pixels, int op, int kernel, int radius) {
+        int[] in = pixels.clone();
+        int[] out = new int[in.length];
+        for (int it = 0; it < radius; it++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    int a = 0xFF;
+                    int r = op == OP_DILATE ? 0 : 0xFF;
+                    int g = r;
+                    int b = r;
+                    for (int dy = -1; dy <= 1; dy++) {
+                        for (int dx = -1; dx <= 1; dx++) {
+                            if (kernel == KERNEL_DIAMOND && dx != 0 && dy != 0) {
+                                continue;
+                            }
+                            int ix = x + dx;
+                            int iy = y + dy;
+                            if (ix < 0 || ix >= WIDTH || iy < 0 || iy >= HEIGHT) {
+                                continue;
+                            }
+                            int rgb = in[iy * WIDTH + ix];
+                            int pa = rgb >>> 24;
+                            int pr = (rgb >>> 16) & 0xFF;
+                            int pg = (rgb >>> 8) & 0xFF;
+                            int pb = rgb & 0xFF;
+                            if (op == OP_ERODE) {
+                                a = Math.min(a, pa);
+                                r = Math.min(r, pr);
+                                g = Math.min(g, pg);
+                                b = Math.min(b, pb);
+                            } else {
+                                a = Math.max(a, pa);
+                                r = Math.max(r, pr);
+                                g = Math.max(g, pg);
+                                b = Math.max(b, pb);
+                            }
+                        }
+                    }
+                    out[y * WIDTH + x] = a << 24 | r << 16 | g << 8 | b;
+                }
+            }
+            int[] tmp = in;
+            in = out;
+            out = tmp;
+        }
+        return in;
+    }
+
+    private static int[] createRandomPixels() {
+        Random random = new Random(7);
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        return pixels;
+    }
+}
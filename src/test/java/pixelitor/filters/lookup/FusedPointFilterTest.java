@@ -0,0 +1,76 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.filters.lookup;
+
+import org.junit.Test;
+import pixelitor.filters.Filter;
+import pixelitor.filters.Invert;
+import pixelitor.filters.NoOpFilter;
+import pixelitor.filters.Posterize;
+import pixelitor.filters.RGBPixelOp;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static pixelitor.TestHelper.createRandomImage;
+import static pixelitor.assertions.PixelitorAssertions.assertThat;
+
+public class FusedPointFilterTest {
+    @Test
+    public void test_lookupsAreMerged() {
+        RGBPixelOp merged = LookupPixelOp.createInvert()
+                .andThen(LookupPixelOp.createInvert());
+
+        assertThat(merged).isInstanceOf(LookupPixelOp.class);
+        assertThat(merged.changeRGB(255, 10, 20, 30))
+                .isEqualTo(0xFF_0A_14_1E);
+    }
+
+    @Test
+    public void test_sameResultAsOneByOne() {
+        BufferedImage src = createRandomImage(300, 200, TYPE_INT_ARGB);
+        List<Filter> filters = Arrays.asList(new Invert(), new Posterize(), new Invert());
+
+        BufferedImage expected = src;
+        for (Filter filter : filters) {
+            expected = filter.transformImage(expected);
+        }
+        BufferedImage fused = new FusedPointFilter(filters).transformImage(src);
+
+        assertThat(fused).hasSamePixelsAs(expected);
+    }
+
+    @Test
+    public void test_fuse() {
+        Filter invert = new Invert();
+        Filter posterize = new Posterize();
+        Filter noOp = new NoOpFilter();
+        Filter lastInvert = new Invert();
+
+        List<Filter> fused = FusedPointFilter.fuse(
+                Arrays.asList(invert, posterize, noOp, lastInvert));
+
+        assertThat(fused).hasSize(3);
+        assertThat(((FusedPointFilter) fused.get(0)).getFilters())
+                .containsExactly(invert, posterize);
+        assertThat(fused.get(1)).isSameAs(noOp);
+        assertThat(fused.get(2)).isSameAs(lastInvert);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.history;
+
+import org.junit.After;
+import org.junit.Test;
+import pixelitor.utils.ImageUtils;
+
+import java.awt.image.BufferedImage;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
+import static pixelitor.TestHelper.createRandomImage;
+import static pixelitor.assertions.PixelitorAssertions.assertThat;
+
+public class ImageBackupTest {
+    @After
+    public void tearDown() {
+        BackupStore.setMemoryBudgetMB(0); // back to the default
+    }
+
+    @Test
+    public void test_keptInMemoryWithinBudget() {
+        BackupStore.setMemoryBudgetMB(100);
+        BufferedImage image = createRandomImage(100, 50, TYPE_INT_ARGB);
+        ImageBackup backup = ImageBackup.of(image);
+        BackupStore.waitForSpilling();
+
+        assertThat(backup.isInMemory()).isTrue();
+        assertThat(backup.get()).isSameAs(image);
+        assertThat(BackupStore.getMemoryUsed()).isGreaterThanOrEqualTo(100 * 50 * 4);
+
+        backup.dispose();
+    }
+
+    @Test
+    public void test_spillAndReadBack() {
+        for (int type : new int[]{TYPE_INT_ARGB, TYPE_INT_ARGB_PRE, TYPE_BYTE_GRAY}) {
+            BackupStore.setMemoryBudgetMB(1);
+
+            // more than 1 MB each, so the first one must be spilled
+            BufferedImage first = createRandomImage(1200, 1000, type);
+            BufferedImage firstCopy = ImageUtils.copyImage(first);
+            ImageBackup firstBackup = ImageBackup.of(first);
+            ImageBackup secondBackup = ImageBackup.of(createRandomImage(1200, 1000, type));
+            BackupStore.waitForSpilling();
+
+            assertThat(firstBackup.isInMemory()).isFalse();
+            BufferedImage readBack = firstBackup.get();
+            assertThat(readBack.getType()).isEqualTo(type);
+            assertThat(readBack).hasSamePixelsAs(firstCopy);
+
+            firstBackup.dispose();
+            secondBackup.dispose();
+            assertThat(firstBackup.isInMemory()).isFalse();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.history;
+
+import org.junit.Test;
+import pixelitor.utils.ImageUtils;
+
+import java.awt.image.BufferedImage;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static pixelitor.TestHelper.createRandomOpaqueImage;
+import static pixelitor.assertions.PixelitorAssertions.assertThat;
+
+public class ImageDiffTest {
+    @Test
+    public void test_restoresChangedTiles() {
+        for (int type : new int[]{TYPE_INT_ARGB, TYPE_BYTE_GRAY}) {
+            // not a multiple of the tile size, so that edge tiles are also tested
+            BufferedImage original = createRandomOpaqueImage(300, 200, type);
+            BufferedImage changed = ImageUtils.copyImage(original);
+            changed.setRGB(5, 5, 0xFF_00_FF_00);
+            changed.setRGB(299, 199, 0xFF_FF_00_00);
+
+            ImageDiff diff = ImageDiff.create(original, changed);
+            assertThat(diff).isNotNull();
+            assertThat(diff.getNumChangedTiles()).isEqualTo(2);
+
+            BufferedImage restored = diff.applyTo(changed);
+            assertThat(restored).isNotSameAs(changed);
+            assertThat(restored).hasSamePixelsAs(original);
+
+            diff.dispose();
+        }
+    }
+
+    @Test
+    public void test_noChange() {
+        BufferedImage original = createRandomOpaqueImage(100, 100, TYPE_INT_ARGB);
+        ImageDiff diff = ImageDiff.create(original, ImageUtils.copyImage(original));
+
+        assertThat(diff.getNumChangedTiles()).isEqualTo(0);
+        assertThat(diff.applyTo(original)).hasSamePixelsAs(original);
+    }
+
+    @Test
+    public void test_notApplicable() {
+        BufferedImage original = createRandomOpaqueImage(100, 100, TYPE_INT_ARGB);
+
+        // different size
+        assertThat(ImageDiff.create(original,
+                createRandomOpaqueImage(100, 50, TYPE_INT_ARGB))).isNull();
+
+        // different type
+        assertThat(ImageDiff.create(original,
+                createRandomOpaqueImage(100, 100, TYPE_BYTE_GRAY))).isNull();
+
+        // everything changed
+        BufferedImage inverted = ImageUtils.copyImage(original);
+        for (int y = 0; y < 100; y++) {
+            for (int x = 0; x < 100; x++) {
+                inverted.setRGB(x, y, ~original.getRGB(x, y));
+            }
+        }
+        assertThat(ImageDiff.create(original, inverted)).isNull();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+package pixelitor.history;
+
+import org.junit.Test;
+import pixelitor.utils.ImageUtils;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static pixelitor.TestHelper.createRandomOpaqueImage;
+import static pixelitor.assertions.PixelitorAssertions.assertThat;
+
+public class TileBackupTest {
+    @Test
+    public void test_backsUpOnlyTheTouchedTiles() {
+        // not a multiple of the tile size, so that edge tiles are also tested
+        BufferedImage image = createRandomOpaqueImage(300, 200, TYPE_INT_ARGB);
+        BufferedImage original = ImageUtils.copyImage(image);
+
+        TileBackup backup = new TileBackup(image, 0, 0);
+        assertThat(backup.getNumBackedUpTiles()).isEqualTo(0);
+
+        Rectangle first = new Rectangle(10, 10, 20, 20);
+        backup.backup(first);
+        fill(image, first);
+        assertThat(backup.getNumBackedUpTiles()).isEqualTo(1);
+
+        // crosses a tile boundary and the image edge
+        Rectangle second = new Rectangle(270, 180, 80, 40);
+        backup.backup(second);
+        fill(image, second);
+        assertThat(backup.getNumBackedUpTiles()).isEqualTo(3);
+        assertThat(backup.getNumTiles()).isEqualTo(5 * 4);
+
+        Rectangle area = new Rectangle(0, 0, 300, 200);
+        assertThat(backup.copyOriginal(area)).hasSamePixelsAs(original);
+
+        Rectangle part = new Rectangle(20, 5, 250, 190);
+        assertThat(backup.copyOriginal(part)).hasSamePixelsAs(ImageUtils.getCopyOfSubimage(original, part));
+    }
+
+    @Test
+    public void test_translatedImage() {
+        BufferedImage image = createRandomOpaqueImage(200, 200, TYPE_INT_ARGB);
+        BufferedImage original = ImageUtils.copyImage(image);
+
+        // the image starts 100 pixels to the left of the canvas
+        TileBackup backup = new TileBackup(image, -100, 0);
+        Rectangle canvasArea = new Rectangle(0, 0, 10, 10);
+        backup.backup(canvasArea);
+        fill(image, new Rectangle(100, 0, 10, 10));
+
+        assertThat(backup.getNumBackedUpTiles()).isEqualTo(1);
+        Rectangle imageArea = new Rectangle(90, 0, 30, 30);
+        assertThat(backup.copyOriginal(imageArea)).hasSamePixelsAs(ImageUtils.getCopyOfSubimage(original, imageArea));
+    }
+
+    private static void fill(BufferedImage img, Rectangle r) {
+        Rectangle clipped = r.intersection(new Rectangle(0, 0, img.getWidth(), img.getHeight()));
+        for (int y = clipped.y; y < clipped.y + clipped.height; y++) {
+            for (int x = clipped.x; x < clipped.x + clipped.width; x++) {
+                img.setRGB(x, y, 0xFF_FF_00_00);
+            }
+        }
+    }
+}
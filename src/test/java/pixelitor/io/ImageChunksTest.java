@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.io;
+
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static java.awt.image.BufferedImage.TYPE_BYTE_GRAY;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static pixelitor.TestHelper.createRandomImage;
+import static pixelitor.assertions.PixelitorAssertions.assertThat;
+
+public class ImageChunksTest {
+    @Test
+    public void test_writeAndReadBack() throws IOException {
+        for (int type : new int[]{TYPE_INT_ARGB, TYPE_BYTE_GRAY}) {
+            // more than one chunk, and the last one is partial
+            BufferedImage img = createRandomImage(70, 600, type);
+            ImageChunks chunks = ImageChunks.forImage(img);
+            assertThat(chunks.getNumChunks()).isEqualTo(3);
+
+            for (int i = 0; i < chunks.getNumChunks(); i++) {
+                chunks.encodeChunk(i, img);
+            }
+            File f = File.createTempFile("pix_chunks", ".bin");
+            try {
+                long start = chunks.getIndexSize();
+                chunks.setOffsets(start);
+                try (DataOutputStream out = new DataOutputStream(new FileOutputStream(f))) {
+                    chunks.writeIndex(out);
+                    chunks.writeChunks(out, null);
+                }
+
+                try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+                    ImageChunks readChunks = ImageChunks.readIndex(raf);
+                    assertThat(raf.getFilePointer()).isEqualTo(start);
+
+                    BufferedImage readImg = readChunks.createImage();
+                    assertThat(readImg.getType()).isEqualTo(type);
+                    // in reverse order, as the chunks are independent
+                    for (int i = readChunks.getNumChunks() - 1; i >= 0; i--) {
+                        readChunks.decodeChunk(i, raf.getChannel(), readImg);
+                    }
+                    assertThat(readImg).hasSamePixelsAs(img);
+                }
+            } finally {
+                f.delete();
+            }
+        }
+    }
+}
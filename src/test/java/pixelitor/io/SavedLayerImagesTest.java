@@ -0,0 +1,136 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import pixelitor.Build;
+import pixelitor.Composition;
+import pixelitor.TestHelper;
+import pixelitor.layers.ImageLayer;
+import pixelitor.utils.ImageUtils;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static pixelitor.assertions.PixelitorAssertions.assertThat;
+
+public class SavedLayerImagesTest {
+    private File file;
+
+    @BeforeClass
+    public static void setupClass() {
+        Build.setTestingMode();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("pix_saved", ".bin");
+        Files.write(file.toPath(), new byte[]{1, 2, 3});
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void test_unchangedLayerIsFound() {
+        ImageLayer layer = createLayer();
+        SavedLayerImages<String> savedImages = new SavedLayerImages<>();
+        saved(savedImages, layer, layer.getContentVersion());
+
+        SavedLayerImages.Record<String> record = savedImages.find(layer);
+        assertThat(record).isNotNull();
+        assertThat(record.getFile()).isEqualTo(file);
+        assertThat(record.getLocation()).isEqualTo("location");
+    }
+
+    @Test
+    public void test_editDuringSaveIsNotLost() {
+        ImageLayer layer = createLayer();
+        SavedLayerImages<String> savedImages = new SavedLayerImages<>();
+
+        // the image is serialized...
+        long serializedVersion = layer.getContentVersion();
+        // ...then a brush stroke finishes on the EDT before the save does
+        layer.imageChanged();
+        saved(savedImages, layer, serializedVersion);
+
+        // the next save must encode the image again
+        assertThat(savedImages.find(layer)).isNull();
+    }
+
+    @Test
+    public void test_changedFileIsNotUsed() throws IOException {
+        ImageLayer layer = createLayer();
+        SavedLayerImages<String> savedImages = new SavedLayerImages<>();
+        saved(savedImages, layer, layer.getContentVersion());
+
+        Files.write(file.toPath(), new byte[]{1, 2, 3, 4});
+
+        assertThat(savedImages.find(layer)).isNull();
+    }
+
+    @Test
+    public void test_incrementalPXCSave() throws Exception {
+        Composition comp = PXCFormat.read(new File("src/test/resources/pxc_test_input.pxc"));
+        ImageLayer changed = (ImageLayer) comp.getLayer(0);
+        ImageLayer unchanged = (ImageLayer) comp.getLayer(1);
+        BufferedImage unchangedImage = ImageUtils.copyImage(unchanged.getImage());
+
+        File tmp = File.createTempFile("pix_incremental", ".pxc");
+        try {
+            PXCFormat.write(comp, tmp);
+
+            // edit one layer in place, then save again into the same file,
+            // so that the unchanged image is copied from the previous version
+            BufferedImage image = changed.getImage();
+            image.setRGB(0, 0, 0xFF_12_34_56);
+            image.setRGB(image.getWidth() - 1, image.getHeight() - 1, 0xFF_65_43_21);
+            changed.imageChanged();
+            BufferedImage changedImage = ImageUtils.copyImage(image);
+            PXCFormat.write(comp, tmp);
+
+            Composition readBack = PXCFormat.read(tmp);
+            assertThat(((ImageLayer) readBack.getLayer(0)).getImage())
+                    .hasSamePixelsAs(changedImage);
+            assertThat(((ImageLayer) readBack.getLayer(1)).getImage())
+                    .hasSamePixelsAs(unchangedImage);
+        } finally {
+            tmp.delete();
+        }
+    }
+
+    private void saved(SavedLayerImages<String> savedImages,
+                       ImageLayer layer, long contentVersion) {
+        savedImages.fileProcessed(file,
+                Collections.singletonMap(layer, "location"),
+                Collections.singletonMap(layer, contentVersion));
+    }
+
+    private static ImageLayer createLayer() {
+        Composition comp = TestHelper.createEmptyComposition();
+        return TestHelper.createImageLayer("layer", comp);
+    }
+}
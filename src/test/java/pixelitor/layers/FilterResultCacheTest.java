@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.layers;
+
+import org.junit.Before;
+import org.junit.Test;
+import pixelitor.filters.Filter;
+import pixelitor.filters.Invert;
+
+import java.awt.image.BufferedImage;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB_PRE;
+import static pixelitor.TestHelper.createRandomOpaqueImage;
+import static pixelitor.assertions.PixelitorAssertions.assertThat;
+
+public class FilterResultCacheTest {
+    private FilterResultCache cache;
+    private Filter filter;
+    private BufferedImage src;
+
+    @Before
+    public void setUp() {
+        cache = new FilterResultCache();
+        filter = new Invert();
+        // not a multiple of the tile size
+        src = createRandomOpaqueImage(300, 200, TYPE_INT_ARGB_PRE);
+    }
+
+    @Test
+    public void test_unchangedInput() {
+        BufferedImage first = cache.get(filter, src);
+        long runCount = Filter.getRunCount();
+
+        BufferedImage second = cache.get(filter, src);
+        assertThat(Filter.getRunCount()).isEqualTo(runCount);
+        assertThat(second).hasSamePixelsAs(first);
+
+        // the returned images are not shared with the cache
+        assertThat(second).isNotSameAs(first);
+        second.setRGB(0, 0, 0xFF_00_FF_00);
+        assertThat(cache.get(filter, src)).hasSamePixelsAs(first);
+    }
+
+    @Test
+    public void test_changedTiles() {
+        cache.get(filter, src);
+
+        src.setRGB(10, 10, 0xFF_FF_00_00);
+        src.setRGB(299, 199, 0xFF_00_00_FF);
+        long runCount = Filter.getRunCount();
+        BufferedImage result = cache.get(filter, src);
+
+        // only the two changed tiles were filtered
+        assertThat(Filter.getRunCount()).isEqualTo(runCount + 2);
+        assertThat(result).hasSamePixelsAs(filter.transformImage(src));
+    }
+
+    @Test
+    public void test_notCacheableFilter() {
+        Filter notCacheable = new Invert() {
+            @Override
+            public Object getSettingsKey() {
+                return null;
+            }
+        };
+        cache.get(notCacheable, src);
+        long runCount = Filter.getRunCount();
+
+        cache.get(notCacheable, src);
+        assertThat(Filter.getRunCount()).isEqualTo(runCount + 1);
+    }
+}
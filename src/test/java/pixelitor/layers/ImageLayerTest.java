@@ -36,6 +36,8 @@ import pixelitor.testutils.WithTranslation;
 import pixelitor.utils.ImageUtils;
 
 import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
 import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.util.Arrays;
@@ -308,6 +310,28 @@ public class ImageLayerTest {
         iconUpdates.check(0, 0);
     }
 
+    @Test
+    public void test_TmpDrawingLayer_DrawnArea() {
+        TmpDrawingLayer tmpDrawingLayer
+                = layer.createTmpDrawingLayer(AlphaComposite.SrcOver);
+        tmpDrawingLayer.extendDrawnArea(new Rectangle(0, 0, 1, 1));
+        assertThat(tmpDrawingLayer.getDrawnArea()).isEqualTo(new Rectangle(0, 0, 1, 1));
+
+        // drawing outside the drawn area has no effect
+        Graphics2D g = tmpDrawingLayer.getGraphics();
+        int color = 0xFF_12_34_56;
+        g.setColor(new Color(color, true));
+        g.fillRect(0, 0, tmpDrawingLayer.getWidth(), tmpDrawingLayer.getHeight());
+
+        layer.mergeTmpDrawingLayerDown();
+
+        BufferedImage image = layer.getImage();
+        int x = -layer.getTX();
+        int y = -layer.getTY();
+        assertThat(image.getRGB(x, y)).isEqualTo(color);
+        assertThat(image.getRGB(x + 1, y + 1)).isNotEqualTo(color);
+    }
+
     @Test
     public void test_createCanvasSizedTmpImage() {
         BufferedImage image = layer.createCanvasSizedTmpImage();
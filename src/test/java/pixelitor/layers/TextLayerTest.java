@@ -17,6 +17,8 @@
 
 package pixelitor.layers;
 
+import org.jdesktop.swingx.painter.AbstractLayoutPainter.VerticalAlignment;
+import org.jdesktop.swingx.painter.effects.ShadowPathEffect;
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -27,14 +29,23 @@ import org.junit.runners.Parameterized.Parameters;
 import pixelitor.Build;
 import pixelitor.Composition;
 import pixelitor.TestHelper;
+import pixelitor.filters.painters.AreaEffects;
 import pixelitor.filters.painters.TextSettings;
+import pixelitor.filters.painters.TranslatedTextPainter;
 import pixelitor.history.ContentLayerMoveEdit;
 import pixelitor.history.History;
 import pixelitor.testutils.WithMask;
+import pixelitor.utils.ImageUtils;
 
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
 import java.util.Arrays;
 import java.util.Collection;
 
+import static org.jdesktop.swingx.painter.AbstractLayoutPainter.HorizontalAlignment.CENTER;
 import static org.mockito.Mockito.mock;
 import static pixelitor.assertions.PixelitorAssertions.assertThat;
 
@@ -114,6 +125,69 @@ public class TextLayerTest {
         iconUpdates.check(0, 0);
     }
 
+    @Test
+    public void test_renderedImageIsCached() {
+        // random settings could place the text outside the small canvas
+        layer.setSettings(new TextSettings("Text",
+                new Font(Font.SANS_SERIF, Font.BOLD, 12), Color.RED, null,
+                CENTER, VerticalAlignment.CENTER, false, 0));
+
+        BufferedImage rendered = layer.getRenderedImage();
+        assertThat(rendered).isNotNull();
+        assertThat(layer.getRenderedImage()).isSameAs(rendered);
+
+        // a translation change invalidates the cache
+        layer.setTranslation(layer.getTX() + 1, layer.getTY());
+        BufferedImage moved = layer.getRenderedImage();
+        assertThat(moved).isNotNull().isNotSameAs(rendered);
+
+        // a settings change invalidates the cache
+        layer.setSettings(new TextSettings(layer.getSettings()));
+        BufferedImage changed = layer.getRenderedImage();
+        assertThat(changed).isNotNull().isNotSameAs(moved);
+
+        iconUpdates.check(0, 0);
+    }
+
+    @Test
+    public void test_renderedImageMatchesPainter() {
+        int width = 300;
+        int height = 200;
+        Composition bigComp = TestHelper.createEmptyComposition(width, height);
+        TextLayer textLayer = new TextLayer(bigComp, "Big Text");
+
+        // wide enough for the fast rendering of the shadow
+        ShadowPathEffect shadow = new ShadowPathEffect(1.0f);
+        shadow.setEffectWidth(40);
+        shadow.setOffset(new Point(10, 8));
+        AreaEffects effects = new AreaEffects();
+        effects.setDropShadowEffect(shadow);
+        TextSettings settings = new TextSettings("Text",
+                new Font(Font.SERIF, Font.ITALIC, 60), Color.BLUE, effects,
+                CENTER, VerticalAlignment.CENTER, false, 0.3);
+        textLayer.setSettings(settings);
+        textLayer.setTranslation(-20, 15);
+        bigComp.addLayerInInitMode(textLayer);
+
+        assertThat(textLayer.getRenderedImage()).isNotNull();
+        BufferedImage actual = ImageUtils.createSysCompatibleImage(width, height);
+        Graphics2D g = actual.createGraphics();
+        textLayer.paintLayerOnGraphics(g, true);
+        g.dispose();
+
+        // painted directly, without the cached image
+        TranslatedTextPainter painter = new TranslatedTextPainter();
+        settings.configurePainter(painter);
+        painter.setTranslation(-20, 15);
+        painter.setFillPaint(settings.getColor());
+        BufferedImage expected = ImageUtils.createSysCompatibleImage(width, height);
+        g = expected.createGraphics();
+        painter.paint(g, null, width, height);
+        g.dispose();
+
+        assertThat(actual).hasSamePixelsAs(expected);
+    }
+
     @Test
     public void test_createMovementEdit() {
         ContentLayerMoveEdit edit = layer.createMovementEdit(5, 5);
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.selection;
+
+import org.junit.Test;
+
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.Area;
+import java.awt.image.BufferedImage;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SelectionMaskTest {
+    // an axis-aligned polygon, so that the rasterization of
+    // the Area results can't differ at the edges
+    private static final Shape POLYGON = new Polygon(
+            new int[]{10, 70, 70, 45, 45, 10}, new int[]{20, 20, 60, 60, 40, 40}, 6);
+    private static final Shape RECT = new Rectangle(40, 5, 50, 30);
+
+    @Test
+    public void test_fromShape() {
+        SelectionMask mask = SelectionMask.from(RECT);
+
+        assertThat(mask.getBounds()).isEqualTo(RECT.getBounds());
+        assertThat(mask.getCoverage(40, 5)).isEqualTo(255);
+        assertThat(mask.getCoverage(89, 34)).isEqualTo(255);
+        assertThat(mask.getCoverage(90, 34)).isEqualTo(0);
+        assertThat(mask.contains(45.5, 10.5)).isTrue();
+        assertThat(mask.contains(new Rectangle(40, 5, 50, 30))).isTrue();
+        assertThat(mask.contains(new Rectangle(40, 5, 51, 30))).isFalse();
+        assertThat(mask.intersects(new Rectangle(0, 0, 41, 6))).isTrue();
+        assertThat(mask.intersects(new Rectangle(0, 0, 40, 5))).isFalse();
+    }
+
+    @Test
+    public void test_shouldRasterize() {
+        assertThat(SelectionMask.shouldRasterize(RECT, POLYGON)).isFalse();
+        assertThat(SelectionMask.shouldRasterize(RECT, SelectionMask.from(POLYGON))).isTrue();
+    }
+
+    @Test
+    public void test_combineMatchesAreas() {
+        for (SelectionInteraction interaction : SelectionInteraction.values()) {
+            Shape areaResult = interaction.combine(POLYGON, RECT);
+            assertThat(areaResult).isNotInstanceOf(SelectionMask.class);
+
+            SelectionMask maskResult = SelectionMask.from(POLYGON)
+                    .combine(interaction, SelectionMask.from(RECT));
+
+            assertSamePixels(maskResult, SelectionMask.from(areaResult));
+        }
+    }
+
+    @Test
+    public void test_pathOfSelectedPixels() {
+        SelectionMask mask = SelectionMask.from(POLYGON)
+                .combine(SelectionInteraction.SUBTRACT, SelectionMask.from(RECT));
+
+        // converted to a path and back
+        assertSamePixels(SelectionMask.from(new Area(mask)), mask);
+    }
+
+    @Test
+    public void test_invert() {
+        Rectangle canvas = new Rectangle(0, 0, 100, 80);
+        SelectionMask mask = SelectionMask.from(POLYGON);
+        SelectionMask inverted = mask.invert(canvas);
+
+        assertThat(inverted.getBounds()).isEqualTo(canvas);
+        assertSamePixels(inverted.invert(canvas), mask);
+    }
+
+    @Test
+    public void test_dilateAndErode() {
+        SelectionMask mask = SelectionMask.from(RECT);
+
+        SelectionMask dilated = mask.dilate(3);
+        assertThat(dilated.getBounds()).isEqualTo(new Rectangle(37, 2, 56, 36));
+        // the corners are rounded
+        assertThat(dilated.getCoverage(37, 2)).isEqualTo(0);
+        assertThat(dilated.getCoverage(38, 3)).isEqualTo(255);
+
+        SelectionMask eroded = mask.erode(3);
+        assertThat(eroded.getBounds()).isEqualTo(new Rectangle(43, 8, 44, 24));
+        assertSamePixels(eroded, SelectionMask.from(new Rectangle(43, 8, 44, 24)));
+
+        SelectionMask border = SelectionModifyType.BORDER.modify(mask, 3);
+        assertThat(border.getCoverage(40, 5)).isEqualTo(255);
+        assertThat(border.getCoverage(60, 20)).isEqualTo(0);
+    }
+
+    @Test
+    public void test_feather() {
+        SelectionMask mask = SelectionMask.from(RECT);
+        SelectionMask feathered = mask.feather(6);
+
+        Rectangle bounds = feathered.getBounds();
+        assertThat(bounds.contains(RECT.getBounds())).isTrue();
+        assertThat(bounds).isNotEqualTo(RECT.getBounds());
+
+        assertThat(feathered.getCoverage(65, 20)).isEqualTo(255);
+        int edgeCoverage = feathered.getCoverage(40, 20);
+        assertThat(edgeCoverage).isBetween(64, 192);
+    }
+
+    @Test
+    public void test_copySelected() {
+        BufferedImage src = new BufferedImage(100, 50, TYPE_INT_ARGB);
+        BufferedImage dst = new BufferedImage(100, 50, TYPE_INT_ARGB);
+        for (int y = 0; y < 50; y++) {
+            for (int x = 0; x < 100; x++) {
+                src.setRGB(x, y, 0xFF_FF_FF_FF);
+                dst.setRGB(x, y, 0xFF_00_00_00);
+            }
+        }
+        SelectionMask mask = SelectionMask.from(RECT).feather(6);
+
+        // the destination image is shifted relative to the canvas
+        boolean copied = mask.copySelected(src, 0, 0, dst, 0, -10);
+
+        assertThat(copied).isTrue();
+        assertThat(dst.getRGB(65, 30)).isEqualTo(0xFF_FF_FF_FF);
+        assertThat(dst.getRGB(5, 30)).isEqualTo(0xFF_00_00_00);
+        int edgeRed = (dst.getRGB(40, 30) >>> 16) & 0xFF;
+        assertThat(edgeRed).isEqualTo(mask.getCoverage(40, 20));
+    }
+
+    private static void assertSamePixels(SelectionMask actual, SelectionMask expected) {
+        Rectangle bounds = actual.getBounds().union(expected.getBounds());
+        for (int y = bounds.y; y < bounds.y + bounds.height; y++) {
+            for (int x = bounds.x; x < bounds.x + bounds.width; x++) {
+                assertThat(actual.getCoverage(x, y))
+                        .as("x = %d, y = %d", x, y)
+                        .isEqualTo(expected.getCoverage(x, y));
+            }
+        }
+    }
+}
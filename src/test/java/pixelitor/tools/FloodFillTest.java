@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.tools;
+
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FloodFillTest {
+    private static final int WIDTH = 150;
+    private static final int HEIGHT = 90;
+
+    @Test
+    public void test_localMatchesReference() {
+        for (int tolerance : new int[]{0, 30, 100}) {
+            int[] pixels = createPixels(tolerance);
+            int startX = 70;
+            int startY = 40;
+            int rgbAtMouse = pixels[startY * WIDTH + startX];
+
+            FloodFill fill = FloodFill.local(pixels, WIDTH, HEIGHT,
+                    startX, startY, tolerance, rgbAtMouse);
+            boolean[] expected = referenceLocalFill(pixels,
+                    startX, startY, tolerance, rgbAtMouse);
+
+            checkFill(fill, expected);
+        }
+    }
+
+    @Test
+    public void test_globalMatchesReference() {
+        int tolerance = 40;
+        int[] pixels = createPixels(tolerance);
+        int rgbAtMouse = pixels[0];
+
+        FloodFill fill = FloodFill.global(pixels, WIDTH, HEIGHT, tolerance, rgbAtMouse);
+
+        boolean[] expected = new boolean[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            expected[i] = FloodFill.isSimilar(pixels[i], rgbAtMouse, tolerance);
+        }
+        checkFill(fill, expected);
+    }
+
+    @Test
+    public void test_applyToPartOfTheImage() {
+        int[] pixels = new int[WIDTH * HEIGHT];
+        FloodFill fill = FloodFill.local(pixels, WIDTH, HEIGHT, 0, 0, 0, 0);
+        assertThat(fill.getBounds()).isEqualTo(new Rectangle(0, 0, WIDTH, HEIGHT));
+
+        Rectangle area = new Rectangle(60, 10, 70, 20);
+        int[] areaPixels = new int[area.width * area.height];
+        fill.apply(areaPixels, area.x, area.y, area.width, 0xFF_FF_00_00);
+        for (int areaPixel : areaPixels) {
+            assertThat(areaPixel).isEqualTo(0xFF_FF_00_00);
+        }
+    }
+
+    private static void checkFill(FloodFill fill, boolean[] expected) {
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = -1;
+        int maxY = -1;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                boolean expectedFilled = expected[y * WIDTH + x];
+                assertThat(fill.isFilled(x, y))
+                        .as("x = %d, y = %d", x, y)
+                        .isEqualTo(expectedFilled);
+                if (expectedFilled) {
+                    minX = Math.min(minX, x);
+                    minY = Math.min(minY, y);
+                    maxX = Math.max(maxX, x);
+                    maxY = Math.max(maxY, y);
+                }
+            }
+        }
+        assertThat(fill.getBounds()).isEqualTo(
+                new Rectangle(minX, minY, maxX - minX + 1, maxY - minY + 1));
+
+        int[] filledPixels = new int[WIDTH * HEIGHT];
+        fill.apply(filledPixels, 0, 0, WIDTH, 1);
+        for (int i = 0; i < filledPixels.length; i++) {
+            assertThat(filledPixels[i]).isEqualTo(expected[i] ? 1 : 0);
+        }
+    }
+
+    /**
+     * Random blobs of gray values around a maze-like pattern, so that
+     * the filled regions have holes and concave borders
+     */
+    private static int[] createPixels(long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int gray = random.nextInt(4) == 0 ? random.nextInt(256) : 50;
+                if (x % 23 == 5 && y % 31 != 7) {
+                    gray = 255;
+                }
+                pixels[y * WIDTH + x] = 0xFF_00_00_00 | gray << 16 | gray << 8 | gray;
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * A simple 4-connected flood fill
+     */
+    private static boolean[] referenceLocalFill(int[] pixels, int startX, int startY,
+                                                int tolerance, int rgbAtMouse) {
+        boolean[] filled = new boolean[pixels.length];
+        Deque<int[]> queue = new ArrayDeque<>();
+        queue.add(new int[]{startX, startY});
+        while (!queue.isEmpty()) {
+            int[] p = queue.poll();
+            int x = p[0];
+            int y = p[1];
+            if (x < 0 || y < 0 || x >= WIDTH || y >= HEIGHT) {
+                continue;
+            }
+            int index = y * WIDTH + x;
+            if (filled[index] || !FloodFill.isSimilar(pixels[index], rgbAtMouse, tolerance)) {
+                continue;
+            }
+            filled[index] = true;
+            queue.add(new int[]{x - 1, y});
+            queue.add(new int[]{x + 1, y});
+            queue.add(new int[]{x, y - 1});
+            queue.add(new int[]{x, y + 1});
+        }
+        return filled;
+    }
+}
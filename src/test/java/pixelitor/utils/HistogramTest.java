@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 Laszlo Balazs-Csiki and Contributors
+ *
+ * This file is part of Pixelitor. Pixelitor is free software: you
+ * can redistribute it and/or modify it under the terms of the GNU
+ * General Public License, version 3 as published by the Free
+ * Software Foundation.
+ *
+ * Pixelitor is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Pixelitor. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pixelitor.utils;
+
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.awt.geom.Ellipse2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HistogramTest {
+    @Test
+    public void test_countsAllNonTransparentPixels() {
+        BufferedImage img = new BufferedImage(600, 400, TYPE_INT_ARGB);
+        fill(img, new Rectangle(0, 0, 600, 400), 0xFF_10_20_30);
+        fill(img, new Rectangle(0, 0, 100, 100), 0x00_10_20_30);
+
+        Histogram histogram = Histogram.of(img);
+
+        int expected = 600 * 400 - 100 * 100;
+        assertThat(histogram.getNumPixels()).isEqualTo(expected);
+        assertThat(histogram.getRed()[0x10]).isEqualTo(expected);
+        assertThat(histogram.getGreen()[0x20]).isEqualTo(expected);
+        assertThat(histogram.getBlue()[0x30]).isEqualTo(expected);
+    }
+
+    @Test
+    public void test_shape() {
+        BufferedImage img = new BufferedImage(100, 100, TYPE_INT_ARGB);
+        fill(img, new Rectangle(0, 0, 100, 100), 0xFF_00_00_00);
+        fill(img, new Rectangle(50, 50, 50, 50), 0xFF_FF_FF_FF);
+
+        // the rectangle is partially outside the image
+        Histogram histogram = Histogram.of(img, new Rectangle(50, 0, 100, 60));
+
+        assertThat(histogram.getNumPixels()).isEqualTo(50 * 60);
+        assertThat(histogram.getRed()[255]).isEqualTo(50 * 10);
+
+        // the ellipse is completely inside the image
+        histogram = Histogram.of(img, new Ellipse2D.Double(10, 10, 30, 30));
+        assertThat(histogram.getRed()[0]).isBetween(650, 760);
+        assertThat(histogram.getRed()[255]).isEqualTo(0);
+    }
+
+    @Test
+    public void test_tiledIncrementalUpdate() {
+        BufferedImage img = new BufferedImage(700, 500, TYPE_INT_ARGB);
+        Random random = new Random(42);
+        for (int y = 0; y < img.getHeight(); y++) {
+            for (int x = 0; x < img.getWidth(); x++) {
+                img.setRGB(x, y, random.nextInt());
+            }
+        }
+
+        TiledHistogram tiled = new TiledHistogram();
+        Histogram before = Histogram.of(img);
+        assertSame(tiled.get(img), before);
+
+        Rectangle changed = new Rectangle(240, 250, 30, 20);
+        fill(img, changed, 0xFF_FF_00_00);
+
+        // not yet invalidated
+        assertSame(tiled.get(img), before);
+
+        tiled.invalidateRegion(changed);
+        assertSame(tiled.get(img), Histogram.of(img));
+    }
+
+    private static void assertSame(Histogram actual, Histogram expected) {
+        assertThat(actual.getRed()).isEqualTo(expected.getRed());
+        assertThat(actual.getGreen()).isEqualTo(expected.getGreen());
+        assertThat(actual.getBlue()).isEqualTo(expected.getBlue());
+    }
+
+    private static void fill(BufferedImage img, Rectangle r, int argb) {
+        for (int y = r.y; y < r.y + r.height; y++) {
+            for (int x = r.x; x < r.x + r.width; x++) {
+                img.setRGB(x, y, argb);
+            }
+        }
+    }
+}